@@ -9,12 +9,14 @@ import static iudx.resource.server.apiserver.util.Constants.IID;
 import static iudx.resource.server.apiserver.util.Constants.USER_ID;
 import static iudx.resource.server.apiserver.util.Util.errorResponse;
 import static iudx.resource.server.common.Constants.CACHE_SERVICE_ADDRESS;
+import static iudx.resource.server.common.Constants.DATABASE_SEARCH_ENCODED_ADDRESS;
 import static iudx.resource.server.common.Constants.PG_SERVICE_ADDRESS;
 import static iudx.resource.server.common.HttpStatusCode.BAD_REQUEST;
 import static iudx.resource.server.common.HttpStatusCode.NOT_FOUND;
 import static iudx.resource.server.common.HttpStatusCode.UNAUTHORIZED;
 import static iudx.resource.server.common.ResponseUrn.BACKING_SERVICE_FORMAT_URN;
 import static iudx.resource.server.common.ResponseUrn.INVALID_PARAM_URN;
+import static iudx.resource.server.common.ResponseUrn.INVALID_TOKEN_URN;
 import static iudx.resource.server.common.ResponseUrn.INVALID_TEMPORAL_PARAM_URN;
 import static iudx.resource.server.common.ResponseUrn.MISSING_TOKEN_URN;
 import static iudx.resource.server.common.ResponseUrn.RESOURCE_NOT_FOUND_URN;
@@ -26,6 +28,7 @@ import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Future;
 import io.vertx.core.MultiMap;
 import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServer;
 import io.vertx.core.http.HttpServerOptions;
@@ -49,6 +52,7 @@ import iudx.resource.server.apiserver.management.ManagementApi;
 import iudx.resource.server.apiserver.management.ManagementApiImpl;
 import iudx.resource.server.apiserver.query.NGSILDQueryParams;
 import iudx.resource.server.apiserver.query.QueryMapper;
+import iudx.resource.server.apiserver.response.ChunkedResponseWriter;
 import iudx.resource.server.apiserver.response.ResponseType;
 import iudx.resource.server.apiserver.service.CatalogueService;
 import iudx.resource.server.apiserver.subscription.SubsType;
@@ -57,6 +61,7 @@ import iudx.resource.server.apiserver.util.RequestType;
 import iudx.resource.server.apiserver.validation.ValidatorsHandlersFactory;
 import iudx.resource.server.authenticator.AuthenticationService;
 import iudx.resource.server.cache.CacheService;
+import iudx.resource.server.cache.LocalCacheService;
 import iudx.resource.server.common.Api;
 import iudx.resource.server.common.HttpStatusCode;
 import iudx.resource.server.common.ResponseUrn;
@@ -69,11 +74,13 @@ import iudx.resource.server.metering.MeteringService;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -237,6 +244,15 @@ public class ApiServerVerticle extends AbstractVerticle {
             .handler(this::handleLatestEntitiesQuery)
             .failureHandler(validationsFailureHandler);
 
+        ValidationHandler latestGroupValidationHandler =
+            new ValidationHandler(vertx, RequestType.LATEST_GROUP);
+        router
+            .get(api.getEntitiesUrl() + "/:domain/:userSha/:resourceServer/:resourceGroup")
+            .handler(latestGroupValidationHandler)
+            .handler(AuthHandler.create(vertx,api))
+            .handler(this::handleLatestGroupQuery)
+            .failureHandler(validationsFailureHandler);
+
         ValidationHandler postTemporalValidationHandler =
             new ValidationHandler(vertx, RequestType.POST_TEMPORAL);
         router
@@ -444,7 +460,8 @@ public class ApiServerVerticle extends AbstractVerticle {
         databroker = DataBrokerService.createProxy(vertx, BROKER_SERVICE_ADDRESS);
         meteringService = MeteringService.createProxy(vertx, METERING_SERVICE_ADDRESS);
         latestDataService = LatestDataService.createProxy(vertx, LATEST_SEARCH_ADDRESS);
-        cacheService=CacheService.createProxy(vertx, CACHE_SERVICE_ADDRESS);
+        cacheService = new LocalCacheService(vertx,
+            CacheService.createProxy(vertx, CACHE_SERVICE_ADDRESS), config());
         managementApi = new ManagementApiImpl();
         subsService = new SubscriptionService();
         catalogueService = new CatalogueService(vertx, config(),cacheService);
@@ -652,10 +669,11 @@ public class ApiServerVerticle extends AbstractVerticle {
         HttpServerResponse response = routingContext.response();
         // get query parameters
         MultiMap params = getQueryParams(routingContext, response).get();
-        if (!params.isEmpty()) {
+        if (params.names().stream().anyMatch(name -> !NGSILDQUERY_ATTRIBUTE.equals(name))) {
             RuntimeException ex =
-                new RuntimeException("Query parameters are not allowed with latest query");
+                new RuntimeException("Only attrs parameter is allowed with latest query");
             routingContext.fail(ex);
+            return;
         }
         String domain = request.getParam(DOMAIN);
         String userSha = request.getParam(USERSHA);
@@ -672,6 +690,7 @@ public class ApiServerVerticle extends AbstractVerticle {
         json.put(JSON_INSTANCEID, instanceID);
         json.put(JSON_ID, new JsonArray().add(id));
         json.put(JSON_SEARCH_TYPE, "latestSearch");
+        putLatestAttrs(json, params);
         LOGGER.debug("Info: IUDX query json;" + json);
         filtersFuture.onComplete(filtersHandler -> {
             if (filtersHandler.succeeded()) {
@@ -685,6 +704,92 @@ public class ApiServerVerticle extends AbstractVerticle {
         });
     }
 
+    /**
+     * Latest values of all resources of a resource group, or of the resources given by the id
+     * query parameter, fetched in a single batch.
+     *
+     * @param routingContext RoutingContext Object
+     */
+    private void handleLatestGroupQuery(RoutingContext routingContext) {
+        LOGGER.trace("Info:handleLatestGroupQuery method started.;");
+        HttpServerRequest request = routingContext.request();
+        HttpServerResponse response = routingContext.response();
+        MultiMap params = getQueryParams(routingContext, response).get();
+        if (params.names().stream()
+            .anyMatch(name -> !NGSILDQUERY_ID.equals(name) && !NGSILDQUERY_ATTRIBUTE.equals(name))) {
+            routingContext.fail(new DxRuntimeException(BAD_REQUEST.getValue(), INVALID_PARAM_URN,
+                "Only id and attrs parameters are allowed with latest query of a resource group"));
+            return;
+        }
+        String groupId = request.getParam(DOMAIN) + "/" + request.getParam(USERSHA) + "/"
+            + request.getParam(RESOURCE_SERVER) + "/" + request.getParam(RESOURCE_GROUP);
+        String idParam = params.get(NGSILDQUERY_ID);
+
+        catalogueService.getGroupResourceIds(groupId).onComplete(resourcesHandler -> {
+            if (resourcesHandler.failed()) {
+                LOGGER.error("catalogue group doesn't have resources.");
+                handleResponse(response, BAD_REQUEST, INVALID_PARAM_URN,
+                    resourcesHandler.cause().getMessage());
+                return;
+            }
+            List<String> ids = resourcesHandler.result();
+            if (idParam != null) {
+                List<String> requestedIds = Arrays.asList(idParam.split(","));
+                if (!ids.containsAll(requestedIds)) {
+                    handleResponse(response, BAD_REQUEST, INVALID_PARAM_URN,
+                        "id is not a resource of group : " + groupId);
+                    return;
+                }
+                ids = requestedIds;
+            }
+            List<String> resourceIds = ids;
+            authorizeResources(routingContext, resourceIds).onComplete(authHandler -> {
+                if (authHandler.failed()) {
+                    String message = authHandler.cause().getMessage();
+                    LOGGER.error("Error : access to resources of group denied : " + message);
+                    if (message.contains("Not Found")) {
+                        handleResponse(response, NOT_FOUND, RESOURCE_NOT_FOUND_URN);
+                    } else {
+                        handleResponse(response, UNAUTHORIZED, INVALID_TOKEN_URN);
+                    }
+                    return;
+                }
+                JsonObject json = new JsonObject();
+                json.put(JSON_INSTANCEID, request.getHeader(HEADER_HOST));
+                json.put(JSON_ID, new JsonArray(resourceIds));
+                json.put(JSON_SEARCH_TYPE, "latestSearch");
+                putLatestAttrs(json, params);
+                LOGGER.debug("Info: IUDX query json;" + json);
+                executeLatestSearchQuery(routingContext, json, response);
+            });
+        });
+    }
+
+    /**
+     * The token is checked against the group id of the path only by the auth handler, resources of
+     * the group may have an access policy of their own. The token is checked once more against the
+     * resources themselves, as for a query of all of them by id.
+     */
+    private Future<JsonObject> authorizeResources(RoutingContext routingContext,
+        List<String> resourceIds) {
+        JsonObject authInfo = ((JsonObject) routingContext.data().get("authInfo")).copy()
+            .put(ID, String.join(",", resourceIds));
+        JsonObject request = new JsonObject().put(IDS, new JsonArray(resourceIds));
+        Promise<JsonObject> promise = Promise.promise();
+        authenticator.tokenInterospect(request, authInfo, promise);
+        return promise.future();
+    }
+
+    /**
+     * Attributes the latest values are to be projected to, if any.
+     */
+    private void putLatestAttrs(JsonObject json, MultiMap params) {
+        String attrs = params.get(NGSILDQUERY_ATTRIBUTE);
+        if (attrs != null) {
+            json.put(JSON_ATTRIBUTE_FILTER, new JsonArray(Arrays.asList(attrs.split(","))));
+        }
+    }
+
     /**
      * This method is used to handle all NGSI-LD queries for endpoint /ngsi-ld/v1/entities/**.
      *
@@ -716,7 +821,7 @@ public class ApiServerVerticle extends AbstractVerticle {
                 QueryMapper queryMapper = new QueryMapper(routingContext);
                 json = queryMapper.toJson(ngsildquery, false);
                 Future<List<String>> filtersFuture =
-                    catalogueService.getApplicableFilters(json.getJsonArray("id").getString(0));
+                    catalogueService.getApplicableFilters(joinIds(json.getJsonArray("id")));
                 /* HTTP request instance/host details */
                 String instanceID = request.getHeader(HEADER_HOST);
                 json.put(JSON_INSTANCEID, instanceID);
@@ -770,7 +875,7 @@ public class ApiServerVerticle extends AbstractVerticle {
                 QueryMapper queryMapper = new QueryMapper(routingContext);
                 JsonObject json = queryMapper.toJson(ngsildquery, requestJson.containsKey("temporalQ"));
                 Future<List<String>> filtersFuture =
-                    catalogueService.getApplicableFilters(json.getJsonArray("id").getString(0));
+                    catalogueService.getApplicableFilters(joinIds(json.getJsonArray("id")));
                 String instanceID = request.getHeader(HEADER_HOST);
                 json.put(JSON_INSTANCEID, instanceID);
                 requestJson.put("ids", json.getJsonArray("id"));
@@ -783,6 +888,9 @@ public class ApiServerVerticle extends AbstractVerticle {
                             json.put("limit", params.get("limit"));
                             json.put("offset", params.get("offset"));
                         }
+                        if (params.contains(NGSILDQUERY_CURSOR)) {
+                            json.put(NGSILDQUERY_CURSOR, params.get(NGSILDQUERY_CURSOR));
+                        }
                         if (json.containsKey(IUDXQUERY_OPTIONS)
                             && JSON_COUNT.equalsIgnoreCase(json.getString(IUDXQUERY_OPTIONS))) {
                             executeCountQuery(routingContext, json, response);
@@ -850,31 +958,28 @@ public class ApiServerVerticle extends AbstractVerticle {
      */
     private void executeSearchQuery(RoutingContext context, JsonObject json,
                                     HttpServerResponse response) {
+        if (context.request().getHeader(HEADER_PUBLIC_KEY) == null) {
+            executeEncodedSearchQuery(context, json, response);
+            return;
+        }
         Future<JsonObject> searchDBFuture = database.search(json);
         searchDBFuture.onComplete(handler -> {
             if (handler.succeeded()) {
                 LOGGER.info("Success: Search Success");
-                if (context.request().getHeader(HEADER_PUBLIC_KEY) == null) {
-                    handleSuccessResponse(response, ResponseType.Ok.getCode(), handler.result().toString());
-                    context.data().put(RESPONSE_SIZE, response.bytesWritten());
-                    Future.future(fu -> updateAuditTable(context));
-                }
                 // Encryption
-                else {
-                    Future<JsonObject> future = encryption(context, handler.result().getJsonArray("results").toString());
-                    future.onComplete(encryptionHandler -> {
-                        if (encryptionHandler.succeeded()) {
-                            JsonObject result = encryptionHandler.result();
-                            handler.result().put("results",result);
-                            handleSuccessResponse(response, ResponseType.Ok.getCode(), handler.result().encode());
-                            context.data().put(RESPONSE_SIZE, response.bytesWritten());
-                            Future.future(fu -> updateAuditTable(context));
-                        } else {
-                            LOGGER.error("Encryption not completed");
-                            processBackendResponse(response, encryptionHandler.cause().getMessage());
-                        }
-                    });
-                }
+                Future<JsonObject> future = encryption(context, handler.result().getJsonArray("results").toString());
+                future.onComplete(encryptionHandler -> {
+                    if (encryptionHandler.succeeded()) {
+                        JsonObject result = encryptionHandler.result();
+                        handler.result().put("results",result);
+                        handleSuccessResponse(response, ResponseType.Ok.getCode(), handler.result().encode());
+                        context.data().put(RESPONSE_SIZE, response.bytesWritten());
+                        Future.future(fu -> updateAuditTable(context));
+                    } else {
+                        LOGGER.error("Encryption not completed");
+                        processBackendResponse(response, encryptionHandler.cause().getMessage());
+                    }
+                });
             } else if (handler.failed()) {
                 LOGGER.error("Fail: Search Fail");
                 processBackendResponse(response, handler.cause().getMessage());
@@ -882,6 +987,34 @@ public class ApiServerVerticle extends AbstractVerticle {
         });
     }
 
+    /**
+     * Execute a search query in DB, the encoded response envelope received from DB verticle in
+     * chunks is written as-is as the chunked response body.
+     *
+     * @param json valid json query
+     * @param response
+     */
+    private void executeEncodedSearchQuery(RoutingContext context, JsonObject json,
+                                           HttpServerResponse response) {
+        vertx.eventBus().<Buffer>request(DATABASE_SEARCH_ENCODED_ADDRESS, json, handler -> {
+            if (handler.succeeded()) {
+                LOGGER.info("Success: Search Success");
+                response.putHeader(CONTENT_TYPE, APPLICATION_JSON)
+                    .setStatusCode(ResponseType.Ok.getCode());
+                ChunkedResponseWriter.write(response, handler.result())
+                    .onSuccess(written -> {
+                        context.data().put(RESPONSE_SIZE, response.bytesWritten());
+                        Future.future(fu -> updateAuditTable(context));
+                    }).onFailure(failure -> {
+                        LOGGER.error("Fail: response not completed : " + failure.getMessage());
+                    });
+            } else {
+                LOGGER.error("Fail: Search Fail");
+                processBackendResponse(response, handler.cause().getMessage());
+            }
+        });
+    }
+
     private void executeLatestSearchQuery(RoutingContext context, JsonObject json,
                                           HttpServerResponse response) {
         latestDataService.getLatestData(json, handler -> {
@@ -971,7 +1104,7 @@ public class ApiServerVerticle extends AbstractVerticle {
                 JsonObject json = queryMapper.toJson(ngsildquery, true);
 
                 Future<List<String>> filtersFuture =
-                    catalogueService.getApplicableFilters(json.getJsonArray("id").getString(0));
+                    catalogueService.getApplicableFilters(joinIds(json.getJsonArray("id")));
                 json.put(JSON_INSTANCEID, instanceID);
                 LOGGER.debug("Info: IUDX temporal json query;" + json);
                 /* HTTP request body as Json */
@@ -1633,6 +1766,10 @@ public class ApiServerVerticle extends AbstractVerticle {
         LOGGER.info("Stopping the API server");
     }
 
+    private String joinIds(JsonArray ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
     private boolean isTemporalParamsPresent(NGSILDQueryParams ngsildquery) {
         return ngsildquery.getTemporalRelation().getTemprel() != null
             || ngsildquery.getTemporalRelation().getTime() != null
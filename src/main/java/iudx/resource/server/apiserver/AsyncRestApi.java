@@ -7,10 +7,17 @@ import static iudx.resource.server.apiserver.util.RequestType.ASYNC_SEARCH;
 import static iudx.resource.server.apiserver.util.RequestType.ASYNC_STATUS;
 import static iudx.resource.server.common.Constants.*;
 import static iudx.resource.server.common.HttpStatusCode.BAD_REQUEST;
+import static iudx.resource.server.common.HttpStatusCode.NOT_FOUND;
+import static iudx.resource.server.common.HttpStatusCode.UNAUTHORIZED;
 import static iudx.resource.server.common.ResponseUrn.BACKING_SERVICE_FORMAT_URN;
 import static iudx.resource.server.common.ResponseUrn.INVALID_PARAM_URN;
+import static iudx.resource.server.common.ResponseUrn.INVALID_TOKEN_URN;
+import static iudx.resource.server.common.ResponseUrn.RESOURCE_NOT_FOUND_URN;
+import static iudx.resource.server.database.async.util.Constants.LOCAL_OBJECT_STORE_PATH;
+import static iudx.resource.server.database.async.util.Constants.OBJECT_STORE_SECRET;
 import static iudx.resource.server.database.postgres.Constants.INSERT_S3_PENDING_SQL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -46,6 +53,7 @@ import iudx.resource.server.cache.CacheService;
 import iudx.resource.server.common.HttpStatusCode;
 import iudx.resource.server.common.ResponseUrn;
 import iudx.resource.server.database.async.AsyncService;
+import iudx.resource.server.database.async.util.LocalObjectStore;
 import iudx.resource.server.database.async.util.QueryProgress;
 import iudx.resource.server.database.postgres.PostgresService;
 import iudx.resource.server.databroker.DataBrokerService;
@@ -66,6 +74,7 @@ public class AsyncRestApi {
   private final CacheService cacheService;
   private EncryptionService encryptionService;
   private Api api;
+  private LocalObjectStore localObjectStore;
 
   AsyncRestApi(Vertx vertx, Router router, JsonObject config, Api api) {
     this.vertx = vertx;
@@ -78,6 +87,12 @@ public class AsyncRestApi {
     this.postgresService = PostgresService.createProxy(vertx, PG_SERVICE_ADDRESS);
     this.encryptionService = EncryptionService.createProxy(vertx, ENCRYPTION_SERVICE_ADDRESS);
     this.api = api;
+    String objectStorePath = config.getString(LOCAL_OBJECT_STORE_PATH);
+    String objectStoreSecret = config.getString(OBJECT_STORE_SECRET);
+    if (objectStorePath != null && !objectStorePath.isBlank() && objectStoreSecret != null
+        && !objectStoreSecret.isBlank()) {
+      this.localObjectStore = new LocalObjectStore(objectStorePath, null, objectStoreSecret);
+    }
   }
 
 
@@ -103,9 +118,38 @@ public class AsyncRestApi {
           .handler(this::handleAsyncStatusRequest)
           .failureHandler(validationsFailureHandler);
 
+    // results kept in a local object store, the signed link is the authorization
+    if (localObjectStore != null) {
+      router
+          .get(OBJECTS + "/:objectId")
+            .handler(this::handleObjectDownload);
+    }
+
     return this.router;
   }
 
+  private void handleObjectDownload(RoutingContext routingContext) {
+    HttpServerRequest request = routingContext.request();
+    HttpServerResponse response = routingContext.response();
+    String objectId = request.getParam("objectId");
+
+    Path object = localObjectStore.resolveSignedLink(objectId, request.getParam("expiry"),
+        request.getParam("signature"));
+    if (object == null) {
+      handleResponse(response, UNAUTHORIZED, INVALID_TOKEN_URN, "Invalid or expired link");
+      return;
+    }
+    vertx.fileSystem().exists(object.toString()).onComplete(existsHandler -> {
+      if (existsHandler.succeeded() && existsHandler.result()) {
+        response
+            .putHeader("Content-Disposition", "attachment; filename=" + objectId)
+              .sendFile(object.toString());
+      } else {
+        handleResponse(response, NOT_FOUND, RESOURCE_NOT_FOUND_URN);
+      }
+    });
+  }
+
   private void handleAsyncSearchRequest(RoutingContext routingContext) {
     LOGGER.trace("starting async search");
     HttpServerRequest request = routingContext.request();
@@ -136,6 +180,9 @@ public class AsyncRestApi {
         Future<List<String>> filtersFuture =
             catalogueService.getApplicableFilters(json.getJsonArray("id").getString(0));
         json.put(JSON_INSTANCEID, instanceID);
+        if (params.contains(IUDXQUERY_FORMAT)) {
+          json.put(IUDXQUERY_FORMAT, params.get(IUDXQUERY_FORMAT));
+        }
         LOGGER.debug("Info: IUDX json query;" + json);
         JsonObject requestBody = new JsonObject();
         requestBody.put("ids", json.getJsonArray("id"));
@@ -2,12 +2,14 @@ package iudx.resource.server.apiserver;
 
 import static iudx.resource.server.apiserver.util.Constants.HEADER_OPTIONS;
 import static iudx.resource.server.apiserver.util.Constants.HEADER_TOKEN;
+import static iudx.resource.server.apiserver.util.Constants.IUDXQUERY_FORMAT;
 import static iudx.resource.server.apiserver.util.Constants.IUDXQUERY_OPTIONS;
 import static iudx.resource.server.apiserver.util.Constants.MSG_BAD_QUERY;
 import static iudx.resource.server.apiserver.util.Constants.NGSILDQUERY_ATTRIBUTE;
 import static iudx.resource.server.apiserver.util.Constants.NGSILDQUERY_COORDINATES;
 import static iudx.resource.server.apiserver.util.Constants.NGSILDQUERY_ENDTIME;
 import static iudx.resource.server.apiserver.util.Constants.NGSILDQUERY_ENTITIES;
+import static iudx.resource.server.apiserver.util.Constants.NGSILDQUERY_CURSOR;
 import static iudx.resource.server.apiserver.util.Constants.NGSILDQUERY_FROM;
 import static iudx.resource.server.apiserver.util.Constants.NGSILDQUERY_GEOMETRY;
 import static iudx.resource.server.apiserver.util.Constants.NGSILDQUERY_GEOPROPERTY;
@@ -89,9 +91,12 @@ public class ParamsValidator {
     validParams.add(NGSILDQUERY_TIME_PROPERTY);
     validParams.add(NGSILDQUERY_FROM);
     validParams.add(NGSILDQUERY_SIZE);
+    validParams.add(NGSILDQUERY_CURSOR);
 
     // for IUDX count query
     validParams.add(IUDXQUERY_OPTIONS);
+    // for async search export format
+    validParams.add(IUDXQUERY_FORMAT);
     
   }
 
@@ -7,7 +7,9 @@ import static iudx.resource.server.common.ResponseUrn.INVALID_TOKEN_URN;
 import static iudx.resource.server.common.ResponseUrn.RESOURCE_NOT_FOUND_URN;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import iudx.resource.server.common.Api;
 import org.apache.logging.log4j.LogManager;
@@ -203,10 +205,13 @@ public class AuthHandler implements Handler<RoutingContext> {
         if (endpoint.matches(getpathRegex(api.getIngestionPath())) || endpoint.matches(getpathRegex(api.getSubscriptionUrl()))) {
           id = array.getString(0);
         } else {
-          JsonObject json = array.getJsonObject(0);
-          if (json != null) {
-            id = json.getString(ID);
-          }
+          // entities and temporal queries may ask for multiple ids, all of them are authorized
+          id = array.stream()
+              .filter(JsonObject.class::isInstance)
+              .map(entity -> ((JsonObject) entity).getString(ID))
+              .filter(Objects::nonNull)
+              .collect(Collectors.joining(","));
+          id = id.isEmpty() ? null : id;
         }
       }
     }
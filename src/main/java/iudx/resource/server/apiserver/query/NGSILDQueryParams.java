@@ -4,6 +4,7 @@ import static iudx.resource.server.apiserver.util.Constants.IUDXQUERY_OPTIONS;
 import static iudx.resource.server.apiserver.util.Constants.MSG_INVALID_PARAM;
 import static iudx.resource.server.apiserver.util.Constants.NGSILDQUERY_ATTRIBUTE;
 import static iudx.resource.server.apiserver.util.Constants.NGSILDQUERY_COORDINATES;
+import static iudx.resource.server.apiserver.util.Constants.NGSILDQUERY_CURSOR;
 import static iudx.resource.server.apiserver.util.Constants.NGSILDQUERY_ENDTIME;
 import static iudx.resource.server.apiserver.util.Constants.NGSILDQUERY_FROM;
 import static iudx.resource.server.apiserver.util.Constants.NGSILDQUERY_GEOMETRY;
@@ -53,6 +54,7 @@ public class NGSILDQueryParams {
   private String options;
   private String pageFrom;
   private String pageSize;
+  private String pageCursor;
 
   public NGSILDQueryParams() {}
 
@@ -157,6 +159,10 @@ public class NGSILDQueryParams {
           this.pageFrom = entry.getValue();
           break;
         }
+        case NGSILDQUERY_CURSOR: {
+          this.pageCursor = entry.getValue();
+          break;
+        }
         default: {
           LOGGER.warn(MSG_INVALID_PARAM + ":" + entry.getKey());
           break;
@@ -206,9 +212,9 @@ public class NGSILDQueryParams {
       } else if (entry.getKey().equalsIgnoreCase("entities")) {
         JsonArray array = new JsonArray(entry.getValue().toString());
         Iterator<?> iter = array.iterator();
+        this.id = new ArrayList<URI>();
+        this.idPattern = new ArrayList<String>();
         while (iter.hasNext()) {
-          this.id = new ArrayList<URI>();
-          this.idPattern = new ArrayList<String>();
           JsonObject entity = (JsonObject) iter.next();
           String id = entity.getString("id");
           String idPattern = entity.getString("idPattern");
@@ -225,6 +231,8 @@ public class NGSILDQueryParams {
         this.pageFrom = requestJson.getString(entry.getKey());
       } else if (entry.getKey().equalsIgnoreCase(NGSILDQUERY_SIZE)) {
         this.pageSize = requestJson.getString(NGSILDQUERY_SIZE);
+      } else if (entry.getKey().equalsIgnoreCase(NGSILDQUERY_CURSOR)) {
+        this.pageCursor = requestJson.getString(entry.getKey());
       }
     });
   }
@@ -335,6 +343,10 @@ public class NGSILDQueryParams {
     return pageSize;
   }
 
+  public String getPageCursor() {
+    return pageCursor;
+  }
+
 
   @Override
   public String toString() {
@@ -137,6 +137,9 @@ public class QueryMapper {
     if (params.getPageSize() != null) {
       json.put(Constants.NGSILDQUERY_SIZE, params.getPageSize());
     }
+    if (params.getPageCursor() != null) {
+      json.put(Constants.NGSILDQUERY_CURSOR, params.getPageCursor());
+    }
 
     json.put(Constants.JSON_SEARCH_TYPE, getSearchType(isAsyncQuery));
     LOGGER.debug("Info : json " + json);
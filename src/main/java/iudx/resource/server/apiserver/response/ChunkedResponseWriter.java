@@ -0,0 +1,85 @@
+package iudx.resource.server.apiserver.response;
+
+import static iudx.resource.server.common.Constants.ENCODED_SEARCH_MORE_HEADER;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.http.HttpServerResponse;
+
+/**
+ * Writes a response received over the event bus in chunks to a chunked HttpServerResponse. A chunk
+ * marked with {@link iudx.resource.server.common.Constants#ENCODED_SEARCH_MORE_HEADER} is replied
+ * to, requesting the next chunk, only once it is written and the response write queue is not
+ * full, so a slow client holds back the sender instead of the response piling up in memory.
+ */
+public class ChunkedResponseWriter {
+
+  private static final int RESPONSE_CLOSED = 499;
+
+  private final HttpServerResponse response;
+  private final Promise<Void> promise = Promise.promise();
+  private Message<Buffer> pending;
+
+  private ChunkedResponseWriter(HttpServerResponse response) {
+    this.response = response;
+  }
+
+  /**
+   * write chunks to response and end it with the last chunk.
+   *
+   * @param response HttpServerResponse with headers and status already set
+   * @param first first chunk of the response
+   * @return Future completed once response is ended
+   */
+  public static Future<Void> write(HttpServerResponse response, Message<Buffer> first) {
+    ChunkedResponseWriter writer = new ChunkedResponseWriter(response);
+    response.setChunked(true);
+    response.exceptionHandler(writer::abort);
+    response.closeHandler(closed -> writer.abort(null));
+    writer.write(first);
+    return writer.promise.future();
+  }
+
+  private void write(Message<Buffer> chunk) {
+    if (!chunk.headers().contains(ENCODED_SEARCH_MORE_HEADER)) {
+      response.end(chunk.body()).onComplete(promise);
+      return;
+    }
+    pending = chunk;
+    response.write(chunk.body());
+    if (response.writeQueueFull()) {
+      response.drainHandler(drained -> requestNext());
+    } else {
+      requestNext();
+    }
+  }
+
+  private void requestNext() {
+    Message<Buffer> chunk = pending;
+    if (chunk == null) {
+      return;
+    }
+    pending = null;
+    chunk.<Buffer>replyAndRequest(null).onSuccess(this::write).onFailure(failure -> {
+      // status is already sent, an incomplete body can only be signalled by a reset
+      response.reset();
+      promise.tryFail(failure);
+    });
+  }
+
+  /**
+   * fails the chunk waiting for a reply, so the sender stops encoding the response.
+   */
+  private void abort(Throwable failure) {
+    if (pending != null) {
+      pending.fail(RESPONSE_CLOSED, "response closed before complete body was written");
+      pending = null;
+    }
+    if (failure == null) {
+      promise.tryFail("response closed before complete body was written");
+    } else {
+      promise.tryFail(failure);
+    }
+  }
+}
@@ -2,7 +2,10 @@ package iudx.resource.server.apiserver.service;
 
 import static iudx.resource.server.apiserver.util.Util.toList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import io.vertx.core.CompositeFuture;
@@ -113,7 +116,29 @@ public class CatalogueService {
   // return promise.future();
   // }
 
+  /**
+   * Filters applicable for an id or a comma separated list of ids, for a list only filters
+   * applicable to every id in the list are returned.
+   */
   public Future<List<String>> getApplicableFilters(String id) {
+    String[] ids = id.split(",");
+    if (ids.length == 1) {
+      return getApplicableFilters4Id(id);
+    }
+    List<Future> filterFutures = new ArrayList<>();
+    for (String resourceId : new LinkedHashSet<>(Arrays.asList(ids))) {
+      filterFutures.add(getApplicableFilters4Id(resourceId));
+    }
+    return CompositeFuture.all(filterFutures).map(all -> {
+      List<String> filters = new ArrayList<>(all.<List<String>>resultAt(0));
+      for (int i = 1; i < all.size(); i++) {
+        filters.retainAll(all.<List<String>>resultAt(i));
+      }
+      return filters;
+    });
+  }
+
+  private Future<List<String>> getApplicableFilters4Id(String id) {
     Promise<List<String>> promise = Promise.promise();
     List<String> filters = new ArrayList<String>();
     String groupId = id.substring(0, id.lastIndexOf("/"));
@@ -258,6 +283,20 @@ public class CatalogueService {
   // return promise.future();
   // }
 
+  /**
+   * @param groupId id of a resource group
+   * @return ids of the resources of the group in the catalogue, fails if there are none
+   */
+  public Future<List<String>> getGroupResourceIds(String groupId) {
+    JsonObject cacheRequest = new JsonObject();
+    cacheRequest.put("type", CacheType.CATALOGUE_CACHE);
+    cacheRequest.put("prefix", groupId + "/");
+    return cacheService.getAll(cacheRequest).compose(resources -> resources.isEmpty()
+        ? Future.failedFuture("no resources found for group : " + groupId)
+        : Future.succeededFuture(
+            resources.fieldNames().stream().sorted().collect(Collectors.toList())));
+  }
+
   public Future<Boolean> isItemExist(List<String> ids) {
     Promise<Boolean> promise = Promise.promise();
     List<Future> futures = new ArrayList<Future>();
@@ -42,6 +42,7 @@ public class Constants {
     // Async endpoints
     public static final String STATUS = "/status";
     public static final String SEARCH = "/search";
+    public static final String OBJECTS = "/objects";
     public static final String IUDX_ASYNC_SEARCH = "(.*)/async/search";
     public static final String IUDX_ASYNC_STATUS = "(.*)/async/status";
     public static final String IUDX_ASYNC_SEARCH_API = "/async/search";
@@ -119,12 +120,14 @@ public class Constants {
     public static final String NGSILDQUERY_MAXDISTANCE = "maxdistance";
     public static final String NGSILDQUERY_MINDISTANCE = "mindistance";
     public static final String IUDXQUERY_OPTIONS = "options";
+    public static final String IUDXQUERY_FORMAT = "format";
     public static final String NGSILDQUERY_ENTITIES = "entities";
     public static final String NGSILDQUERY_GEOQ = "geoQ";
     public static final String NGSILDQUERY_TEMPORALQ = "temporalQ";
     public static final String NGSILDQUERY_TIME_PROPERTY = "timeProperty";
     public static final String NGSILDQUERY_FROM = "offset";
     public static final String NGSILDQUERY_SIZE = "limit";
+    public static final String NGSILDQUERY_CURSOR = "cursor";
 
     // Header params
     public static final String HEADER_TOKEN = "token";
@@ -256,6 +259,7 @@ public class Constants {
     // Validations
     public static final int VALIDATION_ID_MIN_LEN = 0;
     public static final int VALIDATION_ID_MAX_LEN = 512;
+    public static final int VALIDATION_MAX_IDS = 50;
     public static final Pattern VALIDATION_ID_PATTERN =
             Pattern.compile(
                     "^[a-zA-Z0-9.]{4,100}/{1}[a-zA-Z0-9.]{4,100}/{1}[a-zA-Z.]{4,100}/{1}[a-zA-Z-_.]{4,100}/{1}[a-zA-Z0-9-_.]{4,100}$");
@@ -283,6 +287,10 @@ public class Constants {
     public static final double VALIDATION_ALLOWED_DIST_FOR_ASYNC = 10000.0;
     public static final int VALIDATION_PAGINATION_LIMIT_MAX = 5000;
     public static final int VALIDATION_PAGINATION_OFFSET_MAX = 49999;
+    public static final Pattern VALIDATION_PAGINATION_CURSOR_REGEX =
+            Pattern.compile("^[a-zA-Z0-9-_]{1,4096}$");
+    public static final Pattern VALIDATION_EXPORT_FORMAT_REGEX =
+            Pattern.compile("^(json|ndjson|csv)$");
     public static final List<Object> VALIDATION_ALLOWED_GEOM =
             List.of("Point", "point", "Polygon", "polygon", "LineString", "linestring", "bbox");
     public static final List<Object> VALIDATION_ALLOWED_GEOPROPERTY = List.of("location", "Location");
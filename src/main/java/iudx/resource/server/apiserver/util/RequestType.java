@@ -5,6 +5,7 @@ public enum RequestType {
   ENTITY("entity"),
   TEMPORAL("temporal"),
   LATEST("latest"),
+  LATEST_GROUP("latest_group"),
   ASYNC_SEARCH("async_search"),
   ASYNC_STATUS("async_status"),
   POST_TEMPORAL("post_temporal_schema.json"),
@@ -52,6 +52,9 @@ public class ValidatorsHandlersFactory {
       case LATEST:
         validator = getLatestRequestValidations(parameters, headers);
         break;
+      case LATEST_GROUP:
+        validator = getLatestGroupRequestValidations(parameters, headers);
+        break;
       case POST_TEMPORAL:
         validator = getPostEntitiesValidations(vertx, parameters, headers, body, requestType);
         break;
@@ -88,7 +91,7 @@ public class ValidatorsHandlersFactory {
       final MultiMap headers) {
     List<Validator> validators = new ArrayList<>();
 
-    validators.add(new IDTypeValidator(parameters.get(NGSILDQUERY_ID), true));
+    validators.add(new IDTypeValidator(parameters.get(NGSILDQUERY_ID), true, VALIDATION_MAX_IDS));
     validators.add(new AttrsTypeValidator(parameters.get(NGSILDQUERY_ATTRIBUTE), false));
     validators.add(new GeoRelTypeValidator(parameters.get(NGSILDQUERY_GEOREL), false));
     validators.add(new GeometryTypeValidator(parameters.get(NGSILDQUERY_GEOMETRY), false));
@@ -102,6 +105,8 @@ public class ValidatorsHandlersFactory {
     // pagination optional fields
     validators.add(new PaginationLimitTypeValidator(parameters.get(NGSILDQUERY_SIZE), false));
     validators.add(new PaginationOffsetTypeValidator(parameters.get(NGSILDQUERY_FROM), false));
+    validators.add(new StringTypeValidator(parameters.get(NGSILDQUERY_CURSOR), false,
+        VALIDATION_PAGINATION_CURSOR_REGEX));
 
     //optional header public key
     validators.add(new HeaderKeyTypeValidation(parameters.get(HEADER_PUBLIC_KEY),false));
@@ -114,7 +119,7 @@ public class ValidatorsHandlersFactory {
 
     List<Validator> validators = new ArrayList<>();
 
-    validators.add(new IDTypeValidator(parameters.get(NGSILDQUERY_ID), true));
+    validators.add(new IDTypeValidator(parameters.get(NGSILDQUERY_ID), true, VALIDATION_MAX_IDS));
     validators.add(new AttrsTypeValidator(parameters.get(NGSILDQUERY_ATTRIBUTE), false));
     validators.add(new GeoRelTypeValidator(parameters.get(NGSILDQUERY_GEOREL), false));
     validators.add(new GeometryTypeValidator(parameters.get(NGSILDQUERY_GEOMETRY), false));
@@ -131,6 +136,8 @@ public class ValidatorsHandlersFactory {
     // pagination optional fields
     validators.add(new PaginationLimitTypeValidator(parameters.get(NGSILDQUERY_SIZE), false));
     validators.add(new PaginationOffsetTypeValidator(parameters.get(NGSILDQUERY_FROM), false));
+    validators.add(new StringTypeValidator(parameters.get(NGSILDQUERY_CURSOR), false,
+        VALIDATION_PAGINATION_CURSOR_REGEX));
 
     //optional header public key
     validators.add(new HeaderKeyTypeValidation(parameters.get(HEADER_PUBLIC_KEY),false));
@@ -148,6 +155,26 @@ public class ValidatorsHandlersFactory {
     validators.add(new StringTypeValidator(parameters.get(RESOURCE_SERVER), true, ID_RS_REGEX));
     validators.add(new StringTypeValidator(parameters.get(RESOURCE_GROUP), true, ID_RG_REGEX));
     validators.add(new StringTypeValidator(parameters.get(RESOURCE_NAME), true, ID_RN_REGEX));
+    // optional attributes to project latest values to
+    validators.add(new AttrsTypeValidator(parameters.get(NGSILDQUERY_ATTRIBUTE), false));
+
+    //optional header public key
+    validators.add(new HeaderKeyTypeValidation(parameters.get(HEADER_PUBLIC_KEY),false));
+
+    return validators;
+  }
+
+  private List<Validator> getLatestGroupRequestValidations(final MultiMap parameters,
+      final MultiMap headers) {
+
+    List<Validator> validators = new ArrayList<>();
+    validators.add(new StringTypeValidator(parameters.get(DOMAIN), true, ID_DOMAIN_REGEX));
+    validators.add(new StringTypeValidator(parameters.get(USERSHA), true, ID_USERSHA_REGEX));
+    validators.add(new StringTypeValidator(parameters.get(RESOURCE_SERVER), true, ID_RS_REGEX));
+    validators.add(new StringTypeValidator(parameters.get(RESOURCE_GROUP), true, ID_RG_REGEX));
+    // optional resources of the group to limit latest values to
+    validators.add(new IDTypeValidator(parameters.get(NGSILDQUERY_ID), false, VALIDATION_MAX_IDS));
+    validators.add(new AttrsTypeValidator(parameters.get(NGSILDQUERY_ATTRIBUTE), false));
 
     //optional header public key
     validators.add(new HeaderKeyTypeValidation(parameters.get(HEADER_PUBLIC_KEY),false));
@@ -162,6 +189,8 @@ public class ValidatorsHandlersFactory {
     // pagination optional fields
     validators.add(new PaginationLimitTypeValidator(parameters.get(NGSILDQUERY_SIZE), false));
     validators.add(new PaginationOffsetTypeValidator(parameters.get(NGSILDQUERY_FROM), false));
+    validators.add(new StringTypeValidator(parameters.get(NGSILDQUERY_CURSOR), false,
+        VALIDATION_PAGINATION_CURSOR_REGEX));
     // request body validators.
     validators.addAll(getRequestSchemaValidator(vertx, body, requestType));
 
@@ -179,6 +208,8 @@ public class ValidatorsHandlersFactory {
     // pagination optional fields
     validators.add(new PaginationLimitTypeValidator(parameters.get(NGSILDQUERY_SIZE), false));
     validators.add(new PaginationOffsetTypeValidator(parameters.get(NGSILDQUERY_FROM), false));
+    validators.add(new StringTypeValidator(parameters.get(NGSILDQUERY_CURSOR), false,
+        VALIDATION_PAGINATION_CURSOR_REGEX));
     // request body validators.
     validators.addAll(getRequestSchemaValidator(vertx, body, requestType));
 
@@ -204,6 +235,8 @@ public class ValidatorsHandlersFactory {
     validators.add(new IDTypeValidator(parameters.get(NGSILDQUERY_ID), true));
     validators.add(new AttrsTypeValidator(parameters.get(NGSILDQUERY_ATTRIBUTE), false));
     validators.add(new OptionsTypeValidator(parameters.get(IUDXQUERY_OPTIONS), false));
+    validators.add(new StringTypeValidator(parameters.get(IUDXQUERY_FORMAT), false,
+        VALIDATION_EXPORT_FORMAT_REGEX));
     // geo fields
     validators.add(new GeoRelTypeValidator(parameters.get(NGSILDQUERY_GEOREL), false));
     validators.add(new GeometryTypeValidator(parameters.get(NGSILDQUERY_GEOMETRY), false));
@@ -19,10 +19,19 @@ public final class IDTypeValidator implements Validator {
 
   private final String value;
   private final boolean required;
+  private final int maxIds;
 
   public IDTypeValidator(final String value, final boolean required) {
+    this(value, required, 1);
+  }
+
+  /**
+   * @param maxIds maximum number of comma separated ids allowed in value
+   */
+  public IDTypeValidator(final String value, final boolean required, final int maxIds) {
     this.value = value;
     this.required = required;
+    this.maxIds = maxIds;
   }
 
   public boolean isvalidIUDXId(final String value) {
@@ -44,13 +53,20 @@ public final class IDTypeValidator implements Validator {
         throw new DxRuntimeException(failureCode(), INVALID_ID_VALUE_URN, failureMessage(value));
       }
     }
-    if (value.length() > VALIDATION_ID_MAX_LEN) {
-      LOGGER.error("Validation error : Value exceed max character limit.");
+    String[] ids = value.split(",", -1);
+    if (ids.length > maxIds) {
+      LOGGER.error("Validation error : more than " + maxIds + " ids passed.");
       throw new DxRuntimeException(failureCode(), INVALID_ID_VALUE_URN, failureMessage(value));
     }
-    if (!isvalidIUDXId(value)) {
-      LOGGER.error("Validation error : Invalid id.");
-      throw new DxRuntimeException(failureCode(), INVALID_ID_VALUE_URN, failureMessage(value));
+    for (String id : ids) {
+      if (id.length() > VALIDATION_ID_MAX_LEN) {
+        LOGGER.error("Validation error : Value exceed max character limit.");
+        throw new DxRuntimeException(failureCode(), INVALID_ID_VALUE_URN, failureMessage(value));
+      }
+      if (!isvalidIUDXId(id)) {
+        LOGGER.error("Validation error : Invalid id.");
+        throw new DxRuntimeException(failureCode(), INVALID_ID_VALUE_URN, failureMessage(value));
+      }
     }
     return true;
   }
@@ -21,6 +21,7 @@ import io.vertx.ext.web.client.WebClient;
 import io.vertx.ext.web.client.WebClientOptions;
 import io.vertx.serviceproxy.ServiceBinder;
 import iudx.resource.server.cache.CacheService;
+import iudx.resource.server.cache.LocalCacheService;
 import iudx.resource.server.metering.MeteringService;
 
 /**
@@ -93,7 +94,8 @@ public class AuthenticationVerticle extends AbstractVerticle {
               }
               JWTAuth jwtAuth = JWTAuth.create(vertx, jwtAuthOptions);
 
-              cacheService = CacheService.createProxy(vertx, CACHE_SERVICE_ADDRESS);
+              cacheService = new LocalCacheService(vertx,
+                  CacheService.createProxy(vertx, CACHE_SERVICE_ADDRESS), config());
               meteringService = MeteringService.createProxy(vertx, METERING_SERVICE_ADDRESS);
               dxApiBasePath = config().getString("dxApiBasePath");
               api = Api.getInstance(dxApiBasePath);
@@ -4,6 +4,7 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -123,7 +124,7 @@ public class JwtAuthenticationServiceImpl implements AuthenticationService {
             revokeTokenHandler -> {
               if (!skipResourceIdCheck
                   && !result.jwtData.getIss().equals(result.jwtData.getSub())) {
-                return isOpenResource(id);
+                return getAccessPolicy(id, result);
               } else {
                 return Future.succeededFuture("OPEN");
               }
@@ -139,7 +140,8 @@ public class JwtAuthenticationServiceImpl implements AuthenticationService {
               } else if (!skipResourceIdCheck
                   && (!result.isOpen || endPoint.equalsIgnoreCase(apis.getSubscriptionUrl())
                       || endPoint.equalsIgnoreCase(apis.getIngestionPath()))) {
-                return isValidId(result.jwtData, id);
+                return isValidIds(result.jwtData,
+                    result.secureIds != null ? result.secureIds : List.of(id));
               } else {
                 return Future.succeededFuture(true);
               }
@@ -259,6 +261,32 @@ public class JwtAuthenticationServiceImpl implements AuthenticationService {
     return promise.future();
   }
 
+  /**
+   * Access policy for a comma separated list of ids. Access policy is OPEN only when every id in the
+   * list is open, ids not open are collected to be validated against the token.
+   */
+  Future<String> getAccessPolicy(String id, ResultContainer result) {
+    String[] ids = id.split(",");
+    if (ids.length == 1) {
+      result.secureIds = List.of(id);
+      return isOpenResource(id);
+    }
+    List<Future> policyFutures = new ArrayList<>();
+    for (String resourceId : ids) {
+      policyFutures.add(isOpenResource(resourceId));
+    }
+    return CompositeFuture.all(policyFutures).map(policies -> {
+      List<String> secureIds = new ArrayList<>();
+      for (int i = 0; i < ids.length; i++) {
+        if (!"OPEN".equalsIgnoreCase(policies.resultAt(i))) {
+          secureIds.add(ids[i]);
+        }
+      }
+      result.secureIds = secureIds;
+      return secureIds.isEmpty() ? "OPEN" : "SECURE";
+    });
+  }
+
   public Future<JsonObject> validateAccess(
       JwtData jwtData, boolean openResource, JsonObject authInfo) {
     LOGGER.trace("validateAccess() started");
@@ -405,6 +433,14 @@ public class JwtAuthenticationServiceImpl implements AuthenticationService {
     return promise.future();
   }
 
+  Future<Boolean> isValidIds(JwtData jwtData, List<String> ids) {
+    Future<Boolean> validIds = Future.succeededFuture(true);
+    for (String id : ids) {
+      validIds = validIds.compose(valid -> isValidId(jwtData, id));
+    }
+    return validIds;
+  }
+
   Future<Boolean> isRevokedClientToken(JwtData jwtData) {
     LOGGER.trace("isRevokedClientToken started param : " + jwtData);
     Promise<Boolean> promise = Promise.promise();
@@ -445,5 +481,6 @@ public class JwtAuthenticationServiceImpl implements AuthenticationService {
     JwtData jwtData;
     boolean isResourceExist;
     boolean isOpen;
+    List<String> secureIds;
   }
 }
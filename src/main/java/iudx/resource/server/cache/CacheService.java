@@ -45,6 +45,33 @@ public interface CacheService {
    */
   Future<JsonObject> get(JsonObject request);
 
+  /**
+   * get values of many keys from cache in a single call, passing a json object specifying cache
+   * name and either the keys or a prefix of keys.
+   * 
+   * <pre>
+   * json ex (type and one of keys or prefix are required)
+   * {
+   *    "type": "cache name", 
+   *    "keys" : ["cache key", "cache key"],
+   *    "prefix" : "prefix of cache keys"
+   * }
+   * </pre>
+   * 
+   * in case of success method returns values of the keys present in cache by key, keys not present
+   * are left out.
+   * 
+   * <pre>
+   * {
+   *    "cache key": {"value":"value for key"}
+   * }
+   * </pre>
+   * 
+   * @param request valid json request
+   * @return values by key
+   */
+  Future<JsonObject> getAll(JsonObject request);
+
   /**
    * put value in cache passing a json object specifying cache name (in case of multiple caches are
    * configured), key and value
@@ -1,12 +1,24 @@
 package iudx.resource.server.cache;
 
+import static iudx.resource.server.common.Constants.CACHE_INVALIDATION_ADDRESS;
+import static iudx.resource.server.common.Constants.CACHE_UPDATE_ADDRESS;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import iudx.resource.server.cache.cacheImpl.CacheType;
 import iudx.resource.server.cache.cacheImpl.CacheValue;
@@ -24,12 +36,23 @@ public class CacheServiceImpl implements CacheService {
   private IudxCache uniqueAttributeCache;
   private IudxCache catalogueCache;
   private PostgresService postgresService;
+  private Vertx vertx;
+
+  // changes are broadcast to the caches of all nodes, stamped with versions ordered across them
+  private final String nodeId = UUID.randomUUID().toString();
+  private final AtomicLong clock = new AtomicLong();
+  // version of the latest change applied, by type and key, or by type for refreshes
+  private final Cache<String, Long> versions =
+      CacheBuilder.newBuilder().expireAfterWrite(1L, TimeUnit.HOURS).build();
 
   public CacheServiceImpl(Vertx vertx, PostgresService pgService,CatalogueCacheImpl catalogueCache) {
+    this.vertx = vertx;
     this.postgresService = pgService;
     this.revokedClientCache = new RevokedClientCache(vertx, postgresService);
     this.uniqueAttributeCache = new UniqueAttributeCache(vertx, postgresService);
     this.catalogueCache=catalogueCache;
+    vertx.eventBus().<JsonObject>consumer(CACHE_UPDATE_ADDRESS,
+        message -> applyUpdate(message.body()));
   }
 
   /**
@@ -62,6 +85,36 @@ public class CacheServiceImpl implements CacheService {
     return promise.future();
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Future<JsonObject> getAll(JsonObject request) {
+    IudxCache cache = null;
+    try {
+      cache = getCache(request);
+    } catch (IllegalArgumentException ex) {
+      LOGGER.error("No cache defined for given argument.");
+      return Future.failedFuture("No cache defined for given type");
+    }
+
+    JsonArray keys = request.getJsonArray("keys");
+    String prefix = request.getString("prefix");
+    Future<Map<String, CacheValue<JsonObject>>> entries;
+    if (keys != null) {
+      entries = cache.getAll(keys.stream().map(String::valueOf).collect(Collectors.toList()));
+    } else if (prefix != null) {
+      entries = cache.getByPrefix(prefix);
+    } else {
+      return Future.failedFuture("null keys passed.");
+    }
+    return entries.map(values -> {
+      JsonObject result = new JsonObject();
+      values.forEach((key, value) -> result.put(key, value.getValue()));
+      return result;
+    });
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -81,7 +134,7 @@ public class CacheServiceImpl implements CacheService {
     String key = request.getString("key");
     String value = request.getString("value");
     if (cache!=null && key != null && value != null) {
-      cache.put(key, cache.createCacheValue(key, value));
+      update(cache, request.getString("type"), key, value);
       promise.complete(new JsonObject().put(key, value));
     } else {
       promise.fail("'null' key or value not allowed in cache.");
@@ -107,15 +160,106 @@ public class CacheServiceImpl implements CacheService {
     String key = request.getString("key");
     String value = request.getString("value");
 
+    String type = request.getString("type");
     if (cache!=null && key != null && value != null) {
-      cache.put(key, cache.createCacheValue(key, value));
+      update(cache, type, key, value);
     } else {
-      cache.refreshCache();
+      long version = nextVersion();
+      advance(type, version);
+      refreshCache(cache, type);
+      broadcast(new JsonObject().put("type", type).put("version", version));
     }
     promise.complete(new JsonObject());
     return promise.future();
   }
 
+  private void update(IudxCache cache, String type, String key, String value) {
+    long version = nextVersion();
+    advance(type + ":" + key, version);
+    cache.put(key, cache.createCacheValue(key, value));
+    publishInvalidation(type, key);
+    broadcast(new JsonObject()
+        .put("type", type)
+        .put("key", key)
+        .put("value", value)
+        .put("version", version));
+  }
+
+  private void refreshCache(IudxCache cache, String type) {
+    cache.refreshCache().onSuccess(refreshed -> publishInvalidation(type, null));
+  }
+
+  /**
+   * @return version later than any made or applied by this node so far
+   */
+  private long nextVersion() {
+    return clock.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
+  }
+
+  /**
+   * @return whether version is later than that of the latest change applied to versionKey
+   */
+  private boolean advance(String versionKey, long version) {
+    AtomicBoolean advanced = new AtomicBoolean();
+    versions.asMap().compute(versionKey, (key, applied) -> {
+      if (applied != null && applied >= version) {
+        return applied;
+      }
+      advanced.set(true);
+      return version;
+    });
+    return advanced.get();
+  }
+
+  private void broadcast(JsonObject change) {
+    vertx.eventBus().publish(CACHE_UPDATE_ADDRESS, change.put("origin", nodeId));
+  }
+
+  /**
+   * Applies a change made on another node, unless a later change of the same entry, or a later
+   * refresh for a change without key, is applied already.
+   */
+  void applyUpdate(JsonObject change) {
+    if (nodeId.equals(change.getString("origin"))) {
+      return;
+    }
+    long version = change.getLong("version", 0L);
+    clock.accumulateAndGet(version, Math::max);
+    IudxCache cache;
+    try {
+      cache = getCache(change);
+    } catch (IllegalArgumentException ex) {
+      LOGGER.error("No cache defined for broadcast change : {}", change);
+      return;
+    }
+    String type = change.getString("type");
+    String key = change.getString("key");
+    String value = change.getString("value");
+    if (key != null && value != null) {
+      if (advance(type + ":" + key, version)) {
+        cache.put(key, cache.createCacheValue(key, value));
+        publishInvalidation(type, key);
+      } else {
+        LOGGER.debug("dropped stale {} change of {}", type, key);
+      }
+    } else if (advance(type, version)) {
+      refreshCache(cache, type);
+    }
+  }
+
+  /**
+   * Tells the {@link LocalCacheService}s of this node to drop the entry changed, or all entries of
+   * the type if key is null.
+   */
+  private void publishInvalidation(String type, String key) {
+    JsonObject change = new JsonObject().put("type", type);
+    if (key != null) {
+      change.put("key", key);
+    }
+    vertx.eventBus().publish(CACHE_INVALIDATION_ADDRESS, change,
+        new DeliveryOptions().setLocalOnly(true));
+  }
+
   private IudxCache getCache(JsonObject json) {
     if (!json.containsKey("type")) {
       throw new IllegalArgumentException("No cache type specified");
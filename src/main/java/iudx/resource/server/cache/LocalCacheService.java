@@ -0,0 +1,153 @@
+package iudx.resource.server.cache;
+
+import static iudx.resource.server.common.Constants.CACHE_INVALIDATION_ADDRESS;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Read-through {@link CacheService} kept by a verticle in front of the CacheVerticle, which stays
+ * the source of truth. Values got are held for a short while so that repeated lookups don't each
+ * make a round trip over the event bus, other operations are passed on as they are. Lookups the
+ * CacheVerticle failed, e.g. of an unknown id, are held the same way so that repeated lookups of
+ * them don't each make a round trip either, lookups that got no reply at all are not held.
+ *
+ * <p>
+ * Entries are dropped when the CacheVerticle publishes a change of them on
+ * {@link iudx.resource.server.common.Constants#CACHE_INVALIDATION_ADDRESS}, entries changed
+ * without a publish, e.g. by the periodic refresh, are got again once they expire.
+ * </p>
+ */
+public class LocalCacheService implements CacheService {
+
+  private static final Logger LOGGER = LogManager.getLogger(LocalCacheService.class);
+
+  static final long DEFAULT_SIZE = 10_000;
+  static final long DEFAULT_TTL_SECONDS = 30;
+
+  private final CacheService delegate;
+  private final Cache<String, JsonObject> values;
+  private final Cache<String, Throwable> failures;
+  // changed on every invalidation, so values got before one are not held after it
+  private final AtomicLong generation = new AtomicLong();
+
+  /**
+   * @param config with localCacheSize, 0 to pass lookups on too, and localCacheTtlInSeconds
+   */
+  public LocalCacheService(Vertx vertx, CacheService delegate, JsonObject config) {
+    this.delegate = delegate;
+    this.values = newCache(config);
+    this.failures = newCache(config);
+    // unregistered along with the verticle it is kept by
+    vertx.eventBus().<JsonObject>consumer(CACHE_INVALIDATION_ADDRESS,
+        message -> invalidate(message.body()));
+  }
+
+  private static <V> Cache<String, V> newCache(JsonObject config) {
+    return CacheBuilder.newBuilder()
+        .maximumSize(config.getLong("localCacheSize", DEFAULT_SIZE))
+        .expireAfterWrite(config.getLong("localCacheTtlInSeconds", DEFAULT_TTL_SECONDS),
+            TimeUnit.SECONDS)
+        .build();
+  }
+
+  private static String cacheKey(String type, String key) {
+    return type + ":" + key;
+  }
+
+  /**
+   * Drops the entry of the type and key of the change, or all entries of the type if it has no
+   * key.
+   */
+  void invalidate(JsonObject change) {
+    generation.incrementAndGet();
+    String type = change.getString("type");
+    String key = change.getString("key");
+    invalidate(values, type, key);
+    invalidate(failures, type, key);
+    LOGGER.debug("local cache invalidated for {}", change);
+  }
+
+  private static void invalidate(Cache<String, ?> cache, String type, String key) {
+    if (type == null) {
+      cache.invalidateAll();
+    } else if (key == null) {
+      String prefix = cacheKey(type, "");
+      cache.asMap().keySet().removeIf(cached -> cached.startsWith(prefix));
+    } else {
+      cache.invalidate(cacheKey(type, key));
+    }
+  }
+
+  /**
+   * @return whether failure is the CacheVerticle's answer to a lookup, not a lookup that got no
+   *         answer
+   */
+  private static boolean isLookupFailure(Throwable failure) {
+    return !(failure instanceof ReplyException)
+        || ((ReplyException) failure).failureType() == ReplyFailure.RECIPIENT_FAILURE;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Future<JsonObject> get(JsonObject request) {
+    String type = request.getString("type");
+    String key = request.getString("key");
+    if (type == null || key == null) {
+      return delegate.get(request);
+    }
+    String cacheKey = cacheKey(type, key);
+    JsonObject cached = values.getIfPresent(cacheKey);
+    if (cached != null) {
+      return Future.succeededFuture(cached.copy());
+    }
+    Throwable failed = failures.getIfPresent(cacheKey);
+    if (failed != null) {
+      return Future.failedFuture(failed);
+    }
+    long requestedAt = generation.get();
+    return delegate.get(request).onSuccess(value -> {
+      if (value != null && generation.get() == requestedAt) {
+        values.put(cacheKey, value.copy());
+      }
+    }).onFailure(failure -> {
+      if (isLookupFailure(failure) && generation.get() == requestedAt) {
+        failures.put(cacheKey, failure);
+      }
+    });
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Future<JsonObject> getAll(JsonObject request) {
+    return delegate.getAll(request);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Future<JsonObject> put(JsonObject request) {
+    return delegate.put(request);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Future<JsonObject> refresh(JsonObject request) {
+    return delegate.refresh(request);
+  }
+}
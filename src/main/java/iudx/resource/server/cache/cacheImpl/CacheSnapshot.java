@@ -0,0 +1,141 @@
+package iudx.resource.server.cache.cacheImpl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Entries of an {@link IudxCache} held as an immutable snapshot. A refresh builds a complete new
+ * snapshot aside and publishes it with a single reference swap, so lookups never see a cache
+ * emptied or partially filled by a refresh.
+ *
+ * <p>
+ * Entries put while a refresh is in flight are carried over to the snapshot it publishes, and a
+ * refresh started before an already published one is dropped.
+ * </p>
+ */
+final class CacheSnapshot {
+
+  private static final Logger LOGGER = LogManager.getLogger(CacheSnapshot.class);
+
+  static final String CACHE_REFRESH_METRIC = "iudx.rs.cache.refresh";
+  static final String CACHE_ENTRIES_METRIC = "iudx.rs.cache.entries";
+
+  private final CacheType cacheType;
+  private final AtomicReference<Map<String, CacheValue<JsonObject>>> entries =
+      new AtomicReference<>(Map.of());
+  // entries put since the oldest refresh in flight started, by key
+  private final Map<String, Put> puts = new ConcurrentHashMap<>();
+  private final AtomicLong sequence = new AtomicLong();
+  private final AtomicLong publishedSequence = new AtomicLong(-1);
+  private final Timer refreshTimer;
+
+  CacheSnapshot(CacheType cacheType) {
+    this.cacheType = cacheType;
+    this.refreshTimer = Metrics.timer(CACHE_REFRESH_METRIC, "cache", cacheType.name());
+    Metrics.gauge(CACHE_ENTRIES_METRIC, Tags.of("cache", cacheType.name()), entries,
+        snapshot -> snapshot.get().size());
+  }
+
+  CacheValue<JsonObject> get(String key) {
+    return entries.get().get(key);
+  }
+
+  /**
+   * @return entries of keys present, keys not present are left out
+   */
+  Map<String, CacheValue<JsonObject>> getAll(Collection<String> keys) {
+    Map<String, CacheValue<JsonObject>> snapshot = entries.get();
+    Map<String, CacheValue<JsonObject>> present = new HashMap<>();
+    for (String key : keys) {
+      CacheValue<JsonObject> value = snapshot.get(key);
+      if (value != null) {
+        present.put(key, value);
+      }
+    }
+    return present;
+  }
+
+  Map<String, CacheValue<JsonObject>> getByPrefix(String prefix) {
+    return entries.get().entrySet().stream()
+        .filter(entry -> entry.getKey().startsWith(prefix))
+        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+  }
+
+  int size() {
+    return entries.get().size();
+  }
+
+  /**
+   * Adds or replaces a single entry, copying the snapshot.
+   */
+  void put(String key, CacheValue<JsonObject> value) {
+    puts.put(key, new Put(value, sequence.incrementAndGet()));
+    entries.updateAndGet(snapshot -> {
+      Map<String, CacheValue<JsonObject>> updated = new HashMap<>(snapshot);
+      updated.put(key, value);
+      return Collections.unmodifiableMap(updated);
+    });
+  }
+
+  /**
+   * @return refresh to publish the entries got by it with
+   */
+  Refresh startRefresh() {
+    return new Refresh(sequence.get(), System.nanoTime());
+  }
+
+  /**
+   * Replaces all entries with the entries got by a refresh, along with those put since it started.
+   */
+  void publish(Refresh refresh, Map<String, CacheValue<JsonObject>> refreshed) {
+    if (publishedSequence.getAndAccumulate(refresh.sequence, Math::max) > refresh.sequence) {
+      LOGGER.debug("{} refresh dropped, a later one is published already", cacheType);
+      return;
+    }
+    Map<String, CacheValue<JsonObject>> snapshot = new HashMap<>(refreshed);
+    puts.forEach((key, put) -> {
+      if (put.sequence > refresh.sequence) {
+        snapshot.put(key, put.value);
+      }
+    });
+    puts.values().removeIf(put -> put.sequence <= refresh.sequence);
+    entries.set(Collections.unmodifiableMap(snapshot));
+    refreshTimer.record(System.nanoTime() - refresh.startedNanos, TimeUnit.NANOSECONDS);
+    LOGGER.debug("{} refreshed with {} entries", cacheType, snapshot.size());
+  }
+
+  static final class Refresh {
+
+    private final long sequence;
+    private final long startedNanos;
+
+    private Refresh(long sequence, long startedNanos) {
+      this.sequence = sequence;
+      this.startedNanos = startedNanos;
+    }
+  }
+
+  private static final class Put {
+
+    private final CacheValue<JsonObject> value;
+    private final long sequence;
+
+    Put(CacheValue<JsonObject> value, long sequence) {
+      this.value = value;
+      this.sequence = sequence;
+    }
+  }
+}
@@ -1,10 +1,17 @@
 package iudx.resource.server.cache.cacheImpl;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
@@ -24,8 +31,13 @@ public class CatalogueCacheImpl implements IudxCache {
   private int catPort;
   private String catBasePath;
 
-  private final Cache<String, CacheValue<JsonObject>> cache =
-      CacheBuilder.newBuilder().maximumSize(5000).expireAfterWrite(1L, TimeUnit.DAYS).build();
+  private final CacheSnapshot cache = new CacheSnapshot(cacheType);
+  // lookups of items not in cache in flight, shared by concurrent lookups of the same id
+  private final Map<String, Future<CacheValue<JsonObject>>> fetches = new ConcurrentHashMap<>();
+  // ids not found in the catalogue, not looked up again for a while
+  private final Cache<String, Boolean> missing;
+  private final long lookupTimeoutMillis;
+  private Future<Void> populating;
   private Vertx vertx;
 
   public CatalogueCacheImpl(Vertx vertx, JsonObject config) {
@@ -34,6 +46,12 @@ public class CatalogueCacheImpl implements IudxCache {
     this.catHost=config.getString("catServerHost");
     this.catPort=config.getInteger("catServerPort");
     this.catBasePath=config.getString("dxCatalogueBasePath");
+    this.missing = CacheBuilder.newBuilder()
+        .maximumSize(10_000)
+        .expireAfterWrite(config.getLong("catalogueMissingTtlInSeconds", 60L), TimeUnit.SECONDS)
+        .build();
+    this.lookupTimeoutMillis =
+        TimeUnit.SECONDS.toMillis(config.getLong("catalogueLookupTimeoutInSeconds", 10L));
     
     WebClientOptions options =
         new WebClientOptions().setTrustAll(true).setVerifyHost(false).setSsl(true);
@@ -53,28 +71,123 @@ public class CatalogueCacheImpl implements IudxCache {
     throw new RuntimeException("Adding elements in cache are not allowed, only refresh can be used");
   }
 
+  /**
+   * Items not in cache are looked up by their own id in the catalogue, a single lookup in flight
+   * being shared by concurrent gets. Ids the catalogue has no active item of are not looked up
+   * again for catalogueMissingTtlInSeconds.
+   */
   @Override
   public Future<CacheValue<JsonObject>> get(String key) {
     LOGGER.trace("request for id : {}",key);
-    Promise<CacheValue<JsonObject>> promise=Promise.promise();
-    if (cache.getIfPresent(key) != null) {
-      return Future.succeededFuture(cache.getIfPresent(key));
-    } else {
-      populateCache()
-      .onSuccess(successHandler -> {
-        if(cache.getIfPresent(key)!=null) {
-          promise.complete(cache.getIfPresent(key));
-        }else {
-          LOGGER.info("key :{} not found in cache/catatlgue server",key);
-          promise.fail("key not found");
-        }
-      }).onFailure(failureHandler -> {
-        promise.fail("Value not found");
-      });
+    CacheValue<JsonObject> cached = cache.get(key);
+    if (cached != null) {
+      return Future.succeededFuture(cached);
+    }
+    if (missing.getIfPresent(key) != null) {
+      return Future.failedFuture("key not found");
+    }
+    Promise<CacheValue<JsonObject>> promise = Promise.promise();
+    Future<CacheValue<JsonObject>> inFlight = fetches.putIfAbsent(key, promise.future());
+    if (inFlight != null) {
+      return inFlight;
     }
+    fetchItem(key).onComplete(fetched -> {
+      fetches.remove(key);
+      promise.handle(fetched);
+    });
+    return promise.future();
+  }
+
+  /**
+   * Looks up an item in the catalogue, the returned future is completed in all cases, also if the
+   * catalogue does not answer within catalogueLookupTimeoutInSeconds or with an invalid body, so
+   * that the lookup is not left in flight.
+   */
+  private Future<CacheValue<JsonObject>> fetchItem(String id) {
+    Promise<CacheValue<JsonObject>> promise = Promise.promise();
+    String url=catBasePath+"/item";
+    catWebClient
+        .get(catPort, catHost, url)
+          .addQueryParam("id", id)
+          .timeout(lookupTimeoutMillis)
+          .send(catHandler -> {
+            if (catHandler.failed()) {
+              LOGGER.error("catalogue item lookup failed for id : {}, {}", id,
+                  catHandler.cause().getMessage());
+              promise.fail("Value not found");
+              return;
+            }
+            try {
+              int status = catHandler.result().statusCode();
+              JsonObject item = null;
+              if (status == 200) {
+                JsonArray results = catHandler.result().bodyAsJsonObject().getJsonArray("results");
+                item = results == null || results.isEmpty() ? null : results.getJsonObject(0);
+              } else if (status != 404) {
+                LOGGER.error("catalogue item lookup failed for id : {} with status {}", id, status);
+                promise.fail("Value not found");
+                return;
+              }
+              if (item == null || !id.equals(item.getString("id"))
+                  || !"ACTIVE".equals(item.getString("itemStatus", "ACTIVE"))) {
+                LOGGER.info("key :{} not found in cache/catatlgue server",id);
+                missing.put(id, Boolean.TRUE);
+                promise.fail("key not found");
+                return;
+              }
+              CacheValue<JsonObject> value = new CatalogueItems(item);
+              cache.put(id, value);
+              promise.complete(value);
+            } catch (RuntimeException ex) {
+              // e.g. body not a json object, or results not an array of objects
+              LOGGER.error("invalid catalogue response for id : {}, {}", id, ex.getMessage());
+              promise.tryFail("Value not found");
+            }
+          });
     return promise.future();
   }
 
+  /**
+   * Keys not in cache are looked up one by one like a miss in {@link #get(String)}, those not
+   * found are left out.
+   */
+  @Override
+  @SuppressWarnings("rawtypes")
+  public Future<Map<String, CacheValue<JsonObject>>> getAll(Collection<String> keys) {
+    Map<String, CacheValue<JsonObject>> entries = cache.getAll(keys);
+    List<String> absent = keys.stream()
+        .filter(key -> !entries.containsKey(key))
+        .distinct()
+        .collect(Collectors.toList());
+    if (absent.isEmpty()) {
+      return Future.succeededFuture(entries);
+    }
+    List<Future> lookups = absent.stream()
+        .map(key -> get(key).otherwise((CacheValue<JsonObject>) null))
+        .collect(Collectors.toList());
+    return CompositeFuture.all(lookups).map(looked -> {
+      for (int i = 0; i < absent.size(); i++) {
+        CacheValue<JsonObject> value = looked.resultAt(i);
+        if (value != null) {
+          entries.put(absent.get(i), value);
+        }
+      }
+      return entries;
+    });
+  }
+
+  /**
+   * Entries are looked up once more after repopulating the cache if none is present.
+   */
+  @Override
+  public Future<Map<String, CacheValue<JsonObject>>> getByPrefix(String prefix) {
+    Map<String, CacheValue<JsonObject>> entries = cache.getByPrefix(prefix);
+    if (!entries.isEmpty()) {
+      return Future.succeededFuture(entries);
+    }
+    return populateCache().map(populated -> cache.getByPrefix(prefix));
+  }
+
   @Override
   public Future<Void> refreshCache() {
     populateCache();
@@ -82,10 +195,18 @@ public class CatalogueCacheImpl implements IudxCache {
     return Future.succeededFuture();
   }
 
-  private Future<Void> populateCache() {
+  /**
+   * Shared by calls made while one is in flight.
+   */
+  private synchronized Future<Void> populateCache() {
+    if (populating != null) {
+      return populating;
+    }
     LOGGER.debug("refresh() cache started");
     Promise<Void> promise = Promise.promise();
+    populating = promise.future();
     String url=catBasePath+"/search";
+    CacheSnapshot.Refresh refresh = cache.startRefresh();
     catWebClient
         .get(catPort, catHost, url)
           .addQueryParam("property", "[itemStatus]")
@@ -95,32 +216,37 @@ public class CatalogueCacheImpl implements IudxCache {
           .send(catHandler -> {
             if (catHandler.succeeded()) {
               JsonArray response = catHandler.result().bodyAsJsonObject().getJsonArray("results");
-              cache.invalidateAll();
+              Map<String, CacheValue<JsonObject>> refreshed = new HashMap<>();
               response.forEach(json -> {
                 JsonObject res = (JsonObject) json;
                 String id=res.getString("id");
-                CacheValue<JsonObject> cacheValue=createCacheValue(id, res.toString());
-                cache.put(id, cacheValue);
+                refreshed.put(id, new CatalogueItems(res));
               });
+              cache.publish(refresh, refreshed);
+              missing.invalidateAll();
               LOGGER.debug("refresh() cache completed");
-              promise.complete();
+              completePopulating(promise, null);
             } else if (catHandler.failed()) {
               LOGGER.error("Failed to populate catalogue cache");
-              promise.fail("Failed to populate catalogue cache");
+              completePopulating(promise, "Failed to populate catalogue cache");
             }
           });
     
     return promise.future();
   }
 
+  private synchronized void completePopulating(Promise<Void> promise, String failure) {
+    populating = null;
+    if (failure == null) {
+      promise.complete();
+    } else {
+      promise.fail(failure);
+    }
+  }
+
   @Override
   public CacheValue<JsonObject> createCacheValue(String key, String value){
-    return new CacheValue<JsonObject>() {
-      @Override
-      public JsonObject getValue() {
-        return new JsonObject(value);
-      }
-    };
+    return new CatalogueItems(new JsonObject(value));
   }
 
 }
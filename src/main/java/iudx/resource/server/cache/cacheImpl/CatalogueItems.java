@@ -1,15 +1,26 @@
 package iudx.resource.server.cache.cacheImpl;
 
-import java.util.List;
-
-public class CatalogueItems {
-  
-  private String id;
-  private String name;
-  private String description;
-  private String provider;
-  private String accessPolicy;
-  private List<String> iudxResourceAPIs;
-  
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Catalogue item as cached, decoded once when loaded.
+ *
+ * <p>
+ * The value is shared by all lookups and must not be modified, {@link iudx.resource.server.cache.CacheService}
+ * replies carry a copy of it.
+ * </p>
+ */
+public class CatalogueItems implements CacheValue<JsonObject> {
+
+  private final JsonObject item;
+
+  public CatalogueItems(JsonObject item) {
+    this.item = item;
+  }
+
+  @Override
+  public JsonObject getValue() {
+    return item;
+  }
 
 }
@@ -1,5 +1,7 @@
 package iudx.resource.server.cache.cacheImpl;
 
+import java.util.Collection;
+import java.util.Map;
 import io.vertx.core.Future;
 import io.vertx.core.json.JsonObject;
 
@@ -9,6 +11,18 @@ public interface IudxCache{
 
   public Future<CacheValue<JsonObject>> get(String key);
 
+  /**
+   * @param keys keys to look up in a single call
+   * @return entries of the keys present in cache, keys not present are left out
+   */
+  public Future<Map<String, CacheValue<JsonObject>>> getAll(Collection<String> keys);
+
+  /**
+   * @param prefix prefix of keys, e.g. a resource group id followed by '/'
+   * @return entries whose key starts with prefix
+   */
+  public Future<Map<String, CacheValue<JsonObject>>> getByPrefix(String prefix);
+
   public Future<Void> refreshCache();
   
   public CacheValue<JsonObject> createCacheValue(String key, String value);
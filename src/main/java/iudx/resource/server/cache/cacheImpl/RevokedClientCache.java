@@ -1,10 +1,11 @@
 package iudx.resource.server.cache.cacheImpl;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
@@ -18,8 +19,7 @@ public class RevokedClientCache implements IudxCache {
   private static final Logger LOGGER = LogManager.getLogger(RevokedClientCache.class);
   private final static CacheType cacheType = CacheType.REVOKED_CLIENT;
 
-  private final Cache<String, CacheValue<JsonObject>> cache =
-      CacheBuilder.newBuilder().maximumSize(5000).expireAfterWrite(1L, TimeUnit.DAYS).build();
+  private final CacheSnapshot cache = new CacheSnapshot(cacheType);
 
   private PostgresService pgService;
 
@@ -41,29 +41,42 @@ public class RevokedClientCache implements IudxCache {
 
   @Override
   public Future<CacheValue<JsonObject>> get(String key) {
-    if(cache.getIfPresent(key)!=null) {
-      return Future.succeededFuture(cache.getIfPresent(key));
-    }else {
+    CacheValue<JsonObject> value = cache.get(key);
+    if (value != null) {
+      return Future.succeededFuture(value);
+    } else {
       return Future.failedFuture("Value not found");
     }
   }
 
+  @Override
+  public Future<Map<String, CacheValue<JsonObject>>> getAll(Collection<String> keys) {
+    return Future.succeededFuture(cache.getAll(keys));
+  }
+
+  @Override
+  public Future<Map<String, CacheValue<JsonObject>>> getByPrefix(String prefix) {
+    return Future.succeededFuture(cache.getByPrefix(prefix));
+  }
+
   @Override
   public Future<Void> refreshCache() {
     LOGGER.trace(cacheType + " refreshCache() called");
     Promise<Void> promise=Promise.promise();
     String query = Constants.SELECT_REVOKE_TOKEN_SQL;
+    CacheSnapshot.Refresh refresh = cache.startRefresh();
     pgService.executeQuery(query, handler -> {
       if (handler.succeeded()) {
         JsonArray clientIdArray = handler.result().getJsonArray("result");
-        cache.invalidateAll();
+        Map<String, CacheValue<JsonObject>> refreshed = new HashMap<>();
         clientIdArray.forEach(e -> {
           JsonObject clientInfo = (JsonObject) e;
           String key = clientInfo.getString("_id");
           String expiry =clientInfo.getString("expiry");
           CacheValue<JsonObject> cacheValue=createCacheValue(key, expiry);
-          this.cache.put(key, cacheValue);
+          refreshed.put(key, cacheValue);
         });
+        cache.publish(refresh, refreshed);
         promise.complete();
       }else {
         promise.fail("failed to refresh");
@@ -74,17 +87,12 @@ public class RevokedClientCache implements IudxCache {
   
   @Override
   public CacheValue<JsonObject> createCacheValue(String key, String expiry){
-    return new CacheValue<JsonObject>() {
-      @Override
-      public JsonObject getValue() {
-        JsonObject value=new JsonObject();
-        value.put("id", key);
-        value.put("expiry", expiry);
-        value.put("value", expiry);
-        return value;
-      }
-      
-    };
+    JsonObject value=new JsonObject();
+    value.put("id", key);
+    value.put("expiry", expiry);
+    value.put("value", expiry);
+    // built once and shared by all lookups
+    return () -> value;
   }
 
 }
@@ -0,0 +1,26 @@
+package iudx.resource.server.cache.cacheImpl;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Unique attribute of a resource as cached, see {@link UniqueAttributeCache}. The value is built
+ * once when loaded and shared by all lookups, it must not be modified.
+ */
+public class UniqueAttribute implements CacheValue<JsonObject> {
+
+  private final JsonObject value;
+
+  public UniqueAttribute(String resourceId, String uniqueAttribute) {
+    this.value = new JsonObject()
+        .put("resource_id", resourceId)
+        .put("key", resourceId)
+        .put("unique_attribute", uniqueAttribute)
+        .put("value", uniqueAttribute);
+  }
+
+  @Override
+  public JsonObject getValue() {
+    return value;
+  }
+
+}
@@ -1,10 +1,11 @@
 package iudx.resource.server.cache.cacheImpl;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
@@ -20,8 +21,7 @@ public class UniqueAttributeCache implements IudxCache {
 
   private final PostgresService postgresService;
 
-  private final Cache<String, CacheValue<JsonObject>> cache =
-      CacheBuilder.newBuilder().maximumSize(5000).expireAfterWrite(1L, TimeUnit.DAYS).build();
+  private final CacheSnapshot cache = new CacheSnapshot(cacheType);
 
   public UniqueAttributeCache(Vertx vertx, PostgresService postgresService) {
     this.postgresService = postgresService;
@@ -40,29 +40,42 @@ public class UniqueAttributeCache implements IudxCache {
 
   @Override
   public Future<CacheValue<JsonObject>> get(String key) {
-    if (cache.getIfPresent(key) != null) {
-      return Future.succeededFuture(cache.getIfPresent(key));
+    CacheValue<JsonObject> value = cache.get(key);
+    if (value != null) {
+      return Future.succeededFuture(value);
     } else {
       return Future.failedFuture("Value not found");
     }
   }
 
+  @Override
+  public Future<Map<String, CacheValue<JsonObject>>> getAll(Collection<String> keys) {
+    return Future.succeededFuture(cache.getAll(keys));
+  }
+
+  @Override
+  public Future<Map<String, CacheValue<JsonObject>>> getByPrefix(String prefix) {
+    return Future.succeededFuture(cache.getByPrefix(prefix));
+  }
+
   @Override
   public Future<Void> refreshCache() {
     Promise<Void> promise = Promise.promise();
     LOGGER.trace(cacheType + " refreshCache() called");
     String query = Constants.SELECT_UNIQUE_ATTRIBUTE;
+    CacheSnapshot.Refresh refresh = cache.startRefresh();
     postgresService.executeQuery(query, handler -> {
       if (handler.succeeded()) {
         JsonArray clientIdArray = handler.result().getJsonArray("result");
-        cache.invalidateAll();
+        Map<String, CacheValue<JsonObject>> refreshed = new HashMap<>();
         clientIdArray.forEach(e -> {
           JsonObject clientInfo = (JsonObject) e;
           String key = clientInfo.getString("resource_id");
           String value = clientInfo.getString("unique_attribute");
           CacheValue<JsonObject> cacheValue=createCacheValue(key, value);
-          this.cache.put(key, cacheValue);
+          refreshed.put(key, cacheValue);
         });
+        cache.publish(refresh, refreshed);
         promise.complete();
       } else {
         promise.fail("failed to refreash");
@@ -73,18 +86,7 @@ public class UniqueAttributeCache implements IudxCache {
   
   @Override
   public CacheValue<JsonObject> createCacheValue(String id, String unique_attrib){
-    return new CacheValue<JsonObject>() {
-      @Override
-      public JsonObject getValue() {
-        JsonObject value=new JsonObject();
-        value.put("resource_id", id);
-        value.put("key", id);
-        value.put("unique_attribute", unique_attrib);
-        value.put("value", unique_attrib);
-        return value;
-      }
-      
-    };
+    return new UniqueAttribute(id, unique_attrib);
   }
 
 }
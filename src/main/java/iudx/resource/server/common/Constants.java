@@ -13,6 +13,14 @@ public class Constants {
   public static final String METERING_SERVICE_ADDRESS = "iudx.rs.metering.service";
   public static final String ENCRYPTION_SERVICE_ADDRESS = "iudx.rs.encryption.service";
 
+  /** event bus addresses **/
+  public static final String DATABASE_SEARCH_ENCODED_ADDRESS = "iudx.rs.database.search.encoded";
+  public static final String CACHE_INVALIDATION_ADDRESS = "iudx.rs.cache.invalidation";
+  public static final String CACHE_UPDATE_ADDRESS = "iudx.rs.cache.update";
+  public static final String ASYNC_SEARCH_DONE_ADDRESS = "iudx.rs.async.search.done";
+  // set on a chunk of an encoded search response that is followed by more chunks
+  public static final String ENCODED_SEARCH_MORE_HEADER = "more";
+
 
 
   /* Broadcast exchanges and queues */
@@ -27,6 +35,9 @@ public class Constants {
   public static String ASYNC_QUERY_EX = "async-query";
   public static String ASYNC_QUERY_Q = "rs-async-query";
 
+  // fanout of adaptor exchanges feeding in memory latest stores
+  public static String LATEST_SNAPSHOT_EX = "rs-latest-snapshot";
+
   // postgres queries
   public static String SELECT_REVOKE_TOKEN_SQL = "SELECT * FROM revoked_tokens";
   public static String SELECT_UNIQUE_ATTRIBUTE = "SELECT * from unique_attributes";
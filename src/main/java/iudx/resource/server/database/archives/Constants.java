@@ -30,6 +30,8 @@ public class Constants {
   public static final String FILTER_PATH = "filter_path";
   public static final String FILTER_PATH_VAL = "took,hits.hits._source";
   public static final String FILTER_PATH_VAL_LATEST = "docs._source";
+  public static final String FILTER_PATH_STREAM =
+      "pit_id,hits.total,hits.hits._source,hits.hits.sort";
   public static final String SIZE_KEY = "size";
   public static final String GREATER_THAN = "gt";
   public static final String LESS_THAN = "lt";
@@ -70,6 +72,12 @@ public class Constants {
   public static final String LINESTRING = "linestring";
   public static final String GEO_PROPERTY = "geoproperty";
   public static final String BBOX = "bbox";
+  public static final String INTERSECTS = "intersects";
+  public static final String GEO_SIMPLIFY_TOLERANCE = "geoSimplifyTolerance";
+  public static final double DEFAULT_GEO_SIMPLIFY_TOLERANCE = 0.00001;
+  public static final int GEO_SIMPLIFY_MIN_VERTICES = 500;
+  public static final int GEO_SHAPE_CACHE_SIZE = 1000;
+  public static final String GEO_SHAPE_CACHE_METRIC = "iudx.rs.geo.shape.cache";
   /* Response Filter */
   public static final String RESPONSE_ATTRS = "attrs";
   /* Attribute */
@@ -90,6 +98,38 @@ public class Constants {
   /*pagination*/
   public static final String PARAM_SIZE = "limit";
   public static final String PARAM_FROM = "offset";
+  public static final String PARAM_CURSOR = "cursor";
+  public static final String SCROLL_KEEP_ALIVE = "5m";
+  public static final int SCROLL_PAGE_SIZE = 10000;
+  public static final int DEFAULT_EXPORT_SLICES = 1;
+  public static final int DEFAULT_EXPORT_WRITER_THREADS = 4;
+  public static final String PIT_KEEP_ALIVE = "1m";
+  public static final String EXPORT_PIT_KEEP_ALIVE = "30m";
+  public static final String EXPORT_CHECKPOINT_EXPIRED = "export checkpoint expired";
+  public static final String CURSOR_DATE_FORMAT = "strict_date_optional_time_nanos";
+  public static final String SHARD_DOC_FIELD = "_shard_doc";
+  public static final String SEARCH_RESULT_CACHE_METRIC = "iudx.rs.search.result.cache";
+  public static final String SEARCH_RESULT_CACHE_MAP = "search-result-cache";
+  public static final long DEFAULT_RESULT_CACHE_SIZE_MB = 256;
+  public static final long DEFAULT_RESULT_CACHE_WINDOW_LAG_MINUTES = 60;
+  public static final int ENCODED_SEARCH_CHUNK_SIZE = 64 * 1024;
+  public static final String LATEST_CACHE_METRIC = "iudx.rs.latest.cache";
+  public static final String LATEST_CACHE_MAP = "latest-near-cache";
+  public static final String LATEST_INVALIDATOR_MAP = "latest-keyspace-invalidator";
+  public static final long DEFAULT_LATEST_CACHE_SIZE_MB = 64;
+  public static final long DEFAULT_LATEST_CACHE_TTL_SECONDS = 5;
+  public static final String LATEST_SNAPSHOT_METRIC = "iudx.rs.latest.snapshot";
+  public static final String LATEST_SNAPSHOT_MAP = "latest-snapshot-store";
+  public static final String REDIS_COMMAND_METRIC = "iudx.rs.redis.command";
+  public static final String REDIS_POOL_WAIT_METRIC = "iudx.rs.redis.pool.wait";
+  public static final String REDIS_HEALTH_METRIC = "iudx.rs.redis.healthy";
+  public static final int DEFAULT_REDIS_POOL_SIZE = 30;
+  public static final int DEFAULT_REDIS_POOL_WAITING = 200;
+  public static final int DEFAULT_REDIS_POOL_RECYCLE_TIMEOUT = 15000;
+  public static final long DEFAULT_REDIS_HEALTH_CHECK_INTERVAL_SECONDS = 30;
+  public static final long REDIS_INITIAL_BACKOFF_MILLIS = 1000;
+  public static final long REDIS_MAX_BACKOFF_MILLIS = 30000;
+  public static final int DEFAULT_REDIS_STARTUP_ATTEMPTS = 5;
   
   /* Errors */
   public static final String INVALID_OPERATOR = "Invalid operator";
@@ -158,5 +198,7 @@ public class Constants {
 
   public static final int DEFAULT_SIZE_VALUE = 5000;
   public static final int DEFAULT_FROM_VALUE = 0;
+  // total hits are counted exactly up to this value, larger results are rejected
+  public static final int TOTAL_HITS_LIMIT = 50000;
   public static final String COUNT_MATCH_ALL_QUERY="{\"query\": { \"match_all\": {} }}";
 }
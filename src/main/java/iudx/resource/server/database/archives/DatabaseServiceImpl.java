@@ -5,17 +5,21 @@ import static iudx.resource.server.database.archives.Constants.*;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.elasticsearch.core.search.SourceConfig;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import iudx.resource.server.apiserver.handlers.FailureHandler;
 import iudx.resource.server.common.ResponseUrn;
 import iudx.resource.server.database.elastic.ElasticClient;
 import iudx.resource.server.database.elastic.QueryDecoder;
+import iudx.resource.server.database.elastic.SearchCursor;
 import iudx.resource.server.database.elastic.exception.ESQueryException;
 
 /**
@@ -38,10 +42,32 @@ public class DatabaseServiceImpl implements DatabaseService {
   private QueryDecoder queryDecoder = new QueryDecoder();
   private ResponseBuilder responseBuilder;
   private String timeLimit;
+  private final SearchResultCache resultCache;
+  private final double geoSimplifyTolerance;
 
   public DatabaseServiceImpl(ElasticClient client, String timeLimit) {
+    this(client, timeLimit, null);
+  }
+
+  /**
+   * @param resultCache cache for results of closed window temporal queries, null to disable
+   */
+  public DatabaseServiceImpl(ElasticClient client, String timeLimit,
+      SearchResultCache resultCache) {
+    this(client, timeLimit, resultCache, DEFAULT_GEO_SIMPLIFY_TOLERANCE);
+  }
+
+  /**
+   * @param resultCache cache for results of closed window temporal queries, null to disable
+   * @param geoSimplifyTolerance tolerance (in degrees) large polygons and linestrings of geo
+   *        queries are simplified to, 0 to disable
+   */
+  public DatabaseServiceImpl(ElasticClient client, String timeLimit,
+      SearchResultCache resultCache, double geoSimplifyTolerance) {
     this.client = client;
     this.timeLimit = timeLimit;
+    this.resultCache = resultCache;
+    this.geoSimplifyTolerance = geoSimplifyTolerance;
   }
 
   public int getOrDefault(JsonObject json, String key, int def) {
@@ -52,81 +78,135 @@ public class DatabaseServiceImpl implements DatabaseService {
     return def;
   }
 
-  private class CountResultPlaceholder {
-    private long count;
-
-    public CountResultPlaceholder() {
-      this.count = 0L;
-    }
-
-    public long getCount() {
-      return this.count;
-    }
-
-    public void setCount(long count) {
-      this.count = count;
-    }
-  }
-
   @Override
   public Future<JsonObject> search(JsonObject request) {
     Promise<JsonObject> promise = Promise.promise();
 
-    request.put(TIME_LIMIT, timeLimit);
-    try {
-      Future<JsonObject> validationFuture = checkQuery(request);
-
-      validationFuture.onFailure(handler -> {
-        promise.fail(handler.toString());
-      }).onSuccess(handler -> {
-        String id = request.getJsonArray(ID).getString(0);
-        final String searchIndex = getIndex(id);
-
-        final int sizeKeyValue = getOrDefault(request, PARAM_SIZE, DEFAULT_SIZE_VALUE);
-        final int fromKeyValue = getOrDefault(request, PARAM_FROM, DEFAULT_FROM_VALUE);
+    prepareSearch(request).onSuccess(searchParams -> {
+      String cacheKey = getCacheKey("json", request, searchParams);
+      Buffer cached = cacheKey == null ? null : resultCache.get(cacheKey);
+      if (cached != null) {
+        promise.complete(cached.toJsonObject());
+        return;
+      }
+      // hits and total count are fetched in a single request, limit on total hits is enforced
+      // by the client from the same response
+      client
+          .asyncSearch(searchParams.index, searchParams.query, searchParams.size,
+              searchParams.from, searchParams.sourceFilter, searchParams.cursor)
+          .onSuccess(successHandler -> {
+            LOGGER.debug("Success: Successful DB request");
+            JsonObject responseJson = successHandler;
+            responseJson
+                .put(PARAM_SIZE, searchParams.size)
+                  .put(PARAM_FROM, searchParams.from);
+            if (cacheKey != null) {
+              resultCache.put(cacheKey, responseJson.toBuffer());
+            }
+            promise.complete(responseJson);
+          }).onFailure(failureHandler -> {
+            LOGGER.info("failed to query : " + failureHandler);
+            promise.fail(failureHandler.getMessage());
+          });
+    }).onFailure(failureHandler -> promise.fail(failureHandler.getMessage()));
+    return promise.future();
+  }
 
+  /**
+   * Encoded variant of {@link #search(JsonObject)}, not exposed over the service proxy. The
+   * result is the encoded response envelope with documents copied as-is from the Elasticsearch
+   * response, read in chunks to be written as the HTTP response body without decoding it again.
+   *
+   * @param request search request query
+   * @return Future of the encoded response, to be closed once read or abandoned
+   */
+  public Future<EncodedSearchResponse> searchEncoded(JsonObject request) {
+    Promise<EncodedSearchResponse> promise = Promise.promise();
 
-        Query query = queryDecoder.getQuery(request);
-        LOGGER.info("query : " + query.toString());
+    prepareSearch(request).onSuccess(searchParams -> {
+      String cacheKey = getCacheKey("encoded", request, searchParams);
+      Buffer cached = cacheKey == null ? null : resultCache.get(cacheKey);
+      if (cached != null) {
+        promise.complete(EncodedSearchResponse.cached(cached));
+        return;
+      }
+      client
+          .asyncSearchEncoded(searchParams.index, searchParams.query, searchParams.size,
+              searchParams.from, searchParams.sourceFilter, searchParams.cursor)
+          .onSuccess(successHandler -> {
+            LOGGER.debug("Success: Successful DB request");
+            promise.complete(
+                EncodedSearchResponse.encoded(successHandler, resultCache, cacheKey));
+          }).onFailure(failureHandler -> {
+            LOGGER.info("failed to query : " + failureHandler);
+            promise.fail(failureHandler.getMessage());
+          });
+    }).onFailure(failureHandler -> promise.fail(failureHandler.getMessage()));
+    return promise.future();
+  }
 
-        CountResultPlaceholder countPlaceHolder = new CountResultPlaceholder();
-        Future<JsonObject> countFuture = client.asyncCount(searchIndex, query);
+  private Future<SearchParams> prepareSearch(JsonObject request) {
+    request.put(TIME_LIMIT, timeLimit);
+    request.put(GEO_SIMPLIFY_TOLERANCE, geoSimplifyTolerance);
 
-        countFuture.compose(countQueryHandler -> {
-          long count =
-              countQueryHandler.getJsonArray("results").getJsonObject(0).getInteger("totalHits");
-          LOGGER.info("count : " + count);
-          if (count > 50000) {
-            JsonObject json = new JsonObject();
-            json.put("type", 413);
-            json.put("title", ResponseUrn.PAYLOAD_TOO_LARGE_URN.getUrn());
-            json.put("details", ResponseUrn.PAYLOAD_TOO_LARGE_URN.getMessage());
-            return Future.failedFuture("Result Limit exceeds");
+    return checkQuery(request)
+        .recover(failure -> Future.failedFuture(failure.toString()))
+        .compose(validated -> {
+          try {
+            SearchParams searchParams = new SearchParams();
+            searchParams.index = getIndex(request.getJsonArray(ID));
+            searchParams.size = getOrDefault(request, PARAM_SIZE, DEFAULT_SIZE_VALUE);
+            searchParams.from = getOrDefault(request, PARAM_FROM, DEFAULT_FROM_VALUE);
+            if (request.containsKey(PARAM_CURSOR)) {
+              if (request.containsKey(PARAM_FROM)) {
+                throw new ESQueryException("offset is not allowed with cursor");
+              }
+              searchParams.cursor = SearchCursor.decode(request.getString(PARAM_CURSOR));
+            }
+            searchParams.query = queryDecoder.getQuery(request);
+            LOGGER.debug("query : {}", searchParams.query);
+            searchParams.sourceFilter = queryDecoder.getSourceConfigFilters(request);
+            return Future.succeededFuture(searchParams);
+            // TODO : we can use ServiceException here, check for feasibility
+          } catch (ESQueryException ex) {
+            ResponseUrn exception_urn = ResponseUrn.BAD_REQUEST_URN;
+            return Future
+                .failedFuture(new ESQueryException(exception_urn, ex.getMessage()).toString());
+          } catch (Exception ex) {
+            return Future
+                .failedFuture(new ESQueryException("Exception occured executing query").toString());
           }
-          countPlaceHolder.setCount(count);
-          SourceConfig sourceFilter = queryDecoder.getSourceConfigFilters(request);
-          return client.asyncSearch(searchIndex, query, sizeKeyValue, fromKeyValue, sourceFilter);
-        }).onSuccess(successHandler -> {
-          LOGGER.debug("Success: Successful DB request");
-          JsonObject responseJson = successHandler;
-          responseJson
-              .put(PARAM_SIZE, sizeKeyValue)
-                .put(PARAM_FROM, fromKeyValue)
-                .put("totalHits", countPlaceHolder.getCount());
-          promise.complete(responseJson);
-        }).onFailure(failureHandler -> {
-          LOGGER.info("failed to query : " + failureHandler);
-          promise.fail(failureHandler.getMessage());
         });
-      });
-      // TODO : we can use ServiceException here, check for feasibility
-    } catch (ESQueryException ex) {
-      ResponseUrn exception_urn = ResponseUrn.BAD_REQUEST_URN;
-      promise.fail(new ESQueryException(exception_urn, ex.getMessage()).toString());
-    } catch (Exception ex) {
-      promise.fail(new ESQueryException("Exception occured executing query").toString());
+  }
+
+  /**
+   * @return key of search in result cache, null if search results are not to be cached
+   */
+  private String getCacheKey(String variant, JsonObject request, SearchParams searchParams) {
+    if (resultCache == null || !resultCache.isCacheable(request)) {
+      return null;
     }
-    return promise.future();
+    return resultCache.key(variant, searchParams.index, searchParams.query, searchParams.size,
+        searchParams.from, searchParams.sourceFilter);
+  }
+
+  private static class SearchParams {
+    private String index;
+    private Query query;
+    private int size;
+    private int from;
+    private SourceConfig sourceFilter;
+    private SearchCursor cursor;
+  }
+
+  /**
+   * @return comma separated distinct indices of all ids, searched together in a single request
+   */
+  private String getIndex(JsonArray ids) {
+    return ids.stream()
+        .map(id -> getIndex((String) id))
+        .distinct()
+        .collect(Collectors.joining(","));
   }
 
   private String getIndex(String id) {
@@ -142,6 +222,7 @@ public class DatabaseServiceImpl implements DatabaseService {
     Promise<JsonObject> promise = Promise.promise();
 
     request.put(TIME_LIMIT, timeLimit);
+    request.put(GEO_SIMPLIFY_TOLERANCE, geoSimplifyTolerance);
     try {
       Future<JsonObject> validationFuture = checkQuery(request);
       validationFuture.onFailure(handler -> {
@@ -153,11 +234,10 @@ public class DatabaseServiceImpl implements DatabaseService {
           throw new ESQueryException("Count is not supported with filtering");
         }
 
-        String id = request.getJsonArray(ID).getString(0);
-        final String searchIndex = getIndex(id);
+        final String searchIndex = getIndex(request.getJsonArray(ID));
 
         Query query = queryDecoder.getQuery(request);
-        LOGGER.info("query : " + query.toString());
+        LOGGER.debug("query : {}", query);
         Future<JsonObject> countFuture = client.asyncCount(searchIndex, query);
         countFuture.onSuccess(success -> {
           promise.complete(success);
@@ -187,8 +267,9 @@ public class DatabaseServiceImpl implements DatabaseService {
     } else if (!request.containsKey(SEARCH_TYPE)) {
       LOGGER.debug("Info: " + SEARCHTYPE_NOT_FOUND);
       promise.fail(new ESQueryException(ResponseUrn.BAD_REQUEST_URN, SEARCHTYPE_NOT_FOUND));
-    } else if (request.getJsonArray(ID).getString(0).split("/").length != 5) {
-      LOGGER.error("Malformed ID: " + request.getJsonArray(ID).getString(0));
+    } else if (request.getJsonArray(ID).stream()
+        .anyMatch(id -> !(id instanceof String) || ((String) id).split("/").length != 5)) {
+      LOGGER.error("Malformed ID: " + request.getJsonArray(ID));
       promise.fail(new ESQueryException(ResponseUrn.BAD_REQUEST_URN, MALFORMED_ID));
     } else {
       promise.complete();
@@ -1,9 +1,24 @@
 package iudx.resource.server.database.archives;
 
+import static iudx.resource.server.common.Constants.DATABASE_SEARCH_ENCODED_ADDRESS;
 import static iudx.resource.server.common.Constants.DATABASE_SERVICE_ADDRESS;
+import static iudx.resource.server.common.Constants.ENCODED_SEARCH_MORE_HEADER;
+import static iudx.resource.server.database.archives.Constants.DEFAULT_GEO_SIMPLIFY_TOLERANCE;
+import static iudx.resource.server.database.archives.Constants.DEFAULT_RESULT_CACHE_SIZE_MB;
+import static iudx.resource.server.database.archives.Constants.DEFAULT_RESULT_CACHE_WINDOW_LAG_MINUTES;
+import static iudx.resource.server.database.archives.Constants.ENCODED_SEARCH_CHUNK_SIZE;
+import static iudx.resource.server.database.archives.Constants.GEO_SIMPLIFY_TOLERANCE;
+import static iudx.resource.server.database.archives.Constants.SEARCH_RESULT_CACHE_MAP;
+import java.time.Duration;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
 import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
 import io.vertx.serviceproxy.ServiceBinder;
 import iudx.resource.server.database.elastic.ElasticClient;
 
@@ -21,7 +36,9 @@ import iudx.resource.server.database.elastic.ElasticClient;
 
 public class DatabaseVerticle extends AbstractVerticle {
 
-  private DatabaseService database;
+  private static final Logger LOGGER = LogManager.getLogger(DatabaseVerticle.class);
+
+  private DatabaseServiceImpl database;
   private ElasticClient client;
   private String databaseIP;
   private String user;
@@ -30,6 +47,7 @@ public class DatabaseVerticle extends AbstractVerticle {
   private int databasePort;
   private ServiceBinder binder;
   private MessageConsumer<JsonObject> consumer;
+  private MessageConsumer<JsonObject> encodedConsumer;
 
   /**
    * This method is used to start the Verticle. It deploys a verticle in a cluster, registers the
@@ -50,17 +68,80 @@ public class DatabaseVerticle extends AbstractVerticle {
 
     client = new ElasticClient(databaseIP, databasePort, user, password); 
     binder = new ServiceBinder(vertx);
-    database = new DatabaseServiceImpl(client, timeLimit);
+    double geoSimplifyTolerance =
+        config().getDouble(GEO_SIMPLIFY_TOLERANCE, DEFAULT_GEO_SIMPLIFY_TOLERANCE);
+    database =
+        new DatabaseServiceImpl(client, timeLimit, getResultCache(), geoSimplifyTolerance);
 
     consumer =
         binder.setAddress(DATABASE_SERVICE_ADDRESS)
         .register(DatabaseService.class, database);
+
+    // search replying with the encoded response in chunks, hence not part of service proxy
+    encodedConsumer = vertx.eventBus().consumer(DATABASE_SEARCH_ENCODED_ADDRESS, message -> {
+      database.searchEncoded(message.body()).onSuccess(result -> {
+        replyChunk(message, result);
+      }).onFailure(failure -> {
+        LOGGER.debug("encoded search failed : {}", failure.getMessage());
+        message.fail(400, failure.getMessage());
+      });
+    });
+  }
+
+  /**
+   * Replies with the next chunk of an encoded response. A chunk followed by more chunks is
+   * marked with {@link iudx.resource.server.common.Constants#ENCODED_SEARCH_MORE_HEADER} and the
+   * next chunk is only encoded once the receiver replies to it, so the receiver paces the
+   * encoding. Response is closed once its last chunk is sent, or when the receiver fails a chunk
+   * or does not reply to it.
+   */
+  private void replyChunk(Message<?> message, EncodedSearchResponse response) {
+    vertx.<Buffer>executeBlocking(promise -> {
+      try {
+        promise.complete(response.nextChunk(ENCODED_SEARCH_CHUNK_SIZE));
+      } catch (Exception ex) {
+        promise.fail(ex);
+      }
+    }, false).onSuccess(chunk -> {
+      if (response.isDone()) {
+        response.close();
+        message.reply(chunk);
+        return;
+      }
+      DeliveryOptions options = new DeliveryOptions().addHeader(ENCODED_SEARCH_MORE_HEADER, "true");
+      message.<Void>replyAndRequest(chunk, options)
+          .onSuccess(next -> replyChunk(next, response))
+          .onFailure(failure -> {
+            LOGGER.debug("encoded search abandoned : {}", failure.getMessage());
+            response.close();
+          });
+    }).onFailure(failure -> {
+      LOGGER.error("failed to encode search response : {}", failure.getMessage());
+      response.close();
+      message.fail(500, failure.getMessage());
+    });
   }
 
 
+  /**
+   * Result cache is shared by all instances of the verticle, so the memory budget applies to the
+   * whole process.
+   */
+  private SearchResultCache getResultCache() {
+    long maxBytes = config().getLong("resultCacheSizeInMB", DEFAULT_RESULT_CACHE_SIZE_MB)
+        * 1024 * 1024;
+    Duration lag = Duration.ofMinutes(
+        config().getLong("resultCacheWindowLagInMinutes", DEFAULT_RESULT_CACHE_WINDOW_LAG_MINUTES));
+    LocalMap<String, SearchResultCache> caches =
+        vertx.sharedData().getLocalMap(SEARCH_RESULT_CACHE_MAP);
+    caches.putIfAbsent(SEARCH_RESULT_CACHE_MAP, new SearchResultCache(maxBytes, lag));
+    return caches.get(SEARCH_RESULT_CACHE_MAP);
+  }
+
   @Override
   public void stop() {
 	binder.unregister(consumer);
+	encodedConsumer.unregister();
   }
 }
 
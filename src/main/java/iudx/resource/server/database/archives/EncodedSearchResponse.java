@@ -0,0 +1,77 @@
+package iudx.resource.server.database.archives;
+
+import java.io.Closeable;
+import java.io.IOException;
+import io.vertx.core.buffer.Buffer;
+import iudx.resource.server.database.elastic.SearchResponseEncoder;
+
+/**
+ * Encoded search response read in chunks, either encoded from the search response or sliced from
+ * a response held in the {@link SearchResultCache}. A response encoded for a cacheable request is
+ * put in the cache once all of its chunks are read.
+ */
+public class EncodedSearchResponse implements Closeable {
+
+  private final SearchResponseEncoder encoder;
+  private final SearchResultCache resultCache;
+  private final String cacheKey;
+  private final Buffer body;
+  private int position = 0;
+
+  private EncodedSearchResponse(SearchResponseEncoder encoder, SearchResultCache resultCache,
+      String cacheKey, Buffer body) {
+    this.encoder = encoder;
+    this.resultCache = resultCache;
+    this.cacheKey = cacheKey;
+    this.body = body;
+  }
+
+  static EncodedSearchResponse cached(Buffer body) {
+    return new EncodedSearchResponse(null, null, null, body);
+  }
+
+  /**
+   * @param cacheKey key the response is cached with once read, null if request is not cacheable
+   */
+  static EncodedSearchResponse encoded(SearchResponseEncoder encoder,
+      SearchResultCache resultCache, String cacheKey) {
+    Buffer body = cacheKey == null ? null : Buffer.buffer();
+    return new EncodedSearchResponse(encoder, resultCache, cacheKey, body);
+  }
+
+  /**
+   * @param chunkSize size in bytes a chunk is filled up to
+   * @return Buffer containing the next part of the response
+   * @throws IOException if search response is not a valid json
+   */
+  public Buffer nextChunk(int chunkSize) throws IOException {
+    if (encoder == null) {
+      int end = Math.min(position + chunkSize, body.length());
+      Buffer chunk = body.slice(position, end);
+      position = end;
+      return chunk;
+    }
+    Buffer chunk = encoder.nextChunk(chunkSize);
+    if (cacheKey != null) {
+      body.appendBuffer(chunk);
+      if (encoder.isDone()) {
+        resultCache.put(cacheKey, body);
+      }
+    }
+    return chunk;
+  }
+
+  /**
+   * @return whether all chunks of the response are read
+   */
+  public boolean isDone() {
+    return encoder == null ? position >= body.length() : encoder.isDone();
+  }
+
+  @Override
+  public void close() {
+    if (encoder != null) {
+      encoder.close();
+    }
+  }
+}
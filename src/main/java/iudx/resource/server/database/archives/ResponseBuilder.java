@@ -7,6 +7,7 @@ import static iudx.resource.server.database.archives.Constants.FAILED;
 import static iudx.resource.server.database.archives.Constants.FROM_KEY;
 import static iudx.resource.server.database.archives.Constants.INDEX_NOT_FOUND;
 import static iudx.resource.server.database.archives.Constants.INVALID_RESOURCE_ID;
+import static iudx.resource.server.database.archives.Constants.PARAM_CURSOR;
 import static iudx.resource.server.database.archives.Constants.REASON;
 import static iudx.resource.server.database.archives.Constants.RESULTS;
 import static iudx.resource.server.database.archives.Constants.ROOT_CAUSE;
@@ -81,6 +82,16 @@ public class ResponseBuilder {
     return this;
   }
   
+  public ResponseBuilder setTotalHits(long totalHits) {
+    response.put(TOTAL_HITS, totalHits);
+    return this;
+  }
+
+  public ResponseBuilder setCursor(String cursor) {
+    response.put(PARAM_CURSOR, cursor);
+    return this;
+  }
+
   public ResponseBuilder setFromParam(int from) {
     response.put(FROM_KEY, from);
     return this;
@@ -0,0 +1,115 @@
+package iudx.resource.server.database.archives;
+
+import static iudx.resource.server.database.archives.Constants.BETWEEN;
+import static iudx.resource.server.database.archives.Constants.DURING;
+import static iudx.resource.server.database.archives.Constants.END_TIME;
+import static iudx.resource.server.database.archives.Constants.PARAM_CURSOR;
+import static iudx.resource.server.database.archives.Constants.REQ_TIMEREL;
+import static iudx.resource.server.database.archives.Constants.SEARCH_RESULT_CACHE_METRIC;
+import static iudx.resource.server.database.archives.Constants.SEARCH_TYPE;
+import static iudx.resource.server.database.archives.Constants.TEMPORAL_SEARCH_REGEX;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Pattern;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.search.SourceConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+
+/**
+ * Cache of encoded search responses for temporal queries over a closed window, i.e. a
+ * <i>during/between</i> window ending before the ingestion lag. Results of such a query can not
+ * change, so entries are never invalidated and only evicted (least recently used first) to keep
+ * the cache within its memory budget.
+ *
+ * <p>
+ * Cache is consulted by the database service, only requests already authorized by the API server
+ * reach it.
+ * </p>
+ */
+public class SearchResultCache implements Shareable {
+
+  private static final Logger LOGGER = LogManager.getLogger(SearchResultCache.class);
+
+  private static final Pattern TEMPORAL_SEARCH = Pattern.compile(TEMPORAL_SEARCH_REGEX);
+  private static final Counter HITS = Metrics.counter(SEARCH_RESULT_CACHE_METRIC, "result", "hit");
+  private static final Counter MISSES =
+      Metrics.counter(SEARCH_RESULT_CACHE_METRIC, "result", "miss");
+
+  private final Cache<String, Buffer> cache;
+  private final Duration ingestionLag;
+
+  /**
+   * @param maxBytes memory budget of cached responses
+   * @param ingestionLag time after which data for a window is considered complete
+   */
+  public SearchResultCache(long maxBytes, Duration ingestionLag) {
+    this.ingestionLag = ingestionLag;
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxBytes)
+        .<String, Buffer>weigher((key, value) -> key.length() + value.length())
+        .build();
+  }
+
+  /**
+   * checks whether results of a search request can be cached.
+   *
+   * @param request search request
+   * @return true if request is a temporal query over a closed window
+   */
+  public boolean isCacheable(JsonObject request) {
+    String searchType = request.getString(SEARCH_TYPE);
+    String timeRel = request.getString(REQ_TIMEREL);
+    String endTime = request.getString(END_TIME);
+    if (searchType == null || !TEMPORAL_SEARCH.matcher(searchType).matches()
+        || request.containsKey(PARAM_CURSOR) || endTime == null
+        || !(DURING.equalsIgnoreCase(timeRel) || BETWEEN.equalsIgnoreCase(timeRel))) {
+      return false;
+    }
+    try {
+      return ZonedDateTime.parse(endTime).isBefore(ZonedDateTime.now().minus(ingestionLag));
+    } catch (DateTimeParseException ex) {
+      return false;
+    }
+  }
+
+  /**
+   * Cache key for a search, normalized query is used so that requests differing only in
+   * parameters not affecting the query share entries.
+   */
+  public String key(String variant, String index, Query query, int size, int from,
+      SourceConfig sourceFilter) {
+    String normalized = new StringBuilder()
+        .append(index).append('|')
+        .append(query).append('|')
+        .append(size).append('|')
+        .append(from).append('|')
+        .append(sourceFilter)
+        .toString();
+    return variant + ":" + DigestUtils.sha256Hex(normalized);
+  }
+
+  public Buffer get(String key) {
+    Buffer result = cache.getIfPresent(key);
+    if (result == null) {
+      MISSES.increment();
+    } else {
+      LOGGER.debug("search result served from cache");
+      HITS.increment();
+    }
+    return result;
+  }
+
+  public void put(String key, Buffer result) {
+    cache.put(key, result);
+  }
+}
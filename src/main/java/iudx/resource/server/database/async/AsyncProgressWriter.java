@@ -0,0 +1,105 @@
+package iudx.resource.server.database.async;
+
+import static iudx.resource.server.database.postgres.Constants.UPDATE_S3_PROGRESS_BATCH_SQL;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import iudx.resource.server.database.postgres.PostgresService;
+
+/**
+ * Writes progress of all running async searches to postgres. Progress reported by a search is
+ * coalesced with its progress not yet written, only the latest is kept, and progress of all
+ * searches is written in a single batched update on a timer. No thread is held per search.
+ *
+ * <p>
+ * Progress is only ever raised and only of searches in progress, a late write can not undo the
+ * progress of a completed search.
+ * </p>
+ */
+public class AsyncProgressWriter {
+
+  private static final Logger LOGGER = LogManager.getLogger(AsyncProgressWriter.class);
+
+  private final PostgresService pgService;
+  private final Map<String, Double> pending = new ConcurrentHashMap<>();
+  private final AtomicBoolean flushing = new AtomicBoolean();
+  private final Vertx vertx;
+  private final long timerId;
+
+  /**
+   * @param flushIntervalMillis interval progress is written in
+   */
+  public AsyncProgressWriter(Vertx vertx, PostgresService pgService, long flushIntervalMillis) {
+    this.vertx = vertx;
+    this.pgService = pgService;
+    this.timerId = vertx.setPeriodic(flushIntervalMillis, timer -> flush());
+  }
+
+  /**
+   * @return listener reporting progress of a search to this writer
+   */
+  public ProgressListener listener(String searchId) {
+    return new ProgressListener() {
+      @Override
+      public void updateProgress(double progress) {
+        // percent, to the two decimals progress is kept with
+        pending.merge(searchId, Math.round(progress * 10000.0) / 100.0, Math::max);
+      }
+
+      @Override
+      public void finish() {
+        // final progress is written along with the result of the search
+        pending.remove(searchId);
+      }
+    };
+  }
+
+  /**
+   * Writes progress reported since the last flush, skipped while a flush is in flight.
+   *
+   * @return number of searches progress was written for
+   */
+  Future<Integer> flush() {
+    if (pending.isEmpty() || !flushing.compareAndSet(false, true)) {
+      return Future.succeededFuture(0);
+    }
+    StringJoiner values = new StringJoiner(",");
+    int count = 0;
+    for (Map.Entry<String, Double> entry : pending.entrySet()) {
+      // progress reported meanwhile stays pending for the next flush
+      if (pending.remove(entry.getKey(), entry.getValue())) {
+        values.add("('" + entry.getKey() + "'," + entry.getValue() + ")");
+        count++;
+      }
+    }
+    int searches = count;
+    Promise<Integer> promise = Promise.promise();
+    pgService.executeQuery(UPDATE_S3_PROGRESS_BATCH_SQL.replace("$1", values.toString()),
+        pgHandler -> {
+          flushing.set(false);
+          if (pgHandler.succeeded()) {
+            LOGGER.debug("updated progress of {} searches", searches);
+            promise.complete(searches);
+          } else {
+            LOGGER.error("failed to update progress of {} searches : {}", searches,
+                pgHandler.cause().getMessage());
+            promise.fail(pgHandler.cause());
+          }
+        });
+    return promise.future();
+  }
+
+  /**
+   * Stops writing progress, progress not written yet is dropped.
+   */
+  public void close() {
+    vertx.cancelTimer(timerId);
+    pending.clear();
+  }
+}
@@ -7,6 +7,7 @@ import io.vertx.codegen.annotations.VertxGen;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.json.JsonObject;
 
 /**
@@ -33,12 +34,13 @@ public interface AsyncService {
    * @param requestID which is a String
    * @param sub which is a String
    * @param scrollJson which is a JsonObject
-   * @param handler which is a Request handler
+   * @param handler which is a Request handler, called once the search is complete or failed
    * @return AsyncService which is a service
    */
 
   @Fluent
-  AsyncService asyncSearch(String requestID, String sub, String searchId, JsonObject query);
+  AsyncService asyncSearch(String requestID, String sub, String searchId, JsonObject query,
+      Handler<AsyncResult<JsonObject>> handler);
 
   /**
    * The asyncStatus checks on the status of the corresponding async search
@@ -60,4 +62,13 @@ public interface AsyncService {
   static AsyncService createProxy(Vertx vertx, String address) {
     return new AsyncServiceVertxEBProxy(vertx, address);
   }
+
+  /**
+   * @param options delivery options of the proxy, timeout of an async search reply is to allow
+   *        for the whole search
+   */
+  @GenIgnore
+  static AsyncService createProxy(Vertx vertx, String address, DeliveryOptions options) {
+    return new AsyncServiceVertxEBProxy(vertx, address, options);
+  }
 }
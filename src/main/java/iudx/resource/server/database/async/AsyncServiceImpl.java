@@ -2,21 +2,36 @@ package iudx.resource.server.database.async;
 
 import static iudx.resource.server.apiserver.util.Constants.*;
 import static iudx.resource.server.apiserver.util.Constants.ID;
+import static iudx.resource.server.common.Constants.ASYNC_QUERY_EX;
+import static iudx.resource.server.common.Constants.ASYNC_SEARCH_DONE_ADDRESS;
+import static iudx.resource.server.common.Constants.BROKER_SERVICE_ADDRESS;
 import static iudx.resource.server.common.Constants.METERING_SERVICE_ADDRESS;
 import static iudx.resource.server.database.archives.Constants.*;
+import static iudx.resource.server.database.async.util.Constants.CHECKPOINT;
+import static iudx.resource.server.database.async.util.Constants.CHECKPOINT_EXPORT;
+import static iudx.resource.server.database.async.util.Constants.CHECKPOINT_PARTS;
+import static iudx.resource.server.database.async.util.Constants.CHECKPOINT_UPLOAD_ID;
+import static iudx.resource.server.database.async.util.Constants.DEFAULT_JOB_LEASE_MINUTES;
 import static iudx.resource.server.database.async.util.Constants.FILE_DOWNLOAD_URL;
 import static iudx.resource.server.database.async.util.Constants.OBJECT_ID;
+import static iudx.resource.server.database.async.util.Constants.PROGRESS_FLUSH_INTERVAL_MILLIS;
 import static iudx.resource.server.database.async.util.Constants.S3_URL;
 import static iudx.resource.server.database.async.util.Constants.STATUS;
+import static iudx.resource.server.database.async.util.Constants.UPLOAD_PART_SIZE;
 import static iudx.resource.server.database.async.util.Constants.USER_ID;
+import static iudx.resource.server.database.postgres.Constants.CLAIM_S3_SEARCH_SQL;
+import static iudx.resource.server.database.postgres.Constants.RELEASE_STALE_S3_SEARCHES_SQL;
+import static iudx.resource.server.database.postgres.Constants.RENEW_S3_SEARCH_LEASE_SQL;
 import static iudx.resource.server.database.postgres.Constants.SELECT_S3_SEARCH_SQL;
 import static iudx.resource.server.database.postgres.Constants.SELECT_S3_STATUS_SQL;
+import static iudx.resource.server.database.postgres.Constants.UPDATE_S3_CHECKPOINT_SQL;
 import static iudx.resource.server.database.postgres.Constants.UPDATE_S3_URL_SQL;
 import static iudx.resource.server.database.postgres.Constants.UPDATE_STATUS_SQL;
 import static iudx.resource.server.metering.util.Constants.EPOCH_TIME;
 import static iudx.resource.server.metering.util.Constants.ISO_TIME;
 
 import java.io.File;
+import java.io.OutputStream;
 import java.net.URL;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -29,6 +44,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import iudx.resource.server.apiserver.util.Constants;
 import iudx.resource.server.metering.MeteringService;
@@ -44,12 +61,17 @@ import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import iudx.resource.server.common.ResponseUrn;
 import iudx.resource.server.database.archives.ResponseBuilder;
+import iudx.resource.server.database.async.util.MultipartUpload;
+import iudx.resource.server.database.async.util.ObjectStore;
 import iudx.resource.server.database.async.util.QueryProgress;
 import iudx.resource.server.database.async.util.S3FileOpsHelper;
 import iudx.resource.server.database.async.util.Util;
 import iudx.resource.server.database.elastic.ElasticClient;
+import iudx.resource.server.database.elastic.ExportFormat;
+import iudx.resource.server.database.elastic.ExportSink;
 import iudx.resource.server.database.elastic.QueryDecoder;
 import iudx.resource.server.database.postgres.PostgresService;
+import iudx.resource.server.databroker.DataBrokerService;
 
 public class AsyncServiceImpl implements AsyncService {
 
@@ -61,21 +83,49 @@ public class AsyncServiceImpl implements AsyncService {
   private String filePath;
   private final PostgresService pgService;
   private final S3FileOpsHelper s3FileOpsHelper;
+  private final ObjectStore objectStore;
+  private final boolean streamingUpload;
   private final Util util;
   private final Vertx vertx;
   private final MeteringService meteringService;
+  private final DataBrokerService dataBrokerService;
+  private final AsyncProgressWriter progressWriter;
+  private final int jobLeaseMinutes;
 
 
   public AsyncServiceImpl(Vertx vertx, ElasticClient client, PostgresService pgService,
       S3FileOpsHelper s3FileOpsHelper, String timeLimit, String filePath) {
+    this(vertx, client, pgService, s3FileOpsHelper, s3FileOpsHelper, false, timeLimit, filePath,
+        DEFAULT_JOB_LEASE_MINUTES);
+  }
+
+  /**
+   * AsyncServiceImpl streaming search results into an object store, checkpointing exports so they
+   * can be resumed by another instance.
+   *
+   * @param objectStore store download urls are generated by
+   * @param streamingUpload whether results are uploaded to objectStore while they are searched,
+   *        results are written to a file under filePath and uploaded to S3 afterwards otherwise
+   * @param jobLeaseMinutes minutes a search in progress is held by an instance without renewing
+   *        it, searches held longer are submitted again, see {@link #recoverStaleSearches(int)}
+   */
+  public AsyncServiceImpl(Vertx vertx, ElasticClient client, PostgresService pgService,
+      S3FileOpsHelper s3FileOpsHelper, ObjectStore objectStore, boolean streamingUpload,
+      String timeLimit, String filePath, int jobLeaseMinutes) {
     this.vertx = vertx;
     this.client = client;
     this.pgService = pgService;
     this.s3FileOpsHelper = s3FileOpsHelper;
+    this.objectStore = objectStore;
+    this.streamingUpload = streamingUpload;
     this.timeLimit = timeLimit;
     this.filePath = filePath;
+    this.jobLeaseMinutes = jobLeaseMinutes;
     this.util = new Util(pgService);
+    this.progressWriter =
+        new AsyncProgressWriter(vertx, pgService, PROGRESS_FLUSH_INTERVAL_MILLIS);
     this.meteringService = MeteringService.createProxy(vertx, METERING_SERVICE_ADDRESS);
+    this.dataBrokerService = DataBrokerService.createProxy(vertx, BROKER_SERVICE_ADDRESS);
   }
 
   @Override
@@ -126,25 +176,52 @@ public class AsyncServiceImpl implements AsyncService {
   }
 
   @Override
-  public AsyncService asyncSearch(String requestId, String sub, String searchId, JsonObject query) {
+  public AsyncService asyncSearch(String requestId, String sub, String searchId, JsonObject query,
+      Handler<AsyncResult<JsonObject>> handler) {
     String  id = query.getJsonArray(ID).getString(0);
+    Promise<Void> promise = Promise.promise();
     getRecord4RequestId(requestId)
-        .onSuccess(handler -> {
-          process4ExistingRequestId(id,requestId, sub, searchId, handler);
+        .onSuccess(record -> {
+          process4ExistingRequestId(id,requestId, sub, searchId, record)
+              .onComplete(done -> publishSearchDone(searchId))
+              .onComplete(promise);
         })
-        .onFailure(handler -> {
-          updateQueryExecutionStatus(searchId, QueryProgress.IN_PROGRESS)
-              .onSuccess(statusHandler -> {
-                process4NewRequestId(searchId,sub, query);
+        .onFailure(recordFailure -> {
+          claimSearch(searchId)
+              .onSuccess(claim -> {
+                if (claim == null) {
+                  LOGGER.info("search {} is complete or in progress elsewhere", searchId);
+                  promise.complete();
+                  return;
+                }
+                process4NewRequestId(searchId, sub, query, claim.getJsonObject(CHECKPOINT))
+                    .onComplete(done -> publishSearchDone(searchId))
+                    .onComplete(promise);
               })
               .onFailure(statusHandler -> {
-                LOGGER.error("");
+                LOGGER.error("failed to start search for searchId : {}", searchId);
+                promise.fail(statusHandler);
       });
     });
 
+    promise.future().onComplete(searchHandler -> {
+      if (searchHandler.succeeded()) {
+        handler.handle(Future.succeededFuture(new JsonObject().put("searchId", searchId)));
+      } else {
+        handler.handle(Future.failedFuture(searchHandler.cause()));
+      }
+    });
     return this;
   }
 
+  /**
+   * Publishes that a search run by this instance is complete or failed, to listeners waiting for
+   * it after their call to {@link #asyncSearch} timed out.
+   */
+  private void publishSearchDone(String searchId) {
+    vertx.eventBus().publish(ASYNC_SEARCH_DONE_ADDRESS, new JsonObject().put("searchId", searchId));
+  }
+
   private Future<Void> updateQueryExecutionStatus(String searchId, QueryProgress status) {
     Promise<Void> promise = Promise.promise();
     StringBuilder querySb = new StringBuilder(
@@ -161,6 +238,88 @@ public class AsyncServiceImpl implements AsyncService {
     return promise.future();
   }
 
+  /**
+   * Marks a submitted search, or one whose lease expired, as in progress by this instance.
+   *
+   * @return record of the search with the checkpoint to resume it from, null if search is complete
+   *         or in progress elsewhere
+   */
+  private Future<JsonObject> claimSearch(String searchId) {
+    Promise<JsonObject> promise = Promise.promise();
+    String query = CLAIM_S3_SEARCH_SQL.replace("$1", searchId)
+        .replace("$2", String.valueOf(jobLeaseMinutes));
+
+    pgService.executeQuery(query, pgHandler -> {
+      if (pgHandler.succeeded()) {
+        JsonArray results = pgHandler.result().getJsonArray("result");
+        promise.complete(results.isEmpty() ? null : results.getJsonObject(0));
+      } else {
+        promise.fail("failed to update query status in database");
+      }
+    });
+    return promise.future();
+  }
+
+  /**
+   * Submits searches whose lease expired again, i.e. searches left in progress by an instance that
+   * went down. Searches are published to the async query queue, so they are scheduled along with
+   * other queries, and resumed from their last checkpoint, or started again if they have none, by
+   * whichever instance claims them.
+   *
+   * @param limit maximum number of searches submitted again
+   * @return number of searches submitted again
+   */
+  public Future<Integer> recoverStaleSearches(int limit) {
+    Promise<Integer> promise = Promise.promise();
+    String query = RELEASE_STALE_S3_SEARCHES_SQL.replace("$1", String.valueOf(jobLeaseMinutes))
+        .replace("$2", String.valueOf(limit));
+
+    pgService.executeQuery(query, pgHandler -> {
+      if (pgHandler.failed()) {
+        LOGGER.error("failed to sweep for stale searches : {}", pgHandler.cause().getMessage());
+        promise.fail(pgHandler.cause());
+        return;
+      }
+      JsonArray results = pgHandler.result().getJsonArray("result");
+      for (int i = 0; i < results.size(); i++) {
+        JsonObject record = results.getJsonObject(i);
+        String searchId = record.getString("search_id");
+        JsonObject query4Search = record.getJsonObject("query");
+        if (query4Search == null) {
+          LOGGER.error("search {} has no query to resume with", searchId);
+          updateQueryExecutionStatus(searchId, QueryProgress.ERROR);
+          continue;
+        }
+        LOGGER.info("recovering stale search {}", searchId);
+        JsonObject message = new JsonObject()
+            .put("searchId", searchId)
+            .put("requestId", record.getString("request_id"))
+            .put("user", record.getString(USER_ID))
+            .put("query", query4Search);
+        dataBrokerService.publishMessage(message, ASYNC_QUERY_EX, "#", publishHandler -> {
+          if (publishHandler.failed()) {
+            LOGGER.error("recovery of search {} failed : {}", searchId,
+                publishHandler.cause().getMessage());
+            updateQueryExecutionStatus(searchId, QueryProgress.ERROR);
+          }
+        });
+      }
+      promise.complete(results.size());
+    });
+    return promise.future();
+  }
+
+  /**
+   * Renews lease of a search in progress periodically, till the returned timer is cancelled.
+   */
+  private long renewLease(String searchId) {
+    long interval = Math.max(1000L, TimeUnit.MINUTES.toMillis(jobLeaseMinutes) / 4);
+    return vertx.setPeriodic(interval, timer -> executePGQuery(
+        RENEW_S3_SEARCH_LEASE_SQL.replace("$1", searchId))
+            .onFailure(renewFailure -> LOGGER.warn("failed to renew lease of search {} : {}",
+                searchId, renewFailure.getMessage())));
+  }
+
   /**
    * This method will fetch results from database for a provided requestId, and status="COMPLETE".
    * This method returns a failed future if no record exist, else it will return a successful
@@ -186,6 +345,8 @@ public class AsyncServiceImpl implements AsyncService {
 //          LOGGER.debug("record : " + results);
           promise.complete(results);
         }
+      } else {
+        promise.fail(pgHandler.cause());
       }
     });
     return promise.future();
@@ -205,13 +366,37 @@ public class AsyncServiceImpl implements AsyncService {
     return promise.future();
   }
 
-  void process4ExistingRequestId(String id,String requestId, String sub, String searchId, JsonArray record) {
+  /**
+   * Saves checkpoint of a search in progress, checkpoint holds values of the search response, so
+   * it is bound as a parameter.
+   */
+  Future<Void> saveCheckpoint(String searchId, JsonObject checkpoint) {
+    Promise<Void> promise = Promise.promise();
+    // parameters are bound in insertion order
+    JsonObject params = new JsonObject()
+        .put("checkpoint", checkpoint.encode())
+        .put("searchId", searchId);
+
+    pgService.executePreparedQuery(UPDATE_S3_CHECKPOINT_SQL, params, handler -> {
+      if (handler.succeeded()) {
+        promise.complete();
+      } else {
+        promise.fail("failed to save checkpoint " + handler.cause());
+      }
+    });
+    return promise.future();
+  }
+
+  Future<Void> process4ExistingRequestId(String id,String requestId, String sub, String searchId, JsonArray record) {
     String object_id = record.getJsonObject(0).getString(OBJECT_ID);
     String expiry = LocalDateTime.now().plusDays(1).toString();
     long fileSize = record.getJsonObject(0).getLong(SIZE_KEY);
 
     long urlExpiry = ZonedDateTime.now().toEpochSecond() * 1000 + TimeUnit.DAYS.toMillis(1);
-    URL s3Url = s3FileOpsHelper.generatePreSignedUrl(urlExpiry, object_id);
+    URL s3Url = objectStore.generatePreSignedUrl(urlExpiry, object_id);
+    if (s3Url == null) {
+      return Future.failedFuture("failed to generate url for object " + object_id);
+    }
 
     StringBuilder queryStringBuilder = new StringBuilder(UPDATE_S3_URL_SQL
             .replace("$1", s3Url.toString())
@@ -222,7 +407,7 @@ public class AsyncServiceImpl implements AsyncService {
             .replace("$6", String.valueOf(fileSize))
             .replace("$7", searchId));
 
-    executePGQuery(queryStringBuilder.toString())
+    return executePGQuery(queryStringBuilder.toString())
         .onSuccess(handler -> {
           LOGGER.info("Query completed with existing requestId & objectId");
           Future.future(fu -> updateAuditTable(id, sub, fileSize));
@@ -232,14 +417,27 @@ public class AsyncServiceImpl implements AsyncService {
         });
   }
 
-  private void process4NewRequestId(String searchId,String userId,JsonObject query) {
-    File file = new File(filePath + "/" + searchId + ".json");
+  /**
+   * @param checkpoint checkpoint to resume the search from, null to start it
+   */
+  private Future<Void> process4NewRequestId(String searchId, String userId, JsonObject query,
+      JsonObject checkpoint) {
+    long leaseTimer = renewLease(searchId);
+    Future<Void> search = streamingUpload
+        ? process4NewRequestIdResumable(searchId, userId, query, checkpoint)
+        : process4NewRequestId(searchId, userId, query);
+    return search.onComplete(searchHandler -> vertx.cancelTimer(leaseTimer));
+  }
+
+  private Future<Void> process4NewRequestId(String searchId,String userId,JsonObject query) {
+    Promise<Void> promise = Promise.promise();
+    File file = new File(filePath + "/" + searchId + exportFormat(query).getExtension());
     String objectId = UUID.randomUUID().toString();
     String  id = query.getJsonArray(ID).getString(0);
 
 
 
-    ProgressListener progressListener = new AsyncFileScrollProgressListener(searchId, pgService);
+    ProgressListener progressListener = progressWriter.listener(searchId);
 
     scrollQuery(file, query, searchId, progressListener, scrollHandler -> {
       if (scrollHandler.succeeded()) {
@@ -272,8 +470,10 @@ public class AsyncServiceImpl implements AsyncService {
                         "File deletion operation failed for fileName : {} try to delete manually to reclaim disk-space",
                         file.getName());
               }
+                  promise.complete();
             }).onFailure(recordInsertFailure -> {
               LOGGER.error("Postgres insert failure[COMPLETE status] {}", recordInsertFailure);
+              promise.fail(recordInsertFailure);
             });
 
           } else {
@@ -282,6 +482,7 @@ public class AsyncServiceImpl implements AsyncService {
                 .replace("$1", QueryProgress.ERROR.toString())
                   .replace("$2", searchId));
             Future.future(fu -> util.writeToDB(updateFailQuery));
+            promise.fail(s3UploadHandler.cause());
           }
         });
       } else {
@@ -290,12 +491,173 @@ public class AsyncServiceImpl implements AsyncService {
             .replace("$1", QueryProgress.ERROR.toString())
               .replace("$2", searchId));
         Future.future(fu -> util.writeToDB(updateFailQuery));
+        promise.fail(scrollHandler.cause());
+      }
+    });
+    return promise.future();
+  }
+
+  /**
+   * Exports results of a new search into a multipart upload of the object store, no temporary file
+   * is written. A checkpoint is saved with every part uploaded, holding the upload and the position
+   * of the export, so that the search can be resumed from it after a restart. Object is only
+   * completed once the export succeeded, it is aborted otherwise.
+   *
+   * @param checkpoint checkpoint to resume from, null to start the export
+   */
+  private Future<Void> process4NewRequestIdResumable(String searchId, String userId,
+      JsonObject query, JsonObject checkpoint) {
+    Promise<Void> promise = Promise.promise();
+    String objectId = checkpoint != null ? checkpoint.getString(OBJECT_ID)
+        : UUID.randomUUID().toString();
+    String id = query.getJsonArray(ID).getString(0);
+    ExportFormat format = exportFormat(query);
+
+    vertx.<MultipartUpload>executeBlocking(uploadPromise -> {
+      try {
+        uploadPromise.complete(checkpoint == null
+            ? objectStore.startUpload(objectId, searchId + format.getExtension())
+            : objectStore.resumeUpload(objectId, checkpoint.getString(CHECKPOINT_UPLOAD_ID),
+                checkpoint.getJsonArray(CHECKPOINT_PARTS).stream().map(String::valueOf)
+                    .collect(Collectors.toList())));
+      } catch (Exception ex) {
+        uploadPromise.fail(ex);
       }
+    }, false).onComplete(uploadHandler -> {
+      if (uploadHandler.failed() && checkpoint != null) {
+        LOGGER.warn("unable to resume search {}, starting over : {}", searchId,
+            uploadHandler.cause().getMessage());
+        process4NewRequestIdResumable(searchId, userId, query, null).onComplete(promise);
+        return;
+      }
+      if (uploadHandler.failed()) {
+        LOGGER.error("Object upload failed for searchId : {}, {}", searchId,
+            uploadHandler.cause().getMessage());
+        updateQueryExecutionStatus(searchId, QueryProgress.ERROR);
+        promise.fail(uploadHandler.cause());
+        return;
+      }
+      MultipartUpload upload = uploadHandler.result();
+      AtomicLong size = new AtomicLong(checkpoint != null ? checkpoint.getLong(SIZE_KEY, 0L) : 0L);
+      ExportSink sink = (segment, exportCheckpoint) -> vertx.<Void>executeBlocking(partPromise -> {
+        try {
+          upload.uploadPart(segment, segment.length);
+          size.addAndGet(segment.length);
+          partPromise.complete();
+        } catch (Exception ex) {
+          partPromise.fail(ex);
+        }
+      }, false).compose(uploaded -> exportCheckpoint == null ? Future.succeededFuture()
+          : saveCheckpoint(searchId, new JsonObject()
+              .put(OBJECT_ID, objectId)
+              .put(CHECKPOINT_UPLOAD_ID, upload.getUploadId())
+              .put(CHECKPOINT_PARTS, new JsonArray(upload.getParts()))
+              .put(SIZE_KEY, size.get())
+              .put(CHECKPOINT_EXPORT, exportCheckpoint)));
+
+      ProgressListener progressListener = progressWriter.listener(searchId);
+      JsonObject exportCheckpoint =
+          checkpoint != null ? checkpoint.getJsonObject(CHECKPOINT_EXPORT) : null;
+
+      scrollQuery(query, scrollHandler -> {
+        if (scrollHandler.failed() && checkpoint != null
+            && EXPORT_CHECKPOINT_EXPIRED.equals(scrollHandler.cause().getMessage())) {
+          LOGGER.warn("checkpoint of search {} expired, starting over", searchId);
+          vertx.executeBlocking(abortPromise -> {
+            upload.abort();
+            abortPromise.complete();
+          }, false, abortHandler -> process4NewRequestIdResumable(searchId, userId, query, null)
+              .onComplete(promise));
+          return;
+        }
+        if (scrollHandler.failed()) {
+          LOGGER.error("Export failed for searchId : " + searchId);
+          vertx.executeBlocking(abortPromise -> {
+            upload.abort();
+            abortPromise.complete();
+          }, false, abortHandler -> updateQueryExecutionStatus(searchId, QueryProgress.ERROR));
+          promise.fail(scrollHandler.cause());
+          return;
+        }
+        vertx.<Void>executeBlocking(completePromise -> {
+          try {
+            upload.complete();
+            completePromise.complete();
+          } catch (Exception ex) {
+            upload.abort();
+            completePromise.fail(ex);
+          }
+        }, false, completeHandler -> {
+          if (completeHandler.failed()) {
+            LOGGER.error("Object upload failed for searchId : {}, {}", searchId,
+                completeHandler.cause().getMessage());
+            updateQueryExecutionStatus(searchId, QueryProgress.ERROR);
+            promise.fail(completeHandler.cause());
+            return;
+          }
+          long fileSize = size.get();
+          long urlExpiry = ZonedDateTime.now().toEpochSecond() * 1000 + TimeUnit.DAYS.toMillis(1);
+          URL url = objectStore.generatePreSignedUrl(urlExpiry, objectId);
+          if (url == null) {
+            LOGGER.error("failed to generate url for object {} of searchId : {}", objectId,
+                searchId);
+            updateQueryExecutionStatus(searchId, QueryProgress.ERROR);
+            promise.fail("failed to generate url for object " + objectId);
+            return;
+          }
+          String expiry = LocalDateTime.now().plusDays(1).toString();
+          progressListener.finish();
+          StringBuilder updateQuery = new StringBuilder(UPDATE_S3_URL_SQL
+              .replace("$1", url.toString())
+              .replace("$2", expiry)
+              .replace("$3", QueryProgress.COMPLETE.toString())
+              .replace("$4", objectId)
+              .replace("$5", String.valueOf(100.0))
+              .replace("$6", String.valueOf(fileSize))
+              .replace("$7", searchId));
+
+          executePGQuery(updateQuery.toString())
+              .onSuccess(recordUpdateHandler -> {
+                LOGGER.debug("updated status in postgres");
+                Future.future(fu -> updateAuditTable(id, userId, fileSize));
+              })
+              .onFailure(recordInsertFailure -> {
+                LOGGER.error("Postgres insert failure[COMPLETE status] {}", recordInsertFailure);
+              })
+              .onComplete(promise);
+        });
+      }, (index, esQuery, source) -> client.asyncExport(index, esQuery, source, searchId, format,
+          UPLOAD_PART_SIZE, exportCheckpoint, sink, progressListener));
     });
+    return promise.future();
   }
 
   public AsyncService scrollQuery(File file, JsonObject request, String searchId,
       ProgressListener progressListener, Handler<AsyncResult<JsonObject>> handler) {
+    return scrollQuery(request, handler, (index, query, source) -> client.asyncScroll(file,
+        index, query, source, searchId, exportFormat(request), progressListener));
+  }
+
+  public AsyncService scrollQuery(OutputStream out, JsonObject request, String searchId,
+      ProgressListener progressListener, Handler<AsyncResult<JsonObject>> handler) {
+    return scrollQuery(request, handler, (index, query, source) -> client.asyncScroll(out,
+        index, query, source, searchId, exportFormat(request), progressListener));
+  }
+
+  /**
+   * @return format requested for the export, json when not requested
+   */
+  private ExportFormat exportFormat(JsonObject request) {
+    try {
+      return ExportFormat.fromValue(request.getString(IUDXQUERY_FORMAT));
+    } catch (IllegalArgumentException ex) {
+      LOGGER.warn("{}, exporting as json", ex.getMessage());
+      return ExportFormat.JSON;
+    }
+  }
+
+  private AsyncService scrollQuery(JsonObject request, Handler<AsyncResult<JsonObject>> handler,
+      ScrollTarget target) {
 
     Query query;
     request.put("search", true);
@@ -336,8 +698,7 @@ public class AsyncServiceImpl implements AsyncService {
       }
     }
 
-    Future<JsonObject> asyncFuture =
-        client.asyncScroll(file, searchIndex, query, sourceFilters, searchId, progressListener);
+    Future<JsonObject> asyncFuture = target.scroll(searchIndex, query, sourceFilters);
     asyncFuture.onComplete(scrollHandler -> {
       if (scrollHandler.succeeded()) {
         handler.handle(Future.succeededFuture());
@@ -376,4 +737,8 @@ public class AsyncServiceImpl implements AsyncService {
     return promise.future();
   }
 
+  @FunctionalInterface
+  private interface ScrollTarget {
+    Future<JsonObject> scroll(String index, Query query, String[] sourceFilters);
+  }
 }
@@ -2,11 +2,32 @@ package iudx.resource.server.database.async;
 
 import static iudx.resource.server.common.Constants.ASYNC_SERVICE_ADDRESS;
 import static iudx.resource.server.common.Constants.PG_SERVICE_ADDRESS;
+import static iudx.resource.server.database.archives.Constants.DEFAULT_EXPORT_SLICES;
+import static iudx.resource.server.database.archives.Constants.DEFAULT_EXPORT_WRITER_THREADS;
+import static iudx.resource.server.database.async.util.Constants.DEFAULT_JOB_LEASE_MINUTES;
+import static iudx.resource.server.database.async.util.Constants.DEFAULT_RECOVERY_BATCH_SIZE;
+import static iudx.resource.server.database.async.util.Constants.JOB_LEASE_MINUTES;
+import static iudx.resource.server.database.async.util.Constants.LOCAL_OBJECT_STORE;
+import static iudx.resource.server.database.async.util.Constants.LOCAL_OBJECT_STORE_PATH;
+import static iudx.resource.server.database.async.util.Constants.LOCAL_OBJECT_STORE_URL;
+import static iudx.resource.server.database.async.util.Constants.OBJECT_STORE;
+import static iudx.resource.server.database.async.util.Constants.OBJECT_STORE_SECRET;
+import static iudx.resource.server.database.async.util.Constants.PRESIGNED_URL_BUCKET_MILLIS;
+import static iudx.resource.server.database.async.util.Constants.PRESIGNED_URL_CACHE_SIZE;
+import static iudx.resource.server.database.async.util.Constants.RECOVERY_BATCH_SIZE;
+import static iudx.resource.server.database.async.util.Constants.STREAMING_UPLOAD;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import com.amazonaws.regions.Regions;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.json.JsonObject;
 import io.vertx.serviceproxy.ServiceBinder;
+import iudx.resource.server.database.async.util.CachingObjectStore;
+import iudx.resource.server.database.async.util.LocalObjectStore;
+import iudx.resource.server.database.async.util.ObjectStore;
 import iudx.resource.server.database.async.util.S3FileOpsHelper;
 import iudx.resource.server.database.elastic.ElasticClient;
 import iudx.resource.server.database.postgres.PostgresService;
@@ -24,10 +45,13 @@ import iudx.resource.server.database.postgres.PostgresService;
  */
 public class AsyncVerticle extends AbstractVerticle {
 
+  private static final AtomicInteger WRITER_COUNT = new AtomicInteger();
+
   private AsyncService asyncService;
   private ElasticClient client;
   private PostgresService pgService;
   private S3FileOpsHelper fileOpsHelper;
+  private ObjectStore objectStore;
   private Regions clientRegion;
   private String databaseIP;
   private String user;
@@ -38,6 +62,8 @@ public class AsyncVerticle extends AbstractVerticle {
   private String bucketName;
   private ServiceBinder binder;
   private MessageConsumer<JsonObject> consumer;
+  private long recoveryTimer;
+  private ExecutorService exportWriterPool;
 
   /**
    * This method is used to start the Verticle. It deploys a verticle in a cluster, registers the
@@ -59,16 +85,50 @@ public class AsyncVerticle extends AbstractVerticle {
     bucketName = config().getString("bucketName");
 
     pgService = PostgresService.createProxy(vertx, PG_SERVICE_ADDRESS);
-    client = new ElasticClient(databaseIP, databasePort, user, password, filePath, pgService);
+    int exportSlices = config().getInteger("exportSlices", DEFAULT_EXPORT_SLICES);
+    exportWriterPool = Executors.newFixedThreadPool(
+        config().getInteger("exportWriterThreads", DEFAULT_EXPORT_WRITER_THREADS), runnable -> {
+          Thread thread =
+              new Thread(runnable, "es-export-writer-" + WRITER_COUNT.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    client = new ElasticClient(databaseIP, databasePort, user, password, exportSlices,
+        exportWriterPool);
     fileOpsHelper = new S3FileOpsHelper(clientRegion, bucketName);
     binder = new ServiceBinder(vertx);
-    asyncService = new AsyncServiceImpl(vertx,client, pgService, fileOpsHelper, timeLimit, filePath);
+    int jobLeaseMinutes = config().getInteger(JOB_LEASE_MINUTES, DEFAULT_JOB_LEASE_MINUTES);
+    // results are streamed into the object store by default, so searches are checkpointed and
+    // can be resumed, a search writing a local file first is started over once recovered
+    boolean streamingUpload = config().getBoolean(STREAMING_UPLOAD, true);
+    ObjectStore store = fileOpsHelper;
+    if (LOCAL_OBJECT_STORE.equals(config().getString(OBJECT_STORE))) {
+      store = new LocalObjectStore(config().getString(LOCAL_OBJECT_STORE_PATH),
+          config().getString(LOCAL_OBJECT_STORE_URL), config().getString(OBJECT_STORE_SECRET));
+      // files are only uploaded to S3, results go to the local store as they are searched
+      streamingUpload = true;
+    }
+    objectStore = new CachingObjectStore(store, PRESIGNED_URL_BUCKET_MILLIS,
+        PRESIGNED_URL_CACHE_SIZE);
+    AsyncServiceImpl asyncServiceImpl = new AsyncServiceImpl(vertx, client, pgService,
+        fileOpsHelper, objectStore, streamingUpload, timeLimit, filePath, jobLeaseMinutes);
+    asyncService = asyncServiceImpl;
 
     consumer = binder.setAddress(ASYNC_SERVICE_ADDRESS).register(AsyncService.class, asyncService);
+
+    // searches left in progress by instances that went down are resumed once their lease expired
+    int recoveryBatchSize = config().getInteger(RECOVERY_BATCH_SIZE, DEFAULT_RECOVERY_BATCH_SIZE);
+    asyncServiceImpl.recoverStaleSearches(recoveryBatchSize);
+    recoveryTimer = vertx.setPeriodic(TimeUnit.MINUTES.toMillis(jobLeaseMinutes),
+        timer -> asyncServiceImpl.recoverStaleSearches(recoveryBatchSize));
   }
 
   @Override
   public void stop() {
+    vertx.cancelTimer(recoveryTimer);
     binder.unregister(consumer);
+    objectStore.close();
+    fileOpsHelper.close();
+    exportWriterPool.shutdown();
   }
 }
@@ -0,0 +1,98 @@
+package iudx.resource.server.database.async.util;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * {@link ObjectStore} caching pre-signed urls of another store. Requested expiries are rounded up
+ * to the end of their bucket, so repeated requests for an object within a bucket get the same url
+ * and a url is valid at most a bucket longer than requested.
+ */
+public class CachingObjectStore implements ObjectStore {
+
+  private final ObjectStore delegate;
+  private final long bucketMillis;
+  private final Cache<UrlKey, URL> urls;
+
+  /**
+   * @param bucketMillis length of an expiry bucket, urls are cached as long
+   * @param maximumSize maximum number of urls cached
+   */
+  public CachingObjectStore(ObjectStore delegate, long bucketMillis, long maximumSize) {
+    this.delegate = delegate;
+    this.bucketMillis = bucketMillis;
+    this.urls = CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(bucketMillis, TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  @Override
+  public MultipartUpload startUpload(String objectKey, String fileName) throws IOException {
+    return delegate.startUpload(objectKey, fileName);
+  }
+
+  @Override
+  public MultipartUpload resumeUpload(String objectKey, String uploadId, List<String> parts)
+      throws IOException {
+    return delegate.resumeUpload(objectKey, uploadId, parts);
+  }
+
+  /**
+   * @return url of the object expiring at the end of the bucket of expiryTimeMillis, null if store
+   *         failed to generate one
+   */
+  @Override
+  public URL generatePreSignedUrl(long expiryTimeMillis, String objectKey) {
+    long bucket = expiryTimeMillis / bucketMillis;
+    try {
+      return urls.get(new UrlKey(objectKey, bucket), () -> {
+        URL url = delegate.generatePreSignedUrl((bucket + 1) * bucketMillis, objectKey);
+        if (url == null) {
+          throw new IOException("no url generated for " + objectKey);
+        }
+        return url;
+      });
+    } catch (ExecutionException | UncheckedExecutionException ex) {
+      return null;
+    }
+  }
+
+  @Override
+  public void close() {
+    urls.invalidateAll();
+    delegate.close();
+  }
+
+  private static final class UrlKey {
+
+    private final String objectKey;
+    private final long bucket;
+
+    UrlKey(String objectKey, long bucket) {
+      this.objectKey = objectKey;
+      this.bucket = bucket;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof UrlKey)) {
+        return false;
+      }
+      UrlKey key = (UrlKey) other;
+      return bucket == key.bucket && objectKey.equals(key.objectKey);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(objectKey, bucket);
+    }
+  }
+}
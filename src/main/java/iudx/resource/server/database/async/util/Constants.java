@@ -10,4 +10,30 @@ public class Constants {
   public static final String FILE_DOWNLOAD_URL = "file-download-url";
   public static final String USER_ID = "user_id";
   public static final String STATUS = "status";
+
+  public static final String STREAMING_UPLOAD = "streamingUpload";
+  public static final String OBJECT_STORE = "objectStore";
+  public static final String LOCAL_OBJECT_STORE = "local";
+  public static final String LOCAL_OBJECT_STORE_PATH = "localObjectStorePath";
+  // objects of the local store are served at this url with links signed by the secret
+  public static final String LOCAL_OBJECT_STORE_URL = "localObjectStoreUrl";
+  public static final String OBJECT_STORE_SECRET = "objectStoreSecret";
+  // urls requested within the same bucket of expiry time are reused
+  public static final long PRESIGNED_URL_BUCKET_MILLIS = 60 * 60 * 1000L;
+  public static final long PRESIGNED_URL_CACHE_SIZE = 10000L;
+  // S3 requires every part but the last to be at least 5MB
+  public static final int UPLOAD_PART_SIZE = 8 * 1024 * 1024;
+
+  // progress of searches is written in batches at this interval
+  public static final long PROGRESS_FLUSH_INTERVAL_MILLIS = 5000L;
+
+  public static final String CHECKPOINT = "checkpoint";
+  public static final String CHECKPOINT_UPLOAD_ID = "uploadId";
+  public static final String CHECKPOINT_PARTS = "parts";
+  public static final String CHECKPOINT_EXPORT = "export";
+  // searches in progress not renewing their lease in time are taken over by another instance
+  public static final String JOB_LEASE_MINUTES = "asyncJobLeaseMinutes";
+  public static final int DEFAULT_JOB_LEASE_MINUTES = 10;
+  public static final String RECOVERY_BATCH_SIZE = "asyncRecoveryBatchSize";
+  public static final int DEFAULT_RECOVERY_BATCH_SIZE = 2;
 }
@@ -0,0 +1,212 @@
+package iudx.resource.server.database.async.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * {@link ObjectStore} keeping objects as files of a local directory, for on-premise deployments
+ * without S3 and for development and tests. Parts are appended to a temporary file which is moved
+ * to the object key on completion.
+ *
+ * <p>
+ * Objects are downloaded over HTTP with links signed by a secret shared with the server serving
+ * the directory, see {@link #resolveSignedLink(String, String, String)}. Without a base url links
+ * are plain file urls.
+ * </p>
+ */
+public class LocalObjectStore implements ObjectStore {
+
+  private static final Logger LOGGER = LogManager.getLogger(LocalObjectStore.class);
+
+  private static final String UPLOAD_SUFFIX = ".upload";
+  private static final String SIGNATURE_ALGORITHM = "HmacSHA256";
+
+  private final Path directory;
+  private final String baseUrl;
+  private final SecretKeySpec signingKey;
+
+  public LocalObjectStore(String directory) {
+    this(directory, null, null);
+  }
+
+  /**
+   * @param baseUrl url objects are served at, the object key is appended to it
+   * @param secret secret links are signed with
+   */
+  public LocalObjectStore(String directory, String baseUrl, String secret) {
+    this.directory = Path.of(directory);
+    this.baseUrl = baseUrl == null || baseUrl.isBlank() ? null : baseUrl;
+    this.signingKey = secret == null || secret.isBlank() ? null
+        : new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), SIGNATURE_ALGORITHM);
+  }
+
+  @Override
+  public MultipartUpload startUpload(String objectKey, String fileName) throws IOException {
+    Files.createDirectories(directory);
+    Path object = getPath(objectKey);
+    Path upload = object.resolveSibling(object.getFileName() + UPLOAD_SUFFIX);
+    FileChannel channel = FileChannel.open(upload, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    return new LocalUpload(objectKey, object, upload, channel, new ArrayList<>());
+  }
+
+  /**
+   * Resumes an upload by truncating its temporary file to the length of the parts kept, parts are
+   * their lengths.
+   */
+  @Override
+  public MultipartUpload resumeUpload(String objectKey, String uploadId, List<String> parts)
+      throws IOException {
+    Path object = getPath(objectKey);
+    Path upload = object.resolveSibling(object.getFileName() + UPLOAD_SUFFIX);
+    if (!upload.getFileName().toString().equals(uploadId) || !Files.exists(upload)) {
+      throw new IOException("no upload " + uploadId + " of " + objectKey);
+    }
+    long length = 0;
+    for (String part : parts) {
+      length += Long.parseLong(part);
+    }
+    FileChannel channel = FileChannel.open(upload, StandardOpenOption.WRITE);
+    if (channel.size() < length) {
+      channel.close();
+      throw new IOException("upload " + uploadId + " is missing parts");
+    }
+    channel.truncate(length);
+    channel.position(length);
+    return new LocalUpload(objectKey, object, upload, channel, new ArrayList<>(parts));
+  }
+
+  @Override
+  public URL generatePreSignedUrl(long expiryTimeMillis, String objectKey) {
+    try {
+      if (baseUrl == null || signingKey == null) {
+        return getPath(objectKey).toUri().toURL();
+      }
+      String expiry = String.valueOf(expiryTimeMillis);
+      return new URL(baseUrl + "/" + URLEncoder.encode(objectKey, StandardCharsets.UTF_8)
+          + "?expiry=" + expiry + "&signature=" + sign(objectKey, expiry));
+    } catch (MalformedURLException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  /**
+   * Checks a link generated by {@link #generatePreSignedUrl(long, String)}.
+   *
+   * @param objectKey key of the object linked to
+   * @param expiry expiry parameter of the link
+   * @param signature signature parameter of the link
+   * @return path of the object if link is signed with the secret of the store and has not expired,
+   *         null otherwise
+   */
+  public Path resolveSignedLink(String objectKey, String expiry, String signature) {
+    if (signingKey == null || objectKey == null || expiry == null || signature == null) {
+      return null;
+    }
+    byte[] expected = sign(objectKey, expiry).getBytes(StandardCharsets.UTF_8);
+    if (!MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.UTF_8))) {
+      return null;
+    }
+    try {
+      if (Long.parseLong(expiry) < System.currentTimeMillis()) {
+        return null;
+      }
+      return getPath(objectKey);
+    } catch (IllegalArgumentException ex) {
+      return null;
+    }
+  }
+
+  private String sign(String objectKey, String expiry) {
+    try {
+      Mac mac = Mac.getInstance(SIGNATURE_ALGORITHM);
+      mac.init(signingKey);
+      byte[] signature = mac.doFinal((objectKey + ":" + expiry).getBytes(StandardCharsets.UTF_8));
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    } catch (GeneralSecurityException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  private static final class LocalUpload implements MultipartUpload {
+
+    private final String objectKey;
+    private final Path object;
+    private final Path upload;
+    private final FileChannel channel;
+    private final List<String> parts;
+
+    LocalUpload(String objectKey, Path object, Path upload, FileChannel channel,
+        List<String> parts) {
+      this.objectKey = objectKey;
+      this.object = object;
+      this.upload = upload;
+      this.channel = channel;
+      this.parts = parts;
+    }
+
+    @Override
+    public String getUploadId() {
+      return upload.getFileName().toString();
+    }
+
+    @Override
+    public List<String> getParts() {
+      return new ArrayList<>(parts);
+    }
+
+    @Override
+    public void uploadPart(byte[] part, int length) throws IOException {
+      ByteBuffer buffer = ByteBuffer.wrap(part, 0, length);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      parts.add(String.valueOf(length));
+    }
+
+    @Override
+    public void complete() throws IOException {
+      channel.force(false);
+      channel.close();
+      Files.move(upload, object, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void abort() {
+      try {
+        channel.close();
+        Files.deleteIfExists(upload);
+      } catch (IOException ex) {
+        LOGGER.error("failed to discard upload of {}", objectKey);
+      }
+    }
+  }
+
+  private Path getPath(String objectKey) {
+    Path object = directory.resolve(objectKey).normalize();
+    if (!object.startsWith(directory.normalize())) {
+      throw new IllegalArgumentException("invalid object key : " + objectKey);
+    }
+    return object;
+  }
+}
@@ -0,0 +1,42 @@
+package iudx.resource.server.database.async.util;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * An object upload in progress, parts are uploaded in order and the object is visible only once
+ * the upload is completed.
+ */
+public interface MultipartUpload {
+
+  /**
+   * @return id of the upload, to resume it with {@link ObjectStore#resumeUpload}
+   */
+  String getUploadId();
+
+  /**
+   * @return store specific tokens of the parts uploaded so far, in order
+   */
+  List<String> getParts();
+
+  /**
+   * Uploads next part of the object, part is consumed before returning.
+   *
+   * @param part buffer holding part
+   * @param length number of bytes of buffer making up the part
+   * @throws IOException if part could not be uploaded
+   */
+  void uploadPart(byte[] part, int length) throws IOException;
+
+  /**
+   * Completes the upload making the object available.
+   *
+   * @throws IOException if upload could not be completed
+   */
+  void complete() throws IOException;
+
+  /**
+   * Aborts the upload discarding all parts uploaded.
+   */
+  void abort();
+}
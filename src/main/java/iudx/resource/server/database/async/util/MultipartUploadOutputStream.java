@@ -0,0 +1,129 @@
+package iudx.resource.server.database.async.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * OutputStream uploading everything written to it as an object in an {@link ObjectStore}. Bytes
+ * are collected in a part buffer of fixed size, every full buffer is uploaded as the next part of a
+ * multipart upload, so at most one part is held in memory.
+ *
+ * <p>
+ * Upload is started with the first part. Closing the stream does not make the object available,
+ * {@link #complete()} uploads the last part and completes the upload, {@link #abort()} discards it.
+ * </p>
+ */
+public class MultipartUploadOutputStream extends OutputStream {
+
+  private static final Logger LOGGER = LogManager.getLogger(MultipartUploadOutputStream.class);
+
+  private final ObjectStore objectStore;
+  private final String objectKey;
+  private final String fileName;
+  private final byte[] part;
+
+  private MultipartUpload upload;
+  private int count;
+  private long size;
+  private int parts;
+  private boolean closed;
+
+  /**
+   * @param partSize size of every part but the last, at least the minimum part size of the store
+   */
+  public MultipartUploadOutputStream(ObjectStore objectStore, String objectKey, String fileName,
+      int partSize) {
+    this.objectStore = objectStore;
+    this.objectKey = objectKey;
+    this.fileName = fileName;
+    this.part = new byte[partSize];
+  }
+
+  /**
+   * @return number of bytes uploaded
+   */
+  public long getSize() {
+    return size;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    ensureOpen();
+    part[count++] = (byte) b;
+    if (count == part.length) {
+      uploadPart();
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    ensureOpen();
+    while (len > 0) {
+      int copied = Math.min(len, part.length - count);
+      System.arraycopy(b, off, part, count, copied);
+      count += copied;
+      off += copied;
+      len -= copied;
+      if (count == part.length) {
+        uploadPart();
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+  }
+
+  /**
+   * Uploads remaining bytes as last part and completes the upload.
+   *
+   * @return size of the uploaded object
+   * @throws IOException if upload failed, upload is aborted
+   */
+  public long complete() throws IOException {
+    try {
+      if (count > 0 || upload == null) {
+        uploadPart();
+      }
+      upload.complete();
+      LOGGER.debug("uploaded {} [{} bytes in {} parts]", objectKey, size, parts);
+      return size;
+    } catch (IOException | RuntimeException ex) {
+      abort();
+      throw ex;
+    } finally {
+      closed = true;
+    }
+  }
+
+  /**
+   * Aborts the upload, if started.
+   */
+  public void abort() {
+    closed = true;
+    if (upload != null) {
+      LOGGER.debug("aborting upload of {}", objectKey);
+      upload.abort();
+      upload = null;
+    }
+  }
+
+  private void uploadPart() throws IOException {
+    if (upload == null) {
+      upload = objectStore.startUpload(objectKey, fileName);
+    }
+    upload.uploadPart(part, count);
+    size += count;
+    parts++;
+    count = 0;
+  }
+
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("stream closed");
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package iudx.resource.server.database.async.util;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+
+/**
+ * Object store async search results are uploaded to and downloaded from.
+ */
+public interface ObjectStore {
+
+  /**
+   * Starts a multipart upload of an object.
+   *
+   * @param objectKey key of the object
+   * @param fileName name of the file the object is downloaded as
+   * @return MultipartUpload to upload parts of the object with
+   * @throws IOException if upload could not be started
+   */
+  MultipartUpload startUpload(String objectKey, String fileName) throws IOException;
+
+  /**
+   * Resumes a multipart upload started before, e.g. by a process that went down before completing
+   * it. Parts uploaded after the given ones are discarded, the next part uploaded follows them.
+   *
+   * @param objectKey key of the object
+   * @param uploadId id of the upload, see {@link MultipartUpload#getUploadId()}
+   * @param parts parts to keep, see {@link MultipartUpload#getParts()}
+   * @return MultipartUpload to upload remaining parts of the object with
+   * @throws IOException if upload could not be resumed, e.g. it was aborted or expired
+   */
+  MultipartUpload resumeUpload(String objectKey, String uploadId, List<String> parts)
+      throws IOException;
+
+  /**
+   * @param expiryTimeMillis epoch millis url expires at
+   * @param objectKey key of the object
+   * @return URL the object can be downloaded from till expiry
+   */
+  URL generatePreSignedUrl(long expiryTimeMillis, String objectKey);
+
+  /**
+   * Releases clients held by the store, it is not used afterwards.
+   */
+  default void close() {
+  }
+}
@@ -1,12 +1,15 @@
 package iudx.resource.server.database.async.util;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URL;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import com.amazonaws.AmazonClientException;
@@ -20,8 +23,14 @@ import com.amazonaws.regions.Regions;
 import com.amazonaws.retry.RetryPolicy;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
 import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ListPartsRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.UploadPartRequest;
 import com.amazonaws.services.s3.transfer.TransferManager;
 import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
 import com.amazonaws.services.s3.transfer.Upload;
@@ -30,7 +39,12 @@ import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.json.JsonObject;
 
-public class S3FileOpsHelper {
+/**
+ * {@link ObjectStore} backed by an S3 bucket. A single client and transfer manager are created on
+ * first use and shared by all uploads and URLs till {@link #close()}, AmazonS3 clients are thread
+ * safe and each holds its own connection pool and credential refresh.
+ */
+public class S3FileOpsHelper implements ObjectStore {
 
   private static final Logger LOGGER = LogManager.getLogger(S3FileOpsHelper.class);
 
@@ -38,6 +52,9 @@ public class S3FileOpsHelper {
   private final String bucketName;
   static FileInputStream fileInputStream;
 
+  private volatile AmazonS3 s3Client;
+  private volatile TransferManager transferManager;
+
   public S3FileOpsHelper(Regions clientRegion, String bucketName) {
     this.clientRegion = clientRegion;
     this.bucketName = bucketName;
@@ -52,20 +69,156 @@ public class S3FileOpsHelper {
     return clientConfiguration;
   }
 
-  public void s3Upload(File file, String objectKey, Handler<AsyncResult<JsonObject>> handler) {
-
-    DefaultAWSCredentialsProviderChain credentialProviderChain =
-        new DefaultAWSCredentialsProviderChain();
-
-    try (FileInputStream fileInputStream = new FileInputStream(file)) {
-      AmazonS3 s3Client =
-          AmazonS3ClientBuilder.standard()
+  private AmazonS3 s3Client() {
+    AmazonS3 client = s3Client;
+    if (client == null) {
+      synchronized (this) {
+        client = s3Client;
+        if (client == null) {
+          client = AmazonS3ClientBuilder.standard()
               .withRegion(clientRegion)
-              .withCredentials(credentialProviderChain)
+              .withCredentials(new DefaultAWSCredentialsProviderChain())
               .withClientConfiguration(getClientConfiguration())
               .build();
+          s3Client = client;
+        }
+      }
+    }
+    return client;
+  }
+
+  private TransferManager transferManager() {
+    TransferManager manager = transferManager;
+    if (manager == null) {
+      synchronized (this) {
+        manager = transferManager;
+        if (manager == null) {
+          manager = TransferManagerBuilder.standard().withS3Client(s3Client()).build();
+          transferManager = manager;
+        }
+      }
+    }
+    return manager;
+  }
+
+  /**
+   * Shuts down the shared client and transfer manager, transfers in progress are cancelled.
+   */
+  @Override
+  public synchronized void close() {
+    if (transferManager != null) {
+      // shuts down the shared client as well
+      transferManager.shutdownNow(true);
+    } else if (s3Client != null) {
+      s3Client.shutdown();
+    }
+    transferManager = null;
+    s3Client = null;
+  }
+
+  @Override
+  public MultipartUpload startUpload(String objectKey, String fileName) {
+    AmazonS3 s3Client = s3Client();
+    ObjectMetadata objectMetadata = new ObjectMetadata();
+    objectMetadata.setContentDisposition("attachment; filename=" + fileName);
+    String uploadId = s3Client
+        .initiateMultipartUpload(
+            new InitiateMultipartUploadRequest(bucketName, objectKey, objectMetadata))
+        .getUploadId();
+    LOGGER.info("Multipart upload started for object : {}", objectKey);
+    return new S3MultipartUpload(s3Client, objectKey, uploadId);
+  }
+
+  /**
+   * Resumes an upload with the ETags of its parts, parts are numbered in order. Parts uploaded
+   * after them are overwritten by the next parts, any left over are not part of the completed
+   * object.
+   */
+  @Override
+  public MultipartUpload resumeUpload(String objectKey, String uploadId, List<String> parts)
+      throws IOException {
+    AmazonS3 s3Client = s3Client();
+    try {
+      // fails if upload was aborted or cleaned up by a lifecycle rule
+      s3Client.listParts(new ListPartsRequest(bucketName, objectKey, uploadId).withMaxParts(1));
+    } catch (SdkClientException ex) {
+      throw new IOException("unable to resume upload of " + objectKey, ex);
+    }
+    S3MultipartUpload upload = new S3MultipartUpload(s3Client, objectKey, uploadId);
+    for (String etag : parts) {
+      upload.partETags.add(new PartETag(upload.partETags.size() + 1, etag));
+    }
+    LOGGER.info("Multipart upload resumed for object : {} after {} parts", objectKey,
+        parts.size());
+    return upload;
+  }
+
+  /**
+   * Multipart upload of an object to the bucket, parts of at least 5MB but the last are expected.
+   */
+  private class S3MultipartUpload implements MultipartUpload {
 
-      TransferManager tm = TransferManagerBuilder.standard().withS3Client(s3Client).build();
+    private final AmazonS3 s3Client;
+    private final String objectKey;
+    private final String uploadId;
+    private final List<PartETag> partETags = new ArrayList<>();
+
+    S3MultipartUpload(AmazonS3 s3Client, String objectKey, String uploadId) {
+      this.s3Client = s3Client;
+      this.objectKey = objectKey;
+      this.uploadId = uploadId;
+    }
+
+    @Override
+    public String getUploadId() {
+      return uploadId;
+    }
+
+    @Override
+    public List<String> getParts() {
+      List<String> parts = new ArrayList<>(partETags.size());
+      for (PartETag partETag : partETags) {
+        parts.add(partETag.getETag());
+      }
+      return parts;
+    }
+
+    @Override
+    public void uploadPart(byte[] part, int length) {
+      UploadPartRequest uploadPartRequest = new UploadPartRequest()
+          .withBucketName(bucketName)
+          .withKey(objectKey)
+          .withUploadId(uploadId)
+          .withPartNumber(partETags.size() + 1)
+          .withInputStream(new ByteArrayInputStream(part, 0, length))
+          .withPartSize(length);
+      partETags.add(s3Client.uploadPart(uploadPartRequest).getPartETag());
+      LOGGER.debug("Uploaded part {} of object : {}", partETags.size(), objectKey);
+    }
+
+    @Override
+    public void complete() {
+      s3Client.completeMultipartUpload(
+          new CompleteMultipartUploadRequest(bucketName, objectKey, uploadId, partETags));
+      LOGGER.info("Multipart upload complete for object : {}", objectKey);
+    }
+
+    @Override
+    public void abort() {
+      try {
+        s3Client.abortMultipartUpload(
+            new AbortMultipartUploadRequest(bucketName, objectKey, uploadId));
+      } catch (SdkClientException e) {
+        LOGGER.error("failed to abort multipart upload for object : {}", objectKey);
+        LOGGER.error(e);
+      }
+    }
+  }
+
+  public void s3Upload(File file, String objectKey, Handler<AsyncResult<JsonObject>> handler) {
+
+    try (FileInputStream fileInputStream = new FileInputStream(file)) {
+      TransferManager tm = transferManager();
       ObjectMetadata objectMetadata = new ObjectMetadata();
       objectMetadata.setContentDisposition("attachment; filename=" + file.getName());
       objectMetadata.setContentLength(file.length());
@@ -111,19 +264,12 @@ public class S3FileOpsHelper {
     }
   }
 
+  @Override
   public URL generatePreSignedUrl(long expiryTimeMillis, String objectKey) {
 
     URL url = null;
-    DefaultAWSCredentialsProviderChain credentialProviderChain =
-        new DefaultAWSCredentialsProviderChain();
 
     try {
-      AmazonS3 s3Client =
-          AmazonS3ClientBuilder.standard()
-              .withRegion(clientRegion)
-              .withCredentials(credentialProviderChain)
-              .build();
-
       // Set the presigned URL to expire after one hour.
       LOGGER.debug("expiry : " + expiryTimeMillis);
       Date expiration = new Date();
@@ -137,7 +283,7 @@ public class S3FileOpsHelper {
               .withMethod(HttpMethod.GET)
               .withExpiration(expiration);
 
-      url = s3Client.generatePresignedUrl(generatePresignedUrlRequest);
+      url = s3Client().generatePresignedUrl(generatePresignedUrlRequest);
 
       LOGGER.debug("Pre-Signed URL: " + url.toString());
 
@@ -1,13 +1,29 @@
 package iudx.resource.server.database.elastic;
 
+import static iudx.resource.server.database.archives.Constants.CURSOR_DATE_FORMAT;
+import static iudx.resource.server.database.archives.Constants.DEFAULT_EXPORT_SLICES;
 import static iudx.resource.server.database.archives.Constants.EMPTY_RESPONSE;
+import static iudx.resource.server.database.archives.Constants.EXPORT_CHECKPOINT_EXPIRED;
+import static iudx.resource.server.database.archives.Constants.EXPORT_PIT_KEEP_ALIVE;
 import static iudx.resource.server.database.archives.Constants.FAILED;
+import static iudx.resource.server.database.archives.Constants.FILTER_PATH;
+import static iudx.resource.server.database.archives.Constants.FILTER_PATH_STREAM;
+import static iudx.resource.server.database.archives.Constants.PIT_KEEP_ALIVE;
+import static iudx.resource.server.database.archives.Constants.SCROLL_KEEP_ALIVE;
+import static iudx.resource.server.database.archives.Constants.SCROLL_PAGE_SIZE;
+import static iudx.resource.server.database.archives.Constants.SEARCH_REQ_PARAM;
+import static iudx.resource.server.database.archives.Constants.SHARD_DOC_FIELD;
 import static iudx.resource.server.database.archives.Constants.SUCCESS;
+import static iudx.resource.server.database.archives.Constants.TIME_FIELD_DB;
+import static iudx.resource.server.database.archives.Constants.TOTAL_HITS_LIMIT;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.IntFunction;
 import org.apache.http.HttpHost;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
@@ -15,27 +31,36 @@ import org.apache.http.client.CredentialsProvider;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.ResponseListener;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
-import co.elastic.clients.elasticsearch._types.Time;
+import co.elastic.clients.elasticsearch._types.SortOptions;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.mapping.FieldType;
 import co.elastic.clients.elasticsearch._types.query_dsl.Query;
-import co.elastic.clients.elasticsearch.core.ClearScrollRequest;
 import co.elastic.clients.elasticsearch.core.CountRequest;
-import co.elastic.clients.elasticsearch.core.ScrollRequest;
-import co.elastic.clients.elasticsearch.core.ScrollResponse;
 import co.elastic.clients.elasticsearch.core.SearchRequest;
 import co.elastic.clients.elasticsearch.core.search.Hit;
 import co.elastic.clients.elasticsearch.core.search.SourceConfig;
+import co.elastic.clients.elasticsearch.core.search.TotalHits;
+import co.elastic.clients.elasticsearch.core.search.TotalHitsRelation;
+import co.elastic.clients.json.JsonpMapper;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import co.elastic.clients.transport.ElasticsearchTransport;
 import co.elastic.clients.transport.rest_client.RestClientTransport;
+import jakarta.json.stream.JsonGenerator;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import iudx.resource.server.common.ResponseUrn;
 import iudx.resource.server.database.archives.ResponseBuilder;
 import iudx.resource.server.database.async.ProgressListener;
 import iudx.resource.server.database.postgres.PostgresService;
@@ -46,9 +71,22 @@ public class ElasticClient {
   ElasticsearchAsyncClient asyncClient;
 
   private final RestClient client;
+  private final JsonpMapper mapper = new JacksonJsonpMapper();
   private ResponseBuilder responseBuilder;
+  private int exportSlices = DEFAULT_EXPORT_SLICES;
+  private Executor writerPool;
   private static final Logger LOGGER = LogManager.getLogger(ElasticClient.class);
 
+  /**
+   * Sort applied to search queries read from a point in time, <i>_shard_doc</i> is unique within
+   * the point in time and breaks ties between documents observed at the same time, so that sort
+   * values of a hit identify its position for search_after.
+   */
+  private static final List<SortOptions> CURSOR_SORT = List.of(
+      SortOptions.of(s -> s.field(f -> f.field(TIME_FIELD_DB).order(SortOrder.Asc)
+          .unmappedType(FieldType.Date).format(CURSOR_DATE_FORMAT))),
+      SortOptions.of(s -> s.field(f -> f.field(SHARD_DOC_FIELD).order(SortOrder.Asc))));
+
   /**
    * ElasticClient - Elastic Low level wrapper.
    *
@@ -64,7 +102,7 @@ public class ElasticClient {
               httpClientBuilder -> httpClientBuilder.setDefaultCredentialsProvider(credentials));
     client = restClientBuilder.build();
 
-    ElasticsearchTransport transport = new RestClientTransport(client, new JacksonJsonpMapper());
+    ElasticsearchTransport transport = new RestClientTransport(client, mapper);
     // And create the API client
     esClient = new ElasticsearchClient(transport);
     asyncClient = new ElasticsearchAsyncClient(transport);
@@ -75,143 +113,375 @@ public class ElasticClient {
     this(databaseIP, databasePort, user, password);
   }
 
+  /**
+   * ElasticClient for async exports.
+   *
+   * @param exportSlices number of slices scrolled in parallel by an export, at most the number of
+   *        shards of an index is useful
+   * @param writerPool pool export pages are written on, owned and shut down by the caller
+   */
+  public ElasticClient(String databaseIP, int databasePort, String user, String password,
+      int exportSlices, Executor writerPool) {
+    this(databaseIP, databasePort, user, password);
+    this.exportSlices = exportSlices;
+    this.writerPool = writerPool;
+  }
+
+  /**
+   * Exports all documents matching query to file in format. Export is split in
+   * {@link #exportSlices} slices scrolled in parallel when format allows it, see
+   * {@link SlicedScrollExporter}.
+   */
   public Future<JsonObject> asyncScroll(File file, String index, Query query, String[] source,
-      String searchId, ProgressListener progressListener) {
-    Promise<JsonObject> promise = Promise.promise();
+      String searchId, ExportFormat format, ProgressListener progressListener) {
+    int slices = format.isSliceable() ? exportSlices : 1;
+    IntFunction<SearchRequest> sliceRequest = scrollRequest(index, query, source, slices);
 
+    LOGGER.debug("exporting search {} to {} as {}", searchId, file.getAbsolutePath(), format);
+    CompletableFuture<Void> export = slices > 1
+        ? new SlicedScrollExporter(asyncClient, writerPool, file, slices, format, progressListener)
+            .export(sliceRequest)
+        : new ScrollExporter(asyncClient, writerPool, file.getName(),
+            () -> ScrollExporter.open(file), format, progressListener)
+            .export(sliceRequest.apply(0));
+    return exportResult(export);
+  }
 
-    SearchRequest searchRequest = SearchRequest
-        .of(e -> e.index(index).query(query).size(10000).scroll(scr -> scr.time("5m")));
-    
-    asyncClient.search(searchRequest, ObjectNode.class).whenCompleteAsync((response, ex) -> {
-      if (ex != null) {
+  /**
+   * Exports all documents matching query to out in format, out is closed once the export is done.
+   * Export uses a single scroll, out is written sequentially.
+   */
+  public Future<JsonObject> asyncScroll(OutputStream out, String index, Query query,
+      String[] source, String searchId, ExportFormat format, ProgressListener progressListener) {
+    SearchRequest searchRequest = scrollRequest(index, query, source, 1).apply(0);
 
-      }
-      String scrollId=null;
-      try {
-        // LOGGER.info("response : {}",response.toString());
-        scrollId = response.scrollId();
-
-        long totalHits = response.hits().total().value();
-        LOGGER.debug("Total documents to be downloaded : " + totalHits);
-
-        List<Hit<ObjectNode>> searchHits = response.hits().hits();
-
-        LOGGER.debug(file.getAbsolutePath());
-
-        FileWriter filew = new FileWriter(file);
-        int totaldocsDownloaded = 0;
-        filew.write('[');
-        boolean appendComma = false;
-        int totalIterations = totalHits < 10000 ? 1 : (int) Math.ceil(totalHits / 10000.0);
-        double iterationCount = 0.0;
-        double progress;
-        while (searchHits != null && searchHits.size() > 0) {
-          long downloadedDocs = searchHits.size();
-          totaldocsDownloaded += downloadedDocs;
-
-          String downloadLogMessage = "downloaded {} docs of {} total [{} new]";
-          LOGGER.debug(downloadLogMessage, totaldocsDownloaded, totalHits, downloadedDocs);
-          iterationCount += 1;
-          progress = iterationCount / totalIterations;
-          // keeping progress at 90% of actual to update the last 10% after upload to external (s3)
-          double finalProgress = progress * 0.9;
-          Future.future(handler -> progressListener.updateProgress(finalProgress));
-          for (Hit<ObjectNode> sh : searchHits) {
-            if (appendComma) {
-              filew.write("," + sh.source().toString());
-            }
-            filew.write(sh.source().toString());
-            appendComma = true;
+    LOGGER.debug("exporting search {} to stream as {}", searchId, format);
+    return exportResult(new ScrollExporter(asyncClient, writerPool, searchId, () -> out, format,
+        progressListener).export(searchRequest));
+  }
+
+  /**
+   * Exports all documents matching query in format as segments to sink, resuming after a
+   * checkpoint when one is given. Export pages with search_after from a point in time instead of a
+   * scroll so it can be resumed after a restart, see {@link ResumableExporter}. An export whose
+   * point in time expired before it was resumed fails with
+   * {@link iudx.resource.server.database.archives.Constants#EXPORT_CHECKPOINT_EXPIRED}.
+   *
+   * @param segmentSize size segments are cut at, segments but the last are at least this large
+   * @param checkpoint checkpoint handed to sink with a segment before, null to start the export
+   */
+  public Future<JsonObject> asyncExport(String index, Query query, String[] source,
+      String searchId, ExportFormat format, int segmentSize, JsonObject checkpoint,
+      ExportSink sink, ProgressListener progressListener) {
+    ResumableExporter.PageRequest pageRequest =
+        (pitId, searchAfter, countHits) -> SearchRequest.of(e -> {
+          e.pit(p -> p.id(pitId).keepAlive(t -> t.time(EXPORT_PIT_KEEP_ALIVE))).query(query)
+              .size(SCROLL_PAGE_SIZE).sort(CURSOR_SORT).trackTotalHits(t -> t.enabled(countHits));
+          if (searchAfter != null) {
+            e.searchAfter(searchAfter);
           }
-          ScrollRequest scrollRequest = nextScrollRequest(scrollId);
-          CompletableFuture<ScrollResponse<ObjectNode>> future =
-              asyncClient.scroll(scrollRequest, ObjectNode.class);
-          ScrollResponse<ObjectNode> scrollResponse = future.get();
-          scrollId = scrollResponse.scrollId();
-          searchHits = scrollResponse.hits().hits();
-        }
-        filew.write(']');
-        filew.close();
+          if (source != null && source.length > 0) {
+            e.source(s -> s.filter(f -> f.includes(Arrays.asList(source))));
+          }
+          return e;
+        });
+
+    LOGGER.debug("exporting search {} in segments as {}", searchId, format);
+    return exportResult(new ResumableExporter(asyncClient, writerPool, searchId, format,
+        SCROLL_PAGE_SIZE, segmentSize, sink, progressListener)
+        .export(indices(index), pageRequest, checkpoint));
+  }
+
+  private IntFunction<SearchRequest> scrollRequest(String index, Query query, String[] source,
+      int slices) {
+    return slice -> SearchRequest.of(e -> {
+      e.index(indices(index)).query(query).size(SCROLL_PAGE_SIZE)
+          .scroll(scr -> scr.time(SCROLL_KEEP_ALIVE));
+      if (slices > 1) {
+        e.slice(s -> s.id(slice).max(slices));
+      }
+      if (source != null && source.length > 0) {
+        e.source(s -> s.filter(f -> f.includes(Arrays.asList(source))));
+      }
+      return e;
+    });
+  }
+
+  private Future<JsonObject> exportResult(CompletableFuture<Void> export) {
+    Promise<JsonObject> promise = Promise.promise();
+    export.whenComplete((result, failure) -> {
+      if (failure == null) {
         promise.complete();
-      } catch (IOException exception) {
+      } else if (ResumableExporter.isCheckpointExpired(failure)) {
+        promise.fail(EXPORT_CHECKPOINT_EXPIRED);
+      } else if (ScrollExporter.isIoFailure(failure)) {
+        LOGGER.error("export failed : {}", failure.getMessage());
         promise.fail("failed for some IO issues [file access]");
-      } catch (Exception exception) {
+      } else {
+        LOGGER.error("export failed : {}", failure.getMessage());
         promise.fail("failed for some exception");
-        exception.printStackTrace();
-      }finally {
-        clearScrollRequest(scrollId);
       }
     });
     return promise.future();
   }
 
-  private ScrollRequest nextScrollRequest(final String scrollId) {
-    return ScrollRequest
-        .of(scrollRequest -> scrollRequest.scrollId(scrollId).scroll(Time.of(t -> t.time("5m"))));
+
+
+  /**
+   * Executes a search query and counts the matching documents in the same request. Total hits are
+   * tracked exactly up to {@link iudx.resource.server.database.archives.Constants#TOTAL_HITS_LIMIT},
+   * a query matching more documents than that is failed with a 413 response, at any offset, and
+   * is to be read with a cursor instead.
+   */
+  public Future<JsonObject> asyncSearch(String index, Query query, int size, int from,
+      SourceConfig sourceFilterConfig) {
+    return asyncSearch(index, query, size, from, sourceFilterConfig, null);
   }
 
-  private void clearScrollRequest(String scrollId) {
-    if (scrollId != null) {
-      LOGGER.debug("Closing scroll request with id : {}",scrollId);
-      final String finalScroll = scrollId;
-      ClearScrollRequest clearScrollRequest = ClearScrollRequest.of(f -> f.scrollId(finalScroll));
-      try {
-        asyncClient.clearScroll(clearScrollRequest);
-      } catch (Exception e) {
-        LOGGER.error(e);
-        LOGGER.error(e.getMessage());
+  /**
+   * Executes a search query, continuing from cursor when one is passed. Pages requested with a
+   * cursor are read from a point in time using search_after, so cost of a page does not grow with
+   * its depth and the total hits limit does not apply. A cursor for the next page is added to the
+   * response of a cursor request whenever more results are available.
+   *
+   * @param cursor cursor to continue from, {@link SearchCursor#START} for a first page, null for
+   *        offset pagination
+   */
+  public Future<JsonObject> asyncSearch(String index, Query query, int size, int from,
+      SourceConfig sourceFilterConfig, SearchCursor cursor) {
+    Promise<JsonObject> promise = Promise.promise();
+
+    pointInTime(index, cursor).onFailure(promise::fail).onSuccess(pitCursor -> {
+      SearchRequest searchRequest =
+          searchRequest(index, query, size, from, sourceFilterConfig, pitCursor);
+
+      asyncClient.search(searchRequest, ObjectNode.class)
+          .whenCompleteAsync((response, exception) -> {
+            if (exception != null) {
+              LOGGER.error("async search query failed : {}", exception);
+              promise.fail(exception);
+              return;
+            }
+            JsonObject queryResult;
+            try {
+              JsonArray dbResponse = new JsonArray();
+              TotalHits totalHits = response.hits().total();
+              if (totalHits.value() == 0) {
+                responseBuilder = new ResponseBuilder(FAILED).setTypeAndTitle(204);
+                responseBuilder.setMessage(EMPTY_RESPONSE);
+                promise.fail(responseBuilder.getResponse().toString());
+                return;
+              }
+              if (exceedsTotalHitsLimit(totalHits.relation().jsonValue(), pitCursor)) {
+                LOGGER.info("total hits exceeds limit of {}", TOTAL_HITS_LIMIT);
+                responseBuilder = new ResponseBuilder(FAILED)
+                    .setTypeAndTitle(413, ResponseUrn.PAYLOAD_TOO_LARGE_URN.getUrn())
+                    .setMessage(ResponseUrn.PAYLOAD_TOO_LARGE_URN.getMessage());
+                promise.fail(responseBuilder.getResponse().toString());
+                return;
+              }
+
+              List<Hit<ObjectNode>> hits = response.hits().hits();
+              // TODO : explore client API docs to directly get response, avoid loop over response
+              // to create a seprate Json
+              for (Hit<ObjectNode> esHitResponse : hits) {
+                queryResult = new JsonObject(esHitResponse.source().toString());
+                dbResponse.add(queryResult);
+              }
+
+              List<String> lastSort = hits.isEmpty() ? null : hits.get(hits.size() - 1).sort();
+              SearchCursor nextCursor =
+                  SearchCursor.next(pitCursor, response.pitId(), lastSort, hits.size(), size);
+              closePointInTime(pitCursor, nextCursor);
+
+              responseBuilder = new ResponseBuilder(SUCCESS).setTypeAndTitle(200);
+              responseBuilder.setMessage(dbResponse).setTotalHits(totalHits.value());
+              if (nextCursor != null) {
+                responseBuilder.setCursor(nextCursor.encode());
+              }
+              promise.complete(responseBuilder.getResponse());
+            } catch (Exception ex) {
+              LOGGER.error("Exception occurred while executing query: {}", ex);
+              JsonObject dbException = new JsonObject(ex.getMessage());
+              responseBuilder =
+                  new ResponseBuilder(FAILED).setTypeAndTitle(400).setMessage(dbException);
+              promise.fail(responseBuilder.getResponse().toString());
+            }
+          });
+    });
+    return promise.future();
+  }
+
+  /**
+   * @return indices of a comma separated index expression
+   */
+  private List<String> indices(String index) {
+    return Arrays.asList(index.split(","));
+  }
+
+  private SearchRequest searchRequest(String index, Query query, int size, int from,
+      SourceConfig sourceFilterConfig, SearchCursor cursor) {
+    return SearchRequest.of(e -> {
+      e.query(query).size(size).source(sourceFilterConfig)
+          .trackTotalHits(t -> t.count(TOTAL_HITS_LIMIT)).timeout("180s");
+      if (cursor == null) {
+        e.index(indices(index)).from(from);
+      } else {
+        e.pit(p -> p.id(cursor.getPitId()).keepAlive(t -> t.time(PIT_KEEP_ALIVE)))
+            .sort(CURSOR_SORT);
+        if (!cursor.isStart()) {
+          e.searchAfter(cursor.getSearchAfter());
+        }
       }
+      return e;
+    });
+  }
+
+  /**
+   * Opens a point in time for a cursor without one, i.e. for the first page of a cursor.
+   */
+  private Future<SearchCursor> pointInTime(String index, SearchCursor cursor) {
+    if (cursor == null || cursor.getPitId() != null) {
+      return Future.succeededFuture(cursor);
     }
+    Promise<SearchCursor> promise = Promise.promise();
+    asyncClient.openPointInTime(o -> o.index(indices(index)).keepAlive(t -> t.time(PIT_KEEP_ALIVE)))
+        .whenComplete((response, exception) -> {
+          if (exception != null) {
+            LOGGER.error("failed to open point in time : {}", exception);
+            promise.fail(exception);
+            return;
+          }
+          promise.complete(cursor.withPitId(response.id()));
+        });
+    return promise.future();
   }
 
+  /**
+   * Closes point in time of a cursor once the last page is read, an expired point in time is
+   * otherwise released by Elasticsearch after keep alive.
+   */
+  private void closePointInTime(SearchCursor cursor, SearchCursor nextCursor) {
+    if (cursor == null || nextCursor != null) {
+      return;
+    }
+    asyncClient.closePointInTime(c -> c.id(cursor.getPitId()))
+        .whenComplete((response, exception) -> {
+          if (exception != null) {
+            LOGGER.warn("failed to close point in time : {}", exception.getMessage());
+          }
+        });
+  }
 
-  public Future<JsonObject> asyncSearch(String index, Query query, int size, int from,
+  /**
+   * @return whether a search without a cursor matches more documents than can be paged through
+   *         with offsets, such searches are to be read with a cursor
+   */
+  static boolean exceedsTotalHitsLimit(String totalHitsRelation, SearchCursor cursor) {
+    return TotalHitsRelation.Gte.jsonValue().equals(totalHitsRelation) && cursor == null;
+  }
+
+  /**
+   * Encoded variant of {@link #asyncSearch(String, Query, int, int, SourceConfig)}. The search is
+   * executed through the low level client and the <i>_source</i> of each hit is copied from the
+   * raw response into the encoded response envelope, without deserializing documents.
+   *
+   * @return Future of the encoder the response envelope is read from in chunks, to be closed by
+   *         the caller once read or abandoned
+   */
+  public Future<SearchResponseEncoder> asyncSearchEncoded(String index, Query query, int size,
+      int from,
       SourceConfig sourceFilterConfig) {
-    Promise<JsonObject> promise = Promise.promise();
-    SearchRequest searchRequest = SearchRequest
-        .of(e -> e.index(index).query(query).size(size).from(from).source(sourceFilterConfig).timeout("180s"));
+    return asyncSearchEncoded(index, query, size, from, sourceFilterConfig, null);
+  }
 
-    asyncClient.search(searchRequest, ObjectNode.class).whenCompleteAsync((response, exception) -> {
-      if (exception != null) {
-        LOGGER.error("async search query failed : {}", exception);
-        promise.fail(exception);
-        return;
-      }
-      JsonObject queryResult;
-      try {
-        JsonArray dbResponse = new JsonArray();
-        if (response.hits().total().value() == 0) {
-          responseBuilder = new ResponseBuilder(FAILED).setTypeAndTitle(204);
-          responseBuilder.setMessage(EMPTY_RESPONSE);
-          promise.fail(responseBuilder.getResponse().toString());
-          return;
-        }
+  /**
+   * Encoded variant of
+   * {@link #asyncSearch(String, Query, int, int, SourceConfig, SearchCursor)}. The point in time
+   * of a cursor is closed with the encoder, unless the encoded envelope carries a next cursor.
+   *
+   * @return Future of the encoder the response envelope is read from in chunks, to be closed by
+   *         the caller once read or abandoned
+   */
+  public Future<SearchResponseEncoder> asyncSearchEncoded(String index, Query query, int size,
+      int from, SourceConfig sourceFilterConfig, SearchCursor cursor) {
+    Promise<SearchResponseEncoder> promise = Promise.promise();
 
-        // TODO : explore client API docs to directly get response, avoid loop over response to
-        // create a seprate Json
-        for(Hit<ObjectNode> esHitResponse:response.hits().hits()) {
-          queryResult=new JsonObject(esHitResponse.source().toString());
-          dbResponse.add(queryResult);
-        }
+    pointInTime(index, cursor).onFailure(promise::fail).onSuccess(pitCursor -> {
+      SearchRequest searchRequest =
+          searchRequest(index, query, size, from, sourceFilterConfig, pitCursor);
 
-        responseBuilder = new ResponseBuilder(SUCCESS).setTypeAndTitle(200);
-        responseBuilder.setMessage(dbResponse);
-        promise.complete(responseBuilder.getResponse());
-      } catch (Exception ex) {
-        LOGGER.error("Exception occurred while executing query: {}", ex);
-        JsonObject dbException = new JsonObject(ex.getMessage());
-        responseBuilder = new ResponseBuilder(FAILED).setTypeAndTitle(400).setMessage(dbException);
-        promise.fail(responseBuilder.getResponse().toString());
-      }
+      // search with a point in time must not name an index
+      String endpoint = pitCursor == null ? "/" + index + SEARCH_REQ_PARAM : SEARCH_REQ_PARAM;
+      Request request = new Request("POST", endpoint);
+      request.addParameter(FILTER_PATH, FILTER_PATH_STREAM);
+      request.setJsonEntity(toJson(searchRequest));
+
+      client.performRequestAsync(request, new ResponseListener() {
+        @Override
+        public void onSuccess(Response response) {
+          CompletableFuture.runAsync(() -> {
+            SearchResponseEncoder encoder = new SearchResponseEncoder(size, from, pitCursor);
+            encoder.closeHandler(() -> closePointInTime(pitCursor, encoder.getNextCursor()));
+            try {
+              // hits are only encoded once the page is known to be returned
+              encoder.readHeader(response.getEntity().getContent());
+              if (encoder.getTotalHits() == 0) {
+                encoder.close();
+                responseBuilder = new ResponseBuilder(FAILED).setTypeAndTitle(204);
+                responseBuilder.setMessage(EMPTY_RESPONSE);
+                promise.fail(responseBuilder.getResponse().toString());
+              } else if (exceedsTotalHitsLimit(encoder.getTotalHitsRelation(), pitCursor)) {
+                encoder.close();
+                LOGGER.info("total hits exceeds limit of {}", TOTAL_HITS_LIMIT);
+                responseBuilder = new ResponseBuilder(FAILED)
+                    .setTypeAndTitle(413, ResponseUrn.PAYLOAD_TOO_LARGE_URN.getUrn())
+                    .setMessage(ResponseUrn.PAYLOAD_TOO_LARGE_URN.getMessage());
+                promise.fail(responseBuilder.getResponse().toString());
+              } else {
+                promise.complete(encoder);
+              }
+            } catch (Exception ex) {
+              encoder.close();
+              LOGGER.error("Exception occurred while reading search response: {}", ex);
+              promise.fail(ex);
+            }
+          });
+        }
 
+        @Override
+        public void onFailure(Exception exception) {
+          LOGGER.error("async encoded search query failed : {}", exception);
+          if (exception instanceof ResponseException) {
+            try {
+              JsonObject dbException = new JsonObject(
+                  EntityUtils.toString(((ResponseException) exception).getResponse().getEntity()));
+              responseBuilder =
+                  new ResponseBuilder(FAILED).setTypeAndTitle(400).setMessage(dbException);
+              promise.fail(responseBuilder.getResponse().toString());
+              return;
+            } catch (Exception ex) {
+              LOGGER.error("unable to read error response : {}", ex);
+            }
+          }
+          promise.fail(exception);
+        }
+      });
     });
     return promise.future();
   }
 
+  private String toJson(SearchRequest searchRequest) {
+    StringWriter writer = new StringWriter();
+    try (JsonGenerator generator = mapper.jsonProvider().createGenerator(writer)) {
+      searchRequest.serialize(generator, mapper);
+    }
+    return writer.toString();
+  }
+
   public Future<JsonObject> asyncCount(String index, Query query) {
     Promise<JsonObject> promise = Promise.promise();
-    CountRequest countRequest = CountRequest.of(e -> e.index(index).query(query));
+    CountRequest countRequest = CountRequest.of(e -> e.index(indices(index)).query(query));
 
     asyncClient.count(countRequest).whenCompleteAsync((response, exception) -> {
       if (exception != null) {
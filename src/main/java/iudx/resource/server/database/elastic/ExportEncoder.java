@@ -0,0 +1,240 @@
+package iudx.resource.server.database.elastic;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Encodes exported documents to an output stream in an {@link ExportFormat}.
+ */
+interface ExportEncoder extends Closeable {
+
+  ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  void write(ObjectNode document) throws IOException;
+
+  /**
+   * Completes the encoding and closes the output stream.
+   */
+  void finish() throws IOException;
+
+  /**
+   * Closes the output stream without completing the encoding, used when an export failed.
+   */
+  @Override
+  void close() throws IOException;
+
+  /**
+   * @return csv columns written so far, null for other formats
+   */
+  default List<String> getColumns() {
+    return null;
+  }
+
+  /**
+   * Encodes documents as a json array.
+   */
+  final class JsonArrayEncoder implements ExportEncoder {
+
+    private final JsonGenerator generator;
+
+    JsonArrayEncoder(OutputStream out) throws IOException {
+      generator = OBJECT_MAPPER.getFactory().createGenerator(out, JsonEncoding.UTF8);
+      generator.writeStartArray();
+    }
+
+    @Override
+    public void write(ObjectNode document) throws IOException {
+      generator.writeTree(document);
+    }
+
+    @Override
+    public void finish() throws IOException {
+      generator.writeEndArray();
+      generator.close();
+    }
+
+    @Override
+    public void close() throws IOException {
+      generator.close();
+    }
+  }
+
+  /**
+   * Encodes documents as a segment of a json array. The first segment opens the array, the array
+   * is closed by {@link ExportFormat#endSegments(OutputStream)}.
+   */
+  final class JsonSegmentEncoder implements ExportEncoder {
+
+    private final JsonGenerator generator;
+    private long written;
+
+    /**
+     * @param written number of documents written by the segments before
+     */
+    JsonSegmentEncoder(OutputStream out, long written) throws IOException {
+      generator = OBJECT_MAPPER.getFactory().createGenerator(out, JsonEncoding.UTF8);
+      generator.setRootValueSeparator(null);
+      this.written = written;
+      if (written == 0) {
+        generator.writeRaw('[');
+      }
+    }
+
+    @Override
+    public void write(ObjectNode document) throws IOException {
+      if (written++ > 0) {
+        generator.writeRaw(',');
+      }
+      generator.writeTree(document);
+    }
+
+    @Override
+    public void finish() throws IOException {
+      generator.close();
+    }
+
+    @Override
+    public void close() throws IOException {
+      generator.close();
+    }
+  }
+
+  /**
+   * Encodes documents as newline delimited json, a document per line.
+   */
+  final class NdjsonEncoder implements ExportEncoder {
+
+    private final JsonGenerator generator;
+
+    NdjsonEncoder(OutputStream out) throws IOException {
+      generator = OBJECT_MAPPER.getFactory().createGenerator(out, JsonEncoding.UTF8);
+      generator.setRootValueSeparator(null);
+    }
+
+    @Override
+    public void write(ObjectNode document) throws IOException {
+      generator.writeTree(document);
+      generator.writeRaw('\n');
+    }
+
+    @Override
+    public void finish() throws IOException {
+      generator.close();
+    }
+
+    @Override
+    public void close() throws IOException {
+      generator.close();
+    }
+  }
+
+  /**
+   * Encodes documents as csv. Nested objects are flattened to dotted column names and arrays are
+   * written as json. Columns are taken from the first document, as documents of a resource share
+   * its data model, fields missing from the first document are not exported.
+   */
+  final class CsvEncoder implements ExportEncoder {
+
+    private static final Logger LOGGER = LogManager.getLogger(CsvEncoder.class);
+
+    private final Writer writer;
+    private List<String> columns;
+    private long droppedFields;
+
+    CsvEncoder(OutputStream out) {
+      this(out, null);
+    }
+
+    /**
+     * @param columns columns of rows written before, the header is not written again
+     */
+    CsvEncoder(OutputStream out, List<String> columns) {
+      writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+      this.columns = columns;
+    }
+
+    @Override
+    public List<String> getColumns() {
+      return columns;
+    }
+
+    @Override
+    public void write(ObjectNode document) throws IOException {
+      Map<String, JsonNode> fields = new LinkedHashMap<>();
+      flatten("", document, fields);
+      if (columns == null) {
+        columns = new ArrayList<>(fields.keySet());
+        writeRow(columns);
+      }
+      List<String> row = new ArrayList<>(columns.size());
+      for (String column : columns) {
+        JsonNode value = fields.remove(column);
+        row.add(value == null || value.isNull() ? ""
+            : value.isValueNode() ? value.asText() : value.toString());
+      }
+      droppedFields += fields.size();
+      writeRow(row);
+    }
+
+    @Override
+    public void finish() throws IOException {
+      if (droppedFields > 0) {
+        LOGGER.warn("{} fields not in csv columns {} were not exported", droppedFields, columns);
+      }
+      writer.close();
+    }
+
+    @Override
+    public void close() throws IOException {
+      writer.close();
+    }
+
+    private void writeRow(List<String> values) throws IOException {
+      for (int i = 0; i < values.size(); i++) {
+        if (i > 0) {
+          writer.write(',');
+        }
+        writer.write(escape(values.get(i)));
+      }
+      writer.write("\r\n");
+    }
+
+    static String escape(String value) {
+      if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+          && value.indexOf('\r') < 0) {
+        return value;
+      }
+      return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    static void flatten(String prefix, JsonNode node, Map<String, JsonNode> fields) {
+      if (!node.isObject()) {
+        fields.put(prefix, node);
+        return;
+      }
+      Iterator<Map.Entry<String, JsonNode>> iterator = node.fields();
+      while (iterator.hasNext()) {
+        Map.Entry<String, JsonNode> field = iterator.next();
+        flatten(prefix.isEmpty() ? field.getKey() : prefix + "." + field.getKey(),
+            field.getValue(), fields);
+      }
+    }
+  }
+}
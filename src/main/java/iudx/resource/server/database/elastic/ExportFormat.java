@@ -0,0 +1,130 @@
+package iudx.resource.server.database.elastic;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Formats async search results are exported in. Results are encoded while they are scrolled,
+ * compressed formats are gzipped on the fly.
+ */
+public enum ExportFormat {
+
+  /** json array of documents, the default. */
+  JSON("json", ".json", true) {
+    @Override
+    ExportEncoder encoder(OutputStream out) throws IOException {
+      return new ExportEncoder.JsonArrayEncoder(out);
+    }
+
+    @Override
+    ExportEncoder segmentEncoder(OutputStream out, long written, List<String> columns)
+        throws IOException {
+      return new ExportEncoder.JsonSegmentEncoder(out, written);
+    }
+
+    @Override
+    void endSegments(OutputStream out) throws IOException {
+      out.write(']');
+    }
+  },
+
+  /** gzipped newline delimited json, a document per line. */
+  NDJSON("ndjson", ".ndjson.gz", true) {
+    @Override
+    ExportEncoder encoder(OutputStream out) throws IOException {
+      return new ExportEncoder.NdjsonEncoder(gzip(out));
+    }
+
+    @Override
+    ExportEncoder segmentEncoder(OutputStream out, long written, List<String> columns)
+        throws IOException {
+      return encoder(out);
+    }
+  },
+
+  /** gzipped csv of documents flattened to dotted column names. */
+  CSV("csv", ".csv.gz", false) {
+    @Override
+    ExportEncoder encoder(OutputStream out) throws IOException {
+      return new ExportEncoder.CsvEncoder(gzip(out));
+    }
+
+    @Override
+    ExportEncoder segmentEncoder(OutputStream out, long written, List<String> columns)
+        throws IOException {
+      return new ExportEncoder.CsvEncoder(gzip(out), columns);
+    }
+  };
+
+  private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+  private final String value;
+  private final String extension;
+  private final boolean sliceable;
+
+  ExportFormat(String value, String extension, boolean sliceable) {
+    this.value = value;
+    this.extension = extension;
+    this.sliceable = sliceable;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * @return file extension of exported files, including the leading dot
+   */
+  public String getExtension() {
+    return extension;
+  }
+
+  /**
+   * @return whether exports of separate slices can be combined into one, csv can not as every
+   *         slice would have its own header
+   */
+  boolean isSliceable() {
+    return sliceable;
+  }
+
+  /**
+   * @return encoder writing documents to out, closing it once finished
+   */
+  abstract ExportEncoder encoder(OutputStream out) throws IOException;
+
+  /**
+   * @param written number of documents written by the segments before
+   * @param columns csv columns of the segments before, null if none
+   * @return encoder writing a segment of an export to out, closing it once finished, see
+   *         {@link ExportSegments}
+   */
+  abstract ExportEncoder segmentEncoder(OutputStream out, long written, List<String> columns)
+      throws IOException;
+
+  /**
+   * Ends an export made of segments, written after the encoder of the last segment finished.
+   */
+  void endSegments(OutputStream out) throws IOException {
+  }
+
+  /**
+   * @return format for a value of the format query parameter, {@link #JSON} when not set
+   */
+  public static ExportFormat fromValue(String value) {
+    if (value == null) {
+      return JSON;
+    }
+    for (ExportFormat format : values()) {
+      if (format.value.equalsIgnoreCase(value)) {
+        return format;
+      }
+    }
+    throw new IllegalArgumentException("unknown export format : " + value);
+  }
+
+  private static OutputStream gzip(OutputStream out) throws IOException {
+    return new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+  }
+}
@@ -0,0 +1,96 @@
+package iudx.resource.server.database.elastic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Encodes an export in an {@link ExportFormat} as consecutive segments, the segments concatenated
+ * in order make up the exported file. Every segment is complete on its own, a gzipped one is a
+ * gzip member, so an export can be continued from the {@link #state()} after any segment.
+ *
+ * <p>
+ * Segment being written is held in memory. Not thread safe.
+ * </p>
+ */
+final class ExportSegments {
+
+  static final String DOCUMENTS = "documents";
+  static final String COLUMNS = "columns";
+
+  private final ExportFormat format;
+  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+  private ExportEncoder encoder;
+  private long documents;
+  private List<String> columns;
+
+  /**
+   * @param state state after the segments written before, null for a new export
+   */
+  ExportSegments(ExportFormat format, JsonObject state) throws IOException {
+    this.format = format;
+    if (state != null) {
+      documents = state.getLong(DOCUMENTS, 0L);
+      JsonArray stateColumns = state.getJsonArray(COLUMNS);
+      if (stateColumns != null) {
+        columns = stateColumns.stream().map(String::valueOf).collect(Collectors.toList());
+      }
+    }
+    encoder = format.segmentEncoder(buffer, documents, columns);
+  }
+
+  void write(ObjectNode document) throws IOException {
+    encoder.write(document);
+    documents++;
+  }
+
+  /**
+   * @return number of bytes of the current segment encoded so far
+   */
+  int size() {
+    return buffer.size();
+  }
+
+  /**
+   * @return number of documents written by all segments
+   */
+  long getDocuments() {
+    return documents;
+  }
+
+  /**
+   * Completes the current segment and starts the next one.
+   *
+   * @param last whether the segment is the last one of the export
+   * @return bytes of the completed segment
+   */
+  byte[] cut(boolean last) throws IOException {
+    encoder.finish();
+    if (encoder.getColumns() != null) {
+      columns = encoder.getColumns();
+    }
+    if (last) {
+      format.endSegments(buffer);
+    }
+    byte[] segment = buffer.toByteArray();
+    buffer.reset();
+    encoder = last ? null : format.segmentEncoder(buffer, documents, columns);
+    return segment;
+  }
+
+  /**
+   * @return state after the last segment cut, to continue the export with
+   */
+  JsonObject state() {
+    JsonObject state = new JsonObject().put(DOCUMENTS, documents);
+    if (columns != null) {
+      state.put(COLUMNS, new JsonArray(columns));
+    }
+    return state;
+  }
+}
@@ -0,0 +1,20 @@
+package iudx.resource.server.database.elastic;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Stores a resumable export, see {@link ElasticClient#asyncExport}. Segments are handed over in
+ * order, one at a time, along with the checkpoint the export can be resumed from once the segment
+ * is stored.
+ */
+@FunctionalInterface
+public interface ExportSink {
+
+  /**
+   * @param segment next segment of the export
+   * @param checkpoint checkpoint to resume the export after segment from, null for the last segment
+   * @return future completed once segment is stored
+   */
+  Future<Void> write(byte[] segment, JsonObject checkpoint);
+}
@@ -1,14 +1,16 @@
 package iudx.resource.server.database.elastic;
 
 import static iudx.resource.server.database.archives.Constants.*;
-import java.util.Base64;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import co.elastic.clients.elasticsearch._types.GeoShapeRelation;
+import co.elastic.clients.elasticsearch._types.query_dsl.GeoShapeQuery;
 import co.elastic.clients.elasticsearch._types.query_dsl.Query;
-import co.elastic.clients.elasticsearch._types.query_dsl.WrapperQuery;
+import co.elastic.clients.json.JsonData;
+import io.vertx.core.json.DecodeException;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import iudx.resource.server.database.elastic.exception.ESQueryException;
@@ -18,8 +20,6 @@ public class GeoQueryFiltersDecorator implements ElasticsearchQueryDecorator {
   private static final Logger LOGGER = LogManager.getLogger(GeoQueryFiltersDecorator.class);
   private Map<FilterType, List<Query>> queryFilters;
   private JsonObject requestQuery;
-  private String geoQuery =
-      "{ \"geo_shape\": { \"%s\": { \"shape\": %s, \"relation\": \"%s\" } } }";
 
   public GeoQueryFiltersDecorator(Map<FilterType, List<Query>> queryFilters,
       JsonObject requestQuery) {
@@ -29,15 +29,12 @@ public class GeoQueryFiltersDecorator implements ElasticsearchQueryDecorator {
 
   @Override
   public Map<FilterType, List<Query>> add() {
-    Query geoWrapperQuery;
+    Query geoQuery;
     if (requestQuery.containsKey(LON) && requestQuery.containsKey(LAT)
         && requestQuery.containsKey(GEO_RADIUS)) {
       // circle
-      requestQuery.put(GEOMETRY, "Point");
       String relation = requestQuery.containsKey(GEOREL) ? requestQuery.getString(GEOREL) : WITHIN;
-      String query = String.format(geoQuery, "location", getGeoJson(requestQuery), relation);
-      String encodedString = Base64.getEncoder().encodeToString(query.getBytes());
-      geoWrapperQuery = WrapperQuery.of(w -> w.query(encodedString))._toQuery();
+      geoQuery = getCircleQuery(relation);
 
     } else if (requestQuery.containsKey(GEOMETRY)
         && (requestQuery.getString(GEOMETRY).equalsIgnoreCase(POLYGON)
@@ -45,74 +42,78 @@ public class GeoQueryFiltersDecorator implements ElasticsearchQueryDecorator {
         && requestQuery.containsKey(GEOREL) && requestQuery.containsKey(COORDINATES_KEY)
         && requestQuery.containsKey(GEO_PROPERTY)) {
       // polygon & linestring
-      String relation = requestQuery.getString(GEOREL);
-
-      if (!isValidCoordinates(requestQuery.getString(GEOMETRY),
-          new JsonArray(requestQuery.getString("coordinates")))) {
-        throw new ESQueryException("Coordinate mismatch (Polygon)");
-      }
-      String query = String.format(geoQuery, "location", getGeoJson(requestQuery), relation);
-      String encodedString = Base64.getEncoder().encodeToString(query.getBytes());
-      geoWrapperQuery = WrapperQuery.of(w -> w.query(encodedString))._toQuery();
+      String geometry = requestQuery.getString(GEOMETRY);
+      double tolerance =
+          requestQuery.getDouble(GEO_SIMPLIFY_TOLERANCE, DEFAULT_GEO_SIMPLIFY_TOLERANCE);
+      List<?> coordinates = GeometryPreprocessor.normalize(geometry,
+          requestQuery.getString(COORDINATES_KEY), tolerance);
+      geoQuery = getShapeQuery(geometry, coordinates, requestQuery.getString(GEOREL));
 
     } else if (requestQuery.containsKey(GEOMETRY)
         && requestQuery.getString(GEOMETRY).equalsIgnoreCase(BBOX)
         && requestQuery.containsKey(GEOREL) && requestQuery.containsKey(COORDINATES_KEY)
         && requestQuery.containsKey(GEO_PROPERTY)) {
       // bbox
-      String relation = requestQuery.getString(GEOREL);
-      String query = String.format(geoQuery, "location", getGeoJson(requestQuery), relation);
-      String encodedString = Base64.getEncoder().encodeToString(query.getBytes());
-      geoWrapperQuery = WrapperQuery.of(w -> w.query(encodedString))._toQuery();
+      List<?> coordinates = toList(requestQuery.getString(COORDINATES_KEY));
+      geoQuery = getShapeQuery(GEO_BBOX, coordinates, requestQuery.getString(GEOREL));
     } else {
       throw new ESQueryException("Missing/Invalid geo parameters");
     }
     List<Query> queryList = queryFilters.get(FilterType.FILTER);
-    queryList.add(geoWrapperQuery);
+    queryList.add(geoQuery);
     return queryFilters;
   }
 
-  private JsonObject getGeoJson(JsonObject json) {
-    LOGGER.debug(json);
-    JsonObject geoJson = new JsonObject();
-    String geom;
-    JsonArray coordinates;
-    if ("Point".equalsIgnoreCase(json.getString(GEOMETRY))) {
-      double lat = json.getDouble(LAT);
-      double lon = json.getDouble(LON);
-      geom = "Circle";
-      geoJson.put("radius", json.getString("radius") + "m");
-      coordinates = (new JsonArray().add(lon).add(lat));
-    } else if ("bbox".equalsIgnoreCase(json.getString(GEOMETRY))) {
-      geom = "envelope";
-      coordinates = (new JsonArray(json.getString("coordinates")));
-    } else {
-      geom = json.getString(GEOMETRY);
-      coordinates = (new JsonArray(json.getString("coordinates")));
+  /**
+   * Circle is queried as a circle geo_shape with the relation requested, location is a geo_shape
+   * field and may hold shapes other than points, so relations of a circle can't be told by the
+   * distance to a point.
+   */
+  private Query getCircleQuery(String relation) {
+    double lat = requestQuery.getDouble(LAT);
+    double lon = requestQuery.getDouble(LON);
+    String radius = requestQuery.getValue(GEO_RADIUS) + "m";
+    Map<String, Object> circle =
+        Map.of("type", GEO_CIRCLE, "coordinates", List.of(lon, lat), GEO_RADIUS, radius);
+    return getShapeQuery(circle, relation);
+  }
+
+  private Query getShapeQuery(String type, List<?> coordinates, String relation) {
+    return getShapeQuery(Map.of("type", type, "coordinates", coordinates), relation);
+  }
+
+  private Query getShapeQuery(Map<String, Object> shape, String relation) {
+    GeoShapeRelation shapeRelation = toRelation(relation);
+    LOGGER.debug("geo_shape {} : {}", shapeRelation, shape.get("type"));
+    return GeoShapeQuery
+        .of(g -> g.field(GEO_KEY)
+            .shape(s -> s.shape(JsonData.of(shape)).relation(shapeRelation)))
+        ._toQuery();
+  }
+
+  private GeoShapeRelation toRelation(String relation) {
+    for (GeoShapeRelation shapeRelation : GeoShapeRelation.values()) {
+      if (shapeRelation.jsonValue().equalsIgnoreCase(relation)) {
+        return shapeRelation;
+      }
     }
-    geoJson.put("type", geom);
-    geoJson.put("coordinates", coordinates);
-    LOGGER.debug(geoJson);
-    return geoJson;
+    throw new ESQueryException("Missing/Invalid geo parameters");
   }
 
-  private boolean isValidCoordinates(String geometry, JsonArray coordinates) {
-    int length = coordinates.getJsonArray(0).size();
-    if (geometry.equalsIgnoreCase(POLYGON)
-        && !coordinates
-            .getJsonArray(0)
-              .getJsonArray(0)
-              .getDouble(0)
-              .equals(coordinates.getJsonArray(0).getJsonArray(length - 1).getDouble(0))
-        && !coordinates
-            .getJsonArray(0)
-              .getJsonArray(0)
-              .getDouble(1)
-              .equals(coordinates.getJsonArray(0).getJsonArray(length - 1).getDouble(1))) {
-      return false;
+  private List<Object> toList(String coordinates) {
+    try {
+      return toList(new JsonArray(coordinates));
+    } catch (DecodeException ex) {
+      throw new ESQueryException("Missing/Invalid geo parameters");
+    }
+  }
 
+  private List<Object> toList(JsonArray array) {
+    List<Object> list = new ArrayList<>(array.size());
+    for (Object value : array) {
+      list.add(value instanceof JsonArray ? toList((JsonArray) value) : value);
     }
-    return true;
+    return list;
   }
 
 }
@@ -0,0 +1,173 @@
+package iudx.resource.server.database.elastic;
+
+import static iudx.resource.server.database.archives.Constants.COORDINATE_MISMATCH;
+import static iudx.resource.server.database.archives.Constants.GEO_SHAPE_CACHE_METRIC;
+import static iudx.resource.server.database.archives.Constants.GEO_SHAPE_CACHE_SIZE;
+import static iudx.resource.server.database.archives.Constants.GEO_SIMPLIFY_MIN_VERTICES;
+import static iudx.resource.server.database.archives.Constants.LINESTRING;
+import static iudx.resource.server.database.archives.Constants.MISSING_GEO_FIELDS;
+import static iudx.resource.server.database.archives.Constants.POLYGON;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import iudx.resource.server.database.elastic.exception.ESQueryException;
+
+/**
+ * Normalizes the coordinates of polygon and linestring geo queries before they are sent to
+ * Elasticsearch.
+ *
+ * <p>
+ * Open polygon rings are closed, and shapes with more than
+ * {@value iudx.resource.server.database.archives.Constants#GEO_SIMPLIFY_MIN_VERTICES} vertices are
+ * simplified to the requested tolerance (in degrees) preserving their topology. Normalized shapes
+ * are cached under a hash of geometry, tolerance and coordinates, so repeated queries on the same
+ * large boundary are processed once.
+ * </p>
+ */
+final class GeometryPreprocessor {
+
+  private static final Logger LOGGER = LogManager.getLogger(GeometryPreprocessor.class);
+
+  private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+  private static final Cache<String, List<?>> SHAPE_CACHE =
+      CacheBuilder.newBuilder().maximumSize(GEO_SHAPE_CACHE_SIZE).build();
+  private static final Counter SHAPE_CACHE_HITS =
+      Metrics.counter(GEO_SHAPE_CACHE_METRIC, "result", "hit");
+  private static final Counter SHAPE_CACHE_MISSES =
+      Metrics.counter(GEO_SHAPE_CACHE_METRIC, "result", "miss");
+
+  private GeometryPreprocessor() {}
+
+  /**
+   * @param geometry polygon or linestring
+   * @param coordinates GeoJson coordinates of geometry
+   * @param tolerance simplification tolerance, no simplification if not positive
+   * @return normalized GeoJson coordinates as nested lists
+   */
+  static List<?> normalize(String geometry, String coordinates, double tolerance) {
+    String key =
+        DigestUtils.sha256Hex(geometry.toLowerCase() + "|" + tolerance + "|" + coordinates);
+    List<?> shape = SHAPE_CACHE.getIfPresent(key);
+    if (shape == null) {
+      SHAPE_CACHE_MISSES.increment();
+      shape = Collections.unmodifiableList(process(geometry, parse(coordinates), tolerance));
+      SHAPE_CACHE.put(key, shape);
+    } else {
+      SHAPE_CACHE_HITS.increment();
+    }
+    return shape;
+  }
+
+  private static List<?> process(String geometry, JsonArray coordinates, double tolerance) {
+    if (POLYGON.equalsIgnoreCase(geometry)) {
+      return toCoordinates(simplify(toPolygon(coordinates), tolerance));
+    } else if (LINESTRING.equalsIgnoreCase(geometry)) {
+      return toCoordinates(simplify(toLineString(coordinates), tolerance));
+    }
+    throw new ESQueryException(MISSING_GEO_FIELDS);
+  }
+
+  private static JsonArray parse(String coordinates) {
+    try {
+      return new JsonArray(coordinates);
+    } catch (DecodeException ex) {
+      throw new ESQueryException(MISSING_GEO_FIELDS);
+    }
+  }
+
+  private static <T extends Geometry> T simplify(T geometry, double tolerance) {
+    if (tolerance <= 0 || geometry.getNumPoints() <= GEO_SIMPLIFY_MIN_VERTICES) {
+      return geometry;
+    }
+    Geometry simplified = TopologyPreservingSimplifier.simplify(geometry, tolerance);
+    if (simplified.isEmpty() || !geometry.getClass().isInstance(simplified)) {
+      return geometry;
+    }
+    LOGGER.debug("simplified {} from {} to {} vertices", geometry.getGeometryType(),
+        geometry.getNumPoints(), simplified.getNumPoints());
+    @SuppressWarnings("unchecked")
+    T result = (T) simplified;
+    return result;
+  }
+
+  private static Polygon toPolygon(JsonArray rings) {
+    if (rings.isEmpty()) {
+      throw new ESQueryException(COORDINATE_MISMATCH);
+    }
+    LinearRing shell = toRing(rings.getJsonArray(0));
+    LinearRing[] holes = new LinearRing[rings.size() - 1];
+    for (int i = 1; i < rings.size(); i++) {
+      holes[i - 1] = toRing(rings.getJsonArray(i));
+    }
+    return GEOMETRY_FACTORY.createPolygon(shell, holes);
+  }
+
+  /**
+   * ring is closed by repeating its first vertex if first and last vertex differ.
+   */
+  private static LinearRing toRing(JsonArray positions) {
+    List<Coordinate> ring = new ArrayList<>(Arrays.asList(toPositions(positions)));
+    if (!ring.isEmpty() && !ring.get(0).equals2D(ring.get(ring.size() - 1))) {
+      ring.add(ring.get(0).copy());
+    }
+    if (ring.size() < 4) {
+      throw new ESQueryException(COORDINATE_MISMATCH);
+    }
+    return GEOMETRY_FACTORY.createLinearRing(ring.toArray(new Coordinate[0]));
+  }
+
+  private static LineString toLineString(JsonArray positions) {
+    Coordinate[] line = toPositions(positions);
+    if (line.length < 2) {
+      throw new ESQueryException(MISSING_GEO_FIELDS);
+    }
+    return GEOMETRY_FACTORY.createLineString(line);
+  }
+
+  private static Coordinate[] toPositions(JsonArray positions) {
+    Coordinate[] coordinates = new Coordinate[positions.size()];
+    try {
+      for (int i = 0; i < positions.size(); i++) {
+        JsonArray position = positions.getJsonArray(i);
+        coordinates[i] = new Coordinate(position.getDouble(0), position.getDouble(1));
+      }
+    } catch (ClassCastException | IndexOutOfBoundsException | NullPointerException ex) {
+      throw new ESQueryException(MISSING_GEO_FIELDS);
+    }
+    return coordinates;
+  }
+
+  private static List<List<List<Double>>> toCoordinates(Polygon polygon) {
+    List<List<List<Double>>> rings = new ArrayList<>(polygon.getNumInteriorRing() + 1);
+    rings.add(toCoordinates(polygon.getExteriorRing()));
+    for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+      rings.add(toCoordinates(polygon.getInteriorRingN(i)));
+    }
+    return rings;
+  }
+
+  private static List<List<Double>> toCoordinates(LineString line) {
+    List<List<Double>> positions = new ArrayList<>(line.getNumPoints());
+    for (Coordinate coordinate : line.getCoordinates()) {
+      positions.add(List.of(coordinate.getX(), coordinate.getY()));
+    }
+    return positions;
+  }
+}
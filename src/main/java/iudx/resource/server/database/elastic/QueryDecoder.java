@@ -11,9 +11,11 @@ import static iudx.resource.server.database.archives.Constants.TIME_KEY;
 import static iudx.resource.server.database.archives.Constants.TIME_LIMIT;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.regex.Pattern;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import co.elastic.clients.elasticsearch._types.FieldValue;
@@ -32,6 +34,11 @@ public class QueryDecoder {
 
   private static final Logger LOGGER = LogManager.getLogger(QueryDecoder.class);
 
+  private static final Pattern TEMPORAL_SEARCH = Pattern.compile(TEMPORAL_SEARCH_REGEX);
+  private static final Pattern ATTRIBUTE_SEARCH = Pattern.compile(ATTRIBUTE_SEARCH_REGEX);
+  private static final Pattern GEO_SEARCH = Pattern.compile(GEOSEARCH_REGEX);
+  private static final Pattern RESPONSE_FILTER = Pattern.compile(RESPONSE_FILTER_REGEX);
+
   public Query getQuery(JsonObject jsonQuery) {
     return getQuery(jsonQuery, false);
   }
@@ -42,10 +49,9 @@ public class QueryDecoder {
     Boolean isValidQuery = false;
     boolean temporalQuery = false;
 
-    String[] timeLimitConfig = getTimeLimitArray(jsonQuery, isAsyncQuery);
     int defaultDateForDevDeployment = 0;
 
-    Map<FilterType, List<Query>> queryLists = new HashMap<>();
+    Map<FilterType, List<Query>> queryLists = new EnumMap<>(FilterType.class);
 
     for (FilterType filterType : FilterType.values()) {
       queryLists.put(filterType, new ArrayList<Query>());
@@ -53,17 +59,20 @@ public class QueryDecoder {
 
     // add id to every elastic query
     JsonArray id = jsonQuery.getJsonArray("id");
-    FieldValue field = FieldValue.of(id.getString(0));
-    TermsQueryField termQueryField = TermsQueryField.of(e -> e.value(List.of(field)));
+    List<FieldValue> fields = id.stream()
+        .map(value -> FieldValue.of((String) value))
+        .collect(Collectors.toList());
+    TermsQueryField termQueryField = TermsQueryField.of(e -> e.value(fields));
     Query idTermsQuery = TermsQuery.of(query -> query.field("id").terms(termQueryField))._toQuery();
 
     queryLists.get(FilterType.FILTER).add(idTermsQuery);
     ElasticsearchQueryDecorator queryDecorator = null;
-    if (searchType.matches(TEMPORAL_SEARCH_REGEX) && jsonQuery.containsKey(REQ_TIMEREL)
+    if (TEMPORAL_SEARCH.matcher(searchType).matches() && jsonQuery.containsKey(REQ_TIMEREL)
         && jsonQuery.containsKey(TIME_KEY)) {
 
       if (!isAsyncQuery) {
-        defaultDateForDevDeployment = Integer.valueOf(timeLimitConfig[2]);
+        defaultDateForDevDeployment =
+            Integer.valueOf(getTimeLimitArray(jsonQuery, isAsyncQuery)[2]);
       }
       queryDecorator =
           new TemporalQueryFiltersDecorator(queryLists, jsonQuery, defaultDateForDevDeployment);
@@ -72,13 +81,13 @@ public class QueryDecoder {
       isValidQuery = true;
     }
 
-    if (searchType.matches(ATTRIBUTE_SEARCH_REGEX)) {
+    if (ATTRIBUTE_SEARCH.matcher(searchType).matches()) {
       queryDecorator = new AttributeQueryFiltersDecorator(queryLists, jsonQuery);
       queryDecorator.add();
       isValidQuery = true;
     }
 
-    if (searchType.matches(GEOSEARCH_REGEX)) {
+    if (GEO_SEARCH.matcher(searchType).matches()) {
       queryDecorator = new GeoQueryFiltersDecorator(queryLists, jsonQuery);
       queryDecorator.add();
       isValidQuery = true;
@@ -88,20 +97,24 @@ public class QueryDecoder {
       throw new ESQueryException("Invalid search query");
     }
 
-    boolean isTemporalResource = jsonQuery.getJsonArray("applicableFilters").contains("TEMPORAL");
-    if (!isAsyncQuery && !temporalQuery && isTemporalResource) {
-      defaultDateForDevDeployment = Integer.valueOf(timeLimitConfig[2]);
+    if (!isAsyncQuery && !temporalQuery && isTemporalResource(jsonQuery)) {
+      defaultDateForDevDeployment = Integer.valueOf(getTimeLimitArray(jsonQuery, isAsyncQuery)[2]);
       new TemporalQueryFiltersDecorator(queryLists, jsonQuery, defaultDateForDevDeployment)
           .addDefaultTemporalFilters(queryLists, jsonQuery);
     }
 
     Query q = getBoolQuery(queryLists);
 
-    LOGGER.info("query : {}", q.toString());
+    LOGGER.debug("query : {}", q);
     return q;
 
   }
 
+  private boolean isTemporalResource(JsonObject jsonQuery) {
+    JsonArray applicableFilters = jsonQuery.getJsonArray("applicableFilters");
+    return applicableFilters != null && applicableFilters.contains("TEMPORAL");
+  }
+
   private String[] getTimeLimitArray(JsonObject jsonQuery, boolean isAsyncQuery) {
     if (isAsyncQuery) {
       return new String[] {};
@@ -113,7 +126,7 @@ public class QueryDecoder {
   public SourceConfig getSourceConfigFilters(JsonObject queryJson) {
     String searchType = queryJson.getString(SEARCH_TYPE);
 
-    if (!searchType.matches(RESPONSE_FILTER_REGEX)) {
+    if (!RESPONSE_FILTER.matcher(searchType).matches()) {
       return getSourceFilter(Collections.emptyList());
     }
 
@@ -137,28 +150,18 @@ public class QueryDecoder {
   private Query getBoolQuery(Map<FilterType, List<Query>> filterQueries) {
 
     Builder boolQuery = new BoolQuery.Builder();
-
-    for (Map.Entry<FilterType, List<Query>> entry : filterQueries.entrySet()) {
-      if (FilterType.FILTER.equals(entry.getKey())
-          && filterQueries.get(FilterType.FILTER).size() > 0) {
-        boolQuery.filter(filterQueries.get(FilterType.FILTER));
-      }
-
-      if (FilterType.MUST_NOT.equals(entry.getKey())
-          && filterQueries.get(FilterType.MUST_NOT).size() > 0) {
-        boolQuery.mustNot(filterQueries.get(FilterType.MUST_NOT));
-      }
-
-      if (FilterType.MUST.equals(entry.getKey()) && filterQueries.get(FilterType.MUST).size() > 0) {
-        boolQuery.must(filterQueries.get(FilterType.MUST));
-      }
-
-      if (FilterType.SHOULD.equals(entry.getKey())
-          && filterQueries.get(FilterType.SHOULD).size() > 0) {
-        boolQuery.should(filterQueries.get(FilterType.SHOULD));
-      }
+    if (!filterQueries.get(FilterType.FILTER).isEmpty()) {
+      boolQuery.filter(filterQueries.get(FilterType.FILTER));
+    }
+    if (!filterQueries.get(FilterType.MUST_NOT).isEmpty()) {
+      boolQuery.mustNot(filterQueries.get(FilterType.MUST_NOT));
+    }
+    if (!filterQueries.get(FilterType.MUST).isEmpty()) {
+      boolQuery.must(filterQueries.get(FilterType.MUST));
+    }
+    if (!filterQueries.get(FilterType.SHOULD).isEmpty()) {
+      boolQuery.should(filterQueries.get(FilterType.SHOULD));
     }
-
     return boolQuery.build()._toQuery();
 
   }
@@ -0,0 +1,253 @@
+package iudx.resource.server.database.elastic;
+
+import static iudx.resource.server.database.archives.Constants.EXPORT_PIT_KEEP_ALIVE;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch.core.ClosePointInTimeRequest;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeRequest;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeResponse;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import iudx.resource.server.database.async.ProgressListener;
+import iudx.resource.server.database.elastic.ScrollExporter.ExportProgress;
+
+/**
+ * Exports <i>_source</i> of all hits of a search in an {@link ExportFormat} as segments handed to
+ * an {@link ExportSink}, each with a checkpoint the export can be resumed from after it, also by
+ * another process once this one went down.
+ *
+ * <p>
+ * Hits are paged through with search_after from a point in time instead of a scroll, a scroll
+ * context does not outlive its node while a point in time is kept alive by its id, which is held
+ * in the checkpoint along with sort values of the last hit written. Sort values identify a hit
+ * only within its point in time, an export whose point in time expired before it was resumed
+ * fails as {@link #isCheckpointExpired(Throwable) checkpoint expired} and is to be started over.
+ * A segment is cut at the end of the page it grew over segment size in. As in
+ * {@link ScrollExporter} the next page is fetched while a page is written, at most two pages are
+ * held in memory besides the segment.
+ * </p>
+ */
+final class ResumableExporter {
+
+  private static final Logger LOGGER = LogManager.getLogger(ResumableExporter.class);
+
+  static final String SEARCH_AFTER = "searchAfter";
+  static final String PIT_ID = "pitId";
+
+  private final ElasticsearchAsyncClient asyncClient;
+  private final Executor writerPool;
+  private final String name;
+  private final ExportFormat format;
+  private final int pageSize;
+  private final int segmentSize;
+  private final ExportSink sink;
+  private final ExportProgress progress;
+
+  private ExportSegments segments;
+  // id of point in time last returned, ids of a point in time may change from page to page
+  private volatile String pitId;
+
+  /**
+   * @param writerPool pool pages are written on, owned by the caller
+   * @param name name of the export, for logging
+   * @param segmentSize size segments are cut at, segments but the last are at least this large
+   */
+  ResumableExporter(ElasticsearchAsyncClient asyncClient, Executor writerPool, String name,
+      ExportFormat format, int pageSize, int segmentSize, ExportSink sink,
+      ProgressListener progressListener) {
+    this.asyncClient = asyncClient;
+    this.writerPool = writerPool;
+    this.name = name;
+    this.format = format;
+    this.pageSize = pageSize;
+    this.segmentSize = segmentSize;
+    this.sink = sink;
+    this.progress = new ExportProgress(progressListener, 1);
+  }
+
+  /**
+   * @param indices indices the point in time is opened on
+   * @param pageRequest search request for the page after given sort values
+   * @param checkpoint checkpoint to resume from, null to start the export
+   * @return future completed once the last segment is stored
+   */
+  CompletableFuture<Void> export(List<String> indices, PageRequest pageRequest,
+      JsonObject checkpoint) {
+    List<String> searchAfter;
+    try {
+      segments = new ExportSegments(format, checkpoint);
+      searchAfter = checkpoint == null ? null : searchAfter(checkpoint);
+    } catch (IOException ex) {
+      return CompletableFuture.failedFuture(new UncheckedIOException(ex));
+    }
+    boolean resumed = searchAfter != null;
+    CompletableFuture<String> pointInTime;
+    if (resumed) {
+      LOGGER.info("resuming export {} after {} documents", name, segments.getDocuments());
+      pitId = checkpoint.getString(PIT_ID);
+      pointInTime = pitId != null ? CompletableFuture.completedFuture(pitId)
+          : CompletableFuture.failedFuture(new CheckpointExpiredException());
+    } else {
+      pointInTime = asyncClient.openPointInTime(OpenPointInTimeRequest
+          .of(o -> o.index(indices).keepAlive(t -> t.time(EXPORT_PIT_KEEP_ALIVE))))
+          .thenApply(OpenPointInTimeResponse::id);
+    }
+    CompletableFuture<Void> export = pointInTime
+        .thenCompose(id -> {
+          pitId = id;
+          return asyncClient.search(pageRequest.of(id, searchAfter, true), ObjectNode.class);
+        })
+        .handle((response, failure) -> {
+          if (failure == null) {
+            return response;
+          }
+          if (resumed && (isCheckpointExpired(failure) || isNotFound(failure))) {
+            LOGGER.warn("point in time of export {} expired, it can't be resumed", name);
+            throw new CompletionException(new CheckpointExpiredException());
+          }
+          throw failure instanceof CompletionException ? (CompletionException) failure
+              : new CompletionException(failure);
+        })
+        .thenCompose(response -> {
+          long totalHits = response.hits().total() != null ? response.hits().total().value() : 0;
+          LOGGER.debug("Total documents to be downloaded : {}", totalHits);
+          progress.started(totalHits);
+          if (segments.getDocuments() > 0) {
+            progress.written(segments.getDocuments());
+          }
+          updatePitId(response.pitId());
+          return exportPages(response.hits().hits(), pageRequest);
+        });
+    export.whenComplete((done, failure) -> {
+      if (pitId != null && !isCheckpointExpired(failure)) {
+        closePointInTime(pitId);
+      }
+    });
+    return export;
+  }
+
+  private void updatePitId(String id) {
+    if (id != null) {
+      pitId = id;
+    }
+  }
+
+  private void closePointInTime(String id) {
+    asyncClient.closePointInTime(ClosePointInTimeRequest.of(c -> c.id(id)))
+        .whenComplete((response, exception) -> {
+          if (exception != null) {
+            LOGGER.warn("failed to close point in time of export {} : {}", name,
+                exception.getMessage());
+          }
+        });
+  }
+
+  /**
+   * write page and, unless it is the last one, fetch the next page at the same time.
+   */
+  private CompletableFuture<Void> exportPages(List<Hit<ObjectNode>> hits,
+      PageRequest pageRequest) {
+    boolean last = hits.size() < pageSize;
+    CompletableFuture<Void> written = CompletableFuture
+        .supplyAsync(() -> write(hits, last), writerPool)
+        .thenCompose(stored -> stored);
+    if (last) {
+      return written;
+    }
+    List<String> searchAfter = hits.get(hits.size() - 1).sort();
+    return asyncClient.search(pageRequest.of(pitId, searchAfter, false), ObjectNode.class)
+        .thenCombine(written, (next, done) -> next)
+        .thenCompose(next -> {
+          updatePitId(next.pitId());
+          return exportPages(next.hits().hits(), pageRequest);
+        });
+  }
+
+  /**
+   * @return stage completed once page is written, and the segment cut after it stored
+   */
+  private CompletionStage<Void> write(List<Hit<ObjectNode>> hits, boolean last) {
+    try {
+      for (Hit<ObjectNode> hit : hits) {
+        segments.write(hit.source());
+      }
+      progress.written(hits.size());
+      if (!last && segments.size() < segmentSize) {
+        return CompletableFuture.completedFuture(null);
+      }
+      byte[] segment = segments.cut(last);
+      JsonObject checkpoint = last ? null
+          : segments.state().put(PIT_ID, pitId)
+              .put(SEARCH_AFTER, new JsonArray(new ArrayList<>(hits.get(hits.size() - 1).sort())));
+      LOGGER.debug("export {} cut segment of {} bytes after {} documents", name, segment.length,
+          segments.getDocuments());
+      return sink.write(segment, checkpoint).toCompletionStage();
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  private static List<String> searchAfter(JsonObject checkpoint) {
+    JsonArray searchAfter = checkpoint.getJsonArray(SEARCH_AFTER);
+    return searchAfter == null || searchAfter.isEmpty() ? null
+        : searchAfter.stream().map(String::valueOf).collect(Collectors.toList());
+  }
+
+  /**
+   * @return true if export failed as it was resumed after its point in time expired
+   */
+  static boolean isCheckpointExpired(Throwable failure) {
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      if (cause instanceof CheckpointExpiredException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isNotFound(Throwable failure) {
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      if (cause instanceof ElasticsearchException) {
+        return ((ElasticsearchException) cause).status() == 404;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Search request of a page of the export.
+   */
+  @FunctionalInterface
+  interface PageRequest {
+
+    /**
+     * @param pitId id of the point in time the page is read from
+     * @param searchAfter sort values of the last hit exported, null for the first page
+     * @param countHits whether total hits are to be counted
+     */
+    SearchRequest of(String pitId, List<String> searchAfter, boolean countHits);
+  }
+
+  private static final class CheckpointExpiredException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    CheckpointExpiredException() {
+      super("point in time of checkpoint expired");
+    }
+  }
+}
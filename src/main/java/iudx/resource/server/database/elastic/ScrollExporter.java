@@ -0,0 +1,255 @@
+package iudx.resource.server.database.elastic;
+
+import static iudx.resource.server.database.archives.Constants.SCROLL_KEEP_ALIVE;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.core.ClearScrollRequest;
+import co.elastic.clients.elasticsearch.core.ScrollRequest;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.HitsMetadata;
+import iudx.resource.server.database.async.ProgressListener;
+
+/**
+ * Exports <i>_source</i> of all hits of a scroll search to a file or any other
+ * {@link ExportTarget}, encoded in an {@link ExportFormat}.
+ *
+ * <p>
+ * Export is pipelined and never blocks a thread waiting on Elasticsearch, the scroll request for
+ * page N+1 is sent before page N is written so fetching and writing overlap. At most two pages are
+ * held in memory, the one being written and the one being fetched. Pages are written on the writer
+ * pool given, files through a buffered {@link FileChannel}.
+ * </p>
+ */
+final class ScrollExporter {
+
+  private static final Logger LOGGER = LogManager.getLogger(ScrollExporter.class);
+
+  private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+
+  private final ElasticsearchAsyncClient asyncClient;
+  private final Executor writerPool;
+  private final String name;
+  private final ExportTarget target;
+  private final ExportFormat format;
+  private final ExportProgress progress;
+
+  private ExportEncoder encoder;
+  private volatile String scrollId;
+  private long totalHits;
+
+  /**
+   * @param writerPool pool pages are written on, owned by the caller
+   */
+  ScrollExporter(ElasticsearchAsyncClient asyncClient, Executor writerPool, File file,
+      ProgressListener progressListener) {
+    this(asyncClient, writerPool, file, ExportFormat.JSON,
+        new ExportProgress(progressListener, 1));
+  }
+
+  /**
+   * @param progress progress of the export this scroll is a part of
+   */
+  ScrollExporter(ElasticsearchAsyncClient asyncClient, Executor writerPool, File file,
+      ExportFormat format, ExportProgress progress) {
+    this(asyncClient, writerPool, file.getName(), () -> open(file), format, progress);
+  }
+
+  /**
+   * @param name name of the target, for logging
+   * @param target target the json array is written to, closed once export is done
+   */
+  ScrollExporter(ElasticsearchAsyncClient asyncClient, Executor writerPool, String name,
+      ExportTarget target, ExportFormat format, ProgressListener progressListener) {
+    this(asyncClient, writerPool, name, target, format, new ExportProgress(progressListener, 1));
+  }
+
+  private ScrollExporter(ElasticsearchAsyncClient asyncClient, Executor writerPool, String name,
+      ExportTarget target, ExportFormat format, ExportProgress progress) {
+    this.asyncClient = asyncClient;
+    this.writerPool = writerPool;
+    this.name = name;
+    this.target = target;
+    this.format = format;
+    this.progress = progress;
+  }
+
+  /**
+   * @param searchRequest search request opening the scroll
+   * @return future completed once all hits are written and target is closed
+   */
+  CompletableFuture<Void> export(SearchRequest searchRequest) {
+    int pageSize = searchRequest.size() != null ? searchRequest.size() : 10;
+    return CompletableFuture.runAsync(this::open, writerPool)
+        .thenCompose(opened -> asyncClient.search(searchRequest, ObjectNode.class))
+        .thenCompose(response -> {
+          scrollId = response.scrollId();
+          totalHits = response.hits().total() != null ? response.hits().total().value() : 0;
+          LOGGER.debug("Total documents to be downloaded : {}", totalHits);
+          progress.started(totalHits);
+          return exportPages(response.hits(), pageSize, 0);
+        })
+        .thenRunAsync(this::close, writerPool)
+        .whenComplete((result, failure) -> {
+          if (failure != null) {
+            closeQuietly();
+          }
+          clearScroll();
+        });
+  }
+
+  /**
+   * write page and, unless it is the last one, fetch the next page at the same time.
+   *
+   * @param fetched number of hits fetched before this page
+   */
+  private CompletableFuture<Void> exportPages(HitsMetadata<ObjectNode> page, int pageSize,
+      long fetched) {
+    List<Hit<ObjectNode>> hits = page.hits();
+    if (hits.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    CompletableFuture<Void> written = CompletableFuture.runAsync(() -> write(hits), writerPool);
+    long total = fetched + hits.size();
+    if (hits.size() < pageSize || total >= totalHits) {
+      return written;
+    }
+    ScrollRequest scrollRequest = ScrollRequest
+        .of(s -> s.scrollId(scrollId).scroll(t -> t.time(SCROLL_KEEP_ALIVE)));
+    return asyncClient.scroll(scrollRequest, ObjectNode.class)
+        .thenCombine(written, (next, done) -> next)
+        .thenCompose(next -> {
+          scrollId = next.scrollId();
+          return exportPages(next.hits(), pageSize, total);
+        });
+  }
+
+  /**
+   * @return buffered stream writing to file, truncating it
+   */
+  static OutputStream open(File file) throws IOException {
+    FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    return new BufferedOutputStream(Channels.newOutputStream(channel), WRITE_BUFFER_SIZE);
+  }
+
+  private void open() {
+    try {
+      encoder = format.encoder(target.open());
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  private void write(List<Hit<ObjectNode>> hits) {
+    try {
+      for (Hit<ObjectNode> hit : hits) {
+        encoder.write(hit.source());
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    progress.written(hits.size());
+  }
+
+  private void close() {
+    try {
+      encoder.finish();
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  private void closeQuietly() {
+    if (encoder != null) {
+      try {
+        encoder.close();
+      } catch (IOException ex) {
+        LOGGER.error("failed to close export target {}", name);
+      }
+    }
+  }
+
+  private void clearScroll() {
+    if (scrollId != null) {
+      LOGGER.debug("Closing scroll request with id : {}", scrollId);
+      asyncClient.clearScroll(ClearScrollRequest.of(c -> c.scrollId(scrollId)))
+          .whenComplete((response, failure) -> {
+            if (failure != null) {
+              LOGGER.error("failed to clear scroll : {}", failure.getMessage());
+            }
+          });
+    }
+  }
+
+  /**
+   * Progress of an export made of one or more scrolls. Progress is reported once every scroll has
+   * reported its total hits, so that it never runs ahead of the actual progress.
+   */
+  static final class ExportProgress {
+
+    private final ProgressListener listener;
+    private final int scrolls;
+    private int started;
+    private long totalHits;
+    private long hitsWritten;
+
+    ExportProgress(ProgressListener listener, int scrolls) {
+      this.listener = listener;
+      this.scrolls = scrolls;
+    }
+
+    synchronized void started(long hits) {
+      started++;
+      totalHits += hits;
+      // hits of scrolls started before may all be written already
+      if (started == scrolls && hitsWritten > 0) {
+        report();
+      }
+    }
+
+    synchronized void written(long hits) {
+      hitsWritten += hits;
+      LOGGER.debug("downloaded {} docs of {} total [{} new]", hitsWritten, totalHits, hits);
+      if (started == scrolls) {
+        report();
+      }
+    }
+
+    private void report() {
+      double progress = totalHits == 0 ? 1.0 : Math.min(1.0, (double) hitsWritten / totalHits);
+      // keeping progress at 90% of actual to update the last 10% after upload to external (s3)
+      listener.updateProgress(progress * 0.9);
+    }
+  }
+
+  /**
+   * Target of an export, opened on the writer pool when the export starts.
+   */
+  @FunctionalInterface
+  interface ExportTarget {
+    OutputStream open() throws IOException;
+  }
+
+  /**
+   * @return whether failure of an export is caused by file access
+   */
+  static boolean isIoFailure(Throwable failure) {
+    Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+    return cause instanceof UncheckedIOException || cause instanceof IOException;
+  }
+}
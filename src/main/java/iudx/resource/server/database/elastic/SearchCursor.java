@@ -0,0 +1,120 @@
+package iudx.resource.server.database.elastic;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import iudx.resource.server.database.elastic.exception.ESQueryException;
+
+/**
+ * Opaque pagination cursor handed to clients in place of an offset. Holds the sort values of the
+ * last hit returned and the point in time the next page is to be read from. Clients start a cursor
+ * with {@link #START}, a point in time is opened for the first page so all pages are read from
+ * the same one.
+ */
+public final class SearchCursor {
+
+  /**
+   * Token passed in cursor query parameter to read the first page of a cursor.
+   */
+  public static final String START = "start";
+
+  private static final String PIT_KEY = "pit";
+  private static final String SEARCH_AFTER_KEY = "after";
+
+  private final String pitId;
+  private final List<String> searchAfter;
+
+  public SearchCursor(String pitId, List<String> searchAfter) {
+    this.pitId = pitId;
+    this.searchAfter = searchAfter;
+  }
+
+  public String getPitId() {
+    return pitId;
+  }
+
+  /**
+   * @return sort values of the last hit read, empty for a first page
+   */
+  public List<String> getSearchAfter() {
+    return searchAfter;
+  }
+
+  public boolean isStart() {
+    return searchAfter.isEmpty();
+  }
+
+  /**
+   * @return cursor with the given point in time and same sort values
+   */
+  public SearchCursor withPitId(String pitId) {
+    return new SearchCursor(pitId, searchAfter);
+  }
+
+  /**
+   * Cursor to be handed out with a page of search results.
+   *
+   * @param cursor cursor the page was requested with, null for offset pagination
+   * @param pitId point in time id returned with the page
+   * @param lastSort sort values of the last hit in page
+   * @param hits number of hits in page
+   * @param size requested page size
+   * @return cursor for next page, null if there are no more results or page was not requested
+   *         with a cursor
+   */
+  public static SearchCursor next(SearchCursor cursor, String pitId, List<String> lastSort,
+      int hits, int size) {
+    if (cursor == null || hits == 0 || hits < size || lastSort == null || lastSort.isEmpty()) {
+      return null;
+    }
+    return new SearchCursor(pitId != null ? pitId : cursor.getPitId(), lastSort);
+  }
+
+  /**
+   * Encodes cursor as URL safe base64 token.
+   *
+   * @return token to be passed by clients in cursor query parameter
+   */
+  public String encode() {
+    JsonObject json = new JsonObject()
+        .put(SEARCH_AFTER_KEY, new JsonArray(new ArrayList<>(searchAfter)));
+    if (pitId != null) {
+      json.put(PIT_KEY, pitId);
+    }
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(json.encode().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decodes a token created by {@link #encode()}, or {@link #START}.
+   *
+   * @param token cursor token
+   * @return SearchCursor
+   * @throws ESQueryException if token is not a valid cursor
+   */
+  public static SearchCursor decode(String token) {
+    if (START.equals(token)) {
+      return new SearchCursor(null, List.of());
+    }
+    try {
+      JsonObject json =
+          new JsonObject(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+      JsonArray after = json.getJsonArray(SEARCH_AFTER_KEY);
+      if (after == null || after.isEmpty()) {
+        throw new ESQueryException("Invalid cursor");
+      }
+      List<String> searchAfter = new ArrayList<>(after.size());
+      for (int i = 0; i < after.size(); i++) {
+        searchAfter.add(String.valueOf(after.getValue(i)));
+      }
+      return new SearchCursor(json.getString(PIT_KEY), searchAfter);
+    } catch (ESQueryException ex) {
+      throw ex;
+    } catch (Exception ex) {
+      throw new ESQueryException("Invalid cursor");
+    }
+  }
+}
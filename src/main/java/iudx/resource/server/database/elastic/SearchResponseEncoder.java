@@ -0,0 +1,299 @@
+package iudx.resource.server.database.elastic;
+
+import static iudx.resource.server.database.archives.Constants.PARAM_CURSOR;
+import static iudx.resource.server.database.archives.Constants.PARAM_FROM;
+import static iudx.resource.server.database.archives.Constants.PARAM_SIZE;
+import static iudx.resource.server.database.archives.Constants.RESULTS;
+import static iudx.resource.server.database.archives.Constants.TITLE;
+import static iudx.resource.server.database.archives.Constants.TOTAL_HITS;
+import static iudx.resource.server.database.archives.Constants.TYPE_KEY;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import co.elastic.clients.elasticsearch.core.search.TotalHitsRelation;
+import io.vertx.core.buffer.Buffer;
+import iudx.resource.server.common.ResponseUrn;
+
+/**
+ * Copies the <i>_source</i> of every hit from a raw Elasticsearch search response into the standard
+ * <code>{type, title, results}</code> response envelope. Documents are copied token by token from
+ * the response stream to the envelope without building any intermediate object tree, and the
+ * envelope is encoded in chunks as they are requested, so it is never held whole in memory.
+ *
+ * <p>
+ * Expects the response to be filtered with
+ * {@link iudx.resource.server.database.archives.Constants#FILTER_PATH_STREAM}.
+ * </p>
+ */
+public class SearchResponseEncoder implements Closeable {
+
+  private static final Logger LOGGER = LogManager.getLogger(SearchResponseEncoder.class);
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private final int size;
+  private final int from;
+  private final SearchCursor cursor;
+
+  private long totalHits = 0;
+  private String totalHitsRelation = TotalHitsRelation.Eq.jsonValue();
+  private int hitsWritten = 0;
+  private String pitId;
+  private List<String> lastSort;
+  private SearchCursor nextCursor;
+  private JsonParser parser;
+  private boolean hitsPending;
+  private final BufferOutputStream chunk = new BufferOutputStream();
+  private JsonGenerator generator;
+  private boolean done;
+  private boolean closed;
+  private Runnable closeHandler;
+
+  /**
+   * @param size page size to be added in envelope as limit
+   * @param from page offset to be added in envelope as offset
+   * @param cursor cursor the page is requested with, null if not a cursor request
+   */
+  public SearchResponseEncoder(int size, int from, SearchCursor cursor) {
+    this.size = size;
+    this.from = from;
+    this.cursor = cursor;
+  }
+
+  public long getTotalHits() {
+    return totalHits;
+  }
+
+  public String getTotalHitsRelation() {
+    return totalHitsRelation;
+  }
+
+  public int getHitsWritten() {
+    return hitsWritten;
+  }
+
+  /**
+   * @return cursor of the next page, null until the whole envelope is encoded or on last page
+   */
+  public SearchCursor getNextCursor() {
+    return nextCursor;
+  }
+
+  /**
+   * @return whether the whole envelope is encoded
+   */
+  public boolean isDone() {
+    return done;
+  }
+
+  /**
+   * @param closeHandler called once when the encoder is closed, whether the envelope was encoded
+   *        whole or abandoned
+   */
+  public void closeHandler(Runnable closeHandler) {
+    this.closeHandler = closeHandler;
+  }
+
+  /**
+   * Reads a search response up to its hits, so that total hits are known before any hit is
+   * written. Elasticsearch writes total hits and the point in time id ahead of the hits.
+   *
+   * @param response raw search response body, closed with the encoder
+   * @throws IOException if response is not a valid json
+   */
+  public void readHeader(InputStream response) throws IOException {
+    parser = JSON_FACTORY.createParser(response);
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      return;
+    }
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      if ("hits".equals(field)) {
+        if (readHitsHeader()) {
+          hitsPending = true;
+          return;
+        }
+      } else if ("pit_id".equals(field)) {
+        pitId = parser.getText();
+      } else {
+        parser.skipChildren();
+      }
+    }
+  }
+
+  /**
+   * Encodes the next chunk of the response envelope with the hits of the response read by
+   * {@link #readHeader(InputStream)}. Hits are copied until the chunk reaches chunkSize bytes, the
+   * last chunk ends the envelope.
+   *
+   * @param chunkSize size in bytes after which no more hits are added to the chunk
+   * @return Buffer containing the next part of the encoded response envelope
+   * @throws IOException if response is not a valid json
+   */
+  public Buffer nextChunk(int chunkSize) throws IOException {
+    if (done) {
+      return Buffer.buffer();
+    }
+    if (generator == null) {
+      generator = JSON_FACTORY.createGenerator(chunk, JsonEncoding.UTF8);
+      generator.writeStartObject();
+      generator.writeStringField(TYPE_KEY, ResponseUrn.SUCCESS_URN.getUrn());
+      generator.writeStringField(TITLE, ResponseUrn.SUCCESS_URN.getMessage());
+      generator.writeArrayFieldStart(RESULTS);
+    }
+
+    while (hitsPending && chunk.buffer.length() + generator.getOutputBuffered() < chunkSize) {
+      if (parser.nextToken() == JsonToken.START_OBJECT) {
+        readHit(parser, generator);
+      } else {
+        hitsPending = false;
+        readTrailer();
+      }
+    }
+
+    if (hitsPending) {
+      generator.flush();
+    } else {
+      generator.writeEndArray();
+      generator.writeNumberField(PARAM_SIZE, size);
+      generator.writeNumberField(PARAM_FROM, from);
+      generator.writeNumberField(TOTAL_HITS, totalHits);
+      nextCursor = SearchCursor.next(cursor, pitId, lastSort, hitsWritten, size);
+      if (nextCursor != null) {
+        generator.writeStringField(PARAM_CURSOR, nextCursor.encode());
+      }
+      generator.writeEndObject();
+      generator.close();
+      done = true;
+    }
+    return chunk.take();
+  }
+
+  /**
+   * Closes the response read by {@link #readHeader(InputStream)} and calls the close handler.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (parser != null) {
+        parser.close();
+      }
+    } catch (IOException ex) {
+      LOGGER.warn("failed to close search response : {}", ex.getMessage());
+    }
+    if (closeHandler != null) {
+      closeHandler.run();
+    }
+  }
+
+  /**
+   * Reads the rest of the hits object and of the response after the array of hits.
+   */
+  private void readTrailer() throws IOException {
+    readHitsHeader();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      if ("pit_id".equals(field)) {
+        pitId = parser.getText();
+      } else {
+        parser.skipChildren();
+      }
+    }
+  }
+
+  /**
+   * Reads fields of the hits object up to the array of hits.
+   *
+   * @return whether the parser is at the start of the array of hits
+   */
+  private boolean readHitsHeader() throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      if ("total".equals(field)) {
+        readTotal(parser);
+      } else if ("hits".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+        return true;
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return false;
+  }
+
+  private void readTotal(JsonParser parser) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      if ("value".equals(field)) {
+        totalHits = parser.getLongValue();
+      } else if ("relation".equals(field)) {
+        totalHitsRelation = parser.getText();
+      } else {
+        parser.skipChildren();
+      }
+    }
+  }
+
+  private void readHit(JsonParser parser, JsonGenerator generator) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      if ("_source".equals(field)) {
+        generator.copyCurrentStructure(parser);
+        hitsWritten++;
+      } else if ("sort".equals(field)) {
+        lastSort = readSort(parser);
+      } else {
+        parser.skipChildren();
+      }
+    }
+  }
+
+  private List<String> readSort(JsonParser parser) throws IOException {
+    List<String> sort = new ArrayList<>();
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      sort.add(parser.getText());
+    }
+    return sort;
+  }
+
+  /**
+   * OutputStream appending directly to a vert.x buffer, taken once per chunk.
+   */
+  private static class BufferOutputStream extends OutputStream {
+
+    private Buffer buffer = Buffer.buffer();
+
+    Buffer take() {
+      Buffer taken = buffer;
+      buffer = Buffer.buffer();
+      return taken;
+    }
+
+    @Override
+    public void write(int b) {
+      buffer.appendByte((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      buffer.appendBytes(b, off, len);
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package iudx.resource.server.database.elastic;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.IntFunction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import iudx.resource.server.database.async.ProgressListener;
+import iudx.resource.server.database.elastic.ScrollExporter.ExportProgress;
+
+/**
+ * Exports all hits of a search to a file using a sliced scroll, each slice is scrolled in parallel
+ * by its own {@link ScrollExporter} into a segment file. Segments are concatenated into the final
+ * file with {@link FileChannel#transferTo} so the exported documents are never read back, contents
+ * of json array segments are combined into one array, gzipped segments are valid gzip members and
+ * are concatenated as they are.
+ */
+final class SlicedScrollExporter {
+
+  private static final Logger LOGGER = LogManager.getLogger(SlicedScrollExporter.class);
+
+  private static final byte[] ARRAY_START = "[".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] ARRAY_END = "]".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] SEPARATOR = ",".getBytes(StandardCharsets.UTF_8);
+
+  private final ElasticsearchAsyncClient asyncClient;
+  private final Executor writerPool;
+  private final File file;
+  private final int slices;
+  private final ExportFormat format;
+  private final ExportProgress progress;
+
+  /**
+   * @param writerPool pool pages and segments are written on, owned by the caller
+   * @param format a {@link ExportFormat#isSliceable() sliceable} format
+   */
+  SlicedScrollExporter(ElasticsearchAsyncClient asyncClient, Executor writerPool, File file,
+      int slices, ExportFormat format, ProgressListener progressListener) {
+    if (!format.isSliceable()) {
+      throw new IllegalArgumentException(format + " exports can not be sliced");
+    }
+    this.asyncClient = asyncClient;
+    this.writerPool = writerPool;
+    this.file = file;
+    this.slices = slices;
+    this.format = format;
+    this.progress = new ExportProgress(progressListener, slices);
+  }
+
+  /**
+   * @param sliceRequest search request opening the scroll of a slice id
+   * @return future completed once all slices are exported and combined into file
+   */
+  CompletableFuture<Void> export(IntFunction<SearchRequest> sliceRequest) {
+    List<File> segments = new ArrayList<>(slices);
+    List<CompletableFuture<Void>> exports = new ArrayList<>(slices);
+    for (int slice = 0; slice < slices; slice++) {
+      File segment = new File(file.getPath() + ".part" + slice);
+      segments.add(segment);
+      exports.add(new ScrollExporter(asyncClient, writerPool, segment, format, progress)
+          .export(sliceRequest.apply(slice)));
+    }
+    return CompletableFuture.allOf(exports.toArray(new CompletableFuture[0]))
+        .thenRunAsync(() -> combine(segments), writerPool)
+        .whenComplete((result, failure) -> segments.forEach(File::delete));
+  }
+
+  private void combine(List<File> segments) {
+    try (FileChannel target = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      if (format == ExportFormat.JSON) {
+        combineArrays(segments, target);
+      } else {
+        for (File segment : segments) {
+          try (FileChannel source = FileChannel.open(segment.toPath(), StandardOpenOption.READ)) {
+            transferFully(source, 0, source.size(), target);
+          }
+        }
+      }
+      LOGGER.debug("combined {} segments into {} [{} bytes]", segments.size(), file.getName(),
+          Files.size(file.toPath()));
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  private void combineArrays(List<File> segments, FileChannel target) throws IOException {
+    writeFully(target, ARRAY_START);
+    boolean first = true;
+    for (File segment : segments) {
+      try (FileChannel source = FileChannel.open(segment.toPath(), StandardOpenOption.READ)) {
+        // contents of segment without its enclosing brackets
+        long size = source.size() - 2;
+        if (size <= 0) {
+          continue;
+        }
+        if (!first) {
+          writeFully(target, SEPARATOR);
+        }
+        first = false;
+        transferFully(source, 1, size, target);
+      }
+    }
+    writeFully(target, ARRAY_END);
+  }
+
+  private void transferFully(FileChannel source, long position, long count, FileChannel target)
+      throws IOException {
+    long end = position + count;
+    while (position < end) {
+      position += source.transferTo(position, end - position, target);
+    }
+  }
+
+  private void writeFully(FileChannel channel, byte[] bytes) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+}
@@ -0,0 +1,203 @@
+package iudx.resource.server.database.latest;
+
+import static iudx.resource.server.database.archives.Constants.LATEST_INVALIDATOR_MAP;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.redis.client.Command;
+import io.vertx.redis.client.Redis;
+import io.vertx.redis.client.RedisClientType;
+import io.vertx.redis.client.RedisOptions;
+import io.vertx.redis.client.Request;
+import io.vertx.redis.client.Response;
+import io.vertx.redis.client.ResponseType;
+
+/**
+ * Invalidates keys of a {@link LatestNearCache} on redis keyspace notifications. Notifications are
+ * only published by the node holding a key, so every master of a cluster is subscribed to.
+ * Notifications must be enabled on the server, e.g. <i>notify-keyspace-events KA</i>, values are
+ * only refreshed on TTL otherwise.
+ *
+ * <p>
+ * Notifications published while a subscription is down are lost, so the whole cache is
+ * invalidated when a subscription drops and again once subscribed, values got meanwhile may be
+ * stale. Masters may have changed when a subscription drops, e.g. on a failover, so all nodes are
+ * resolved and subscribed to again after a delay.
+ * </p>
+ *
+ * <p>
+ * The near cache is shared by all instances of the LatestVerticle, so is its invalidator. It is
+ * {@link #acquire(Vertx, LatestNearCache) acquired} by every {@link RedisClient}, started by the
+ * first of them and closed once the last one {@link #release(Supplier) released} it. Nodes are
+ * resolved by any of the users that did not release it yet.
+ * </p>
+ */
+final class KeyspaceInvalidator implements Shareable {
+
+  private static final Logger LOGGER = LogManager.getLogger(KeyspaceInvalidator.class);
+
+  static final String KEYSPACE_PATTERN = "__keyspace@*__:*";
+  private static final String KEYSPACE_SEPARATOR = "__:";
+  private static final long RESUBSCRIBE_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+  private final Vertx vertx;
+  private final LatestNearCache cache;
+  private final List<Redis> clients = new ArrayList<>();
+  private final List<Supplier<Future<List<String>>>> resolvers = new ArrayList<>();
+  private volatile boolean closed;
+  // incremented when subscriptions drop, failures of former subscriptions are ignored
+  private long generation;
+  // changed only within compute of the shared map
+  private int references;
+  private Future<Void> started;
+
+  private KeyspaceInvalidator(Vertx vertx, LatestNearCache cache) {
+    this.vertx = vertx;
+    this.cache = cache;
+  }
+
+  /**
+   * @return invalidator shared by all users of cache, to be released once not used anymore
+   */
+  static KeyspaceInvalidator acquire(Vertx vertx, LatestNearCache cache) {
+    LocalMap<String, KeyspaceInvalidator> invalidators =
+        vertx.sharedData().getLocalMap(LATEST_INVALIDATOR_MAP);
+    return invalidators.compute(LATEST_INVALIDATOR_MAP, (key, shared) -> {
+      KeyspaceInvalidator invalidator =
+          shared != null ? shared : new KeyspaceInvalidator(vertx, cache);
+      invalidator.references++;
+      return invalidator;
+    });
+  }
+
+  /**
+   * Releases an acquired invalidator, closing it if it is not used by anyone else.
+   *
+   * @param endpoints supplier the invalidator was started with, not used to resolve nodes anymore
+   */
+  void release(Supplier<Future<List<String>>> endpoints) {
+    synchronized (this) {
+      resolvers.remove(endpoints);
+    }
+    LocalMap<String, KeyspaceInvalidator> invalidators =
+        vertx.sharedData().getLocalMap(LATEST_INVALIDATOR_MAP);
+    invalidators.computeIfPresent(LATEST_INVALIDATOR_MAP, (key, shared) -> {
+      if (shared != this || --references > 0) {
+        return shared;
+      }
+      close();
+      return null;
+    });
+  }
+
+  /**
+   * Subscribes to the nodes unless the invalidator is started already.
+   *
+   * @param endpoints connection strings of the nodes to subscribe to, got again on every
+   *        resubscription until released
+   * @return future completed once subscribed to all nodes
+   */
+  synchronized Future<Void> start(Supplier<Future<List<String>>> endpoints) {
+    resolvers.add(endpoints);
+    if (started == null) {
+      started = subscribe();
+    }
+    return started;
+  }
+
+  private Future<Void> subscribe() {
+    Supplier<Future<List<String>>> endpoints;
+    long current;
+    synchronized (this) {
+      if (closed || resolvers.isEmpty()) {
+        return Future.failedFuture("invalidator closed");
+      }
+      endpoints = resolvers.get(resolvers.size() - 1);
+      current = generation;
+    }
+    return endpoints.get()
+        .compose(resolved -> subscribe(current, resolved))
+        .onFailure(failure -> resubscribe(current, failure.getMessage()));
+  }
+
+  private synchronized Future<Void> subscribe(long current, List<String> endpoints) {
+    if (closed || current != generation) {
+      return Future.failedFuture("subscription superseded");
+    }
+    List<Future> subscriptions = new ArrayList<>();
+    for (String endpoint : endpoints) {
+      Redis client = Redis.createClient(vertx, new RedisOptions()
+          .setType(RedisClientType.STANDALONE)
+          .setConnectionString(endpoint));
+      clients.add(client);
+      subscriptions.add(subscribe(current, client));
+    }
+    return CompositeFuture.all(subscriptions).mapEmpty();
+  }
+
+  private Future<Void> subscribe(long current, Redis client) {
+    return client.connect().compose(connection -> {
+      connection.handler(this::handleNotification);
+      connection.exceptionHandler(failure -> resubscribe(current, failure.getMessage()));
+      connection.endHandler(end -> resubscribe(current, "connection closed"));
+      return connection.send(Request.cmd(Command.PSUBSCRIBE).arg(KEYSPACE_PATTERN));
+    }).<Void>mapEmpty().onSuccess(subscribed -> cache.invalidateAll());
+  }
+
+  /**
+   * Drops all subscriptions of a generation and subscribes to the nodes resolved again after a
+   * delay, once per generation however many of its subscriptions failed.
+   */
+  private void resubscribe(long failed, String reason) {
+    List<Redis> dropped;
+    synchronized (this) {
+      if (closed || failed != generation) {
+        return;
+      }
+      generation++;
+      dropped = new ArrayList<>(clients);
+      clients.clear();
+    }
+    LOGGER.warn("keyspace notifications subscription lost : {}", reason);
+    cache.invalidateAll();
+    dropped.forEach(Redis::close);
+    vertx.setTimer(RESUBSCRIBE_DELAY_MILLIS, timer -> subscribe());
+  }
+
+  private void handleNotification(Response message) {
+    String key = keyOf(message);
+    if (key != null) {
+      cache.invalidate(key);
+    }
+  }
+
+  /**
+   * @return key a keyspace notification is for, null if message is not a notification
+   */
+  static String keyOf(Response message) {
+    // pub/sub messages are arrays on RESP2 and pushes on RESP3
+    if (message == null
+        || (message.type() != ResponseType.MULTI && message.type() != ResponseType.PUSH)
+        || message.size() < 4
+        || !"pmessage".equals(message.get(0).toString())) {
+      return null;
+    }
+    String channel = message.get(2).toString();
+    int separator = channel.indexOf(KEYSPACE_SEPARATOR);
+    return separator < 0 ? null : channel.substring(separator + KEYSPACE_SEPARATOR.length());
+  }
+
+  private synchronized void close() {
+    closed = true;
+    clients.forEach(Redis::close);
+    clients.clear();
+  }
+}
@@ -5,7 +5,12 @@ import static iudx.resource.server.database.archives.Constants.EMPTY_RESOURCE_ID
 import static iudx.resource.server.database.archives.Constants.FAILED;
 import static iudx.resource.server.database.archives.Constants.ID;
 import static iudx.resource.server.database.archives.Constants.ID_NOT_FOUND;
+import static iudx.resource.server.database.archives.Constants.RESPONSE_ATTRS;
 import static iudx.resource.server.database.archives.Constants.SUCCESS;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -40,10 +45,21 @@ public class LatestDataServiceImpl implements LatestDataService {
   // private RedisAPI redisAPI;
   private RedisCommandArgsBuilder redisCmdBuilder = new RedisCommandArgsBuilder();
   private final CacheService cache;
+  private final LatestSnapshotStore snapshots;
 
   public LatestDataServiceImpl(RedisClient client, final CacheService cacheService) {
+    this(client, cacheService, null);
+  }
+
+  /**
+   * @param snapshotStore in-memory latest values answered from before redis, null to always get
+   *        them from redis
+   */
+  public LatestDataServiceImpl(RedisClient client, final CacheService cacheService,
+      final LatestSnapshotStore snapshotStore) {
     this.redisClient = client;
     this.cache = cacheService;
+    this.snapshots = snapshotStore;
   }
 
   /**
@@ -75,14 +91,32 @@ public class LatestDataServiceImpl implements LatestDataService {
       handler.handle(Future.failedFuture(responseBuilder.getResponse().toString()));
       return null;
     }
+    List<String> attrs = request.containsKey(RESPONSE_ATTRS)
+        ? request.getJsonArray(RESPONSE_ATTRS).stream().map(String::valueOf)
+            .collect(Collectors.toList())
+        : null;
+    // projections are got along with the values in a batch
+    if (request.getJsonArray(ID).size() > 1 || attrs != null) {
+      List<String> ids = request.getJsonArray(ID).stream().map(String::valueOf)
+          .distinct().collect(Collectors.toList());
+      getLatestValues(ids, attrs, handler);
+      return this;
+    }
     String id = request.getJsonArray(ID).getString(0);
 
+    JsonArray snapshot = snapshots == null ? null : snapshots.get(id);
+    if (snapshot != null) {
+      responseBuilder = new ResponseBuilder(SUCCESS).setTypeAndTitle(200).setMessage(snapshot);
+      handler.handle(Future.succeededFuture(responseBuilder.getResponse()));
+      return this;
+    }
+
     isUniqueAttrRecordExist(id).onComplete(uaHandler -> {
       if (uaHandler.succeeded()) {
         LOGGER.debug("unique_attribute for id :" + id + " is :" + uaHandler.result());
-        getLatestValue(id, true, handler);
+        getLatestValue(id, uaHandler.result().getString("value"), handler);
       } else {
-        getLatestValue(id, false, handler);
+        getLatestValue(id, null, handler);
       }
     });
     return this;
@@ -96,10 +130,17 @@ public class LatestDataServiceImpl implements LatestDataService {
     return new JsonArray().add(result);
   }
 
-  private void getLatestValue(final String id, final boolean isUniqueAttrRecordExist,
+  /**
+   * Gets latest value of a resource from redis, latest values of a resource with a unique attribute
+   * are seeded into the snapshot store along the way.
+   *
+   * @param uniqueAttribute name of the unique attribute of the resource, null if it has none
+   */
+  private void getLatestValue(final String id, final String uniqueAttribute,
       Handler<AsyncResult<JsonObject>> handler) {
-
+    final boolean isUniqueAttrRecordExist = uniqueAttribute != null;
     RedisArgs args = redisCmdBuilder.getRedisCommandArgs(id, isUniqueAttrRecordExist);
+    long generation = snapshots == null ? 0 : snapshots.generation();
 
     LOGGER.debug("key : " + args.getKey() + " path : " + args.getPath());
     JsonArray response = new JsonArray();
@@ -108,6 +149,9 @@ public class LatestDataServiceImpl implements LatestDataService {
         LOGGER.debug("Success: Successful Redis request");
         response
             .addAll(extractValues(args.getKey(), searchRes.result(), isUniqueAttrRecordExist));
+        if (snapshots != null && isUniqueAttrRecordExist) {
+          snapshots.seed(id, uniqueAttribute, response, generation);
+        }
         responseBuilder = new ResponseBuilder(SUCCESS).setTypeAndTitle(200).setMessage(response);
         handler.handle(Future.succeededFuture(responseBuilder.getResponse()));
       } else {
@@ -117,6 +161,174 @@ public class LatestDataServiceImpl implements LatestDataService {
     });
   }
 
+  /**
+   * Gets latest values of many ids, from the snapshot store if held there, others with one cache
+   * call for their unique attributes and pipelined redis gets, instead of a round trip of each per
+   * id. Ids without a latest value are left out of the results.
+   */
+  private void getLatestValues(List<String> ids, List<String> attrs,
+      Handler<AsyncResult<JsonObject>> handler) {
+    JsonArray fromSnapshots = new JsonArray();
+    List<String> missing = new ArrayList<>(ids.size());
+    for (String id : ids) {
+      JsonArray snapshot = snapshots == null ? null : snapshots.get(id);
+      if (snapshot == null) {
+        missing.add(id);
+      } else {
+        fromSnapshots.addAll(project(snapshot, attrs));
+      }
+    }
+    Future<JsonArray> fromRedis = missing.isEmpty()
+        ? Future.succeededFuture(new JsonArray())
+        : getLatestValuesFromRedis(missing, attrs);
+    fromRedis.map(response -> fromSnapshots.addAll(response))
+        .onSuccess(response -> {
+          LOGGER.debug("Success: latest values of {} ids found for {}", response.size(),
+              ids.size());
+          if (response.isEmpty()) {
+            responseBuilder = new ResponseBuilder(FAILED).setTypeAndTitle(204)
+                .setMessage("latest values not found");
+            handler.handle(Future.failedFuture(responseBuilder.getResponse().toString()));
+            return;
+          }
+          responseBuilder = new ResponseBuilder(SUCCESS).setTypeAndTitle(200).setMessage(response);
+          handler.handle(Future.succeededFuture(responseBuilder.getResponse()));
+        })
+        .onFailure(failure -> {
+          LOGGER.error("Fail: Redis Cache Request;" + failure.getMessage());
+          responseBuilder = new ResponseBuilder(FAILED).setTypeAndTitle(204)
+              .setMessage(failure.getMessage());
+          handler.handle(Future.failedFuture(responseBuilder.getResponse().toString()));
+        });
+  }
+
+  /**
+   * Gets latest values from redis. With attrs, only those attributes are got using multi-path
+   * gets, values missing an attribute are got whole and projected here instead.
+   */
+  private Future<JsonArray> getLatestValuesFromRedis(List<String> ids, List<String> attrs) {
+    JsonObject requestJson = new JsonObject();
+    requestJson.put("type", CacheType.UNIQUE_ATTRIBUTE);
+    requestJson.put("keys", new JsonArray(ids));
+
+    return cache.getAll(requestJson)
+        .otherwise(failure -> {
+          LOGGER.warn("unique attributes not resolved : " + failure.getMessage());
+          return new JsonObject();
+        })
+        .compose(uniqueAttributes -> getSnapshotNames(ids, uniqueAttributes, attrs)
+            .compose(snapshotNames -> {
+              List<RedisArgs> args = new ArrayList<>(ids.size());
+              for (String id : ids) {
+                boolean groupSnapshot = uniqueAttributes.containsKey(id);
+                if (attrs == null || (groupSnapshot && !snapshotNames.containsKey(id))) {
+                  args.add(redisCmdBuilder.getRedisCommandArgs(id, groupSnapshot));
+                } else {
+                  args.add(redisCmdBuilder.getRedisCommandArgs(id, snapshotNames.get(id), attrs));
+                }
+              }
+              // args values are finally got with
+              List<RedisArgs> gotWith = new ArrayList<>(args);
+              return redisClient.getAll(args)
+                  .compose(results -> getUnprojected(ids, uniqueAttributes, gotWith, results))
+                  .map(results -> {
+                    JsonArray response = new JsonArray();
+                    for (int i = 0; i < results.size(); i++) {
+                      if (results.get(i) != null) {
+                        JsonArray values = extractValues(gotWith.get(i).getKey(), results.get(i),
+                            uniqueAttributes.containsKey(ids.get(i)));
+                        response.addAll(gotWith.get(i).isProjected() ? values
+                            : project(values, attrs));
+                      }
+                    }
+                    return response;
+                  });
+            }));
+  }
+
+  /**
+   * @return unique attribute values of the snapshots of group snapshot ids, by id, if attrs are to
+   *         be got of them
+   */
+  private Future<Map<String, List<String>>> getSnapshotNames(List<String> ids,
+      JsonObject uniqueAttributes, List<String> attrs) {
+    List<String> groupSnapshotIds = attrs == null ? List.of()
+        : ids.stream().filter(uniqueAttributes::containsKey).collect(Collectors.toList());
+    if (groupSnapshotIds.isEmpty()) {
+      return Future.succeededFuture(Map.of());
+    }
+    List<String> keys = groupSnapshotIds.stream()
+        .map(id -> redisCmdBuilder.getRedisCommandArgs(id, true).getKey())
+        .collect(Collectors.toList());
+    return redisClient.getObjectKeys(keys).map(objectKeys -> {
+      Map<String, List<String>> snapshotNames = new HashMap<>();
+      for (int i = 0; i < keys.size(); i++) {
+        List<String> names = objectKeys.get(i);
+        if (names != null) {
+          // snapshots are stored along with a member named after the key, see extractValues
+          String key = keys.get(i);
+          names = names.stream().filter(name -> !name.equals(key)).collect(Collectors.toList());
+        }
+        if (names != null && !names.isEmpty()) {
+          snapshotNames.put(groupSnapshotIds.get(i), names);
+        }
+      }
+      return snapshotNames;
+    }).otherwise(failure -> {
+      LOGGER.warn("snapshots not resolved, getting them whole : " + failure.getMessage());
+      return Map.of();
+    });
+  }
+
+  /**
+   * A multi-path get fails if a path is missing, so values of projected args not got are got whole
+   * instead. args are replaced by the unprojected args got with.
+   */
+  private Future<List<JsonObject>> getUnprojected(List<String> ids, JsonObject uniqueAttributes,
+      List<RedisArgs> args, List<JsonObject> results) {
+    List<Integer> notFound = new ArrayList<>();
+    List<RedisArgs> unprojected = new ArrayList<>();
+    for (int i = 0; i < results.size(); i++) {
+      if (results.get(i) == null && args.get(i).isProjected()) {
+        notFound.add(i);
+        unprojected.add(redisCmdBuilder.getRedisCommandArgs(ids.get(i),
+            uniqueAttributes.containsKey(ids.get(i))));
+      }
+    }
+    if (notFound.isEmpty()) {
+      return Future.succeededFuture(results);
+    }
+    return redisClient.getAll(unprojected).map(wholeResults -> {
+      List<JsonObject> merged = new ArrayList<>(results);
+      for (int i = 0; i < notFound.size(); i++) {
+        args.set(notFound.get(i), unprojected.get(i));
+        merged.set(notFound.get(i), wholeResults.get(i));
+      }
+      return merged;
+    });
+  }
+
+  /**
+   * @return values with only attrs, values as is if attrs is null
+   */
+  private static JsonArray project(JsonArray values, List<String> attrs) {
+    if (attrs == null) {
+      return values;
+    }
+    JsonArray projected = new JsonArray();
+    for (int i = 0; i < values.size(); i++) {
+      JsonObject value = values.getJsonObject(i);
+      JsonObject attributes = new JsonObject();
+      for (String attr : attrs) {
+        if (value.containsKey(attr)) {
+          attributes.put(attr, value.getValue(attr));
+        }
+      }
+      projected.add(attributes);
+    }
+    return projected;
+  }
+
   public Future<JsonObject> isUniqueAttrRecordExist(String id) {
     Promise<JsonObject> promise = Promise.promise();
 
@@ -0,0 +1,145 @@
+package iudx.resource.server.database.latest;
+
+import static iudx.resource.server.database.archives.Constants.LATEST_CACHE_METRIC;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+
+/**
+ * In-process cache of latest values got from redis, by key and path. Entries are invalidated by
+ * key on redis keyspace notifications, see {@link KeyspaceInvalidator}, and expire after a TTL in
+ * case a notification is missed. Least recently used entries are evicted to keep the cache within
+ * its memory budget.
+ *
+ * <p>
+ * A value got from redis is only cached if its key was not invalidated since the get was sent,
+ * see {@link #stamp()}, so a get racing an update does not cache the value it replaced.
+ * </p>
+ */
+public class LatestNearCache implements Shareable {
+
+  private static final Counter HITS = Metrics.counter(LATEST_CACHE_METRIC, "result", "hit");
+  private static final Counter MISSES = Metrics.counter(LATEST_CACHE_METRIC, "result", "miss");
+
+  private final Cache<String, KeyEntries> cache;
+  // invalidations of keys recent enough to race a get in flight
+  private final Cache<String, Long> invalidations;
+  private final AtomicLong sequence = new AtomicLong();
+  private volatile long clearedAt;
+  private final long ttlMillis;
+
+  /**
+   * @param maxBytes memory budget of cached values
+   * @param ttl time after which a value is got from redis again if it was not invalidated
+   */
+  public LatestNearCache(long maxBytes, Duration ttl) {
+    this.ttlMillis = ttl.toMillis();
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxBytes)
+        .<String, KeyEntries>weigher((key, entries) -> key.length() + entries.weight)
+        .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+        .build();
+    this.invalidations = CacheBuilder.newBuilder()
+        .expireAfterWrite(1, TimeUnit.MINUTES)
+        .build();
+  }
+
+  /**
+   * @return stamp to pass to {@link #put(String, String, JsonObject, int, long)} for a value got
+   *         from redis after this call
+   */
+  public long stamp() {
+    return sequence.get();
+  }
+
+  /**
+   * @return copy of the cached value of the path of key, null if not cached
+   */
+  public JsonObject get(String key, String path) {
+    KeyEntries entries = cache.getIfPresent(key);
+    Entry entry = entries == null ? null : entries.paths.get(path);
+    if (entry == null || entry.expiresAt < System.currentTimeMillis()) {
+      MISSES.increment();
+      return null;
+    }
+    HITS.increment();
+    return entry.value.copy();
+  }
+
+  /**
+   * @param weight size of the value, e.g. length of its json
+   * @param stamp {@link #stamp()} taken before the value was got from redis
+   */
+  public void put(String key, String path, JsonObject value, int weight, long stamp) {
+    Long invalidatedAt = invalidations.getIfPresent(key);
+    if (clearedAt > stamp || (invalidatedAt != null && invalidatedAt > stamp)) {
+      return;
+    }
+    Entry entry = new Entry(value.copy(), weight, System.currentTimeMillis() + ttlMillis);
+    cache.asMap().compute(key,
+        (cacheKey, entries) -> entries == null ? new KeyEntries(path, entry)
+            : entries.with(path, entry));
+  }
+
+  public void invalidate(String key) {
+    invalidations.put(key, sequence.incrementAndGet());
+    cache.invalidate(key);
+  }
+
+  /**
+   * Invalidates all values, e.g. when notifications may have been missed.
+   */
+  public void invalidateAll() {
+    clearedAt = sequence.incrementAndGet();
+    cache.invalidateAll();
+  }
+
+  private static final class Entry {
+
+    private final JsonObject value;
+    private final int weight;
+    private final long expiresAt;
+
+    Entry(JsonObject value, int weight, long expiresAt) {
+      this.value = value;
+      this.weight = weight;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  /**
+   * Values of the paths of a key, replaced as a whole on update so its weight stays correct.
+   */
+  private static final class KeyEntries {
+
+    private final Map<String, Entry> paths;
+    private final int weight;
+
+    KeyEntries(String path, Entry entry) {
+      this(Map.of(path, entry));
+    }
+
+    private KeyEntries(Map<String, Entry> paths) {
+      this.paths = paths;
+      int total = 0;
+      for (Map.Entry<String, Entry> path : paths.entrySet()) {
+        total += path.getKey().length() + path.getValue().weight;
+      }
+      this.weight = total;
+    }
+
+    KeyEntries with(String path, Entry entry) {
+      Map<String, Entry> updated = new HashMap<>(paths);
+      updated.put(path, entry);
+      return new KeyEntries(updated);
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package iudx.resource.server.database.latest;
+
+import static iudx.resource.server.common.Constants.LATEST_SNAPSHOT_EX;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.rabbitmq.QueueOptions;
+import io.vertx.rabbitmq.RabbitMQClient;
+import io.vertx.rabbitmq.RabbitMQOptions;
+import iudx.resource.server.cache.CacheService;
+import iudx.resource.server.cache.cacheImpl.CacheType;
+
+/**
+ * Feeds a {@link LatestSnapshotStore} from the data broker. Adaptor exchanges are bound to the
+ * {@link iudx.resource.server.common.Constants#LATEST_SNAPSHOT_EX} fanout exchange by the data
+ * broker, see latestSnapshotBinding, and each listener consumes from its own queue bound to it.
+ *
+ * <p>
+ * The queue expires a while after the listener goes away. Observations may have been missed when
+ * the connection to the broker is re-established, so the store is cleared then. Messages are
+ * acked once stored, at most {@link #PREFETCH} are taken from the broker before, so messages
+ * received faster than they are stored are held in the queue instead of being dropped.
+ * </p>
+ */
+final class LatestSnapshotListener {
+
+  private static final Logger LOGGER = LogManager.getLogger(LatestSnapshotListener.class);
+
+  private static final String QUEUE_PREFIX = "rs-latest-snapshot-";
+  private static final long QUEUE_EXPIRY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+  private static final int PREFETCH = 1000;
+  // failure of a cache get of a key without an entry, i.e. a resource without unique attribute
+  private static final String NO_ENTRY = "No entry for given key";
+
+  private final RabbitMQClient client;
+  private final LatestSnapshotStore store;
+  private final CacheService cache;
+  private final String queue = QUEUE_PREFIX + UUID.randomUUID();
+  // unique attributes of resources, empty for resources without one
+  private final Cache<String, Optional<String>> uniqueAttributes = CacheBuilder.newBuilder()
+      .maximumSize(100_000)
+      .expireAfterWrite(5, TimeUnit.MINUTES)
+      .build();
+
+  private final QueueOptions options = new QueueOptions()
+      .setMaxInternalQueueSize(PREFETCH)
+      .setAutoAck(false);
+
+  LatestSnapshotListener(Vertx vertx, RabbitMQOptions config, LatestSnapshotStore store,
+      CacheService cache) {
+    this.client = RabbitMQClient.create(vertx, config);
+    this.store = store;
+    this.cache = cache;
+    AtomicBoolean connected = new AtomicBoolean();
+    client.addConnectionEstablishedCallback(promise -> {
+      if (connected.getAndSet(true)) {
+        LOGGER.warn("reconnected to data broker, dropping latest snapshots");
+        store.clear();
+      }
+      client.basicQos(PREFETCH)
+          .compose(qos -> client.exchangeDeclare(LATEST_SNAPSHOT_EX, "fanout", true, false))
+          .compose(exchange -> client.queueDeclare(queue, false, false, false,
+              new JsonObject().put("x-expires", QUEUE_EXPIRY_MILLIS)))
+          .compose(declared -> client.queueBind(queue, LATEST_SNAPSHOT_EX, ""))
+          .onComplete(promise);
+    });
+  }
+
+  Future<Void> start() {
+    return client.start()
+        .compose(started -> client.basicConsumer(queue, options))
+        .onSuccess(consumer -> {
+          LOGGER.info("latest snapshots fed from queue {}", queue);
+          consumer.handler(message -> handle(message.body())
+              .onComplete(handled -> client.basicAck(message.envelope().getDeliveryTag(), false)));
+        })
+        .onFailure(failure -> LOGGER.error("failed to consume latest snapshots : {}",
+            failure.getMessage()))
+        .mapEmpty();
+  }
+
+  /**
+   * @return future completed once the observation is stored, or dropped
+   */
+  private Future<Void> handle(Buffer body) {
+    JsonObject observation;
+    try {
+      observation = new JsonObject(body);
+      // data published through the server is wrapped as a string
+      if (!observation.containsKey("id") && observation.getValue("body") instanceof String) {
+        observation = new JsonObject(observation.getString("body"));
+      }
+    } catch (DecodeException | NullPointerException ex) {
+      LOGGER.debug("invalid json received for latest snapshot");
+      return Future.succeededFuture();
+    }
+    String id = observation.getString("id");
+    if (id == null) {
+      return Future.succeededFuture();
+    }
+    JsonObject received = observation;
+    return uniqueAttribute(id)
+        .onSuccess(attribute -> store.update(received, attribute.orElse(null)))
+        .onFailure(failure -> {
+          // latest value stored, if any, is not the latest anymore, it is got from redis instead
+          LOGGER.warn("unique attribute of {} not resolved : {}", id, failure.getMessage());
+          store.remove(id);
+        })
+        .<Void>mapEmpty()
+        .otherwiseEmpty();
+  }
+
+  /**
+   * @return unique attribute of resource, empty if it has none. Only known unique attributes are
+   *         held, failed lookups are not
+   */
+  private Future<Optional<String>> uniqueAttribute(String id) {
+    Optional<String> known = uniqueAttributes.getIfPresent(id);
+    if (known != null) {
+      return Future.succeededFuture(known);
+    }
+    JsonObject request = new JsonObject()
+        .put("type", CacheType.UNIQUE_ATTRIBUTE)
+        .put("key", id);
+    return cache.get(request)
+        .map(value -> Optional.ofNullable(value.getString("value")))
+        .recover(failure -> NO_ENTRY.equals(failure.getMessage())
+            ? Future.succeededFuture(Optional.empty())
+            : Future.failedFuture(failure))
+        .onSuccess(attribute -> uniqueAttributes.put(id, attribute));
+  }
+
+  Future<Void> stop() {
+    return client.stop();
+  }
+}
@@ -0,0 +1,181 @@
+package iudx.resource.server.database.latest;
+
+import static iudx.resource.server.database.archives.Constants.LATEST_SNAPSHOT_METRIC;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+
+/**
+ * In-memory latest observations of resources, fed from the data broker by
+ * {@link LatestSnapshotListener}. Resources with a unique attribute keep the latest observation
+ * of each value of the attribute, as in redis, others only their latest observation.
+ *
+ * <p>
+ * Only resources published to since the store was fed are held, latest values of other resources
+ * are to be got from redis. Observations of a resource with a unique attribute published since do
+ * not make up all of its latest values, so such a resource is only answered from the store once
+ * it is {@link #seed seeded} with its latest values got from redis.
+ * </p>
+ */
+public class LatestSnapshotStore implements Shareable {
+
+  private static final Counter HITS = Metrics.counter(LATEST_SNAPSHOT_METRIC, "result", "hit");
+  private static final Counter MISSES = Metrics.counter(LATEST_SNAPSHOT_METRIC, "result", "miss");
+
+  // key of the observation of resources without a unique attribute
+  private static final String SINGLE = "";
+  private static final String OBSERVATION_DATE_TIME = "observationDateTime";
+
+  private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+  // changed whenever the store is cleared, so values got from redis before are not seeded after
+  private final AtomicLong generation = new AtomicLong();
+  private volatile boolean closed;
+
+  /**
+   * Stores an observation unless a newer one of the resource, or of its unique attribute value, is
+   * stored already. Observations of resources with a unique attribute that lack it are dropped.
+   *
+   * @param uniqueAttribute name of the unique attribute of the resource, null if it has none
+   */
+  public void update(JsonObject observation, String uniqueAttribute) {
+    String id = observation.getString("id");
+    Object attributeValue = uniqueAttribute == null ? SINGLE : observation.getValue(uniqueAttribute);
+    if (id == null || attributeValue == null) {
+      return;
+    }
+    String entry = attributeValue.toString();
+    JsonObject value = observation.copy();
+    snapshots.compute(id, (key, current) -> {
+      if (uniqueAttribute == null) {
+        return current != null && isNewer(current.values.get(SINGLE), value) ? current
+            : new Snapshot(Map.of(entry, value), true);
+      }
+      if (current == null) {
+        return new Snapshot(Map.of(entry, value), false);
+      }
+      if (isNewer(current.values.get(entry), value)) {
+        return current;
+      }
+      Map<String, JsonObject> updated = new HashMap<>(current.values);
+      // latest observation stored as of a resource without a unique attribute is not one of them
+      boolean complete = current.complete && updated.remove(SINGLE) == null;
+      updated.put(entry, value);
+      return new Snapshot(updated, complete);
+    });
+  }
+
+  /**
+   * @return generation to seed values got from redis from now on with
+   */
+  public long generation() {
+    return generation.get();
+  }
+
+  /**
+   * Adds latest values of a resource with a unique attribute got from redis to observations
+   * stored, after which the resource is answered from the store. Values are dropped if the store
+   * was cleared since they were got.
+   *
+   * @param values latest values of the resource
+   * @param generation {@link #generation()} before the values were got
+   */
+  public void seed(String id, String uniqueAttribute, JsonArray values, long generation) {
+    if (closed || values.isEmpty()) {
+      return;
+    }
+    Map<String, JsonObject> seeded = new HashMap<>();
+    for (int i = 0; i < values.size(); i++) {
+      JsonObject value = values.getJsonObject(i);
+      Object attributeValue = value.getValue(uniqueAttribute);
+      if (attributeValue == null) {
+        // values without the attribute can't be told apart from one another
+        return;
+      }
+      seeded.put(attributeValue.toString(), value.copy());
+    }
+    snapshots.compute(id, (key, current) -> {
+      if (this.generation.get() != generation) {
+        return current;
+      }
+      if (current != null) {
+        current.values.forEach((entry, value) -> {
+          if (!SINGLE.equals(entry) && !isNewer(seeded.get(entry), value)) {
+            seeded.put(entry, value);
+          }
+        });
+      }
+      return new Snapshot(seeded, true);
+    });
+  }
+
+  private static boolean isNewer(JsonObject stored, JsonObject received) {
+    if (stored == null) {
+      return false;
+    }
+    try {
+      return ZonedDateTime.parse(stored.getString(OBSERVATION_DATE_TIME))
+          .isAfter(ZonedDateTime.parse(received.getString(OBSERVATION_DATE_TIME)));
+    } catch (DateTimeParseException | NullPointerException ex) {
+      // observations without a comparable time are taken in the order received
+      return false;
+    }
+  }
+
+  /**
+   * @return copies of the latest observations of the resource, null if they are not all stored
+   */
+  public JsonArray get(String id) {
+    Snapshot snapshot = snapshots.get(id);
+    if (snapshot == null || !snapshot.complete) {
+      MISSES.increment();
+      return null;
+    }
+    HITS.increment();
+    JsonArray values = new JsonArray();
+    snapshot.values.values().forEach(value -> values.add(value.copy()));
+    return values;
+  }
+
+  /**
+   * Drops observations of a resource, e.g. when an observation of it could not be stored.
+   */
+  public void remove(String id) {
+    snapshots.remove(id);
+  }
+
+  /**
+   * Drops all observations, e.g. when observations published may have been missed.
+   */
+  public void clear() {
+    generation.incrementAndGet();
+    snapshots.clear();
+  }
+
+  /**
+   * Drops all observations once the store is not fed anymore, nor seeded after.
+   */
+  public void close() {
+    closed = true;
+    clear();
+  }
+
+  private static final class Snapshot {
+
+    private final Map<String, JsonObject> values;
+    // false until all latest values of a resource with a unique attribute are held
+    private final boolean complete;
+
+    private Snapshot(Map<String, JsonObject> values, boolean complete) {
+      this.values = values;
+      this.complete = complete;
+    }
+  }
+}
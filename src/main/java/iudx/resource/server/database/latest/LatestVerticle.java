@@ -2,13 +2,23 @@ package iudx.resource.server.database.latest;
 
 import static iudx.resource.server.common.Constants.CACHE_SERVICE_ADDRESS;
 import static iudx.resource.server.common.Constants.LATEST_SERVICE_ADDRESS;
+import static iudx.resource.server.database.archives.Constants.DEFAULT_LATEST_CACHE_SIZE_MB;
+import static iudx.resource.server.database.archives.Constants.DEFAULT_LATEST_CACHE_TTL_SECONDS;
+import static iudx.resource.server.database.archives.Constants.LATEST_CACHE_MAP;
+import static iudx.resource.server.database.archives.Constants.LATEST_SNAPSHOT_MAP;
+import java.time.Duration;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
 import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.rabbitmq.RabbitMQOptions;
 import io.vertx.serviceproxy.ServiceBinder;
 import iudx.resource.server.cache.CacheService;
+import iudx.resource.server.cache.LocalCacheService;
+import iudx.resource.server.common.VHosts;
 
 public class LatestVerticle extends AbstractVerticle {
 
@@ -31,39 +41,98 @@ public class LatestVerticle extends AbstractVerticle {
   private static final Logger LOGGER = LogManager.getLogger(LatestVerticle.class);
   
   private CacheService cacheService;
+  private LatestSnapshotStore snapshotStore;
+  private LatestSnapshotListener snapshotListener;
 
   /**
    * This method is used to start the Verticle. It deploys a verticle in a cluster, registers the
    * service with the Event bus against an address, publishes the service with the service discovery
-   * interface.
+   * interface. Deployment fails if redis does not become available within redisStartupAttempts.
    *
    * @throws Exception which is a start up exception.
    */
 
   @Override
-  public void start() throws Exception {
+  public void start(Promise<Void> startPromise) throws Exception {
 
     attributeList = config().getJsonObject("attributeList");
-    new RedisClient(vertx, config()).start().onSuccess(handler -> {
+    cacheService = new LocalCacheService(vertx,
+        CacheService.createProxy(vertx, CACHE_SERVICE_ADDRESS), config());
+    snapshotStore = getSnapshotStore();
+    // held before it is started, so retries stop if undeployed while redis is unavailable
+    redisClient = new RedisClient(vertx, config(), getNearCache());
+    redisClient.start().onSuccess(handler -> {
       
-      redisClient = handler;
-      cacheService=CacheService.createProxy(vertx, CACHE_SERVICE_ADDRESS);
       binder = new ServiceBinder(vertx);
-      latestData = new LatestDataServiceImpl(redisClient, cacheService);
+      latestData = new LatestDataServiceImpl(redisClient, cacheService, snapshotStore);
       consumer = binder.setAddress(LATEST_SERVICE_ADDRESS)
           .register(LatestDataService.class, latestData);
       LOGGER.info("Latest verticle deployed.");
+      startPromise.complete();
     }).onFailure(handler -> {
       LOGGER.error("failed to start redis client");
+      // stop is not called for a verticle failing to start
+      stop();
+      startPromise.fail(handler);
     });
   }
 
+  /**
+   * Near cache is shared by all instances of the verticle, so the memory budget applies to the
+   * whole process. A size of 0 disables it.
+   */
+  private LatestNearCache getNearCache() {
+    long maxBytes = config().getLong("latestCacheSizeInMB", DEFAULT_LATEST_CACHE_SIZE_MB)
+        * 1024 * 1024;
+    if (maxBytes <= 0) {
+      return null;
+    }
+    Duration ttl = Duration.ofSeconds(
+        config().getLong("latestCacheTtlInSeconds", DEFAULT_LATEST_CACHE_TTL_SECONDS));
+    LocalMap<String, LatestNearCache> caches = vertx.sharedData().getLocalMap(LATEST_CACHE_MAP);
+    caches.putIfAbsent(LATEST_CACHE_MAP, new LatestNearCache(maxBytes, ttl));
+    return caches.get(LATEST_CACHE_MAP);
+  }
+
+  /**
+   * Snapshot store is shared by all instances of the verticle and fed by the instance that created
+   * it, if latestSnapshotStore is enabled.
+   */
+  private LatestSnapshotStore getSnapshotStore() {
+    if (!config().getBoolean("latestSnapshotStore", false)) {
+      return null;
+    }
+    LocalMap<String, LatestSnapshotStore> stores =
+        vertx.sharedData().getLocalMap(LATEST_SNAPSHOT_MAP);
+    LatestSnapshotStore store = new LatestSnapshotStore();
+    if (stores.putIfAbsent(LATEST_SNAPSHOT_MAP, store) == null) {
+      RabbitMQOptions options = new RabbitMQOptions()
+          .setHost(config().getString("dataBrokerIP"))
+          .setPort(config().getInteger("dataBrokerPort"))
+          .setUser(config().getString("dataBrokerUserName"))
+          .setPassword(config().getString("dataBrokerPassword"))
+          .setVirtualHost(config().getString(VHosts.IUDX_PROD.value))
+          .setAutomaticRecoveryEnabled(true);
+      snapshotListener = new LatestSnapshotListener(vertx, options, store, cacheService);
+      snapshotListener.start();
+    }
+    return stores.get(LATEST_SNAPSHOT_MAP);
+  }
+
   @Override
   public void stop() {
+    if (snapshotListener != null) {
+      // store is not fed anymore, other instances get latest values from redis
+      vertx.sharedData().getLocalMap(LATEST_SNAPSHOT_MAP).remove(LATEST_SNAPSHOT_MAP);
+      snapshotStore.close();
+      snapshotListener.stop();
+    }
     if (redisClient != null) {
       redisClient.close();
     }
-    binder.unregister(consumer);
+    if (binder != null) {
+      binder.unregister(consumer);
+    }
   }
 }
 
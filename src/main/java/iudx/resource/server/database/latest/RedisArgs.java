@@ -1,9 +1,12 @@
 package iudx.resource.server.database.latest;
 
+import java.util.List;
+
 public class RedisArgs {
 
   private String Key;
   private String path;
+  private List<Projection> projections;
 
   public String getKey() {
     return Key;
@@ -21,6 +24,53 @@ public class RedisArgs {
     this.path = path;
   }
 
+  /**
+   * @return paths of the attributes to get instead of the whole value at path, null to get it
+   *         whole
+   */
+  public List<Projection> getProjections() {
+    return projections;
+  }
+
+  public void setProjections(List<Projection> projections) {
+    this.projections = projections;
+  }
+
+  public boolean isProjected() {
+    return projections != null && !projections.isEmpty();
+  }
+
+  /**
+   * Path of an attribute of a latest value, of a snapshot of the value for resources with a unique
+   * attribute.
+   */
+  public static class Projection {
+
+    private final String path;
+    private final String snapshot;
+    private final String attribute;
+
+    /**
+     * @param snapshot unique attribute value of the snapshot the attribute is of, null for
+     *        resources without a unique attribute
+     */
+    public Projection(String path, String snapshot, String attribute) {
+      this.path = path;
+      this.snapshot = snapshot;
+      this.attribute = attribute;
+    }
 
+    public String getPath() {
+      return path;
+    }
+
+    public String getSnapshot() {
+      return snapshot;
+    }
+
+    public String getAttribute() {
+      return attribute;
+    }
+  }
 
 }
@@ -1,30 +1,68 @@
 package iudx.resource.server.database.latest;
 
+import static iudx.resource.server.database.archives.Constants.DEFAULT_REDIS_HEALTH_CHECK_INTERVAL_SECONDS;
+import static iudx.resource.server.database.archives.Constants.DEFAULT_REDIS_POOL_RECYCLE_TIMEOUT;
+import static iudx.resource.server.database.archives.Constants.DEFAULT_REDIS_POOL_SIZE;
+import static iudx.resource.server.database.archives.Constants.DEFAULT_REDIS_POOL_WAITING;
+import static iudx.resource.server.database.archives.Constants.DEFAULT_REDIS_STARTUP_ATTEMPTS;
 import static iudx.resource.server.database.archives.Constants.FAILED;
+import static iudx.resource.server.database.archives.Constants.REDIS_COMMAND_METRIC;
+import static iudx.resource.server.database.archives.Constants.REDIS_HEALTH_METRIC;
+import static iudx.resource.server.database.archives.Constants.REDIS_INITIAL_BACKOFF_MILLIS;
+import static iudx.resource.server.database.archives.Constants.REDIS_MAX_BACKOFF_MILLIS;
+import static iudx.resource.server.database.archives.Constants.REDIS_POOL_WAIT_METRIC;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonObject;
 import io.vertx.redis.client.Command;
 import io.vertx.redis.client.Redis;
-import io.vertx.redis.client.RedisAPI;
 import io.vertx.redis.client.RedisClientType;
 import io.vertx.redis.client.RedisOptions;
 import io.vertx.redis.client.RedisReplicas;
+import io.vertx.redis.client.Request;
+import io.vertx.redis.client.Response;
+import io.vertx.redis.client.ResponseType;
 import iudx.resource.server.database.archives.ResponseBuilder;
+import iudx.resource.server.database.latest.RedisArgs.Projection;
 
 public class RedisClient {
   // private Redis redisClient;
   private ResponseBuilder responseBuilder;
   private Redis ClusteredClient;
-  private RedisAPI redis;
+  private boolean clustered;
+  private long healthCheckTimer = -1;
+  private volatile boolean closed;
   private Vertx vertx;
   private JsonObject config;
+  private final LatestNearCache nearCache;
+  private KeyspaceInvalidator invalidator;
+  private Supplier<Future<List<String>>> invalidatorEndpoints;
   private static final Logger LOGGER = LogManager.getLogger(RedisClient.class);
+  private static final int CLUSTER_SLOTS = 16384;
+  private static final Timer POOL_WAIT = Metrics.timer(REDIS_POOL_WAIT_METRIC);
+  // 1 while redis answers health checks, 0 otherwise
+  private static final AtomicInteger HEALTHY =
+      Metrics.gauge(REDIS_HEALTH_METRIC, new AtomicInteger(1));
 
   /**
    * RedisClient - Redis vertx Client Low Level Wrapper
@@ -34,8 +72,17 @@ public class RedisClient {
    */
 
   public RedisClient(Vertx vertx, JsonObject config) {
+    this(vertx, config, null);
+  }
+
+  /**
+   * @param nearCache cache of values got, invalidated on keyspace notifications if
+   *        latestCacheKeyspaceInvalidation is not disabled in config, null to not cache
+   */
+  public RedisClient(Vertx vertx, JsonObject config, LatestNearCache nearCache) {
     this.vertx = vertx;
     this.config = config;
+    this.nearCache = nearCache;
   }
 
   public Future<RedisClient> start() {
@@ -49,9 +96,11 @@ public class RedisClient {
     String mode = config.getString("redisMode");
 
     if (mode.equals("CLUSTER")) {
+      // reads are spread over the replicas of a slot too
       options = new RedisOptions()
           .setType(RedisClientType.CLUSTER)
-          .setUseReplicas(RedisReplicas.SHARE);
+          .setUseReplicas(RedisReplicas.valueOf(
+              config.getString("redisReplicas", RedisReplicas.SHARE.name())));
     } else if (mode.equals("STANDALONE")) {
       options = new RedisOptions()
           .setType(RedisClientType.STANDALONE);
@@ -61,13 +110,123 @@ public class RedisClient {
       return promise.future();
     }
     options.setMaxWaitingHandlers(config.getInteger("redisMaxWaitingHandlers"))
+        .setMaxPoolSize(config.getInteger("redisMaxPoolSize", DEFAULT_REDIS_POOL_SIZE))
+        .setMaxPoolWaiting(config.getInteger("redisMaxPoolWaiting", DEFAULT_REDIS_POOL_WAITING))
+        .setPoolRecycleTimeout(config.getInteger("redisPoolRecycleTimeout",
+            DEFAULT_REDIS_POOL_RECYCLE_TIMEOUT))
         .setConnectionString(RedisURI.toString());
     ClusteredClient = Redis.createClient(vertx, options);
-    ClusteredClient.connect(conn -> {
-      redis = RedisAPI.api(conn.result());
+    clustered = mode.equals("CLUSTER");
+    awaitAvailable(RedisURI.toString(), 1, REDIS_INITIAL_BACKOFF_MILLIS, promise);
+    return promise.future();
+  }
+
+  /**
+   * Completes promise once redis answers a ping, retrying with exponential backoff until then. It
+   * is failed once redisStartupAttempts pings failed, so a deployment does not wait forever on an
+   * unreachable redis. Commands are sent over pooled connections, so connections broken e.g. by a
+   * failover are replaced on the next command.
+   */
+  private void awaitAvailable(String connectionString, int attempt, long backoffMillis,
+      Promise<RedisClient> promise) {
+    send(Request.cmd(Command.PING)).onSuccess(pong -> {
+      LOGGER.info("redis available");
+      long interval = TimeUnit.SECONDS.toMillis(config.getLong("redisHealthCheckIntervalInSeconds",
+          DEFAULT_REDIS_HEALTH_CHECK_INTERVAL_SECONDS));
+      healthCheckTimer = vertx.setPeriodic(interval, timer -> checkHealth());
+      if (nearCache != null && config.getBoolean("latestCacheKeyspaceInvalidation", true)) {
+        startInvalidator(connectionString);
+      }
       promise.complete(this);
+    }).onFailure(failure -> {
+      if (closed) {
+        promise.fail(failure);
+        return;
+      }
+      if (attempt >= config.getInteger("redisStartupAttempts", DEFAULT_REDIS_STARTUP_ATTEMPTS)) {
+        LOGGER.error("redis unavailable after {} attempts : {}", attempt, failure.getMessage());
+        ClusteredClient.close();
+        promise.fail(failure);
+        return;
+      }
+      LOGGER.error("redis unavailable, retrying in {} ms : {}", backoffMillis,
+          failure.getMessage());
+      vertx.setTimer(backoffMillis, timer -> awaitAvailable(connectionString, attempt + 1,
+          Math.min(backoffMillis * 2, REDIS_MAX_BACKOFF_MILLIS), promise));
+    });
+  }
+
+  private void checkHealth() {
+    send(Request.cmd(Command.PING)).onComplete(pong -> {
+      boolean wasHealthy = HEALTHY.getAndSet(pong.succeeded() ? 1 : 0) == 1;
+      if (pong.failed()) {
+        LOGGER.warn("redis health check failed : {}", pong.cause().getMessage());
+      } else if (!wasHealthy) {
+        LOGGER.info("redis available again");
+      }
     });
-    return promise.future();
+  }
+
+  /**
+   * Sends a command over a pooled connection, recording the time waited for the connection and the
+   * latency of the command.
+   */
+  private Future<Response> send(Request request) {
+    long requested = System.nanoTime();
+    return ClusteredClient.connect().compose(conn -> {
+      long acquired = System.nanoTime();
+      POOL_WAIT.record(acquired - requested, TimeUnit.NANOSECONDS);
+      return conn.send(request).onComplete(response -> {
+        Metrics.timer(REDIS_COMMAND_METRIC, "command", request.command().toString())
+            .record(System.nanoTime() - acquired, TimeUnit.NANOSECONDS);
+        conn.close();
+      });
+    });
+  }
+
+  private Future<List<Response>> batch(List<Request> requests) {
+    long requested = System.nanoTime();
+    return ClusteredClient.connect().compose(conn -> {
+      long acquired = System.nanoTime();
+      POOL_WAIT.record(acquired - requested, TimeUnit.NANOSECONDS);
+      return conn.batch(requests).onComplete(responses -> {
+        Metrics.timer(REDIS_COMMAND_METRIC, "command", "batch")
+            .record(System.nanoTime() - acquired, TimeUnit.NANOSECONDS);
+        conn.close();
+      });
+    });
+  }
+
+  private void startInvalidator(String connectionString) {
+    invalidator = KeyspaceInvalidator.acquire(vertx, nearCache);
+    // resolved again on every resubscription as masters may have changed by then
+    invalidatorEndpoints = () -> clustered
+        ? send(Request.cmd(Command.CLUSTER).arg("NODES"))
+            .map(nodes -> masterEndpoints(nodes.toString()))
+        : Future.succeededFuture(List.of(connectionString));
+    invalidator.start(invalidatorEndpoints)
+        .onSuccess(subscribed -> LOGGER.info("near cache invalidated on keyspace notifications"))
+        .onFailure(failure -> LOGGER.error("keyspace notifications subscription failed : {}",
+            failure.getMessage()));
+  }
+
+  /**
+   * @param nodes reply of CLUSTER NODES, a line per node as
+   *        <i>id ip:port@cport flags master ping pong epoch state slots</i>
+   * @return connection strings of the masters of the cluster
+   */
+  private List<String> masterEndpoints(String nodes) {
+    List<String> endpoints = new ArrayList<>();
+    for (String line : nodes.split("\n")) {
+      String[] fields = line.trim().split(" ");
+      if (fields.length < 3 || !Arrays.asList(fields[2].split(",")).contains("master")) {
+        continue;
+      }
+      String address = fields[1].split("@")[0];
+      endpoints.add("redis://" + config.getString("redisUsername") + ":"
+          + config.getString("redisPassword") + "@" + address);
+    }
+    return endpoints;
   }
 
   /**
@@ -116,21 +275,240 @@ public class RedisClient {
 
   public Future<JsonObject> get(String key, String path) {
     Promise<JsonObject> promise = Promise.promise();
-    redis.send(Command.JSON_GET, key, path).onFailure(res -> {
+    JsonObject cached = nearCache == null ? null : nearCache.get(key, path);
+    if (cached != null) {
+      promise.complete(cached);
+      return promise.future();
+    }
+    long stamp = nearCache == null ? 0 : nearCache.stamp();
+    send(Request.cmd(Command.JSON_GET).arg(key).arg(path)).onFailure(res -> {
       promise.fail(String.format("JSONGET did not work: %s", res.getMessage()));
     }).onSuccess(redisResponse -> {
       if (redisResponse == null) {
         promise.fail(String.format(" %s key not found", key));
       } else {
-        promise.complete(new JsonObject(redisResponse.toString()));
+        String json = redisResponse.toString();
+        JsonObject result = new JsonObject(json);
+        cache(key, path, result, json.length(), stamp);
+        promise.complete(result);
       }
     });
 
     return promise.future();
   }
 
+  /**
+   * getAll - pipelined JSON.GET of many keys, each with its own path. In cluster mode keys are
+   * grouped by hash slot, as a batch can only go to a single node, and the groups are sent in
+   * parallel.
+   *
+   * @param args keys and paths to get
+   * @return Future of results in the order of args, null for keys or paths not found
+   */
+
+  public Future<List<JsonObject>> getAll(List<RedisArgs> args) {
+    JsonObject[] results = new JsonObject[args.size()];
+    Map<Integer, List<Integer>> batches = new LinkedHashMap<>();
+    long stamp = nearCache == null ? 0 : nearCache.stamp();
+    for (int i = 0; i < args.size(); i++) {
+      RedisArgs arg = args.get(i);
+      results[i] = nearCache == null ? null : nearCache.get(arg.getKey(), cachePath(arg));
+      if (results[i] != null) {
+        continue;
+      }
+      batches.computeIfAbsent(slotOf(arg.getKey()), key -> new ArrayList<>()).add(i);
+    }
+    List<Future> batchFutures = new ArrayList<>();
+    for (List<Integer> batch : batches.values()) {
+      batchFutures.add(getBatch(args, batch, results, stamp));
+    }
+    return CompositeFuture.all(batchFutures).map(all -> Arrays.asList(results));
+  }
+
+  private Future<Void> getBatch(List<RedisArgs> args, List<Integer> batch, JsonObject[] results,
+      long stamp) {
+    List<Request> requests = new ArrayList<>(batch.size());
+    for (int index : batch) {
+      requests.add(jsonGet(args.get(index)));
+    }
+    return batch(requests).compose(responses -> {
+      for (int i = 0; i < batch.size(); i++) {
+        int index = batch.get(i);
+        results[index] = toJson(args.get(index), responses.get(i));
+        cache(args.get(index), responses.get(i), results[index], stamp);
+      }
+      return Future.<Void>succeededFuture();
+    }).recover(batchFailure -> {
+      if (!isErrorReply(batchFailure)) {
+        return Future.failedFuture(batchFailure);
+      }
+      if (batch.size() == 1) {
+        return Future.succeededFuture();
+      }
+      // a batch fails as a whole when a path of one key is missing, keys are got one by one then
+      LOGGER.debug("batch JSON.GET failed, getting keys of batch one by one : {}",
+          batchFailure.getMessage());
+      List<Future> futures = new ArrayList<>(batch.size());
+      for (int index : batch) {
+        RedisArgs arg = args.get(index);
+        // keys redis replies an error for, e.g. a missing path, are not found
+        futures.add(send(jsonGet(arg))
+            .onSuccess(response -> {
+              results[index] = toJson(arg, response);
+              cache(arg, response, results[index], stamp);
+            })
+            .<Void>mapEmpty()
+            .recover(failure -> isErrorReply(failure)
+                ? Future.succeededFuture()
+                : Future.failedFuture(failure)));
+      }
+      return CompositeFuture.all(futures).mapEmpty();
+    });
+  }
+
+  /**
+   * getObjectKeys - pipelined JSON.OBJKEYS of the root of many keys, e.g. the unique attribute
+   * values of group snapshots.
+   *
+   * @param keys Redis Keys
+   * @return Future of keys of the object of each key in the order of keys, null for keys not found
+   */
+
+  public Future<List<List<String>>> getObjectKeys(List<String> keys) {
+    Map<Integer, List<Integer>> batches = new LinkedHashMap<>();
+    for (int i = 0; i < keys.size(); i++) {
+      batches.computeIfAbsent(slotOf(keys.get(i)), key -> new ArrayList<>()).add(i);
+    }
+    List<List<String>> results = new ArrayList<>(Collections.nCopies(keys.size(), null));
+    List<Future> batchFutures = new ArrayList<>();
+    for (List<Integer> batch : batches.values()) {
+      List<Request> requests = new ArrayList<>(batch.size());
+      for (int index : batch) {
+        requests.add(Request.cmd(Command.JSON_OBJKEYS).arg(keys.get(index)).arg("."));
+      }
+      batchFutures.add(batch(requests).onSuccess(responses -> {
+        for (int i = 0; i < batch.size(); i++) {
+          Response response = responses.get(i);
+          if (response != null) {
+            List<String> objectKeys = new ArrayList<>(response.size());
+            response.forEach(objectKey -> objectKeys.add(objectKey.toString()));
+            results.set(batch.get(i), objectKeys);
+          }
+        }
+      }).<Void>mapEmpty().recover(failure -> {
+        // keys of batches redis replies an error for, e.g. a key not an object, are not found
+        return isErrorReply(failure)
+            ? Future.succeededFuture()
+            : Future.failedFuture(failure);
+      }));
+    }
+    return CompositeFuture.all(batchFutures).map(all -> results);
+  }
+
+  private int slotOf(String key) {
+    return clustered ? hashSlot(key) : 0;
+  }
+
+  /**
+   * @return cluster hash slot of key, CRC16 (XMODEM) of its hash tag if it has one, else of the key
+   */
+  static int hashSlot(String key) {
+    int tagStart = key.indexOf('{');
+    if (tagStart >= 0) {
+      int tagEnd = key.indexOf('}', tagStart + 1);
+      if (tagEnd > tagStart + 1) {
+        key = key.substring(tagStart + 1, tagEnd);
+      }
+    }
+    int crc = 0;
+    for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+      crc ^= (b & 0xff) << 8;
+      for (int bit = 0; bit < 8; bit++) {
+        crc = ((crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1) & 0xffff;
+      }
+    }
+    return crc & (CLUSTER_SLOTS - 1);
+  }
+
+  /**
+   * @return whether failure is an error redis replied, e.g. of a missing path, not a failure to get
+   *         a reply
+   */
+  private static boolean isErrorReply(Throwable failure) {
+    return failure instanceof Response && ((Response) failure).type() == ResponseType.ERROR;
+  }
+
+  private static Request jsonGet(RedisArgs arg) {
+    Request request = Request.cmd(Command.JSON_GET).arg(arg.getKey());
+    if (!arg.isProjected()) {
+      return request.arg(arg.getPath());
+    }
+    arg.getProjections().forEach(projection -> request.arg(projection.getPath()));
+    return request;
+  }
+
+  private static String cachePath(RedisArgs arg) {
+    if (!arg.isProjected()) {
+      return arg.getPath();
+    }
+    return arg.getProjections().stream().map(Projection::getPath)
+        .collect(Collectors.joining(" "));
+  }
+
+  /**
+   * @return value got, of projected args the attributes got, by snapshot for group snapshots
+   */
+  static JsonObject toJson(RedisArgs arg, Response response) {
+    if (response == null) {
+      return null;
+    }
+    if (!arg.isProjected()) {
+      return new JsonObject(response.toString());
+    }
+    List<Projection> projections = arg.getProjections();
+    Object reply = Json.decodeValue(response.toString());
+    // a single path gets its value, many paths an object of values by path
+    JsonObject values = projections.size() == 1
+        ? new JsonObject().put(projections.get(0).getPath(), reply)
+        : (JsonObject) reply;
+    JsonObject result = new JsonObject();
+    for (Projection projection : projections) {
+      JsonObject target = result;
+      if (projection.getSnapshot() != null) {
+        target = result.getJsonObject(projection.getSnapshot());
+        if (target == null) {
+          target = new JsonObject();
+          result.put(projection.getSnapshot(), target);
+        }
+      }
+      target.put(projection.getAttribute(), values.getValue(projection.getPath()));
+    }
+    return result;
+  }
+
+  private void cache(RedisArgs arg, Response response, JsonObject json, long stamp) {
+    if (json != null) {
+      cache(arg.getKey(), cachePath(arg), json, response.toString().length(), stamp);
+    }
+  }
+
+  private void cache(String key, String path, JsonObject json, int weight, long stamp) {
+    if (nearCache != null) {
+      nearCache.put(key, path, json, weight, stamp);
+    }
+  }
+
   public void close() {
-    redis.close();
+    closed = true;
+    if (healthCheckTimer >= 0) {
+      vertx.cancelTimer(healthCheckTimer);
+    }
+    if (invalidator != null) {
+      invalidator.release(invalidatorEndpoints);
+    }
+    if (ClusteredClient != null) {
+      ClusteredClient.close();
+    }
 
   }
 
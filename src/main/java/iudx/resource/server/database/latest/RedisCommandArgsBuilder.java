@@ -1,9 +1,12 @@
 package iudx.resource.server.database.latest;
 
 import static iudx.resource.server.database.archives.Constants.DEFAULT_ATTRIBUTE;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import iudx.resource.server.database.latest.RedisArgs.Projection;
 
 public class RedisCommandArgsBuilder {
 
@@ -37,4 +40,31 @@ public class RedisCommandArgsBuilder {
     args.setPath(pathParam.toString());
     return args;
   }
+
+  /**
+   * Arguments of a multi-path JSON.GET of attrs of the latest value of id, so only those are got.
+   *
+   * @param snapshots unique attribute values of the snapshots of a resource with a unique
+   *        attribute, null for resources without one
+   */
+  public RedisArgs getRedisCommandArgs(String id, List<String> snapshots, List<String> attrs) {
+    RedisArgs args = getRedisCommandArgs(id, snapshots != null);
+    List<Projection> projections = new ArrayList<>();
+    if (snapshots == null) {
+      for (String attr : attrs) {
+        projections.add(new Projection(args.getPath() + "." + attr, null, attr));
+      }
+    } else {
+      for (String snapshot : snapshots) {
+        // unique attribute values are not path safe, so they are bracketed
+        String snapshotPath =
+            "[\"" + snapshot.replace("\\", "\\\\").replace("\"", "\\\"") + "\"]";
+        for (String attr : attrs) {
+          projections.add(new Projection(snapshotPath + "." + attr, snapshot, attr));
+        }
+      }
+    }
+    args.setProjections(projections);
+    return args;
+  }
 }
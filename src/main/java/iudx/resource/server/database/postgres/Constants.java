@@ -37,4 +37,28 @@ public class Constants {
 
   public static String UPDATE_S3_PROGRESS_SQL =
       "UPDATE s3_upload_url SET progress=$1 WHERE search_id='$2'";
+
+  public static String UPDATE_S3_PROGRESS_BATCH_SQL =
+      "UPDATE s3_upload_url AS s SET progress=v.progress FROM (VALUES $1) AS v(search_id, progress) "
+          + "WHERE s.search_id=v.search_id::uuid AND s.status='IN_PROGRESS' "
+          + "AND s.progress<v.progress";
+
+  public static String CLAIM_S3_SEARCH_SQL =
+      "UPDATE s3_upload_url SET status='IN_PROGRESS' WHERE search_id='$1' AND (status='SUBMITTED' "
+          + "OR (status='IN_PROGRESS' AND modified_at < now() - interval '$2 minutes')) "
+          + "RETURNING search_id, checkpoint";
+
+  public static String RELEASE_STALE_S3_SEARCHES_SQL =
+      "UPDATE s3_upload_url SET status='SUBMITTED' WHERE _id IN (SELECT _id FROM s3_upload_url "
+          + "WHERE status='IN_PROGRESS' AND modified_at < now() - interval '$1 minutes' "
+          + "LIMIT $2 FOR UPDATE SKIP LOCKED) "
+          + "RETURNING search_id, request_id, user_id, query";
+
+  public static String RENEW_S3_SEARCH_LEASE_SQL =
+      "UPDATE s3_upload_url SET modified_at=now() WHERE search_id='$1' AND status='IN_PROGRESS'";
+
+  // prepared query, parameters are bound as text
+  public static String UPDATE_S3_CHECKPOINT_SQL =
+      "UPDATE s3_upload_url SET checkpoint=$1::TEXT::JSONB WHERE search_id=$2::TEXT::UUID "
+          + "AND status='IN_PROGRESS'";
 }
@@ -3,9 +3,21 @@ package iudx.resource.server.databroker;
 import static iudx.resource.server.common.Constants.ASYNC_SERVICE_ADDRESS;
 import static iudx.resource.server.common.Constants.BROKER_SERVICE_ADDRESS;
 import static iudx.resource.server.common.Constants.CACHE_SERVICE_ADDRESS;
+import static iudx.resource.server.databroker.util.Constants.ASYNC_QUERY_DONE_WAIT_MINUTES;
+import static iudx.resource.server.databroker.util.Constants.ASYNC_QUERY_MAX_CONCURRENCY;
+import static iudx.resource.server.databroker.util.Constants.ASYNC_QUERY_MAX_CONCURRENCY_PER_USER;
+import static iudx.resource.server.databroker.util.Constants.ASYNC_QUERY_PREFETCH;
+import static iudx.resource.server.databroker.util.Constants.ASYNC_QUERY_TIMEOUT_MINUTES;
+import static iudx.resource.server.databroker.util.Constants.DEFAULT_ASYNC_QUERY_DONE_WAIT_MINUTES;
+import static iudx.resource.server.databroker.util.Constants.DEFAULT_ASYNC_QUERY_MAX_CONCURRENCY;
+import static iudx.resource.server.databroker.util.Constants.DEFAULT_ASYNC_QUERY_MAX_CONCURRENCY_PER_USER;
+import static iudx.resource.server.databroker.util.Constants.DEFAULT_ASYNC_QUERY_PREFETCH;
+import static iudx.resource.server.databroker.util.Constants.DEFAULT_ASYNC_QUERY_TIMEOUT_MINUTES;
+import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.WebClient;
@@ -174,14 +186,23 @@ public class DataBrokerVerticle extends AbstractVerticle {
     databroker = new DataBrokerServiceImpl(rabbitClient, pgClient, config());
 
     cache = CacheService.createProxy(vertx, CACHE_SERVICE_ADDRESS);
-    asyncService = AsyncService.createProxy(vertx, ASYNC_SERVICE_ADDRESS);
+    long asyncQueryTimeout = TimeUnit.MINUTES.toMillis(
+        config().getInteger(ASYNC_QUERY_TIMEOUT_MINUTES, DEFAULT_ASYNC_QUERY_TIMEOUT_MINUTES));
+    asyncService = AsyncService.createProxy(vertx, ASYNC_SERVICE_ADDRESS,
+        new DeliveryOptions().setSendTimeout(asyncQueryTimeout));
 
     String internalVhost = config().getString(VHosts.IUDX_INTERNAL.value);
     RMQListeners revokeQListener = new RevokeClientQListener(vertx, cache, config, internalVhost);
     RMQListeners uniqueAttrQListener =
         new UniqueAttribQListener(vertx, cache, config, internalVhost);
     RMQListeners asyncQueryQListener =
-        new AsyncQueryListener(vertx, config, internalVhost, asyncService);
+        new AsyncQueryListener(vertx, config, internalVhost, asyncService,
+            config().getInteger(ASYNC_QUERY_MAX_CONCURRENCY, DEFAULT_ASYNC_QUERY_MAX_CONCURRENCY),
+            config().getInteger(ASYNC_QUERY_MAX_CONCURRENCY_PER_USER,
+                DEFAULT_ASYNC_QUERY_MAX_CONCURRENCY_PER_USER),
+            config().getInteger(ASYNC_QUERY_PREFETCH, DEFAULT_ASYNC_QUERY_PREFETCH),
+            TimeUnit.MINUTES.toMillis(config().getInteger(ASYNC_QUERY_DONE_WAIT_MINUTES,
+                DEFAULT_ASYNC_QUERY_DONE_WAIT_MINUTES)));
 
     // start
     revokeQListener.start();
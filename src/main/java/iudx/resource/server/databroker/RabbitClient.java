@@ -1,6 +1,7 @@
 package iudx.resource.server.databroker;
 
 import static iudx.resource.server.apiserver.util.Constants.IID;
+import static iudx.resource.server.common.Constants.LATEST_SNAPSHOT_EX;
 import static iudx.resource.server.databroker.util.Constants.*;
 import static iudx.resource.server.databroker.util.Util.encodeValue;
 import static iudx.resource.server.databroker.util.Util.getResponseJson;
@@ -43,6 +44,7 @@ public class RabbitClient {
   private String amqpUrl;
   private int amqpPort;
   private String vhost;
+  private boolean latestSnapshotBinding;
 
 
   public RabbitClient(Vertx vertx, RabbitMQOptions rabbitConfigs, RabbitWebClient webClient,
@@ -50,6 +52,7 @@ public class RabbitClient {
     this.amqpUrl = configs.getString("brokerAmqpIp");
     this.amqpPort = configs.getInteger("brokerAmqpPort");
     this.vhost = configs.getString("dataBrokerVhost");
+    this.latestSnapshotBinding = configs.getBoolean("latestSnapshotBinding", false);
 
     String internalVhost = configs.getString(VHosts.IUDX_INTERNAL.name());
     rabbitConfigs.setVirtualHost(internalVhost);
@@ -1145,6 +1148,9 @@ public class RabbitClient {
                     vhost))
             .compose(dataIssueResult -> bindQueue(QUEUE_ADAPTOR_LOGS, adaptorID,
                     adaptorID + DOWNSTREAM_ISSUE, vhost))
+            .compose(downstreamIssueResult -> latestSnapshotBinding
+                    ? bindExchange(LATEST_SNAPSHOT_EX, adaptorID, topics, vhost)
+                    : Future.<Void>succeededFuture())
             .onSuccess(successHandler -> {
               JsonObject response = new JsonObject();
               response.mergeIn(getResponseJson(SUCCESS_CODE, "Queue_Database",
@@ -1179,6 +1185,31 @@ public class RabbitClient {
     return promise.future();
   }
 
+  /**
+   * Binds an exchange to the exchange of an adaptor, so data published by the adaptor is routed to
+   * the queues of the destination exchange too.
+   */
+  Future<Void> bindExchange(String destination, String adaptorID, String topics, String vhost) {
+    LOGGER.trace("Info : RabbitClient#bindExchange() started");
+    LOGGER.debug("Info : exchange : " + destination + " adaptorID : " + adaptorID + " topics : "
+            + topics);
+    Promise<Void> promise = Promise.promise();
+    String url = "/api/bindings/" + vhost + "/e/" + encodeValue(adaptorID) + "/e/"
+            + encodeValue(destination);
+    JsonObject bindRequest = new JsonObject();
+    bindRequest.put("routing_key", topics);
+
+    webClient.requestAsync(REQUEST_POST, url, bindRequest).onComplete(handler -> {
+      if (handler.succeeded()) {
+        promise.complete();
+      } else {
+        LOGGER.error("Error : Exchange " + destination + " binding error : ", handler.cause());
+        promise.fail(handler.cause());
+      }
+    });
+    return promise.future();
+  }
+
   Future<JsonObject> getUserPermissions(String userId) {
     LOGGER.trace("Info : RabbitClient#getUserpermissions() started");
     Promise<JsonObject> promise = Promise.promise();
@@ -1,35 +1,93 @@
 package iudx.resource.server.databroker.listeners;
 
 import static iudx.resource.server.common.Constants.ASYNC_QUERY_Q;
+import static iudx.resource.server.common.Constants.ASYNC_SEARCH_DONE_ADDRESS;
+import static iudx.resource.server.databroker.util.Constants.DEFAULT_ASYNC_QUERY_DONE_WAIT_MINUTES;
+import static iudx.resource.server.databroker.util.Constants.DEFAULT_ASYNC_QUERY_MAX_CONCURRENCY;
+import static iudx.resource.server.databroker.util.Constants.DEFAULT_ASYNC_QUERY_MAX_CONCURRENCY_PER_USER;
+import static iudx.resource.server.databroker.util.Constants.DEFAULT_ASYNC_QUERY_PREFETCH;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import io.vertx.core.Future;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.json.DecodeException;
 import io.vertx.core.json.JsonObject;
 import io.vertx.rabbitmq.QueueOptions;
 import io.vertx.rabbitmq.RabbitMQClient;
 import io.vertx.rabbitmq.RabbitMQConsumer;
+import io.vertx.rabbitmq.RabbitMQMessage;
 import io.vertx.rabbitmq.RabbitMQOptions;
 import iudx.resource.server.database.async.AsyncService;
 
+/**
+ * Listener of the async query queue. Queries are run through an {@link AsyncQueryScheduler} and
+ * acknowledged once their search is complete or failed, queries not yet acknowledged are
+ * redelivered if the listener goes down. At most prefetch queries are held by the listener, the
+ * rest wait in the queue.
+ *
+ * <p>
+ * A search is done once {@link AsyncService#asyncSearch} replies, or, if the reply timed out while
+ * the search kept running, once the search is published done on
+ * {@link iudx.resource.server.common.Constants#ASYNC_SEARCH_DONE_ADDRESS}. The wait for it is
+ * bounded, a search not published done in time is acknowledged and its slot given to the next
+ * query, it is left to its lease to be recovered if its instance went down.
+ * </p>
+ *
+ * <p>
+ * Concurrency limits apply to all queries of the process, the listeners of all instances of the
+ * DataBrokerVerticle share one scheduler.
+ * </p>
+ */
 public class AsyncQueryListener implements RMQListeners {
 
   private static final Logger LOGGER = LogManager.getLogger(AsyncQueryListener.class);
 
   RabbitMQClient client;
 
-  private final QueueOptions options = new QueueOptions()
-      .setMaxInternalQueueSize(2)
-      .setKeepMostRecent(true);
+  private final QueueOptions options;
+  private final int prefetch;
+  private final long doneWaitMillis;
 
   private final AsyncService asyncService;
+  private final AsyncQueryScheduler scheduler;
+  private final Vertx vertx;
+  // searches started by the listener by search id, completed once the search is done
+  private final Map<String, Promise<Void>> searches = new HashMap<>();
 
   public AsyncQueryListener(Vertx vertx, RabbitMQOptions config, String vhost,
       AsyncService asyncService) {
+    this(vertx, config, vhost, asyncService, DEFAULT_ASYNC_QUERY_MAX_CONCURRENCY,
+        DEFAULT_ASYNC_QUERY_MAX_CONCURRENCY_PER_USER, DEFAULT_ASYNC_QUERY_PREFETCH,
+        TimeUnit.MINUTES.toMillis(DEFAULT_ASYNC_QUERY_DONE_WAIT_MINUTES));
+  }
+
+  /**
+   * @param maxConcurrency number of queries run at the same time by the process
+   * @param maxConcurrencyPerUser number of queries of a user run at the same time by the process
+   * @param prefetch number of queries held by the listener, running or waiting to run
+   * @param doneWaitMillis time a search is waited for after the reply to it timed out
+   */
+  public AsyncQueryListener(Vertx vertx, RabbitMQOptions config, String vhost,
+      AsyncService asyncService, int maxConcurrency, int maxConcurrencyPerUser, int prefetch,
+      long doneWaitMillis) {
     config.setVirtualHost(vhost);
+    this.vertx = vertx;
     this.client = RabbitMQClient.create(vertx, config);
     this.asyncService = asyncService;
+    this.scheduler = AsyncQueryScheduler.shared(vertx, maxConcurrency, maxConcurrencyPerUser);
+    this.prefetch = prefetch;
+    this.doneWaitMillis = doneWaitMillis;
+    this.options = new QueueOptions()
+        .setAutoAck(false)
+        .setMaxInternalQueueSize(prefetch)
+        .setKeepMostRecent(false);
   }
 
   @Override
@@ -38,32 +96,93 @@ public class AsyncQueryListener implements RMQListeners {
     future.onComplete(startHandler -> {
       if (startHandler.succeeded()) {
         LOGGER.trace("starting Q listener for Async query");
-        client.basicConsumer(ASYNC_QUERY_Q, options, asyncQListenerHandler -> {
-          if (asyncQListenerHandler.succeeded()) {
-            RabbitMQConsumer mqConsumer = asyncQListenerHandler.result();
-            mqConsumer.handler(message -> {
-              Buffer body = message.body();
-              if (body != null) {
-                JsonObject asyncQueryJson = new JsonObject(body);
-                LOGGER.debug("received message from async-query Q :" + asyncQueryJson);
-                String requestId = asyncQueryJson.getString("requestId");
-                String searchId = asyncQueryJson.getString("searchId");
-                String user = asyncQueryJson.getString("user");
-                JsonObject query = asyncQueryJson.getJsonObject("query");
-                LOGGER.debug("query received from RMQ : {}", query);
+        client.basicQos(prefetch)
+            .onFailure(qosFailure -> LOGGER.error("failed to set prefetch : {}",
+                qosFailure.getMessage()))
+            .onSuccess(qosHandler -> consume());
+      } else {
+        LOGGER.error("Rabbit client startup failed.");
+      }
+    });
+  }
+
+  private void consume() {
+    vertx.eventBus().<JsonObject>consumer(ASYNC_SEARCH_DONE_ADDRESS, done -> {
+      Promise<Void> search = searches.get(done.body().getString("searchId"));
+      if (search != null) {
+        search.tryComplete();
+      }
+    });
+    client.basicConsumer(ASYNC_QUERY_Q, options, asyncQListenerHandler -> {
+      if (asyncQListenerHandler.succeeded()) {
+        RabbitMQConsumer mqConsumer = asyncQListenerHandler.result();
+        mqConsumer.handler(message -> {
+          Buffer body = message.body();
+          if (body != null) {
+            JsonObject asyncQueryJson;
+            try {
+              asyncQueryJson = new JsonObject(body);
+            } catch (DecodeException ex) {
+              LOGGER.error("Invalid json received from async query queue");
+              ack(message);
+              return;
+            }
+            LOGGER.debug("received message from async-query Q :" + asyncQueryJson);
+            String requestId = asyncQueryJson.getString("requestId");
+            String searchId = asyncQueryJson.getString("searchId");
+            String user = asyncQueryJson.getString("user");
+            JsonObject query = asyncQueryJson.getJsonObject("query");
+            LOGGER.debug("query received from RMQ : {}", query);
 
-                asyncService.asyncSearch(requestId, user, searchId, query);
-              } else {
-                LOGGER.error("Empty json received from async query queue");
-              }
-            });
+            scheduler.submit(user, AsyncQueryScheduler.estimateSize(query),
+                () -> search(requestId, user, searchId, query))
+                .onComplete(jobHandler -> ack(message));
+          } else {
+            LOGGER.error("Empty json received from async query queue");
+            ack(message);
           }
         });
-      } else {
-        LOGGER.error("Rabbit client startup failed.");
       }
     });
   }
 
+  /**
+   * @return future completed once the search is done
+   */
+  private Future<Void> search(String requestId, String user, String searchId, JsonObject query) {
+    Promise<Void> promise = Promise.promise();
+    if (searchId != null) {
+      searches.put(searchId, promise);
+      promise.future().onComplete(done -> searches.remove(searchId, promise));
+    }
+    asyncService.asyncSearch(requestId, user, searchId, query, searchHandler -> {
+      if (searchHandler.failed() && searchId != null && isTimeout(searchHandler.cause())) {
+        LOGGER.warn("async search {} still running, waiting for it to be done", searchId);
+        long waitTimer = vertx.setTimer(doneWaitMillis, timer -> {
+          LOGGER.warn("async search {} not done in time, no longer waiting for it", searchId);
+          promise.tryComplete();
+        });
+        promise.future().onComplete(done -> vertx.cancelTimer(waitTimer));
+        return;
+      }
+      if (searchHandler.failed()) {
+        LOGGER.error("async search {} failed : {}", searchId,
+            searchHandler.cause().getMessage());
+      }
+      // failed searches are marked so for the user, they are not retried
+      promise.tryComplete();
+    });
+    return promise.future();
+  }
+
+  private static boolean isTimeout(Throwable failure) {
+    return failure instanceof ReplyException
+        && ((ReplyException) failure).failureType() == ReplyFailure.TIMEOUT;
+  }
 
+  private void ack(RabbitMQMessage message) {
+    client.basicAck(message.envelope().getDeliveryTag(), false)
+        .onFailure(ackFailure -> LOGGER.error("failed to ack async query : {}",
+            ackFailure.getMessage()));
+  }
 }
@@ -0,0 +1,228 @@
+package iudx.resource.server.databroker.listeners;
+
+import static iudx.resource.server.apiserver.util.Constants.JSON_ENDTIME;
+import static iudx.resource.server.apiserver.util.Constants.JSON_TIME;
+import static iudx.resource.server.apiserver.util.Constants.VALIDATION_MAX_DAYS_INTERVAL_ALLOWED_FOR_ASYNC;
+import static iudx.resource.server.databroker.util.Constants.ASYNC_QUERY_METRIC;
+import static iudx.resource.server.databroker.util.Constants.ASYNC_QUERY_SCHEDULER_MAP;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+/**
+ * Schedules async query jobs with bounded global and per user concurrency.
+ *
+ * <p>
+ * The next job started is one of the user below the per user limit whose job was started least
+ * recently, users with nothing running or queued are new to the schedule again. So a user
+ * submitting many queries can not starve other users. Jobs of a user are started smallest
+ * estimated result first.
+ * </p>
+ *
+ * <p>
+ * One scheduler is shared by the listeners of all instances of the DataBrokerVerticle, see
+ * {@link #shared(Vertx, int, int)}, so limits apply to the whole process. A job is started and
+ * completed on the context it was submitted on.
+ * </p>
+ */
+final class AsyncQueryScheduler implements Shareable {
+
+  private static final Logger LOGGER = LogManager.getLogger(AsyncQueryScheduler.class);
+
+  private final int maxConcurrency;
+  private final int maxConcurrencyPerUser;
+
+  private final Map<String, PriorityQueue<Job>> queues = new HashMap<>();
+  private final Map<String, Integer> runningPerUser = new HashMap<>();
+  // sequence of the last job started of users with running or queued jobs
+  private final Map<String, Long> lastStarted = new HashMap<>();
+  private final AtomicInteger queued;
+  private final AtomicInteger running;
+  private long sequence;
+
+  /**
+   * @return scheduler shared by all listeners of vertx, created with the given limits by the first
+   *         listener asking for it
+   */
+  static AsyncQueryScheduler shared(Vertx vertx, int maxConcurrency, int maxConcurrencyPerUser) {
+    LocalMap<String, AsyncQueryScheduler> schedulers =
+        vertx.sharedData().getLocalMap(ASYNC_QUERY_SCHEDULER_MAP);
+    return schedulers.computeIfAbsent(ASYNC_QUERY_SCHEDULER_MAP,
+        name -> new AsyncQueryScheduler(maxConcurrency, maxConcurrencyPerUser));
+  }
+
+  AsyncQueryScheduler(int maxConcurrency, int maxConcurrencyPerUser) {
+    this.maxConcurrency = maxConcurrency;
+    this.maxConcurrencyPerUser = maxConcurrencyPerUser;
+    this.queued = Metrics.gauge(ASYNC_QUERY_METRIC, Tags.of("state", "queued"),
+        new AtomicInteger());
+    this.running = Metrics.gauge(ASYNC_QUERY_METRIC, Tags.of("state", "running"),
+        new AtomicInteger());
+  }
+
+  /**
+   * @param user user who submitted the query
+   * @param estimatedSize estimated result size, see {@link #estimateSize(JsonObject)}
+   * @param task starts the job, returned future completes once job is done
+   * @return future completed once the job is done
+   */
+  synchronized Future<Void> submit(String user, long estimatedSize,
+      Supplier<Future<Void>> task) {
+    Job job = new Job(user, estimatedSize, sequence++, task, Vertx.currentContext());
+    queues.computeIfAbsent(user, key -> new PriorityQueue<>()).add(job);
+    queued.incrementAndGet();
+    LOGGER.debug("queued async query of {} [queued : {}, running : {}]", user, queued.get(),
+        running.get());
+    dispatch();
+    return job.done.future();
+  }
+
+  int getQueued() {
+    return queued.get();
+  }
+
+  int getRunning() {
+    return running.get();
+  }
+
+  private synchronized void dispatch() {
+    while (running.get() < maxConcurrency) {
+      Job job = next();
+      if (job == null) {
+        return;
+      }
+      queued.decrementAndGet();
+      running.incrementAndGet();
+      runningPerUser.merge(job.user, 1, Integer::sum);
+      lastStarted.put(job.user, job.sequence);
+      job.run(() -> start(job));
+    }
+  }
+
+  private void start(Job job) {
+    Future<Void> result;
+    try {
+      result = job.task.get();
+    } catch (RuntimeException ex) {
+      result = Future.failedFuture(ex);
+    }
+    result.onComplete(jobHandler -> complete(job, jobHandler));
+  }
+
+  private void complete(Job job, AsyncResult<Void> result) {
+    synchronized (this) {
+      running.decrementAndGet();
+      runningPerUser.computeIfPresent(job.user, (user, count) -> count > 1 ? count - 1 : null);
+      if (!runningPerUser.containsKey(job.user) && !queues.containsKey(job.user)) {
+        lastStarted.remove(job.user);
+      }
+    }
+    job.run(() -> job.done.handle(result));
+    dispatch();
+  }
+
+  /**
+   * @return next job of the user below the per user limit started least recently, ties are broken
+   *         by submission order
+   */
+  private Job next() {
+    String next = null;
+    long nextStarted = 0;
+    for (Map.Entry<String, PriorityQueue<Job>> queue : queues.entrySet()) {
+      String user = queue.getKey();
+      if (runningPerUser.getOrDefault(user, 0) >= maxConcurrencyPerUser) {
+        continue;
+      }
+      long started = lastStarted.getOrDefault(user, -1L);
+      if (next == null || started < nextStarted || (started == nextStarted
+          && queue.getValue().peek().sequence < queues.get(next).peek().sequence)) {
+        next = user;
+        nextStarted = started;
+      }
+    }
+    if (next == null) {
+      return null;
+    }
+    PriorityQueue<Job> queue = queues.get(next);
+    Job job = queue.poll();
+    if (queue.isEmpty()) {
+      queues.remove(next);
+    }
+    return job;
+  }
+
+  /**
+   * Estimates result size of a query as number of ids times length of its time window in hours.
+   * Queries without a closed time window are estimated with the longest window allowed.
+   */
+  static long estimateSize(JsonObject query) {
+    JsonArray ids = query.getJsonArray("id");
+    int idCount = ids == null || ids.isEmpty() ? 1 : ids.size();
+    long hours = Duration.ofDays(VALIDATION_MAX_DAYS_INTERVAL_ALLOWED_FOR_ASYNC).toHours();
+    if (query.containsKey(JSON_TIME) && query.containsKey(JSON_ENDTIME)) {
+      try {
+        Duration window = Duration.between(ZonedDateTime.parse(query.getString(JSON_TIME)),
+            ZonedDateTime.parse(query.getString(JSON_ENDTIME)));
+        hours = Math.max(1, window.toHours());
+      } catch (DateTimeParseException ex) {
+        LOGGER.debug("unable to estimate time window of query : {}", ex.getMessage());
+      }
+    }
+    return idCount * hours;
+  }
+
+  private static final class Job implements Comparable<Job> {
+
+    private final String user;
+    private final long estimatedSize;
+    private final long sequence;
+    private final Supplier<Future<Void>> task;
+    // context the job was submitted on, null if submitted outside of vert.x
+    private final Context context;
+    private final Promise<Void> done = Promise.promise();
+
+    Job(String user, long estimatedSize, long sequence, Supplier<Future<Void>> task,
+        Context context) {
+      this.user = user;
+      this.estimatedSize = estimatedSize;
+      this.sequence = sequence;
+      this.task = task;
+      this.context = context;
+    }
+
+    /**
+     * runs action on the context of the job.
+     */
+    void run(Runnable action) {
+      if (context == null || context == Vertx.currentContext()) {
+        action.run();
+      } else {
+        context.runOnContext(v -> action.run());
+      }
+    }
+
+    @Override
+    public int compareTo(Job other) {
+      int bySize = Long.compare(estimatedSize, other.estimatedSize);
+      return bySize != 0 ? bySize : Long.compare(sequence, other.sequence);
+    }
+  }
+}
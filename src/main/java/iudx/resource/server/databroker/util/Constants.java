@@ -185,4 +185,19 @@ public class Constants {
   //message
   public static final String API_KEY_MESSAGE="Use the apiKey returned on registration, if lost please use /resetPassword API";
 
+  // async query scheduling
+  public static final String ASYNC_QUERY_MAX_CONCURRENCY = "asyncQueryMaxConcurrency";
+  public static final String ASYNC_QUERY_MAX_CONCURRENCY_PER_USER =
+      "asyncQueryMaxConcurrencyPerUser";
+  public static final String ASYNC_QUERY_PREFETCH = "asyncQueryPrefetch";
+  public static final String ASYNC_QUERY_TIMEOUT_MINUTES = "asyncQueryTimeoutMinutes";
+  public static final int DEFAULT_ASYNC_QUERY_MAX_CONCURRENCY = 4;
+  public static final int DEFAULT_ASYNC_QUERY_MAX_CONCURRENCY_PER_USER = 1;
+  public static final int DEFAULT_ASYNC_QUERY_PREFETCH = 500;
+  public static final int DEFAULT_ASYNC_QUERY_TIMEOUT_MINUTES = 120;
+  public static final String ASYNC_QUERY_DONE_WAIT_MINUTES = "asyncQueryDoneWaitMinutes";
+  public static final int DEFAULT_ASYNC_QUERY_DONE_WAIT_MINUTES = 60;
+  public static final String ASYNC_QUERY_METRIC = "iudx.rs.async.query.jobs";
+  public static final String ASYNC_QUERY_SCHEDULER_MAP = "async-query-scheduler";
+
 }
@@ -20,6 +20,7 @@ import com.hazelcast.config.DiscoveryStrategyConfig;
 import com.hazelcast.zookeeper.ZookeeperDiscoveryProperties;
 import com.hazelcast.zookeeper.ZookeeperDiscoveryStrategyFactory;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.binder.jvm.ClassLoaderMetrics;
 // JVM metrics imports
 import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
@@ -196,6 +197,8 @@ public class Deployer {
     new JvmGcMetrics().bindTo(registry);
     new ProcessorMetrics().bindTo(registry);
     new JvmThreadMetrics().bindTo(registry);
+    // expose application metrics registered on the global registry
+    Metrics.addRegistry(registry);
 
   }
 
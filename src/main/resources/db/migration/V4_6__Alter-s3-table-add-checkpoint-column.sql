@@ -0,0 +1,5 @@
+-- Add new column 'checkpoint' to s3_upload_url table, to resume async searches from.
+ALTER TABLE s3_upload_url ADD COLUMN checkpoint jsonb;
+
+-- searches in progress are swept for ones not updated since their lease expired.
+CREATE INDEX IF NOT EXISTS s3_upload_url_in_progress_idx ON s3_upload_url (modified_at) WHERE status = 'IN_PROGRESS';
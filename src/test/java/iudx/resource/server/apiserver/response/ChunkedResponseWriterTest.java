@@ -0,0 +1,100 @@
+package iudx.resource.server.apiserver.response;
+
+import static iudx.resource.server.common.Constants.ENCODED_SEARCH_MORE_HEADER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+
+@ExtendWith(VertxExtension.class)
+public class ChunkedResponseWriterTest {
+
+  private static final String ADDRESS = "test.chunked.response";
+  private static final List<String> CHUNKS = List.of("{\"results\":[", "1,", "2]}");
+
+  private HttpServerResponse response;
+  private AtomicBoolean writeQueueFull;
+  private AtomicReference<Handler<Void>> drainHandler;
+  private AtomicInteger sent;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  public void setup(Vertx vertx) {
+    writeQueueFull = new AtomicBoolean(false);
+    drainHandler = new AtomicReference<>();
+    sent = new AtomicInteger();
+
+    response = mock(HttpServerResponse.class);
+    when(response.write(any(Buffer.class))).thenReturn(Future.succeededFuture());
+    when(response.end(any(Buffer.class))).thenReturn(Future.succeededFuture());
+    when(response.writeQueueFull()).thenAnswer(invocation -> writeQueueFull.get());
+    doAnswer(invocation -> {
+      drainHandler.set(invocation.getArgument(0));
+      return response;
+    }).when(response).drainHandler(any());
+
+    // sends a chunk each time the previous one is replied to
+    vertx.eventBus().consumer(ADDRESS, message -> send(message));
+  }
+
+  private void send(Message<?> message) {
+    int chunk = sent.getAndIncrement();
+    Buffer body = Buffer.buffer(CHUNKS.get(chunk));
+    if (chunk == CHUNKS.size() - 1) {
+      message.reply(body);
+      return;
+    }
+    message.replyAndRequest(body, new DeliveryOptions().addHeader(ENCODED_SEARCH_MORE_HEADER, "true"))
+        .onSuccess(this::send);
+  }
+
+  @Test
+  @DisplayName("Test write : all chunks written and response ended with last chunk")
+  public void testWrite(Vertx vertx, VertxTestContext testContext) {
+    vertx.eventBus().<Buffer>request(ADDRESS, null)
+        .compose(first -> ChunkedResponseWriter.write(response, first))
+        .onComplete(testContext.succeeding(written -> testContext.verify(() -> {
+          InOrder order = inOrder(response);
+          order.verify(response).write(Buffer.buffer(CHUNKS.get(0)));
+          order.verify(response).write(Buffer.buffer(CHUNKS.get(1)));
+          order.verify(response).end(Buffer.buffer(CHUNKS.get(2)));
+          testContext.completeNow();
+        })));
+  }
+
+  @Test
+  @DisplayName("Test write : next chunk requested only once response is drained")
+  public void testWriteQueueFull(Vertx vertx, VertxTestContext testContext) {
+    writeQueueFull.set(true);
+    vertx.eventBus().<Buffer>request(ADDRESS, null).onSuccess(first -> {
+      ChunkedResponseWriter.write(response, first)
+          .onComplete(testContext.succeedingThenComplete());
+
+      vertx.setTimer(200, waited -> testContext.verify(() -> {
+        assertEquals(1, sent.get());
+        writeQueueFull.set(false);
+        drainHandler.get().handle(null);
+      }));
+    });
+  }
+}
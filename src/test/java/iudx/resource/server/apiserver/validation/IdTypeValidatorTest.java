@@ -3,6 +3,7 @@ package iudx.resource.server.apiserver.validation;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Collections;
 import java.util.stream.Stream;
 
 import org.apache.commons.lang3.RandomStringUtils;
@@ -97,4 +98,30 @@ public class IdTypeValidatorTest {
     assertThrows(DxRuntimeException.class, () -> idTypeValidator.isValid());
     testContext.completeNow();
   }
+
+  static Stream<Arguments> multipleIdValues() {
+    String id =
+        "iisc.ac.in/89a36273d77dac4cf38114fca1bbe64392547f86/rs.iudx.io/pune-env-flood/FWR055";
+    return Stream.of(
+        Arguments.of(id + "," + id.replace("FWR055", "FWR056"), 2, true),
+        Arguments.of(String.join(",", Collections.nCopies(50, id)), 50, true),
+        Arguments.of(String.join(",", Collections.nCopies(51, id)), 50, false),
+        Arguments.of(id + "," + id, 1, false),
+        Arguments.of(id + ",", 2, false),
+        Arguments.of(id + ",bypass", 2, false));
+  }
+
+  @ParameterizedTest
+  @MethodSource("multipleIdValues")
+  @Description("comma separated id values.")
+  public void testMultipleIDTypeValue(String value, int maxIds, boolean valid, Vertx vertx,
+      VertxTestContext testContext) {
+    idTypeValidator = new IDTypeValidator(value, true, maxIds);
+    if (valid) {
+      assertTrue(idTypeValidator.isValid());
+    } else {
+      assertThrows(DxRuntimeException.class, () -> idTypeValidator.isValid());
+    }
+    testContext.completeNow();
+  }
 }
@@ -369,4 +369,69 @@ public class CacheServiceImplTest {
       }
     });
   }
+
+  @Test
+  @DisplayName("Test getAll method : values of keys present are returned")
+  public void testGetAllKeys(VertxTestContext testContext) {
+    cacheService.put(testJson_2);
+    JsonObject request = new JsonObject()
+        .put("type", CacheType.UNIQUE_ATTRIBUTE)
+        .put("keys", new JsonArray().add(testJson_2.getString("key")).add("missing_key"));
+
+    cacheService.getAll(request)
+        .onComplete(testContext.succeeding(result -> testContext.verify(() -> {
+      assertEquals(1, result.size());
+      assertEquals("license_plate",
+          result.getJsonObject(testJson_2.getString("key")).getString("value"));
+      testContext.completeNow();
+    })));
+  }
+
+  @Test
+  @DisplayName("Test getAll method : values of keys with prefix are returned")
+  public void testGetAllPrefix(VertxTestContext testContext) {
+    cacheService.put(testJson_2);
+    JsonObject request = new JsonObject()
+        .put("type", CacheType.UNIQUE_ATTRIBUTE)
+        .put("prefix", "iisc.ac.in/89a36273d77dac4cf38114fca1bbe64392547f86/");
+
+    cacheService.getAll(request)
+        .onComplete(testContext.succeeding(result -> testContext.verify(() -> {
+      assertTrue(result.containsKey(testJson_2.getString("key")));
+      testContext.completeNow();
+    })));
+  }
+
+  @Test
+  @DisplayName("Test getAll method : no keys or prefix fails")
+  public void testGetAllNoKeys(VertxTestContext testContext) {
+    JsonObject request = new JsonObject().put("type", CacheType.UNIQUE_ATTRIBUTE);
+
+    cacheService.getAll(request)
+        .onComplete(testContext.failing(failure -> testContext.completeNow()));
+  }
+
+  @Test
+  @DisplayName("Test broadcast change : later versions are applied, stale ones dropped")
+  public void testApplyUpdate(VertxTestContext testContext) {
+    CacheServiceImpl cacheServiceImpl = (CacheServiceImpl) cacheService;
+    long version = System.currentTimeMillis() + 60_000;
+    JsonObject change = new JsonObject()
+        .put("type", CacheType.REVOKED_CLIENT.name())
+        .put("key", "revoked_client_id_broadcast")
+        .put("origin", "other-node");
+    cacheServiceImpl.applyUpdate(change.copy().put("value", "2020-10-20T14:20:00Z")
+        .put("version", version));
+    cacheServiceImpl.applyUpdate(change.copy().put("value", "2020-10-19T14:20:00Z")
+        .put("version", version - 1));
+
+    JsonObject request = new JsonObject()
+        .put("type", CacheType.REVOKED_CLIENT)
+        .put("key", "revoked_client_id_broadcast");
+    cacheService.get(request)
+        .onComplete(testContext.succeeding(result -> testContext.verify(() -> {
+      assertEquals("2020-10-20T14:20:00Z", result.getString("value"));
+      testContext.completeNow();
+    })));
+  }
 }
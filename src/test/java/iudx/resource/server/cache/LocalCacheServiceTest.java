@@ -0,0 +1,98 @@
+package iudx.resource.server.cache;
+
+import static iudx.resource.server.common.Constants.CACHE_INVALIDATION_ADDRESS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import iudx.resource.server.cache.cacheImpl.CacheType;
+
+@ExtendWith(VertxExtension.class)
+public class LocalCacheServiceTest {
+
+  private CacheService delegate;
+  private LocalCacheService cacheService;
+  private final JsonObject request = new JsonObject()
+      .put("type", CacheType.CATALOGUE_CACHE)
+      .put("key", "iisc.ac.in/89a36273d77dac4cf38114fca1bbe64392547f86/rs.iudx.io/surat-itms");
+
+  @BeforeEach
+  public void setUp(Vertx vertx) {
+    delegate = mock(CacheService.class);
+    when(delegate.get(any()))
+        .thenAnswer(invocation -> Future.succeededFuture(new JsonObject().put("accessPolicy", "OPEN")));
+    cacheService = new LocalCacheService(vertx, delegate, new JsonObject());
+  }
+
+  @Test
+  @DisplayName("repeated lookups are served locally")
+  public void testReadThrough(VertxTestContext testContext) {
+    cacheService.get(request)
+        .compose(first -> cacheService.get(request))
+        .onComplete(testContext.succeeding(second -> testContext.verify(() -> {
+          assertEquals("OPEN", second.getString("accessPolicy"));
+          verify(delegate, times(1)).get(any());
+          testContext.completeNow();
+        })));
+  }
+
+  @Test
+  @DisplayName("published changes drop local entries")
+  public void testInvalidation(Vertx vertx, VertxTestContext testContext) {
+    cacheService.get(request)
+        .onComplete(testContext.succeeding(first -> {
+          vertx.eventBus().publish(CACHE_INVALIDATION_ADDRESS,
+              new JsonObject().put("type", CacheType.CATALOGUE_CACHE.name()));
+          vertx.setTimer(100, published -> cacheService.get(request)
+              .onComplete(testContext.succeeding(second -> testContext.verify(() -> {
+                verify(delegate, times(2)).get(any());
+                testContext.completeNow();
+              }))));
+        }));
+  }
+
+  @Test
+  @DisplayName("failed lookups are served locally until invalidated")
+  public void testFailedLookup(Vertx vertx, VertxTestContext testContext) {
+    when(delegate.get(any())).thenAnswer(invocation -> Future
+        .failedFuture(new ReplyException(ReplyFailure.RECIPIENT_FAILURE, 404, "not found")));
+    cacheService.get(request)
+        .recover(first -> cacheService.get(request))
+        .onComplete(testContext.failing(second -> {
+          testContext.verify(() -> verify(delegate, times(1)).get(any()));
+          vertx.eventBus().publish(CACHE_INVALIDATION_ADDRESS,
+              new JsonObject().put("type", CacheType.CATALOGUE_CACHE.name()));
+          vertx.setTimer(100, published -> cacheService.get(request)
+              .onComplete(testContext.failing(third -> testContext.verify(() -> {
+                verify(delegate, times(2)).get(any());
+                testContext.completeNow();
+              }))));
+        }));
+  }
+
+  @Test
+  @DisplayName("lookups without a reply are not held")
+  public void testTimedOutLookup(VertxTestContext testContext) {
+    when(delegate.get(any())).thenAnswer(invocation -> Future
+        .failedFuture(new ReplyException(ReplyFailure.TIMEOUT, "timed out")));
+    cacheService.get(request)
+        .recover(first -> cacheService.get(request))
+        .onComplete(testContext.failing(second -> testContext.verify(() -> {
+          verify(delegate, times(2)).get(any());
+          testContext.completeNow();
+        })));
+  }
+}
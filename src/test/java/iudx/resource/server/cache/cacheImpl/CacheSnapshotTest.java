@@ -0,0 +1,65 @@
+package iudx.resource.server.cache.cacheImpl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import io.vertx.core.json.JsonObject;
+
+public class CacheSnapshotTest {
+
+  private CacheSnapshot snapshot;
+
+  @BeforeEach
+  public void setUp() {
+    snapshot = new CacheSnapshot(CacheType.UNIQUE_ATTRIBUTE);
+  }
+
+  private static CacheValue<JsonObject> value(String value) {
+    JsonObject json = new JsonObject().put("value", value);
+    return () -> json;
+  }
+
+  @Test
+  @DisplayName("refresh replaces all entries at once")
+  public void testPublishReplacesEntries() {
+    snapshot.publish(snapshot.startRefresh(), Map.of("a/1", value("x"), "a/2", value("y")));
+    CacheValue<JsonObject> kept = value("z");
+    snapshot.publish(snapshot.startRefresh(), Map.of("a/2", kept, "b/1", value("w")));
+
+    assertNull(snapshot.get("a/1"));
+    assertSame(kept, snapshot.get("a/2"));
+    assertEquals(2, snapshot.size());
+    assertEquals(1, snapshot.getByPrefix("a/").size());
+    assertEquals(1, snapshot.getAll(List.of("a/1", "b/1")).size());
+  }
+
+  @Test
+  @DisplayName("entries put while a refresh is in flight are kept")
+  public void testPutDuringRefresh() {
+    snapshot.put("old", value("x"));
+    CacheSnapshot.Refresh refresh = snapshot.startRefresh();
+    CacheValue<JsonObject> put = value("y");
+    snapshot.put("new", put);
+    snapshot.publish(refresh, Map.of("other", value("z")));
+
+    assertSame(put, snapshot.get("new"));
+    assertNull(snapshot.get("old"));
+    assertEquals(2, snapshot.size());
+  }
+
+  @Test
+  @DisplayName("refresh started before a published one is dropped")
+  public void testStaleRefreshDropped() {
+    CacheSnapshot.Refresh stale = snapshot.startRefresh();
+    snapshot.put("a", value("x"));
+    snapshot.publish(snapshot.startRefresh(), Map.of("a", value("y")));
+    snapshot.publish(stale, Map.of());
+
+    assertEquals("y", snapshot.get("a").getValue().getString("value"));
+  }
+}
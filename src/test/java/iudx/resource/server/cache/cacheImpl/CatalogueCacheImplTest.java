@@ -1,9 +1,13 @@
 package iudx.resource.server.cache.cacheImpl;
 
+import java.util.ArrayList;
+import java.util.List;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.HttpRequest;
@@ -22,6 +26,9 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.stubbing.Answer;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 @ExtendWith(VertxExtension.class)
@@ -58,6 +65,7 @@ public class CatalogueCacheImplTest {
         when(CatalogueCacheImpl.catWebClient.get(anyInt(), anyString(), anyString())).thenReturn(httpRequest);
         when(httpRequest.addQueryParam(anyString(), anyString())).thenReturn(httpRequest);
         when(httpRequest.expect(any())).thenReturn(httpRequest);
+        lenient().when(httpRequest.timeout(anyLong())).thenReturn(httpRequest);
         when(asyncResult.succeeded()).thenReturn(true);
         when(asyncResult.result()).thenReturn(httpResponse);
         when(httpResponse.bodyAsJsonObject()).thenReturn(jsonObject);
@@ -88,5 +96,54 @@ public class CatalogueCacheImplTest {
         vertxTestContext.completeNow();
     }
 
+    @Test
+    @DisplayName("Testing item is decoded once when loaded")
+    void testDecodedOnLoad(VertxTestContext vertxTestContext) {
+        CatalogueCacheImpl.get("abcd/abcd/abcd/abcd").onComplete(vertxTestContext.succeeding(value -> {
+            assertTrue(value instanceof CatalogueItems);
+            assertEquals("abcd/abcd/abcd/abcd", value.getValue().getString("id"));
+            assertSame(value.getValue(), value.getValue());
+            vertxTestContext.completeNow();
+        }));
+    }
+
+    @Test
+    @DisplayName("Testing unknown id is looked up once")
+    void testMissingNotLookedUpAgain(VertxTestContext vertxTestContext) {
+        when(httpResponse.statusCode()).thenReturn(200);
+        CatalogueCacheImpl.get("abcd/abcd/abcd/efgh").onComplete(vertxTestContext.failing(first ->
+            CatalogueCacheImpl.get("abcd/abcd/abcd/efgh").onComplete(vertxTestContext.failing(second -> {
+                // the populate on start and a single item lookup
+                verify(CatalogueCacheImpl.catWebClient, times(2)).get(anyInt(), anyString(), anyString());
+                vertxTestContext.completeNow();
+            }))));
+    }
 
+    @Test
+    @DisplayName("Testing concurrent lookups of an id share one request")
+    void testConcurrentLookupsShared(VertxTestContext vertxTestContext) {
+        List<Handler<AsyncResult<HttpResponse<Buffer>>>> pending = new ArrayList<>();
+        doAnswer(invocation -> pending.add(invocation.getArgument(0))).when(httpRequest).send(any());
+        when(httpResponse.statusCode()).thenReturn(404);
+
+        Future<CacheValue<JsonObject>> first = CatalogueCacheImpl.get("abcd/abcd/abcd/efgh");
+        Future<CacheValue<JsonObject>> second = CatalogueCacheImpl.get("abcd/abcd/abcd/efgh");
+        assertSame(first, second);
+        assertEquals(1, pending.size());
+        pending.get(0).handle(asyncResult);
+        second.onComplete(vertxTestContext.failing(notFound -> vertxTestContext.completeNow()));
+    }
+
+    @Test
+    @DisplayName("Testing invalid catalogue response fails the lookup")
+    void testInvalidResponse(VertxTestContext vertxTestContext) {
+        when(httpResponse.statusCode()).thenReturn(200);
+        when(httpResponse.bodyAsJsonObject()).thenThrow(new DecodeException("invalid json"));
+        CatalogueCacheImpl.get("abcd/abcd/abcd/efgh").onComplete(vertxTestContext.failing(first ->
+            CatalogueCacheImpl.get("abcd/abcd/abcd/efgh").onComplete(vertxTestContext.failing(second -> {
+                // lookup is not left in flight, nor taken as missing
+                verify(CatalogueCacheImpl.catWebClient, times(3)).get(anyInt(), anyString(), anyString());
+                vertxTestContext.completeNow();
+            }))));
+    }
 }
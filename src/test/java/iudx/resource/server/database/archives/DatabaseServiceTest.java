@@ -338,7 +338,7 @@ public class DatabaseServiceTest {
   }
 
   @Test
-  @DisplayName("Testing Geo Polygon Exceptions (First and Last coordinates don't match)")
+  @DisplayName("Testing Geo Polygon (First and Last coordinates don't match)")
   void searchPolygonFirstLastNoMatch(VertxTestContext testContext) {
     JsonObject request = new JsonObject()
         .put("id", new JsonArray()
@@ -361,13 +361,11 @@ public class DatabaseServiceTest {
     // assertThrows(ESQueryDecodeException.class, ()->dbService.search(request));
     // testContext.completeNow();
 
+    // open rings are closed before querying
     dbService.search(request).onSuccess(handler -> {
-      testContext.failed();
-    }).onFailure(handler -> {
-      JsonObject exceptionResponse = new JsonObject(handler.getMessage());
-      assertEquals("Coordinate mismatch (Polygon)", exceptionResponse.getString("detail"));
       testContext.completeNow();
-
+    }).onFailure(handler -> {
+      testContext.failNow(handler.getMessage());
     });
 
   }
@@ -0,0 +1,100 @@
+package iudx.resource.server.database.archives;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch._types.query_dsl.TermQuery;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
+public class SearchResultCacheTest {
+
+  private SearchResultCache cache;
+
+  @BeforeEach
+  public void setup() {
+    cache = new SearchResultCache(1024, Duration.ofHours(1));
+  }
+
+  private JsonObject temporalRequest(String timerel, ZonedDateTime endTime) {
+    return new JsonObject()
+        .put("searchType", "temporalSearch_")
+        .put("timerel", timerel)
+        .put("time", endTime.minusDays(1).toString())
+        .put("endtime", endTime.toString());
+  }
+
+  private Query termQuery(String value) {
+    return TermQuery.of(t -> t.field("id").value(value))._toQuery();
+  }
+
+  @Test
+  @DisplayName("Test isCacheable : closed during window")
+  public void testClosedWindowCacheable() {
+    assertTrue(cache.isCacheable(temporalRequest("during", ZonedDateTime.now().minusDays(7))));
+    assertTrue(cache.isCacheable(temporalRequest("between", ZonedDateTime.now().minusDays(7))));
+  }
+
+  @Test
+  @DisplayName("Test isCacheable : window ending within ingestion lag")
+  public void testOpenWindowNotCacheable() {
+    assertFalse(cache.isCacheable(temporalRequest("during", ZonedDateTime.now().minusMinutes(5))));
+  }
+
+  @Test
+  @DisplayName("Test isCacheable : non during queries and cursor pages")
+  public void testNotCacheable() {
+    ZonedDateTime weekAgo = ZonedDateTime.now().minusDays(7);
+    assertFalse(cache.isCacheable(temporalRequest("before", weekAgo)));
+    assertFalse(cache.isCacheable(temporalRequest("during", weekAgo).put("cursor", "abc")));
+    assertFalse(cache.isCacheable(
+        temporalRequest("during", weekAgo).put("searchType", "attributeSearch_")));
+    assertFalse(cache.isCacheable(temporalRequest("during", weekAgo).put("endtime", "invalid")));
+  }
+
+  @Test
+  @DisplayName("Test key : key depends on query, page and variant")
+  public void testKey() {
+    String key = cache.key("json", "index", termQuery("a"), 10, 0, null);
+
+    assertEquals(key, cache.key("json", "index", termQuery("a"), 10, 0, null));
+    assertNotEquals(key, cache.key("json", "index", termQuery("b"), 10, 0, null));
+    assertNotEquals(key, cache.key("json", "index", termQuery("a"), 10, 10, null));
+    assertNotEquals(key, cache.key("stream", "index", termQuery("a"), 10, 0, null));
+  }
+
+  @Test
+  @DisplayName("Test put/get : entries evicted beyond memory budget")
+  public void testEviction() {
+    SearchResultCache cache = new SearchResultCache(1024 * 1024, Duration.ofHours(1));
+    String key = cache.key("json", "index", termQuery("a"), 10, 0, null);
+    cache.put(key, Buffer.buffer(new byte[8 * 1024]));
+    assertEquals(8 * 1024, cache.get(key).length());
+
+    int retained = 0;
+    for (int i = 0; i < 300; i++) {
+      cache.put("key" + i, Buffer.buffer(new byte[8 * 1024]));
+    }
+    for (int i = 0; i < 300; i++) {
+      retained += cache.get("key" + i) == null ? 0 : 1;
+    }
+    assertTrue(retained > 0 && retained <= 128);
+  }
+
+  @Test
+  @DisplayName("Test put/get : entry larger than memory budget is not retained")
+  public void testEntryLargerThanBudget() {
+    String key = cache.key("json", "index", termQuery("a"), 10, 0, null);
+    cache.put(key, Buffer.buffer(new byte[2048]));
+
+    assertNull(cache.get(key));
+  }
+}
@@ -0,0 +1,107 @@
+package iudx.resource.server.database.async;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import iudx.resource.server.database.postgres.PostgresService;
+
+@ExtendWith(VertxExtension.class)
+public class AsyncProgressWriterTest {
+
+  private PostgresService pgService;
+  private List<String> queries;
+  private List<Handler<AsyncResult<JsonObject>>> inFlight;
+  private AsyncProgressWriter writer;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  public void setup(Vertx vertx) {
+    pgService = mock(PostgresService.class);
+    queries = new ArrayList<>();
+    inFlight = new ArrayList<>();
+    doAnswer(call -> {
+      queries.add(call.getArgument(0));
+      inFlight.add(call.getArgument(1));
+      return null;
+    }).when(pgService).executeQuery(anyString(), any());
+    // timer does not fire during a test, flushes are triggered by the tests
+    writer = new AsyncProgressWriter(vertx, pgService, 600000);
+  }
+
+  @AfterEach
+  public void teardown() {
+    writer.close();
+  }
+
+  private void completeQueries() {
+    inFlight.forEach(handler -> handler
+        .handle(Future.succeededFuture(new JsonObject().put("result", new JsonArray()))));
+    inFlight.clear();
+  }
+
+  @Test
+  @DisplayName("Test flush : progress of all searches is written in one update")
+  public void testBatchedFlush() {
+    writer.listener("search-1").updateProgress(0.1);
+    writer.listener("search-1").updateProgress(0.3);
+    writer.listener("search-1").updateProgress(0.2);
+    writer.listener("search-2").updateProgress(0.5);
+
+    writer.flush();
+
+    assertEquals(1, queries.size());
+    String query = queries.get(0);
+    assertTrue(query.contains("('search-1',30.0)"), query);
+    assertTrue(query.contains("('search-2',50.0)"), query);
+    assertTrue(!query.contains("('search-1',20.0)") && !query.contains("('search-1',10.0)"));
+  }
+
+  @Test
+  @DisplayName("Test flush : nothing is written without new progress or while a flush is in flight")
+  public void testFlushSkipped() {
+    writer.flush();
+    verify(pgService, never()).executeQuery(anyString(), any());
+
+    writer.listener("search-1").updateProgress(0.1);
+    writer.flush();
+    writer.listener("search-1").updateProgress(0.4);
+    writer.flush();
+    assertEquals(1, queries.size());
+
+    completeQueries();
+    writer.flush();
+    assertEquals(2, queries.size());
+    assertTrue(queries.get(1).contains("('search-1',40.0)"), queries.get(1));
+  }
+
+  @Test
+  @DisplayName("Test finish : progress of a finished search is not written")
+  public void testFinish() {
+    ProgressListener listener = writer.listener("search-1");
+    listener.updateProgress(0.9);
+    listener.finish();
+
+    writer.flush();
+
+    verify(pgService, never()).executeQuery(anyString(), any());
+  }
+}
@@ -1,5 +1,7 @@
 package iudx.resource.server.database.async;
 
+import static iudx.resource.server.common.Constants.ASYNC_QUERY_EX;
+import static iudx.resource.server.common.Constants.BROKER_SERVICE_ADDRESS;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -32,11 +34,13 @@ import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
+import io.vertx.serviceproxy.ServiceBinder;
 import iudx.resource.server.configuration.Configuration;
 import iudx.resource.server.database.async.util.S3FileOpsHelper;
 import iudx.resource.server.database.async.util.Util;
 import iudx.resource.server.database.elastic.ElasticClient;
 import iudx.resource.server.database.postgres.PostgresService;
+import iudx.resource.server.databroker.DataBrokerService;
 
 @ExtendWith({VertxExtension.class, MockitoExtension.class})
 public class AsyncServiceTest {
@@ -61,7 +65,6 @@ public class AsyncServiceTest {
   private static String bucketName;
   static AsyncServiceImpl asyncService2;
   private static AsyncResult<JsonObject> asyncResult1, asyncResult2;
-  static AsyncFileScrollProgressListener listener;
   @Mock
   static PostgresService postgresService;
   @Mock
@@ -118,7 +121,7 @@ public class AsyncServiceTest {
               }
             })
         .when(client)
-        .asyncScroll(any(File.class), any(), any(),any(), any(), any());
+        .asyncScroll(any(File.class), any(), any(), any(), any(), any(), any());
 
     Mockito.doAnswer(
             new Answer<AsyncResult<JsonObject>>() {
@@ -192,7 +195,7 @@ public class AsyncServiceTest {
         .getRecord4RequestId(any());
     doAnswer(Answer -> Future.succeededFuture()).when(asyncServiceSpy).executePGQuery(any());
 
-    asyncServiceSpy.asyncSearch(requestId, sub, searchId, query);
+    asyncServiceSpy.asyncSearch(requestId, sub, searchId, query, handler -> {});
 
     verify(asyncServiceSpy, times(2)).process4ExistingRequestId(any(),any(), any(), any(), any());
     verify(asyncServiceSpy, times(2)).executePGQuery(any());
@@ -214,7 +217,7 @@ public class AsyncServiceTest {
         .getRecord4RequestId(any());
     doAnswer(Answer -> Future.failedFuture("fail")).when(asyncServiceSpy).executePGQuery(any());
 
-    asyncServiceSpy.asyncSearch(requestId, sub, searchId, query);
+    asyncServiceSpy.asyncSearch(requestId, sub, searchId, query, handler -> {});
     testContext.completeNow();
   }
 
@@ -232,7 +235,7 @@ public class AsyncServiceTest {
 
     when(asyncResult1.succeeded()).thenReturn(false);
 
-    asyncServiceSpy.asyncSearch(requestId, sub, searchId, query);
+    asyncServiceSpy.asyncSearch(requestId, sub, searchId, query, handler -> {});
     testContext.completeNow();
   }
 
@@ -256,6 +259,30 @@ public class AsyncServiceTest {
 //    testContext.completeNow();
 //  }
 
+  @Test
+  @DisplayName("success - async search in progress elsewhere is not started again")
+  public void asyncSearchClaimedElsewhere(VertxTestContext testContext) {
+    String requestId = "efb0b92cd5b50d0a75a939ffa997c6e4fccdc62414ad0177a020eec98f69144e";
+    String sub = "15c7506f-c800-48d6-adeb-0542b03947c6";
+    String searchId = "c2d0a4f1-2f5e-4b7a-9d38-5e1f0b6a7c11";
+
+    doAnswer(Answer -> Future.failedFuture("record doesn't exist"))
+        .when(asyncServiceSpy)
+        .getRecord4RequestId(any());
+    when(asyncResult1.succeeded()).thenReturn(true);
+    when(asyncResult1.result()).thenReturn(new JsonObject().put("result", new JsonArray()));
+
+    asyncServiceSpy.asyncSearch(requestId, sub, searchId, query(), handler -> {
+      if (handler.succeeded() && searchId.equals(handler.result().getString("searchId"))) {
+        verify(client, never()).asyncScroll(any(File.class), any(), any(), any(), eq(searchId),
+            any(), any());
+        testContext.completeNow();
+      } else {
+        testContext.failNow("fail");
+      }
+    });
+  }
+
   @Test
   @DisplayName("success - async status")
   public void successfulAsyncStatus(VertxTestContext testContext) {
@@ -414,6 +441,71 @@ public class AsyncServiceTest {
     });
   }
 
+  @Test
+  @DisplayName("Test saveCheckpoint method : checkpoint bound as parameter")
+  public void testSaveCheckpoint(VertxTestContext vertxTestContext) {
+    asyncService2 = new AsyncServiceImpl(Vertx.vertx(), client, postgresService, fileOpsHelper, timeLimit, filePath);
+    JsonObject checkpoint = new JsonObject().put("export", new JsonArray().add("it's"));
+    when(asyncResult2.succeeded()).thenReturn(true);
+    doAnswer(new Answer<AsyncResult<JsonObject>>() {
+      @Override
+      public AsyncResult<JsonObject> answer(InvocationOnMock arg0) throws Throwable {
+        ((Handler<AsyncResult<JsonObject>>) arg0.getArgument(2)).handle(asyncResult2);
+        return null;
+      }
+    }).when(postgresService).executePreparedQuery(anyString(), any(), any());
+
+    asyncService2.saveCheckpoint("Dummy SearchID", checkpoint).onComplete(handler -> {
+      if (handler.failed()) {
+        vertxTestContext.failNow(handler.cause());
+        return;
+      }
+      JsonObject params = new JsonObject()
+          .put("checkpoint", checkpoint.encode())
+          .put("searchId", "Dummy SearchID");
+      verify(postgresService).executePreparedQuery(
+          eq(iudx.resource.server.database.postgres.Constants.UPDATE_S3_CHECKPOINT_SQL),
+          eq(params), any());
+      vertxTestContext.completeNow();
+    });
+  }
+
+  @Test
+  @DisplayName("Test recoverStaleSearches method : stale searches published to async query queue")
+  public void testRecoverStaleSearches(Vertx vertx, VertxTestContext vertxTestContext) {
+    DataBrokerService dataBrokerService = mock(DataBrokerService.class);
+    new ServiceBinder(vertx).setAddress(BROKER_SERVICE_ADDRESS)
+        .register(DataBrokerService.class, dataBrokerService);
+    asyncService2 = new AsyncServiceImpl(vertx, client, postgresService, fileOpsHelper, timeLimit, filePath);
+    JsonObject stale = new JsonObject()
+        .put("search_id", "4b25aa92-47bb-4c91-98c0-47a1c7a51fbe")
+        .put("request_id", "efb0b92cd5b50d0a75a939ffa997c6e4fccdc62414ad0177a020eec98f69144e")
+        .put("user_id", "15c7506f-c800-48d6-adeb-0542b03947c6")
+        .put("query", query());
+    when(asyncResult2.succeeded()).thenReturn(true);
+    when(asyncResult2.result())
+        .thenReturn(new JsonObject().put("result", new JsonArray().add(stale)));
+    doAnswer(new Answer<AsyncResult<JsonObject>>() {
+      @Override
+      public AsyncResult<JsonObject> answer(InvocationOnMock arg0) throws Throwable {
+        ((Handler<AsyncResult<JsonObject>>) arg0.getArgument(1)).handle(asyncResult2);
+        return null;
+      }
+    }).when(postgresService).executeQuery(anyString(), any());
+
+    asyncService2.recoverStaleSearches(2).onComplete(vertxTestContext.succeeding(count -> {
+      JsonObject message = new JsonObject()
+          .put("searchId", stale.getString("search_id"))
+          .put("requestId", stale.getString("request_id"))
+          .put("user", stale.getString("user_id"))
+          .put("query", query());
+      verify(dataBrokerService, timeout(5000))
+          .publishMessage(eq(message), eq(ASYNC_QUERY_EX), eq("#"), any());
+      assertEquals(1, count);
+      vertxTestContext.completeNow();
+    }));
+  }
+
   @Test
   @DisplayName("Test scrollQuery method : for Invalid Query")
   public void testScrollQueryWithInvalidQuery(VertxTestContext vertxTestContext) {
@@ -436,7 +528,6 @@ public class AsyncServiceTest {
   @ValueSource(booleans = {true,false})
   @DisplayName("Test updateProgress method : Different boolean values")
   public void testUpdateProgressFailure(boolean value,VertxTestContext vertxTestContext) {
-    AsyncFileScrollProgressListener.executionCounter = mock(AsyncFileScrollProgressListener.ExecutionCounter.class);
     when(asyncResult2.succeeded()).thenReturn(value);
     lenient().when(asyncResult2.cause()).thenReturn(throwable);
     lenient().doAnswer(new Answer<AsyncResult<JsonObject>>() {
@@ -446,9 +537,13 @@ public class AsyncServiceTest {
         return null;
       }
     }).when(postgresService).executeQuery(anyString(), any());
-    listener = new AsyncFileScrollProgressListener("Dummy search ID", postgresService);
-    listener.updateProgress(0.55);
-    vertxTestContext.completeNow();
+    AsyncProgressWriter writer = new AsyncProgressWriter(Vertx.vertx(), postgresService, 60000);
+    writer.listener("Dummy search ID").updateProgress(0.55);
+    writer.flush().onComplete(handler -> {
+      writer.close();
+      assertEquals(value, handler.succeeded());
+      vertxTestContext.completeNow();
+    });
   }
 //@Test
 //@DisplayName("s3Upload upload successfully")
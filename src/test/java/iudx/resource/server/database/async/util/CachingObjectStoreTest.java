@@ -0,0 +1,109 @@
+package iudx.resource.server.database.async.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CachingObjectStoreTest {
+
+  private static final long BUCKET = TimeUnit.HOURS.toMillis(1);
+  private static final String BASE_URL = "https://rs.example.com/ngsi-ld/v1/async/objects";
+
+  @TempDir
+  Path directory;
+
+  private LocalObjectStore localStore;
+  private CachingObjectStore cachingStore;
+
+  @BeforeEach
+  public void setup() {
+    localStore = spy(new LocalObjectStore(directory.toString(), BASE_URL, "secret"));
+    cachingStore = new CachingObjectStore(localStore, BUCKET, 100);
+  }
+
+  private static Map<String, String> params(URL url) {
+    Map<String, String> params = new HashMap<>();
+    for (String param : url.getQuery().split("&")) {
+      String[] pair = param.split("=", 2);
+      params.put(pair[0], pair[1]);
+    }
+    return params;
+  }
+
+  @Test
+  @DisplayName("Test generatePreSignedUrl : urls within an expiry bucket are reused")
+  public void testUrlCached() {
+    long expiry = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+    long bucketStart = expiry - expiry % BUCKET;
+
+    URL first = cachingStore.generatePreSignedUrl(bucketStart, "object-1");
+    URL second = cachingStore.generatePreSignedUrl(bucketStart + BUCKET - 1, "object-1");
+    URL next = cachingStore.generatePreSignedUrl(bucketStart + BUCKET, "object-1");
+    URL other = cachingStore.generatePreSignedUrl(bucketStart, "object-2");
+
+    assertEquals(first, second);
+    assertNotEquals(first, next);
+    assertNotEquals(first, other);
+    // expiry is rounded up to the end of the bucket
+    assertEquals(String.valueOf(bucketStart + BUCKET), params(first).get("expiry"));
+    verify(localStore, times(3)).generatePreSignedUrl(anyLong(), anyString());
+  }
+
+  @Test
+  @DisplayName("Test generatePreSignedUrl : failures are not cached")
+  public void testFailureNotCached() {
+    ObjectStore failing = mock(ObjectStore.class);
+    CachingObjectStore store = new CachingObjectStore(failing, BUCKET, 100);
+
+    assertNull(store.generatePreSignedUrl(System.currentTimeMillis(), "object-1"));
+    assertNull(store.generatePreSignedUrl(System.currentTimeMillis(), "object-1"));
+    verify(failing, times(2)).generatePreSignedUrl(anyLong(), anyString());
+  }
+
+  @Test
+  @DisplayName("Test resolveSignedLink : only unexpired links signed with the secret resolve")
+  public void testSignedLink() {
+    long expiry = System.currentTimeMillis() + BUCKET;
+    Map<String, String> params = params(localStore.generatePreSignedUrl(expiry, "object-1"));
+    String signature = params.get("signature");
+
+    Path object = localStore.resolveSignedLink("object-1", params.get("expiry"), signature);
+    assertNotNull(object);
+    assertEquals(directory.resolve("object-1"), object);
+
+    assertNull(localStore.resolveSignedLink("object-2", params.get("expiry"), signature));
+    assertNull(localStore.resolveSignedLink("object-1", String.valueOf(expiry + 1), signature));
+    LocalObjectStore otherSecret = new LocalObjectStore(directory.toString(), BASE_URL, "other");
+    assertNull(otherSecret.resolveSignedLink("object-1", params.get("expiry"), signature));
+
+    long expired = System.currentTimeMillis() - 1;
+    Map<String, String> expiredParams =
+        params(localStore.generatePreSignedUrl(expired, "object-1"));
+    assertNull(localStore.resolveSignedLink("object-1", expiredParams.get("expiry"),
+        expiredParams.get("signature")));
+  }
+
+  @Test
+  @DisplayName("Test close : delegate is closed")
+  public void testClose() {
+    ObjectStore delegate = mock(ObjectStore.class);
+    new CachingObjectStore(delegate, BUCKET, 100).close();
+    verify(delegate).close();
+  }
+}
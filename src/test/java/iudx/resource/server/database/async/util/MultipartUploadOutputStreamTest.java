@@ -0,0 +1,153 @@
+package iudx.resource.server.database.async.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MultipartUploadOutputStreamTest {
+
+  @TempDir
+  Path directory;
+
+  /**
+   * ObjectStore recording the size of uploaded parts.
+   */
+  private static class RecordingStore implements ObjectStore {
+
+    private final ObjectStore delegate;
+    private final List<Integer> parts = new ArrayList<>();
+    private boolean aborted;
+
+    RecordingStore(ObjectStore delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public MultipartUpload startUpload(String objectKey, String fileName) throws IOException {
+      MultipartUpload upload = delegate.startUpload(objectKey, fileName);
+      return new MultipartUpload() {
+        @Override
+        public String getUploadId() {
+          return upload.getUploadId();
+        }
+
+        @Override
+        public List<String> getParts() {
+          return upload.getParts();
+        }
+
+        @Override
+        public void uploadPart(byte[] part, int length) throws IOException {
+          parts.add(length);
+          upload.uploadPart(part, length);
+        }
+
+        @Override
+        public void complete() throws IOException {
+          upload.complete();
+        }
+
+        @Override
+        public void abort() {
+          aborted = true;
+          upload.abort();
+        }
+      };
+    }
+
+    @Override
+    public MultipartUpload resumeUpload(String objectKey, String uploadId, List<String> parts)
+        throws IOException {
+      return delegate.resumeUpload(objectKey, uploadId, parts);
+    }
+
+    @Override
+    public URL generatePreSignedUrl(long expiryTimeMillis, String objectKey) {
+      return delegate.generatePreSignedUrl(expiryTimeMillis, objectKey);
+    }
+  }
+
+  @Test
+  @DisplayName("Test upload : bytes written are uploaded in parts of fixed size")
+  public void testUploadInParts() throws IOException {
+    RecordingStore store = new RecordingStore(new LocalObjectStore(directory.toString()));
+    byte[] content = "[{\"id\":\"a\"},{\"id\":\"b\"},{\"id\":\"c\"}]".getBytes(StandardCharsets.UTF_8);
+
+    MultipartUploadOutputStream out =
+        new MultipartUploadOutputStream(store, "object-1", "search.json", 8);
+    out.write(content[0]);
+    out.write(content, 1, content.length - 1);
+    out.close();
+
+    assertEquals(content.length, out.complete());
+    assertEquals(List.of(8, 8, 8, 8, content.length - 32), store.parts);
+    assertArrayEquals(content, Files.readAllBytes(directory.resolve("object-1")));
+    assertFalse(Files.exists(directory.resolve("object-1.upload")));
+  }
+
+  @Test
+  @DisplayName("Test upload : empty object is uploaded as a single empty part")
+  public void testEmptyUpload() throws IOException {
+    MultipartUploadOutputStream out = new MultipartUploadOutputStream(
+        new LocalObjectStore(directory.toString()), "object-2", "search.json", 8);
+
+    assertEquals(0, out.complete());
+    assertEquals(0, Files.size(directory.resolve("object-2")));
+  }
+
+  @Test
+  @DisplayName("Test abort : aborted upload leaves no object")
+  public void testAbort() throws IOException {
+    RecordingStore store = new RecordingStore(new LocalObjectStore(directory.toString()));
+    MultipartUploadOutputStream out =
+        new MultipartUploadOutputStream(store, "object-3", "search.json", 4);
+    out.write("partial export".getBytes(StandardCharsets.UTF_8));
+    out.abort();
+
+    assertTrue(store.aborted);
+    assertFalse(Files.exists(directory.resolve("object-3")));
+    assertFalse(Files.exists(directory.resolve("object-3.upload")));
+    assertThrows(IOException.class, () -> out.write(1));
+  }
+
+  @Test
+  @DisplayName("Test LocalObjectStore : resumed upload keeps given parts and discards the rest")
+  public void testResumeUpload() throws IOException {
+    LocalObjectStore store = new LocalObjectStore(directory.toString());
+    MultipartUpload upload = store.startUpload("object-5", "search.json");
+    upload.uploadPart("first,".getBytes(StandardCharsets.UTF_8), 6);
+    String uploadId = upload.getUploadId();
+    List<String> parts = upload.getParts();
+    // part not recorded by a checkpoint before going down
+    upload.uploadPart("lost,".getBytes(StandardCharsets.UTF_8), 5);
+
+    MultipartUpload resumed = store.resumeUpload("object-5", uploadId, parts);
+    resumed.uploadPart("second".getBytes(StandardCharsets.UTF_8), 6);
+    resumed.complete();
+
+    assertEquals(List.of("6", "6"), resumed.getParts());
+    assertEquals("first,second", Files.readString(directory.resolve("object-5")));
+    assertThrows(IOException.class, () -> store.resumeUpload("object-5", uploadId, parts));
+  }
+
+  @Test
+  @DisplayName("Test LocalObjectStore : object keys outside of directory are rejected")
+  public void testInvalidObjectKey() {
+    LocalObjectStore store = new LocalObjectStore(directory.toString());
+
+    assertThrows(IllegalArgumentException.class,
+        () -> store.startUpload("../object-4", "search.json"));
+  }
+}
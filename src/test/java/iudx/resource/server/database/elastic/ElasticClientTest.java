@@ -0,0 +1,111 @@
+package iudx.resource.server.database.elastic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch._types.query_dsl.QueryBuilders;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import iudx.resource.server.common.ResponseUrn;
+
+@ExtendWith(VertxExtension.class)
+public class ElasticClientTest {
+
+  private static final String INDEX = "iudx__index";
+  private static final Query QUERY = QueryBuilders.matchAll().build()._toQuery();
+
+  private HttpServer server;
+  private ElasticClient client;
+  private String searchResponse;
+
+  @BeforeEach
+  public void setup(Vertx vertx, VertxTestContext testContext) {
+    // stands in for the search endpoint of the database
+    server = vertx.createHttpServer().requestHandler(request -> request.response()
+        .putHeader("Content-Type", "application/json")
+        .putHeader("X-Elastic-Product", "Elasticsearch")
+        .end(searchResponse));
+    server.listen(0).onComplete(testContext.succeeding(listening -> {
+      client = new ElasticClient("localhost", listening.actualPort(), "user", "password");
+      testContext.completeNow();
+    }));
+  }
+
+  @AfterEach
+  public void teardown(VertxTestContext testContext) {
+    server.close().onComplete(testContext.succeedingThenComplete());
+  }
+
+  private static String response(long totalHits, String relation) {
+    return new JsonObject()
+        .put("took", 1)
+        .put("timed_out", false)
+        .put("_shards", new JsonObject().put("total", 1).put("successful", 1).put("failed", 0))
+        .put("hits", new JsonObject()
+            .put("total", new JsonObject().put("value", totalHits).put("relation", relation))
+            .put("hits", new JsonArray()
+                .add(new JsonObject().put("_index", INDEX).put("_id", "a")
+                    .put("_source", new JsonObject().put("id", "a")))))
+        .encode();
+  }
+
+  @Test
+  @DisplayName("Test exceedsTotalHitsLimit : only searches without cursor are limited")
+  public void testExceedsTotalHitsLimit() {
+    assertTrue(ElasticClient.exceedsTotalHitsLimit("gte", null));
+    assertFalse(ElasticClient.exceedsTotalHitsLimit("eq", null));
+    assertFalse(ElasticClient.exceedsTotalHitsLimit("gte",
+        SearchCursor.decode(SearchCursor.START)));
+  }
+
+  @Test
+  @DisplayName("Test asyncSearchEncoded : first page of more than 50000 hits fails with 413")
+  public void testSearchEncodedFirstPageExceedsLimit(VertxTestContext testContext) {
+    searchResponse = response(50000, "gte");
+
+    client.asyncSearchEncoded(INDEX, QUERY, 10, 0, null)
+        .onComplete(testContext.failing(failure -> testContext.verify(() -> {
+          JsonObject response = new JsonObject(failure.getMessage());
+          assertEquals(413, response.getInteger("type"));
+          assertEquals(ResponseUrn.PAYLOAD_TOO_LARGE_URN.getUrn(), response.getString("title"));
+          testContext.completeNow();
+        })));
+  }
+
+  @Test
+  @DisplayName("Test asyncSearchEncoded : page returned below limit")
+  public void testSearchEncodedBelowLimit(VertxTestContext testContext) {
+    searchResponse = response(1, "eq");
+
+    client.asyncSearchEncoded(INDEX, QUERY, 10, 0, null)
+        .onComplete(testContext.succeeding(encoder -> testContext.verify(() -> {
+          JsonObject envelope = encoder.nextChunk(64 * 1024).toJsonObject();
+          encoder.close();
+          assertTrue(encoder.isDone());
+          assertEquals(1, envelope.getJsonArray("results").size());
+          testContext.completeNow();
+        })));
+  }
+
+  @Test
+  @DisplayName("Test asyncSearch : first page of more than 50000 hits fails with 413")
+  public void testSearchFirstPageExceedsLimit(VertxTestContext testContext) {
+    searchResponse = response(50000, "gte");
+
+    client.asyncSearch(INDEX, QUERY, 10, 0, null)
+        .onComplete(testContext.failing(failure -> testContext.verify(() -> {
+          assertEquals(413, new JsonObject(failure.getMessage()).getInteger("type"));
+          testContext.completeNow();
+        })));
+  }
+}
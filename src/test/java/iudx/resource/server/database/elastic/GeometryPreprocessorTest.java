@@ -0,0 +1,89 @@
+package iudx.resource.server.database.elastic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import io.vertx.core.json.JsonArray;
+import iudx.resource.server.database.elastic.exception.ESQueryException;
+
+public class GeometryPreprocessorTest {
+
+  private static final String OPEN_POLYGON =
+      "[[[82.9735,25.3703],[83.0053,25.3567],[82.9766,25.3372],[82.95,25.3519],"
+          + "[82.936,25.3722]]]";
+
+  /**
+   * closed circle like ring of given number of vertices around (72.8, 21.1).
+   */
+  private String circularPolygon(int vertices) {
+    JsonArray ring = new JsonArray();
+    for (int i = 0; i < vertices; i++) {
+      double angle = 2 * Math.PI * i / vertices;
+      ring.add(new JsonArray().add(72.8 + 0.1 * Math.cos(angle)).add(21.1 + 0.1 * Math.sin(angle)));
+    }
+    ring.add(ring.getJsonArray(0).copy());
+    return new JsonArray().add(ring).encode();
+  }
+
+  @Test
+  @DisplayName("Test normalize : open polygon ring is closed")
+  public void testRingClosed() {
+    List<?> polygon = GeometryPreprocessor.normalize("polygon", OPEN_POLYGON, 0.001);
+    List<?> ring = (List<?>) polygon.get(0);
+
+    assertEquals(6, ring.size());
+    assertEquals(List.of(82.9735, 25.3703), ring.get(0));
+    assertEquals(ring.get(0), ring.get(ring.size() - 1));
+  }
+
+  @Test
+  @DisplayName("Test normalize : large polygon is simplified to tolerance")
+  public void testLargePolygonSimplified() {
+    List<?> ring = (List<?>) GeometryPreprocessor
+        .normalize("Polygon", circularPolygon(5000), 0.001).get(0);
+
+    assertTrue(ring.size() < 500);
+    assertEquals(ring.get(0), ring.get(ring.size() - 1));
+  }
+
+  @Test
+  @DisplayName("Test normalize : small polygon and zero tolerance are not simplified")
+  public void testNotSimplified() {
+    assertEquals(101, ((List<?>) GeometryPreprocessor
+        .normalize("polygon", circularPolygon(100), 0.001).get(0)).size());
+    assertEquals(1001, ((List<?>) GeometryPreprocessor
+        .normalize("polygon", circularPolygon(1000), 0).get(0)).size());
+  }
+
+  @Test
+  @DisplayName("Test normalize : normalized shape is cached")
+  public void testShapeCached() {
+    String polygon = circularPolygon(2000);
+    assertSame(GeometryPreprocessor.normalize("polygon", polygon, 0.0001),
+        GeometryPreprocessor.normalize("polygon", polygon, 0.0001));
+  }
+
+  @Test
+  @DisplayName("Test normalize : linestring")
+  public void testLineString() {
+    List<?> line = GeometryPreprocessor.normalize("linestring",
+        "[[82.9735,25.3703],[83.0053,25.3567],[82.9766,25.3372]]", 0.001);
+    assertEquals(3, line.size());
+    assertEquals(List.of(83.0053, 25.3567), line.get(1));
+  }
+
+  @Test
+  @DisplayName("Test normalize : invalid coordinates")
+  public void testInvalidCoordinates() {
+    assertThrows(ESQueryException.class,
+        () -> GeometryPreprocessor.normalize("polygon", "[[[82.9735,25.3703],[83.0053]]]", 0));
+    assertThrows(ESQueryException.class,
+        () -> GeometryPreprocessor.normalize("polygon", "[[[82.9735,25.3703]]]", 0));
+    assertThrows(ESQueryException.class,
+        () -> GeometryPreprocessor.normalize("linestring", "not json", 0));
+  }
+}
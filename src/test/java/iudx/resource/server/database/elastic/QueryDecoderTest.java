@@ -0,0 +1,120 @@
+package iudx.resource.server.database.elastic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import iudx.resource.server.database.elastic.exception.ESQueryException;
+
+public class QueryDecoderTest {
+
+  private static final String ID =
+      "iisc.ac.in/89a36273d77dac4cf38114fca1bbe64392547f86/rs.iudx.io/surat-itms-realtime-information/surat-itms-live-eta";
+
+  private QueryDecoder queryDecoder = new QueryDecoder();
+
+  private JsonObject attributeQuery(String attribute, String operator, String value) {
+    return new JsonObject()
+        .put("id", new JsonArray().add(ID))
+        .put("searchType", "attributeSearch_")
+        .put("timeLimit", "test,2020-10-22T00:00:00Z,10")
+        .put("applicableFilters", new JsonArray().add("ATTR"))
+        .put("attr-query", new JsonArray()
+            .add(new JsonObject().put("attribute", attribute).put("operator", operator)
+                .put("value", value)));
+  }
+
+  @Test
+  @DisplayName("Test getQuery : attribute query on requested attribute and value")
+  public void testAttributeQuery() {
+    Query query = queryDecoder.getQuery(attributeQuery("trip_delay", ">", "45"));
+
+    assertTrue(query.toString().contains("trip_delay"));
+    assertTrue(query.toString().contains("45"));
+    assertFalse(query.toString().contains("speed"));
+  }
+
+  @Test
+  @DisplayName("Test getQuery : not equal operator is a must not clause")
+  public void testNotEqualOperator() {
+    Query query = queryDecoder.getQuery(attributeQuery("speed", "!=", "30"));
+
+    assertTrue(query.bool().mustNot().size() == 1);
+    assertEquals("speed", query.bool().mustNot().get(0).term().field());
+  }
+
+  @Test
+  @DisplayName("Test getQuery : temporal query with requested time range")
+  public void testTemporalQuery() {
+    JsonObject request = new JsonObject()
+        .put("id", new JsonArray().add(ID))
+        .put("searchType", "temporalSearch_")
+        .put("timeLimit", "test,2020-10-22T00:00:00Z,10")
+        .put("applicableFilters", new JsonArray().add("TEMPORAL"))
+        .put("timerel", "during")
+        .put("time", "2020-10-18T14:20:00Z")
+        .put("endtime", "2020-10-20T14:20:00Z");
+
+    Query query = queryDecoder.getQuery(request);
+
+    assertEquals(2, query.bool().filter().size());
+    assertTrue(query.toString().contains("2020-10-20T14:20:00Z"));
+  }
+
+  @Test
+  @DisplayName("Test getQuery : invalid operator")
+  public void testInvalidOperator() {
+    assertThrows(ESQueryException.class,
+        () -> queryDecoder.getQuery(attributeQuery("speed", "~", "30")));
+  }
+
+  @Test
+  @DisplayName("Test getQuery : invalid search type")
+  public void testInvalidSearchType() {
+    JsonObject request = attributeQuery("speed", ">", "30").put("searchType", "latestSearch");
+    assertThrows(ESQueryException.class, () -> queryDecoder.getQuery(request));
+  }
+
+  @Test
+  @DisplayName("Test getQuery : all ids of request are matched")
+  public void testMultipleIds() {
+    String otherId = ID.replace("surat-itms-live-eta", "surat-itms-live-eta-2");
+    JsonObject request = attributeQuery("speed", ">", "30");
+    request.getJsonArray("id").add(otherId);
+
+    Query query = queryDecoder.getQuery(request);
+
+    assertTrue(query.toString().contains(ID));
+    assertTrue(query.toString().contains(otherId));
+  }
+
+  @Test
+  @DisplayName("Test getQuery : geo queries are typed queries")
+  public void testGeoQuery() {
+    JsonObject circle = new JsonObject()
+        .put("id", new JsonArray().add(ID))
+        .put("searchType", "geoSearch_")
+        .put("lat", 21.178)
+        .put("lon", 72.834)
+        .put("radius", "10");
+    JsonObject polygon = new JsonObject()
+        .put("id", new JsonArray().add(ID))
+        .put("searchType", "geoSearch_")
+        .put("geometry", "polygon")
+        .put("georel", "within")
+        .put("geoproperty", "location")
+        .put("coordinates", "[[[72.71,21.14],[72.73,21.14],[72.72,21.16]]]");
+
+    String circleQuery = queryDecoder.getQuery(circle).toString();
+    assertTrue(circleQuery.contains("geo_shape"));
+    assertTrue(circleQuery.contains("\"relation\":\"within\""));
+    String query = queryDecoder.getQuery(polygon).toString();
+    assertTrue(query.contains("geo_shape"));
+    assertFalse(query.contains("wrapper"));
+  }
+}
@@ -0,0 +1,218 @@
+package iudx.resource.server.database.elastic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorResponse;
+import co.elastic.clients.elasticsearch.core.ClosePointInTimeRequest;
+import co.elastic.clients.elasticsearch.core.ClosePointInTimeResponse;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeRequest;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeResponse;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.TotalHitsRelation;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import iudx.resource.server.database.async.ProgressListener;
+
+public class ResumableExporterTest {
+
+  private static final int DOCUMENTS = 7;
+  private static final int PAGE_SIZE = 2;
+
+  private ElasticsearchAsyncClient asyncClient;
+  private ProgressListener progressListener;
+  private List<byte[]> segments;
+  private List<JsonObject> checkpoints;
+  private ExecutorService writerPool;
+
+  @BeforeEach
+  public void setup() {
+    writerPool = Executors.newFixedThreadPool(2);
+    asyncClient = mock(ElasticsearchAsyncClient.class);
+    progressListener = mock(ProgressListener.class);
+    segments = new ArrayList<>();
+    checkpoints = new ArrayList<>();
+    when(asyncClient.openPointInTime(any(OpenPointInTimeRequest.class))).thenReturn(
+        CompletableFuture.completedFuture(OpenPointInTimeResponse.of(o -> o.id("pit-1"))));
+    when(asyncClient.closePointInTime(any(ClosePointInTimeRequest.class))).thenReturn(
+        CompletableFuture.completedFuture(
+            ClosePointInTimeResponse.of(c -> c.succeeded(true).numFreed(1))));
+    // documents sorted by seq, a page holds the documents after the seq searched after
+    when(asyncClient.search(any(SearchRequest.class), eq(ObjectNode.class))).thenAnswer(call -> {
+      SearchRequest request = call.getArgument(0);
+      List<String> searchAfter = request.searchAfter();
+      int from = searchAfter == null || searchAfter.isEmpty() ? 0
+          : Integer.parseInt(searchAfter.get(0)) + 1;
+      return CompletableFuture.completedFuture(
+          searchResponse(hits(from, Math.min(PAGE_SIZE, DOCUMENTS - from))));
+    });
+  }
+
+  @AfterEach
+  public void tearDown() {
+    writerPool.shutdown();
+  }
+
+  private List<Hit<ObjectNode>> hits(int from, int count) {
+    List<Hit<ObjectNode>> hits = new ArrayList<>();
+    for (int i = from; i < from + count; i++) {
+      ObjectNode source = JsonNodeFactory.instance.objectNode().put("seq", i).put("id", "a,b");
+      String id = String.valueOf(i);
+      hits.add(Hit.of(h -> h.index("index").id(id).source(source).sort(List.of(id))));
+    }
+    return hits;
+  }
+
+  private SearchResponse<ObjectNode> searchResponse(List<Hit<ObjectNode>> hits) {
+    return SearchResponse.of(r -> r.took(1).timedOut(false)
+        .shards(s -> s.total(1).successful(1).failed(0))
+        .hits(h -> h.total(t -> t.value(DOCUMENTS).relation(TotalHitsRelation.Eq)).hits(hits)));
+  }
+
+  private void export(ExportFormat format, JsonObject checkpoint) throws Exception {
+    ExportSink sink = (segment, segmentCheckpoint) -> {
+      segments.add(segment);
+      checkpoints.add(segmentCheckpoint);
+      return Future.succeededFuture();
+    };
+    new ResumableExporter(asyncClient, writerPool, "search-1", format, PAGE_SIZE, 1, sink,
+        progressListener)
+        .export(List.of("index"), (pitId, searchAfter, countHits) -> SearchRequest.of(s -> {
+          s.pit(p -> p.id(pitId)).size(PAGE_SIZE);
+          if (searchAfter != null) {
+            s.searchAfter(searchAfter);
+          }
+          return s;
+        }), checkpoint).get(10, TimeUnit.SECONDS);
+  }
+
+  private String decode(ExportFormat format, List<byte[]> parts) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (byte[] part : parts) {
+      out.write(part);
+    }
+    if (format == ExportFormat.JSON) {
+      return out.toString(StandardCharsets.UTF_8);
+    }
+    // segments are gzip members of their own
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  @Test
+  @DisplayName("Test export : segments are cut at page ends with a checkpoint after each")
+  public void testSegments() throws Exception {
+    export(ExportFormat.JSON, null);
+
+    // a segment per page, the last page is the one not full
+    assertEquals(4, segments.size());
+    JsonArray exported = new JsonArray(decode(ExportFormat.JSON, segments));
+    assertEquals(DOCUMENTS, exported.size());
+    assertEquals(6, exported.getJsonObject(6).getInteger("seq"));
+
+    assertEquals(new JsonArray().add("1"), checkpoints.get(0).getJsonArray("searchAfter"));
+    assertEquals("pit-1", checkpoints.get(0).getString(ResumableExporter.PIT_ID));
+    assertEquals(4, checkpoints.get(1).getLong(ExportSegments.DOCUMENTS));
+    assertNull(checkpoints.get(3));
+    verify(progressListener, atLeastOnce()).updateProgress(0.9);
+  }
+
+  @Test
+  @DisplayName("Test export : no hits exports an empty file")
+  public void testEmptyExport() throws Exception {
+    when(asyncClient.search(any(SearchRequest.class), eq(ObjectNode.class)))
+        .thenReturn(CompletableFuture.completedFuture(searchResponse(List.of())));
+
+    export(ExportFormat.JSON, null);
+
+    assertEquals(1, segments.size());
+    assertEquals("[]", decode(ExportFormat.JSON, segments));
+  }
+
+  @Test
+  @DisplayName("Test resume : export resumed from a checkpoint equals an uninterrupted export")
+  public void testResume() throws Exception {
+    for (ExportFormat format : ExportFormat.values()) {
+      segments.clear();
+      checkpoints.clear();
+      export(format, null);
+      String uninterrupted = decode(format, segments);
+
+      // went down after storing the second segment
+      List<byte[]> stored = new ArrayList<>(segments.subList(0, 2));
+      JsonObject checkpoint = checkpoints.get(1);
+      segments.clear();
+      checkpoints.clear();
+      export(format, checkpoint);
+      stored.addAll(segments);
+
+      assertEquals(uninterrupted, decode(format, stored), format.getValue());
+    }
+    verify(progressListener, atLeastOnce()).updateProgress(anyDouble());
+  }
+
+  @Test
+  @DisplayName("Test resume : csv header is written once")
+  public void testResumeCsvHeader() throws Exception {
+    export(ExportFormat.CSV, null);
+    JsonObject checkpoint = checkpoints.get(0);
+    segments.clear();
+    export(ExportFormat.CSV, checkpoint);
+
+    String resumed = decode(ExportFormat.CSV, segments);
+    assertTrue(resumed.startsWith("2,\"a,b\"\r\n"), resumed);
+    assertEquals(new JsonArray().add("seq").add("id"),
+        checkpoint.getJsonArray(ExportSegments.COLUMNS));
+  }
+
+  @Test
+  @DisplayName("Test resume : export can't be resumed once its point in time expired")
+  public void testResumeExpired() throws Exception {
+    export(ExportFormat.JSON, null);
+    JsonObject checkpoint = checkpoints.get(1);
+    when(asyncClient.search(any(SearchRequest.class), eq(ObjectNode.class)))
+        .thenReturn(CompletableFuture.failedFuture(new ElasticsearchException("search",
+            ErrorResponse.of(e -> e.status(404)
+                .error(c -> c.type("search_context_missing_exception").reason("expired"))))));
+    segments.clear();
+
+    ExecutionException failure =
+        assertThrows(ExecutionException.class, () -> export(ExportFormat.JSON, checkpoint));
+    assertTrue(ResumableExporter.isCheckpointExpired(failure));
+    assertTrue(segments.isEmpty());
+    // closed only by the export the checkpoint was taken from
+    verify(asyncClient, times(1)).closePointInTime(any(ClosePointInTimeRequest.class));
+  }
+}
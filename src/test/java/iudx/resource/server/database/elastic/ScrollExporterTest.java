@@ -0,0 +1,253 @@
+package iudx.resource.server.database.elastic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.core.ClearScrollRequest;
+import co.elastic.clients.elasticsearch.core.ClearScrollResponse;
+import co.elastic.clients.elasticsearch.core.ScrollRequest;
+import co.elastic.clients.elasticsearch.core.ScrollResponse;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.TotalHitsRelation;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import iudx.resource.server.database.async.ProgressListener;
+
+public class ScrollExporterTest {
+
+  @TempDir
+  Path tempDir;
+
+  private ElasticsearchAsyncClient asyncClient;
+  private ProgressListener progressListener;
+  private File file;
+  private ExecutorService writerPool;
+
+  @BeforeEach
+  public void setup() {
+    writerPool = Executors.newFixedThreadPool(2);
+    asyncClient = mock(ElasticsearchAsyncClient.class);
+    progressListener = mock(ProgressListener.class);
+    file = tempDir.resolve("export.json").toFile();
+    when(asyncClient.clearScroll(any(ClearScrollRequest.class))).thenReturn(CompletableFuture
+        .completedFuture(ClearScrollResponse.of(c -> c.succeeded(true).numFreed(1))));
+  }
+
+  @AfterEach
+  public void tearDown() {
+    writerPool.shutdown();
+  }
+
+  private List<Hit<ObjectNode>> hits(int from, int count) {
+    List<Hit<ObjectNode>> hits = new ArrayList<>();
+    for (int i = from; i < from + count; i++) {
+      ObjectNode source = JsonNodeFactory.instance.objectNode().put("seq", i);
+      String id = String.valueOf(i);
+      hits.add(Hit.of(h -> h.index("index").id(id).source(source)));
+    }
+    return hits;
+  }
+
+  private SearchResponse<ObjectNode> searchResponse(long total, List<Hit<ObjectNode>> hits) {
+    return SearchResponse.of(r -> r.took(1).timedOut(false).scrollId("scroll-1")
+        .shards(s -> s.total(1).successful(1).failed(0))
+        .hits(h -> h.total(t -> t.value(total).relation(TotalHitsRelation.Eq)).hits(hits)));
+  }
+
+  private ScrollResponse<ObjectNode> scrollResponse(long total, List<Hit<ObjectNode>> hits) {
+    return new ScrollResponse.Builder<ObjectNode>().took(1).timedOut(false).scrollId("scroll-2")
+        .shards(s -> s.total(1).successful(1).failed(0))
+        .hits(h -> h.total(t -> t.value(total).relation(TotalHitsRelation.Eq)).hits(hits))
+        .build();
+  }
+
+  private SearchRequest searchRequest(int size) {
+    return SearchRequest.of(s -> s.index("index").size(size).scroll(t -> t.time("5m")));
+  }
+
+  @Test
+  @DisplayName("Test export : all pages are written as one json array")
+  public void testExportAllPages() throws Exception {
+    when(asyncClient.search(any(SearchRequest.class), eq(ObjectNode.class)))
+        .thenReturn(CompletableFuture.completedFuture(searchResponse(5, hits(0, 2))));
+    when(asyncClient.scroll(any(ScrollRequest.class), eq(ObjectNode.class)))
+        .thenReturn(CompletableFuture.completedFuture(scrollResponse(5, hits(2, 2))))
+        .thenReturn(CompletableFuture.completedFuture(scrollResponse(5, hits(4, 1))));
+
+    new ScrollExporter(asyncClient, writerPool, file, progressListener).export(searchRequest(2))
+        .get(10, TimeUnit.SECONDS);
+
+    JsonArray exported = new JsonArray(Files.readString(file.toPath()));
+    assertEquals(5, exported.size());
+    for (int i = 0; i < 5; i++) {
+      assertEquals(i, exported.getJsonObject(i).getInteger("seq"));
+    }
+    // last page is known from total hits, no empty page is fetched
+    verify(asyncClient, times(2)).scroll(any(ScrollRequest.class), eq(ObjectNode.class));
+    verify(progressListener, atLeastOnce()).updateProgress(0.9);
+    verify(asyncClient).clearScroll(any(ClearScrollRequest.class));
+  }
+
+  @Test
+  @DisplayName("Test export : no hits writes empty array")
+  public void testExportEmpty() throws Exception {
+    when(asyncClient.search(any(SearchRequest.class), eq(ObjectNode.class)))
+        .thenReturn(CompletableFuture.completedFuture(searchResponse(0, List.of())));
+
+    new ScrollExporter(asyncClient, writerPool, file, progressListener).export(searchRequest(2))
+        .get(10, TimeUnit.SECONDS);
+
+    assertTrue(new JsonArray(Files.readString(file.toPath())).isEmpty());
+    verify(asyncClient, never()).scroll(any(ScrollRequest.class), eq(ObjectNode.class));
+    verify(progressListener, never()).updateProgress(anyDouble());
+  }
+
+  @Test
+  @DisplayName("Test export : pages are written to an output stream target")
+  public void testExportToStream() throws Exception {
+    when(asyncClient.search(any(SearchRequest.class), eq(ObjectNode.class)))
+        .thenReturn(CompletableFuture.completedFuture(searchResponse(3, hits(0, 2))));
+    when(asyncClient.scroll(any(ScrollRequest.class), eq(ObjectNode.class)))
+        .thenReturn(CompletableFuture.completedFuture(scrollResponse(3, hits(2, 1))));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new ScrollExporter(asyncClient, writerPool, "search-1", () -> out, ExportFormat.JSON,
+        progressListener)
+        .export(searchRequest(2)).get(10, TimeUnit.SECONDS);
+
+    JsonArray exported = new JsonArray(out.toString(StandardCharsets.UTF_8));
+    assertEquals(3, exported.size());
+    assertEquals(2, exported.getJsonObject(2).getInteger("seq"));
+  }
+
+  @Test
+  @DisplayName("Test export : failed scroll fails export and clears scroll")
+  public void testExportScrollFailure() {
+    when(asyncClient.search(any(SearchRequest.class), eq(ObjectNode.class)))
+        .thenReturn(CompletableFuture.completedFuture(searchResponse(5, hits(0, 2))));
+    when(asyncClient.scroll(any(ScrollRequest.class), eq(ObjectNode.class)))
+        .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("scroll expired")));
+
+    CompletableFuture<Void> export =
+        new ScrollExporter(asyncClient, writerPool, file, progressListener).export(searchRequest(2));
+
+    ExecutionException ex =
+        assertThrows(ExecutionException.class, () -> export.get(10, TimeUnit.SECONDS));
+    assertTrue(!ScrollExporter.isIoFailure(ex.getCause()));
+    verify(asyncClient).clearScroll(any(ClearScrollRequest.class));
+  }
+
+  @Test
+  @DisplayName("Test sliced export : slices are combined into one json array")
+  public void testSlicedExport() throws Exception {
+    when(asyncClient.search(any(SearchRequest.class), eq(ObjectNode.class))).thenAnswer(call -> {
+      SearchRequest request = call.getArgument(0);
+      switch (request.slice().id()) {
+        case 0:
+          return CompletableFuture.completedFuture(searchResponse(2, hits(0, 2)));
+        case 1:
+          return CompletableFuture.completedFuture(searchResponse(0, List.of()));
+        default:
+          return CompletableFuture.completedFuture(searchResponse(1, hits(2, 1)));
+      }
+    });
+
+    new SlicedScrollExporter(asyncClient, writerPool, file, 3, ExportFormat.JSON,
+        progressListener)
+        .export(slice -> SearchRequest.of(s -> s.index("index").size(10)
+            .scroll(t -> t.time("5m")).slice(sl -> sl.id(slice).max(3))))
+        .get(10, TimeUnit.SECONDS);
+
+    JsonArray exported = new JsonArray(Files.readString(file.toPath()));
+    assertEquals(3, exported.size());
+    assertEquals(List.of(0, 1, 2), exported.stream()
+        .map(doc -> ((JsonObject) doc).getInteger("seq")).sorted().collect(Collectors.toList()));
+    assertEquals(1, tempDir.toFile().listFiles().length);
+    verify(progressListener, atLeastOnce()).updateProgress(0.9);
+  }
+
+  @Test
+  @DisplayName("Test sliced export : gzipped ndjson slices are concatenated")
+  public void testSlicedNdjsonExport() throws Exception {
+    when(asyncClient.search(any(SearchRequest.class), eq(ObjectNode.class))).thenAnswer(call -> {
+      SearchRequest request = call.getArgument(0);
+      return request.slice().id() == 0
+          ? CompletableFuture.completedFuture(searchResponse(2, hits(0, 2)))
+          : CompletableFuture.completedFuture(searchResponse(1, hits(2, 1)));
+    });
+
+    new SlicedScrollExporter(asyncClient, writerPool, file, 2, ExportFormat.NDJSON,
+        progressListener)
+        .export(slice -> SearchRequest.of(s -> s.index("index").size(10)
+            .scroll(t -> t.time("5m")).slice(sl -> sl.id(slice).max(2))))
+        .get(10, TimeUnit.SECONDS);
+
+    List<String> lines = gunzip(Files.readAllBytes(file.toPath())).lines()
+        .collect(Collectors.toList());
+    assertEquals(3, lines.size());
+    assertEquals(List.of(0, 1, 2), lines.stream()
+        .map(line -> new JsonObject(line).getInteger("seq")).sorted()
+        .collect(Collectors.toList()));
+  }
+
+  @Test
+  @DisplayName("Test export : documents are written as gzipped csv")
+  public void testCsvExport() throws Exception {
+    ObjectNode first = JsonNodeFactory.instance.objectNode().put("id", "a,1");
+    first.putObject("location").put("type", "Point").putArray("coordinates").add(72.8).add(21.1);
+    ObjectNode second = JsonNodeFactory.instance.objectNode().put("id", "b").put("extra", 1);
+    List<Hit<ObjectNode>> hits = List.of(Hit.of(h -> h.index("index").id("1").source(first)),
+        Hit.of(h -> h.index("index").id("2").source(second)));
+    when(asyncClient.search(any(SearchRequest.class), eq(ObjectNode.class)))
+        .thenReturn(CompletableFuture.completedFuture(searchResponse(2, hits)));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new ScrollExporter(asyncClient, writerPool, "search-1", () -> out, ExportFormat.CSV,
+        progressListener)
+        .export(searchRequest(10)).get(10, TimeUnit.SECONDS);
+
+    assertEquals("id,location.type,location.coordinates\r\n"
+        + "\"a,1\",Point,\"[72.8,21.1]\"\r\n"
+        + "b,,\r\n", gunzip(out.toByteArray()));
+  }
+
+  private String gunzip(byte[] bytes) throws Exception {
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package iudx.resource.server.database.elastic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import iudx.resource.server.database.elastic.exception.ESQueryException;
+
+public class SearchCursorTest {
+
+  @Test
+  @DisplayName("Test encode/decode : cursor round trip")
+  public void testEncodeDecode() {
+    SearchCursor cursor = new SearchCursor("pit-id==", List.of("2022-01-01T00:00:00Z", "id/1"));
+
+    String token = cursor.encode();
+    SearchCursor decoded = SearchCursor.decode(token);
+
+    assertEquals(true, token.matches("^[a-zA-Z0-9-_]+$"));
+    assertEquals("pit-id==", decoded.getPitId());
+    assertEquals(cursor.getSearchAfter(), decoded.getSearchAfter());
+  }
+
+  @Test
+  @DisplayName("Test decode : cursor without point in time")
+  public void testDecodeWithoutPit() {
+    SearchCursor cursor = new SearchCursor(null, List.of("2022-01-01T00:00:00Z", "a"));
+
+    assertNull(SearchCursor.decode(cursor.encode()).getPitId());
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"invalid", "e30", "eyJhZnRlciI6W119", "%%%"})
+  @DisplayName("Test decode : invalid cursor")
+  public void testDecodeInvalid(String token) {
+    assertThrows(ESQueryException.class, () -> SearchCursor.decode(token));
+  }
+
+  @Test
+  @DisplayName("Test decode : start of a cursor")
+  public void testDecodeStart() {
+    SearchCursor cursor = SearchCursor.decode(SearchCursor.START);
+
+    assertNull(cursor.getPitId());
+    assertTrue(cursor.isStart());
+  }
+
+  @Test
+  @DisplayName("Test next : no cursor for a partial page")
+  public void testNextPartialPage() {
+    SearchCursor cursor = new SearchCursor("pit-1", List.of("a"));
+
+    assertNull(SearchCursor.next(cursor, null, List.of("b"), 5, 10));
+  }
+
+  @Test
+  @DisplayName("Test next : no cursor for offset pagination")
+  public void testNextOffsetPage() {
+    assertNull(SearchCursor.next(null, "pit-1", List.of("a"), 10, 10));
+  }
+
+  @Test
+  @DisplayName("Test next : cursor keeps point in time when none returned")
+  public void testNextKeepsPit() {
+    SearchCursor cursor = new SearchCursor("pit-1", List.of("a"));
+
+    SearchCursor next = SearchCursor.next(cursor, null, List.of("b"), 10, 10);
+
+    assertEquals("pit-1", next.getPitId());
+    assertEquals(List.of("b"), next.getSearchAfter());
+  }
+}
@@ -0,0 +1,185 @@
+package iudx.resource.server.database.elastic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import iudx.resource.server.common.ResponseUrn;
+
+public class SearchResponseEncoderTest {
+
+  private static ByteArrayInputStream stream(String json) {
+    return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static Buffer encode(SearchResponseEncoder encoder, String response)
+      throws IOException {
+    encoder.readHeader(stream(response));
+    Buffer envelope = Buffer.buffer();
+    while (!encoder.isDone()) {
+      envelope.appendBuffer(encoder.nextChunk(64 * 1024));
+    }
+    return envelope;
+  }
+
+  @Test
+  @DisplayName("Test nextChunk : copies source of every hit into envelope")
+  public void testEncodeHits() throws IOException {
+    String response = "{\"hits\":{\"total\":{\"value\":25,\"relation\":\"eq\"},\"hits\":["
+        + "{\"_source\":{\"id\":\"a\",\"speed\":[1,2.5],\"nested\":{\"x\":null}}},"
+        + "{\"_source\":{\"id\":\"b\"}}]}}";
+
+    SearchResponseEncoder encoder = new SearchResponseEncoder(2, 10, null);
+    Buffer buffer = encode(encoder, response);
+    JsonObject envelope = buffer.toJsonObject();
+
+    assertEquals(ResponseUrn.SUCCESS_URN.getUrn(), envelope.getString("type"));
+    assertEquals(ResponseUrn.SUCCESS_URN.getMessage(), envelope.getString("title"));
+    JsonArray results = envelope.getJsonArray("results");
+    assertEquals(2, results.size());
+    assertEquals(new JsonObject("{\"id\":\"a\",\"speed\":[1,2.5],\"nested\":{\"x\":null}}"),
+        results.getJsonObject(0));
+    assertEquals(2, envelope.getInteger("limit"));
+    assertEquals(10, envelope.getInteger("offset"));
+    assertEquals(25L, envelope.getLong("totalHits"));
+    assertEquals(25L, encoder.getTotalHits());
+    assertEquals("eq", encoder.getTotalHitsRelation());
+    assertEquals(2, encoder.getHitsWritten());
+  }
+
+  @Test
+  @DisplayName("Test nextChunk : response without hits")
+  public void testEncodeNoHits() throws IOException {
+    String response = "{\"hits\":{\"total\":{\"value\":0,\"relation\":\"eq\"}}}";
+
+    SearchResponseEncoder encoder = new SearchResponseEncoder(10, 0, null);
+    JsonObject envelope = encode(encoder, response).toJsonObject();
+
+    assertEquals(0, envelope.getJsonArray("results").size());
+    assertEquals(0L, encoder.getTotalHits());
+    assertEquals(0, encoder.getHitsWritten());
+  }
+
+  @Test
+  @DisplayName("Test readHeader : total hits read before any hit is written")
+  public void testReadHeaderTotalHitsGte() throws IOException {
+    String response = "{\"hits\":{\"total\":{\"value\":50000,\"relation\":\"gte\"},\"hits\":["
+        + "{\"_source\":{\"id\":\"a\"}}]}}";
+
+    SearchResponseEncoder encoder = new SearchResponseEncoder(10, 0, null);
+    encoder.readHeader(stream(response));
+
+    assertEquals("gte", encoder.getTotalHitsRelation());
+    assertEquals(50000L, encoder.getTotalHits());
+    assertEquals(0, encoder.getHitsWritten());
+  }
+
+  @Test
+  @DisplayName("Test nextChunk : invalid response")
+  public void testEncodeInvalidResponse() {
+    SearchResponseEncoder encoder = new SearchResponseEncoder(10, 0, null);
+    assertThrows(IOException.class, () -> encode(encoder, "{\"hits\":{\"total\""));
+  }
+
+  @Test
+  @DisplayName("Test nextChunk : cursor for next page added when more hits are available")
+  public void testEncodeNextCursor() throws IOException {
+    String response = "{\"pit_id\":\"pit-1\",\"hits\":{\"total\":"
+        + "{\"value\":5,\"relation\":\"eq\"},\"hits\":["
+        + "{\"_source\":{\"id\":\"a\"},\"sort\":[\"2022-01-01T00:00:00Z\",\"0\"]},"
+        + "{\"_source\":{\"id\":\"b\"},\"sort\":[\"2022-01-01T00:00:01Z\",\"1\"]}]}}";
+
+    SearchResponseEncoder encoder =
+        new SearchResponseEncoder(2, 0, SearchCursor.decode(SearchCursor.START));
+    JsonObject envelope = encode(encoder, response).toJsonObject();
+
+    SearchCursor next = SearchCursor.decode(envelope.getString("cursor"));
+    assertEquals("pit-1", next.getPitId());
+    assertEquals(List.of("2022-01-01T00:00:01Z", "1"), next.getSearchAfter());
+  }
+
+  @Test
+  @DisplayName("Test nextChunk : cursor carries point in time returned with page")
+  public void testEncodeNextCursorWithPit() throws IOException {
+    String response = "{\"pit_id\":\"pit-2\",\"hits\":{\"total\":"
+        + "{\"value\":50000,\"relation\":\"gte\"},\"hits\":["
+        + "{\"_source\":{\"id\":\"a\"},\"sort\":[\"2022-01-01T00:00:00Z\",\"a\"]}]}}";
+    SearchCursor cursor = new SearchCursor("pit-1", List.of("2021-12-31T00:00:00Z", "a"));
+
+    SearchResponseEncoder encoder = new SearchResponseEncoder(1, 0, cursor);
+    JsonObject envelope = encode(encoder, response).toJsonObject();
+
+    SearchCursor next = SearchCursor.decode(envelope.getString("cursor"));
+    assertEquals("pit-2", next.getPitId());
+    assertEquals(List.of("2022-01-01T00:00:00Z", "a"), next.getSearchAfter());
+  }
+
+  @Test
+  @DisplayName("Test nextChunk : no cursor on last page")
+  public void testEncodeLastPage() throws IOException {
+    String response = "{\"hits\":{\"total\":{\"value\":3,\"relation\":\"eq\"},\"hits\":["
+        + "{\"_source\":{\"id\":\"a\"},\"sort\":[\"2022-01-01T00:00:00Z\",\"a\"]}]}}";
+
+    SearchResponseEncoder encoder = new SearchResponseEncoder(1, 2, null);
+    JsonObject envelope = encode(encoder, response).toJsonObject();
+
+    assertFalse(envelope.containsKey("cursor"));
+    assertNull(encoder.getNextCursor());
+  }
+
+  @Test
+  @DisplayName("Test nextChunk : chunks of envelope filled up to chunk size")
+  public void testEncodeChunks() throws IOException {
+    StringBuilder hits = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      hits.append(i == 0 ? "" : ",").append("{\"_source\":{\"id\":\"").append(i).append("\"}}");
+    }
+    String response = "{\"hits\":{\"total\":{\"value\":100,\"relation\":\"eq\"},\"hits\":["
+        + hits + "]}}";
+
+    SearchResponseEncoder encoder = new SearchResponseEncoder(100, 0, null);
+    encoder.readHeader(stream(response));
+    Buffer envelope = Buffer.buffer();
+    int chunks = 0;
+    while (!encoder.isDone()) {
+      Buffer chunk = encoder.nextChunk(256);
+      assertTrue(chunk.length() < 256 + 64);
+      envelope.appendBuffer(chunk);
+      chunks++;
+    }
+
+    assertTrue(chunks > 1);
+    JsonArray results = envelope.toJsonObject().getJsonArray("results");
+    assertEquals(100, results.size());
+    assertEquals("99", results.getJsonObject(99).getString("id"));
+  }
+
+  @Test
+  @DisplayName("Test close : close handler called once, also when abandoned")
+  public void testClose() throws IOException {
+    String response = "{\"hits\":{\"total\":{\"value\":2,\"relation\":\"eq\"},\"hits\":["
+        + "{\"_source\":{\"id\":\"a\"}},{\"_source\":{\"id\":\"b\"}}]}}";
+    AtomicInteger closed = new AtomicInteger();
+
+    SearchResponseEncoder encoder = new SearchResponseEncoder(10, 0, null);
+    encoder.closeHandler(closed::incrementAndGet);
+    encoder.readHeader(stream(response));
+    encoder.nextChunk(1);
+    encoder.close();
+    encoder.close();
+
+    assertFalse(encoder.isDone());
+    assertEquals(1, closed.get());
+  }
+}
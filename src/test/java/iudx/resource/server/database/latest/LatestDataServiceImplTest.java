@@ -0,0 +1,185 @@
+package iudx.resource.server.database.latest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.redis.client.Response;
+import iudx.resource.server.cache.CacheService;
+
+@ExtendWith(VertxExtension.class)
+public class LatestDataServiceImplTest {
+
+  private static final String GROUP =
+      "iisc.ac.in/89a36273d77dac4cf38114fca1bbe64392547f86/rs.iudx.io/pune-env-flood";
+  private static final String ID_1 = GROUP + "/FWR055";
+  private static final String ID_2 = GROUP + "/FWR056";
+  private static final String ID_3 = GROUP + "/FWR057";
+
+  private RedisClient redisClient;
+  private CacheService cacheService;
+  private LatestDataService latest;
+
+  @BeforeEach
+  public void setup() {
+    redisClient = mock(RedisClient.class);
+    cacheService = mock(CacheService.class);
+    latest = new LatestDataServiceImpl(redisClient, cacheService);
+  }
+
+  private JsonObject request(String... ids) {
+    return new JsonObject().put("id", new JsonArray(Arrays.asList(ids)))
+        .put("searchType", "latestSearch");
+  }
+
+  @Test
+  @DisplayName("Test getLatestData : latest values of many ids are got in a single batch")
+  @SuppressWarnings("unchecked")
+  public void testBatchedLatest(VertxTestContext testContext) {
+    JsonObject snapshot = new JsonObject()
+        .put("bus-1", new JsonObject().put("license_plate", "bus-1"))
+        .put("bus-2", new JsonObject().put("license_plate", "bus-2"));
+    when(cacheService.getAll(any())).thenReturn(Future.succeededFuture(
+        new JsonObject().put(ID_3, new JsonObject().put("value", "license_plate"))));
+    when(redisClient.getAll(anyList())).thenReturn(Future.succeededFuture(
+        Arrays.asList(new JsonObject().put("id", ID_1), null, snapshot)));
+
+    latest.getLatestData(request(ID_1, ID_2, ID_3, ID_1),
+        testContext.succeeding(response -> testContext.verify(() -> {
+          JsonArray results = response.getJsonArray("results");
+          assertEquals(3, results.size());
+          assertEquals(ID_1, results.getJsonObject(0).getString("id"));
+
+          ArgumentCaptor<List<RedisArgs>> args = ArgumentCaptor.forClass(List.class);
+          verify(redisClient).getAll(args.capture());
+          assertEquals(3, args.getValue().size());
+          // unique attribute resources are got whole, others by the path of their default attribute
+          assertEquals(".", args.getValue().get(2).getPath());
+          assertTrue(args.getValue().get(0).getPath().startsWith("._"));
+          verify(cacheService, never()).get(any());
+          testContext.completeNow();
+        })));
+  }
+
+  @Test
+  @DisplayName("Test getLatestData : latest values held in memory are not got from redis")
+  @SuppressWarnings("unchecked")
+  public void testSnapshotLatest(VertxTestContext testContext) {
+    LatestSnapshotStore store = new LatestSnapshotStore();
+    store.update(new JsonObject().put("id", ID_1), null);
+    latest = new LatestDataServiceImpl(redisClient, cacheService, store);
+    when(cacheService.getAll(any())).thenReturn(Future.succeededFuture(new JsonObject()));
+    when(redisClient.getAll(anyList())).thenReturn(
+        Future.succeededFuture(Arrays.asList(new JsonObject().put("id", ID_2))));
+
+    latest.getLatestData(request(ID_1),
+        testContext.succeeding(single -> testContext.verify(() -> {
+          assertEquals(ID_1, single.getJsonArray("results").getJsonObject(0).getString("id"));
+          verify(cacheService, never()).get(any());
+
+          latest.getLatestData(request(ID_1, ID_2),
+              testContext.succeeding(many -> testContext.verify(() -> {
+                assertEquals(2, many.getJsonArray("results").size());
+                ArgumentCaptor<List<RedisArgs>> args = ArgumentCaptor.forClass(List.class);
+                verify(redisClient).getAll(args.capture());
+                assertEquals(1, args.getValue().size());
+                testContext.completeNow();
+              })));
+        })));
+  }
+
+  @Test
+  @DisplayName("Test getLatestData : only attrs are got, values missing an attr are got whole")
+  @SuppressWarnings("unchecked")
+  public void testProjectedLatest(VertxTestContext testContext) {
+    when(cacheService.getAll(any())).thenReturn(Future.succeededFuture(
+        new JsonObject().put(ID_2, new JsonObject().put("value", "license_plate"))));
+    when(redisClient.getObjectKeys(anyList())).thenReturn(
+        Future.succeededFuture(Arrays.asList(Arrays.asList("bus-1", "bus-2"))));
+    JsonObject whole = new JsonObject().put("id", ID_1).put("speed", 10)
+        .put("observationDateTime", "2022-07-01T10:00:00+05:30");
+    JsonObject projected = new JsonObject()
+        .put("bus-1", new JsonObject().put("speed", 20))
+        .put("bus-2", new JsonObject().put("speed", 30));
+    when(redisClient.getAll(anyList()))
+        .thenReturn(Future.succeededFuture(Arrays.asList(null, projected)))
+        .thenReturn(Future.succeededFuture(Arrays.asList(whole)));
+
+    JsonObject request = request(ID_1, ID_2).put("attrs", new JsonArray().add("speed"));
+    latest.getLatestData(request, testContext.succeeding(response -> testContext.verify(() -> {
+      JsonArray results = response.getJsonArray("results");
+      assertEquals(3, results.size());
+      for (int i = 0; i < results.size(); i++) {
+        assertEquals(1, results.getJsonObject(i).size());
+      }
+
+      ArgumentCaptor<List<RedisArgs>> args = ArgumentCaptor.forClass(List.class);
+      verify(redisClient, times(2)).getAll(args.capture());
+      List<RedisArgs> projectedArgs = args.getAllValues().get(0);
+      assertTrue(projectedArgs.get(0).getProjections().get(0).getPath().endsWith(".speed"));
+      assertEquals("[\"bus-2\"].speed", projectedArgs.get(1).getProjections().get(1).getPath());
+      assertFalse(args.getAllValues().get(1).get(0).isProjected());
+      testContext.completeNow();
+    })));
+  }
+
+  @Test
+  @DisplayName("Test toJson : values got by multi-path get are put by attribute")
+  public void testProjectedToJson() {
+    RedisCommandArgsBuilder builder = new RedisCommandArgsBuilder();
+    RedisArgs single = builder.getRedisCommandArgs(ID_1, null, Arrays.asList("speed"));
+    Response singleReply = mock(Response.class);
+    when(singleReply.toString()).thenReturn("10");
+    assertEquals(new JsonObject().put("speed", 10), RedisClient.toJson(single, singleReply));
+
+    RedisArgs snapshots =
+        builder.getRedisCommandArgs(ID_2, Arrays.asList("bus-1"), Arrays.asList("speed", "id"));
+    Response reply = mock(Response.class);
+    when(reply.toString()).thenReturn(new JsonObject().put("[\"bus-1\"].speed", 20)
+        .put("[\"bus-1\"].id", ID_2).encode());
+    assertEquals(new JsonObject().put("bus-1", new JsonObject().put("speed", 20).put("id", ID_2)),
+        RedisClient.toJson(snapshots, reply));
+  }
+
+  @Test
+  @DisplayName("Test getLatestData : no latest value of any id found fails")
+  public void testBatchedLatestNotFound(VertxTestContext testContext) {
+    when(cacheService.getAll(any())).thenReturn(Future.failedFuture("cache down"));
+    when(redisClient.getAll(anyList()))
+        .thenReturn(Future.succeededFuture(Arrays.asList(null, null)));
+
+    latest.getLatestData(request(ID_1, ID_2),
+        testContext.failing(failure -> testContext.verify(() -> {
+          assertEquals(204, new JsonObject(failure.getMessage()).getInteger("type"));
+          testContext.completeNow();
+        })));
+  }
+
+  @Test
+  @DisplayName("Test hashSlot : slot of a key is the slot of its hash tag")
+  public void testHashSlot() {
+    assertEquals(12182, RedisClient.hashSlot("foo"));
+    assertEquals(12739, RedisClient.hashSlot("123456789"));
+    assertEquals(RedisClient.hashSlot("user1000"),
+        RedisClient.hashSlot("{user1000}.following"));
+    assertEquals(RedisClient.hashSlot("user1000"), RedisClient.hashSlot("a{user1000}{b}"));
+  }
+}
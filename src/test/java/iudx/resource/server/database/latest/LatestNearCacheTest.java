@@ -0,0 +1,184 @@
+package iudx.resource.server.database.latest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.redis.client.Response;
+import io.vertx.redis.client.ResponseType;
+
+public class LatestNearCacheTest {
+
+  private static final String KEY = "iisc_ac_in/89a36273d77dac4cf38114fca1bbe64392547f86";
+  private static final String PATH = "._d36a9b7d6ce1e6d4d7a3a9d1da0ac4ef4a7fc5d3";
+
+  private LatestNearCache cache;
+
+  @BeforeEach
+  public void setup() {
+    cache = new LatestNearCache(1024 * 1024, Duration.ofMinutes(1));
+  }
+
+  private static JsonObject value(String id) {
+    return new JsonObject().put("id", id).put("observationDateTime", "2022-07-01T10:00:00+05:30");
+  }
+
+  private static Response message(ResponseType type, String... parts) {
+    Response message = mock(Response.class);
+    when(message.type()).thenReturn(type);
+    when(message.size()).thenReturn(parts.length);
+    for (int i = 0; i < parts.length; i++) {
+      Response part = mock(Response.class);
+      when(part.toString()).thenReturn(parts[i]);
+      when(message.get(i)).thenReturn(part);
+    }
+    return message;
+  }
+
+  @Test
+  @DisplayName("Test get : cached values are copies")
+  public void testGetCopies() {
+    assertNull(cache.get(KEY, PATH));
+
+    JsonObject value = value("id-1");
+    cache.put(KEY, PATH, value, value.encode().length(), cache.stamp());
+    value.put("id", "changed");
+    JsonObject cached = cache.get(KEY, PATH);
+    assertEquals("id-1", cached.getString("id"));
+
+    cached.put("id", "changed");
+    assertEquals("id-1", cache.get(KEY, PATH).getString("id"));
+    assertNull(cache.get(KEY, "."));
+  }
+
+  @Test
+  @DisplayName("Test invalidate : values got before an invalidation are not cached")
+  public void testInvalidate() {
+    cache.put(KEY, PATH, value("id-1"), 100, cache.stamp());
+    cache.put(KEY, ".", value("id-1"), 100, cache.stamp());
+
+    long stamp = cache.stamp();
+    cache.invalidate(KEY);
+    assertNull(cache.get(KEY, PATH));
+    assertNull(cache.get(KEY, "."));
+
+    // a get sent before the invalidation may have got the replaced value
+    cache.put(KEY, PATH, value("id-1"), 100, stamp);
+    assertNull(cache.get(KEY, PATH));
+
+    cache.put(KEY, PATH, value("id-2"), 100, cache.stamp());
+    assertEquals("id-2", cache.get(KEY, PATH).getString("id"));
+  }
+
+  @Test
+  @DisplayName("Test invalidateAll : all values are invalidated")
+  public void testInvalidateAll() {
+    long stamp = cache.stamp();
+    cache.put(KEY, PATH, value("id-1"), 100, stamp);
+    cache.put("other", PATH, value("id-2"), 100, stamp);
+
+    cache.invalidateAll();
+    assertNull(cache.get(KEY, PATH));
+    assertNull(cache.get("other", PATH));
+    cache.put("other", PATH, value("id-2"), 100, stamp);
+    assertNull(cache.get("other", PATH));
+  }
+
+  @Test
+  @DisplayName("Test get : values expire after TTL")
+  public void testTtl() throws InterruptedException {
+    LatestNearCache shortLived = new LatestNearCache(1024 * 1024, Duration.ofMillis(500));
+    shortLived.put(KEY, PATH, value("id-1"), 100, shortLived.stamp());
+    assertEquals("id-1", shortLived.get(KEY, PATH).getString("id"));
+    Thread.sleep(700);
+    assertNull(shortLived.get(KEY, PATH));
+  }
+
+  @Test
+  @DisplayName("Test put : cache is kept within its memory budget")
+  public void testMemoryBudget() {
+    LatestNearCache small = new LatestNearCache(1000, Duration.ofMinutes(1));
+    for (int i = 0; i < 100; i++) {
+      small.put("key-" + i, PATH, value("id-" + i), 100, small.stamp());
+    }
+    int cached = 0;
+    for (int i = 0; i < 100; i++) {
+      cached += small.get("key-" + i, PATH) == null ? 0 : 1;
+    }
+    assertTrue(cached < 10);
+  }
+
+  @Test
+  @DisplayName("Test keyOf : key of keyspace notifications on RESP2 and RESP3")
+  public void testKeyOf() {
+    assertEquals(KEY, KeyspaceInvalidator.keyOf(message(ResponseType.MULTI, "pmessage",
+        KeyspaceInvalidator.KEYSPACE_PATTERN, "__keyspace@0__:" + KEY, "json.set")));
+    assertEquals(KEY, KeyspaceInvalidator.keyOf(message(ResponseType.PUSH, "pmessage",
+        KeyspaceInvalidator.KEYSPACE_PATTERN, "__keyspace@0__:" + KEY, "expired")));
+
+    assertNull(KeyspaceInvalidator.keyOf(message(ResponseType.MULTI, "psubscribe",
+        KeyspaceInvalidator.KEYSPACE_PATTERN, "1")));
+    assertNull(KeyspaceInvalidator.keyOf(message(ResponseType.BULK, "OK")));
+    assertNull(KeyspaceInvalidator.keyOf(null));
+  }
+
+  @Test
+  @DisplayName("Test acquire : one invalidator is shared until the last user released it")
+  public void testSharedInvalidator() {
+    Vertx vertx = Vertx.vertx();
+    try {
+      KeyspaceInvalidator first = KeyspaceInvalidator.acquire(vertx, cache);
+      KeyspaceInvalidator second = KeyspaceInvalidator.acquire(vertx, cache);
+      assertSame(first, second);
+
+      first.release(null);
+      assertSame(first, KeyspaceInvalidator.acquire(vertx, cache));
+      first.release(null);
+      second.release(null);
+      assertNotSame(first, KeyspaceInvalidator.acquire(vertx, cache));
+    } finally {
+      vertx.close();
+    }
+  }
+
+  @Test
+  @DisplayName("Test start : nodes resolved again and cache invalidated on resubscription")
+  public void testResubscribeResolvesNodes() throws InterruptedException {
+    Vertx vertx = Vertx.vertx();
+    try {
+      cache.put(KEY, PATH, value("id-1"), 100, cache.stamp());
+      CountDownLatch resolved = new CountDownLatch(2);
+      AtomicInteger attempts = new AtomicInteger();
+      Supplier<Future<List<String>>> endpoints = () -> {
+        resolved.countDown();
+        // topology unknown on first attempt, e.g. while a failover is in progress
+        return attempts.getAndIncrement() == 0
+            ? Future.failedFuture("CLUSTERDOWN")
+            : Future.succeededFuture(List.of());
+      };
+
+      KeyspaceInvalidator invalidator = KeyspaceInvalidator.acquire(vertx, cache);
+      invalidator.start(endpoints);
+      assertTrue(resolved.await(10, TimeUnit.SECONDS));
+      assertNull(cache.get(KEY, PATH));
+      invalidator.release(endpoints);
+    } finally {
+      vertx.close();
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package iudx.resource.server.database.latest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+public class LatestSnapshotStoreTest {
+
+  private static final String ID =
+      "iisc.ac.in/89a36273d77dac4cf38114fca1bbe64392547f86/rs.iudx.io/pune-env-flood/FWR055";
+
+  private LatestSnapshotStore store;
+
+  @BeforeEach
+  public void setup() {
+    store = new LatestSnapshotStore();
+  }
+
+  private static JsonObject observation(String time) {
+    return new JsonObject().put("id", ID).put("observationDateTime", time);
+  }
+
+  @Test
+  @DisplayName("Test update : only newer observations replace the latest")
+  public void testLatestObservation() {
+    assertNull(store.get(ID));
+
+    store.update(observation("2022-07-01T10:00:00+05:30"), null);
+    store.update(observation("2022-07-01T09:00:00+05:30"), null);
+    JsonArray latest = store.get(ID);
+    assertEquals(1, latest.size());
+    assertEquals("2022-07-01T10:00:00+05:30",
+        latest.getJsonObject(0).getString("observationDateTime"));
+
+    store.update(observation("2022-07-01T11:00:00+05:30"), null);
+    assertEquals("2022-07-01T11:00:00+05:30",
+        store.get(ID).getJsonObject(0).getString("observationDateTime"));
+
+    // stored observations are not shared with callers
+    store.get(ID).getJsonObject(0).put("observationDateTime", "changed");
+    assertEquals("2022-07-01T11:00:00+05:30",
+        store.get(ID).getJsonObject(0).getString("observationDateTime"));
+  }
+
+  @Test
+  @DisplayName("Test update : latest observation of each unique attribute value is kept")
+  public void testUniqueAttribute() {
+    store.seed(ID, "license_plate", new JsonArray()
+        .add(observation("2022-07-01T09:00:00+05:30").put("license_plate", "bus-1")),
+        store.generation());
+    store.update(observation("2022-07-01T10:00:00+05:30").put("license_plate", "bus-1"),
+        "license_plate");
+    store.update(observation("2022-07-01T10:05:00+05:30").put("license_plate", "bus-2"),
+        "license_plate");
+    store.update(observation("2022-07-01T10:10:00+05:30").put("license_plate", "bus-1"),
+        "license_plate");
+    store.update(observation("2022-07-01T10:15:00+05:30"), "license_plate");
+
+    JsonArray latest = store.get(ID);
+    assertEquals(2, latest.size());
+    for (int i = 0; i < latest.size(); i++) {
+      if ("bus-1".equals(latest.getJsonObject(i).getString("license_plate"))) {
+        assertEquals("2022-07-01T10:10:00+05:30",
+            latest.getJsonObject(i).getString("observationDateTime"));
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Test seed : unique attribute resources are held once seeded from redis")
+  public void testSeed() {
+    store.update(observation("2022-07-01T10:10:00+05:30").put("license_plate", "bus-1"),
+        "license_plate");
+    // observations published since the store is fed are not all latest values
+    assertNull(store.get(ID));
+
+    store.seed(ID, "license_plate", new JsonArray()
+        .add(observation("2022-07-01T10:00:00+05:30").put("license_plate", "bus-1"))
+        .add(observation("2022-07-01T10:05:00+05:30").put("license_plate", "bus-2")),
+        store.generation());
+
+    JsonArray latest = store.get(ID);
+    assertEquals(2, latest.size());
+    for (int i = 0; i < latest.size(); i++) {
+      if ("bus-1".equals(latest.getJsonObject(i).getString("license_plate"))) {
+        assertEquals("2022-07-01T10:10:00+05:30",
+            latest.getJsonObject(i).getString("observationDateTime"));
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Test seed : values got before the store was cleared are dropped")
+  public void testSeedAfterClear() {
+    long generation = store.generation();
+    store.clear();
+    store.seed(ID, "license_plate", new JsonArray()
+        .add(observation("2022-07-01T10:00:00+05:30").put("license_plate", "bus-1")), generation);
+
+    assertNull(store.get(ID));
+  }
+
+  @Test
+  @DisplayName("Test clear : all observations are dropped")
+  public void testClear() {
+    store.update(observation("2022-07-01T10:00:00+05:30"), null);
+    store.update(new JsonObject().put("observationDateTime", "2022-07-01T10:00:00+05:30"), null);
+    store.clear();
+    assertNull(store.get(ID));
+  }
+}
@@ -0,0 +1,30 @@
+package iudx.resource.server.database.latest;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+
+@ExtendWith(VertxExtension.class)
+public class RedisClientTest {
+
+  @Test
+  @DisplayName("Test start : fails once redis is unavailable for all startup attempts")
+  public void testStartAttemptsCapped(Vertx vertx, VertxTestContext testContext) {
+    JsonObject config = new JsonObject()
+        .put("redisMode", "STANDALONE")
+        .put("redisUsername", "user")
+        .put("redisPassword", "password")
+        .put("redisHost", "localhost")
+        // nothing listens on the discard port
+        .put("redisPort", 9)
+        .put("redisMaxWaitingHandlers", 16)
+        .put("redisStartupAttempts", 2);
+
+    new RedisClient(vertx, config).start()
+        .onComplete(testContext.failingThenComplete());
+  }
+}
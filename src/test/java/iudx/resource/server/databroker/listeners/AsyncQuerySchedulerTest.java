@@ -0,0 +1,162 @@
+package iudx.resource.server.databroker.listeners;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+public class AsyncQuerySchedulerTest {
+
+  private List<String> started;
+  private Map<String, Promise<Void>> jobs;
+
+  @BeforeEach
+  public void setup() {
+    started = new ArrayList<>();
+    jobs = new HashMap<>();
+  }
+
+  private Future<Void> submit(AsyncQueryScheduler scheduler, String user, String name, long size) {
+    return scheduler.submit(user, size, () -> {
+      started.add(name);
+      Promise<Void> promise = Promise.promise();
+      jobs.put(name, promise);
+      return promise.future();
+    });
+  }
+
+  @Test
+  @DisplayName("Test scheduler : global and per user concurrency are bounded")
+  public void testConcurrencyBounded() {
+    AsyncQueryScheduler scheduler = new AsyncQueryScheduler(2, 1);
+    submit(scheduler, "u1", "a1", 1);
+    submit(scheduler, "u1", "a2", 1);
+    submit(scheduler, "u2", "b1", 1);
+    submit(scheduler, "u3", "c1", 1);
+
+    assertEquals(List.of("a1", "b1"), started);
+    assertEquals(2, scheduler.getRunning());
+    assertEquals(2, scheduler.getQueued());
+
+    jobs.get("a1").complete();
+    // u1 is not ahead of u3 who has not had a turn yet
+    assertEquals(List.of("a1", "b1", "c1"), started);
+
+    jobs.get("b1").complete();
+    assertEquals(List.of("a1", "b1", "c1", "a2"), started);
+    assertEquals(0, scheduler.getQueued());
+  }
+
+  @Test
+  @DisplayName("Test scheduler : users take turns regardless of submission order")
+  public void testFairShare() {
+    AsyncQueryScheduler scheduler = new AsyncQueryScheduler(1, 1);
+    submit(scheduler, "u1", "a1", 1);
+    for (int i = 2; i <= 5; i++) {
+      submit(scheduler, "u1", "a" + i, 1);
+    }
+    submit(scheduler, "u2", "b1", 1);
+
+    jobs.get("a1").complete();
+    jobs.get(started.get(1)).complete();
+
+    assertEquals(List.of("a1", "b1", "a2"), started);
+  }
+
+  @Test
+  @DisplayName("Test scheduler : smaller jobs of a user are started first")
+  public void testPriorityBySize() {
+    AsyncQueryScheduler scheduler = new AsyncQueryScheduler(1, 1);
+    submit(scheduler, "u1", "first", 10);
+    submit(scheduler, "u1", "large", 1000);
+    submit(scheduler, "u1", "small", 5);
+    submit(scheduler, "u1", "medium", 50);
+
+    jobs.get("first").complete();
+    jobs.get("small").complete();
+    jobs.get("medium").complete();
+
+    assertEquals(List.of("first", "small", "medium", "large"), started);
+  }
+
+  @Test
+  @DisplayName("Test scheduler : failed job frees its slot and completes its future")
+  public void testFailedJob() {
+    AsyncQueryScheduler scheduler = new AsyncQueryScheduler(1, 1);
+    Future<Void> failing = scheduler.submit("u1", 1, () -> {
+      throw new IllegalStateException("failed to start");
+    });
+    Future<Void> next = submit(scheduler, "u1", "a1", 1);
+
+    assertTrue(failing.failed());
+    assertEquals(List.of("a1"), started);
+    jobs.get("a1").complete();
+    assertTrue(next.succeeded());
+    assertEquals(0, scheduler.getRunning());
+  }
+
+  @Test
+  @DisplayName("Test scheduler : shared by all listeners, jobs run on the context they came from")
+  public void testShared() throws Exception {
+    Vertx vertx = Vertx.vertx();
+    try {
+      AsyncQueryScheduler scheduler = AsyncQueryScheduler.shared(vertx, 1, 1);
+      assertSame(scheduler, AsyncQueryScheduler.shared(vertx, 4, 4));
+
+      Context first = vertx.getOrCreateContext();
+      Context second = vertx.getOrCreateContext();
+      Promise<Void> firstJob = Promise.promise();
+      CompletableFuture<Context> secondStarted = new CompletableFuture<>();
+      CompletableFuture<Void> firstSubmitted = new CompletableFuture<>();
+      CompletableFuture<Void> submitted = new CompletableFuture<>();
+      first.runOnContext(v -> {
+        scheduler.submit("u1", 1, () -> firstJob.future());
+        firstSubmitted.complete(null);
+      });
+      firstSubmitted.get(5, TimeUnit.SECONDS);
+      second.runOnContext(v -> {
+        scheduler.submit("u2", 1, () -> {
+          secondStarted.complete(Vertx.currentContext());
+          return Promise.<Void>promise().future();
+        });
+        submitted.complete(null);
+      });
+      submitted.get(5, TimeUnit.SECONDS);
+
+      // global limit of 1 is taken by the job of the other context
+      assertFalse(secondStarted.isDone());
+      first.runOnContext(v -> firstJob.complete());
+      assertSame(second, secondStarted.get(5, TimeUnit.SECONDS));
+    } finally {
+      vertx.close();
+    }
+  }
+
+  @Test
+  @DisplayName("Test estimateSize : ids times time window in hours")
+  public void testEstimateSize() {
+    JsonObject query = new JsonObject()
+        .put("id", new JsonArray().add("id-1").add("id-2"))
+        .put("time", "2020-10-10T00:00:00Z")
+        .put("endtime", "2020-10-11T00:00:00+05:30");
+    assertEquals(2 * 18, AsyncQueryScheduler.estimateSize(query));
+
+    JsonObject openQuery = new JsonObject().put("id", new JsonArray().add("id-1"));
+    assertTrue(AsyncQueryScheduler.estimateSize(openQuery) > 24 * 300);
+  }
+}
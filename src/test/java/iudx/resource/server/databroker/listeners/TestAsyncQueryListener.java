@@ -1,14 +1,23 @@
 package iudx.resource.server.databroker.listeners;
 
+import static iudx.resource.server.common.Constants.ASYNC_SEARCH_DONE_ADDRESS;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -17,12 +26,19 @@ import org.mockito.Mock;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.stubbing.Answer;
+import com.rabbitmq.client.Envelope;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.SharedData;
 import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
 import io.vertx.rabbitmq.RabbitMQClient;
@@ -54,11 +70,23 @@ public class TestAsyncQueryListener {
   RabbitMQMessage message;
   @Mock
   Throwable throwable;
+  @Mock
+  Envelope envelope;
+  @Mock
+  EventBus eventBus;
+  @Mock
+  SharedData sharedData;
+  @Mock
+  LocalMap<Object, Object> localMap;
 
 
   @BeforeEach
   public void setUp(VertxTestContext vertxTestContext) {
     vHost = "Dummy vHost";
+    when(vertx.sharedData()).thenReturn(sharedData);
+    when(sharedData.getLocalMap(anyString())).thenReturn(localMap);
+    when(localMap.computeIfAbsent(any(), any())).thenAnswer(
+        call -> ((Function<Object, Object>) call.getArgument(1)).apply(call.getArgument(0)));
     asyncQueryListener = new AsyncQueryListener(vertx, config, vHost, asyncService);
     asyncQueryListener.client = mock(client.getClass());
     vertxTestContext.completeNow();
@@ -85,6 +113,8 @@ public class TestAsyncQueryListener {
 
 
     when(asyncQueryListener.client.start()).thenReturn(voidFuture);
+    when(asyncQueryListener.client.basicQos(anyInt())).thenReturn(Future.succeededFuture());
+    when(vertx.eventBus()).thenReturn(eventBus);
     when(clientStartAsyncResult.succeeded()).thenReturn(true);
     when(consumerASyncResult.succeeded()).thenReturn(true);
     when(consumerASyncResult.result()).thenReturn(rmqConsumer);
@@ -119,7 +149,7 @@ public class TestAsyncQueryListener {
     asyncQueryListener.start();
     verify(voidFuture, times(1)).onComplete(any());
     verify(clientStartAsyncResult).succeeded();
-    verify(asyncService).asyncSearch(anyString(), anyString(), any(), any());
+    verify(asyncService).asyncSearch(anyString(), anyString(), any(), any(), any());
     verify(message).body();
     assertEquals(buffer, message.body());
     vertxTestContext.completeNow();
@@ -139,10 +169,15 @@ public class TestAsyncQueryListener {
 
 
     when(asyncQueryListener.client.start()).thenReturn(voidFuture);
+    when(asyncQueryListener.client.basicQos(anyInt())).thenReturn(Future.succeededFuture());
+    when(vertx.eventBus()).thenReturn(eventBus);
     when(clientStartAsyncResult.succeeded()).thenReturn(true);
     when(consumerASyncResult.succeeded()).thenReturn(true);
     when(consumerASyncResult.result()).thenReturn(rmqConsumer);
     when(message.body()).thenReturn(null);
+    when(message.envelope()).thenReturn(envelope);
+    when(asyncQueryListener.client.basicAck(anyLong(), anyBoolean()))
+        .thenReturn(Future.succeededFuture());
 
 
 
@@ -175,6 +210,7 @@ public class TestAsyncQueryListener {
     verify(clientStartAsyncResult).succeeded();
     verify(message).body();
     assertEquals(null, message.body());
+    verify(asyncQueryListener.client).basicAck(anyLong(), anyBoolean());
     vertxTestContext.completeNow();
   }
 
@@ -189,4 +225,119 @@ public class TestAsyncQueryListener {
     assertFalse(voidFuture.succeeded());
     vertxTestContext.completeNow();
   }
+
+  @Test
+  @DisplayName("Test start method : query timed out is acked once its search is done")
+  public void test_search_done_after_timeout(VertxTestContext vertxTestContext) {
+    JsonObject object = new JsonObject()
+        .put("requestId", "dummy_key")
+        .put("searchId", "search-1")
+        .put("user", "Dummy_value")
+        .put("query", new JsonObject());
+    Future<Void> voidFuture = mock(Future.class);
+    AsyncResult<Void> clientStartAsyncResult = mock(AsyncResult.class);
+    AsyncResult<RabbitMQConsumer> consumerASyncResult = mock(AsyncResult.class);
+    RabbitMQConsumer rmqConsumer = mock(RabbitMQConsumer.class);
+    RabbitMQMessage message = mock(RabbitMQMessage.class);
+    Message<JsonObject> done = mock(Message.class);
+
+    when(asyncQueryListener.client.start()).thenReturn(voidFuture);
+    when(asyncQueryListener.client.basicQos(anyInt())).thenReturn(Future.succeededFuture());
+    when(asyncQueryListener.client.basicAck(anyLong(), anyBoolean()))
+        .thenReturn(Future.succeededFuture());
+    when(vertx.eventBus()).thenReturn(eventBus);
+    when(clientStartAsyncResult.succeeded()).thenReturn(true);
+    when(consumerASyncResult.succeeded()).thenReturn(true);
+    when(consumerASyncResult.result()).thenReturn(rmqConsumer);
+    when(message.body()).thenReturn(Buffer.buffer(object.toString()));
+    when(message.envelope()).thenReturn(envelope);
+    when(done.body()).thenReturn(new JsonObject().put("searchId", "search-1"));
+
+    doAnswer(call -> {
+      ((Handler<AsyncResult<Void>>) call.getArgument(0)).handle(clientStartAsyncResult);
+      return null;
+    }).when(voidFuture).onComplete(any());
+    doAnswer(call -> {
+      ((Handler<AsyncResult<RabbitMQConsumer>>) call.getArgument(2)).handle(consumerASyncResult);
+      return null;
+    }).when(asyncQueryListener.client).basicConsumer(anyString(), any(), any());
+    doAnswer(call -> {
+      ((Handler<RabbitMQMessage>) call.getArgument(0)).handle(message);
+      return null;
+    }).when(rmqConsumer).handler(any());
+    doAnswer(call -> {
+      ((Handler<AsyncResult<JsonObject>>) call.getArgument(4)).handle(
+          Future.failedFuture(new ReplyException(ReplyFailure.TIMEOUT, "timed out")));
+      return null;
+    }).when(asyncService).asyncSearch(anyString(), anyString(), anyString(), any(), any());
+    List<Handler<Message<JsonObject>>> doneHandlers = new ArrayList<>();
+    doAnswer(call -> {
+      doneHandlers.add(call.getArgument(1));
+      return null;
+    }).when(eventBus)
+        .consumer(eq(ASYNC_SEARCH_DONE_ADDRESS), any(Handler.class));
+
+    asyncQueryListener.start();
+    verify(asyncQueryListener.client, never()).basicAck(anyLong(), anyBoolean());
+
+    doneHandlers.get(0).handle(done);
+    verify(asyncQueryListener.client).basicAck(anyLong(), anyBoolean());
+    vertxTestContext.completeNow();
+  }
+
+  @Test
+  @DisplayName("Test start method : query timed out is acked once wait for it is over")
+  public void test_search_wait_bounded_after_timeout(VertxTestContext vertxTestContext) {
+    JsonObject object = new JsonObject()
+        .put("requestId", "dummy_key")
+        .put("searchId", "search-1")
+        .put("user", "Dummy_value")
+        .put("query", new JsonObject());
+    Future<Void> voidFuture = mock(Future.class);
+    AsyncResult<Void> clientStartAsyncResult = mock(AsyncResult.class);
+    AsyncResult<RabbitMQConsumer> consumerASyncResult = mock(AsyncResult.class);
+    RabbitMQConsumer rmqConsumer = mock(RabbitMQConsumer.class);
+    RabbitMQMessage message = mock(RabbitMQMessage.class);
+
+    when(asyncQueryListener.client.start()).thenReturn(voidFuture);
+    when(asyncQueryListener.client.basicQos(anyInt())).thenReturn(Future.succeededFuture());
+    when(asyncQueryListener.client.basicAck(anyLong(), anyBoolean()))
+        .thenReturn(Future.succeededFuture());
+    when(vertx.eventBus()).thenReturn(eventBus);
+    when(clientStartAsyncResult.succeeded()).thenReturn(true);
+    when(consumerASyncResult.succeeded()).thenReturn(true);
+    when(consumerASyncResult.result()).thenReturn(rmqConsumer);
+    when(message.body()).thenReturn(Buffer.buffer(object.toString()));
+    when(message.envelope()).thenReturn(envelope);
+
+    doAnswer(call -> {
+      ((Handler<AsyncResult<Void>>) call.getArgument(0)).handle(clientStartAsyncResult);
+      return null;
+    }).when(voidFuture).onComplete(any());
+    doAnswer(call -> {
+      ((Handler<AsyncResult<RabbitMQConsumer>>) call.getArgument(2)).handle(consumerASyncResult);
+      return null;
+    }).when(asyncQueryListener.client).basicConsumer(anyString(), any(), any());
+    doAnswer(call -> {
+      ((Handler<RabbitMQMessage>) call.getArgument(0)).handle(message);
+      return null;
+    }).when(rmqConsumer).handler(any());
+    doAnswer(call -> {
+      ((Handler<AsyncResult<JsonObject>>) call.getArgument(4)).handle(
+          Future.failedFuture(new ReplyException(ReplyFailure.TIMEOUT, "timed out")));
+      return null;
+    }).when(asyncService).asyncSearch(anyString(), anyString(), anyString(), any(), any());
+    List<Handler<Long>> timers = new ArrayList<>();
+    doAnswer(call -> {
+      timers.add(call.getArgument(1));
+      return 1L;
+    }).when(vertx).setTimer(anyLong(), any());
+
+    asyncQueryListener.start();
+    verify(asyncQueryListener.client, never()).basicAck(anyLong(), anyBoolean());
+
+    timers.get(0).handle(1L);
+    verify(asyncQueryListener.client).basicAck(anyLong(), anyBoolean());
+    vertxTestContext.completeNow();
+  }
 }